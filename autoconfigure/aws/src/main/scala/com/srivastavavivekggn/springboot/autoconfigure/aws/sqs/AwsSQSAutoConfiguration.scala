@@ -24,6 +24,8 @@ import scala.util.{Failure, Success, Try}
 /**
   * Auto configuration for Amazon SQS with optional support
   * for creating a JmsTemplate that uses the SQS connection factory
+  *
+  * Queues with a SqsMessageListener bean are consumed by a SqsConsumerContainer
   */
 @Configuration
 @ConditionalOnBean(Array(classOf[SqsClient], classOf[AwsCredentialsProvider]))
@@ -119,6 +121,20 @@ class AwsSQSAutoConfiguration {
     override def getLevel: Level = Level.MEDIUM
   }
 
+  /**
+    * Consume the queue of each SqsMessageListener
+    *
+    * @param sqs       the sqs client
+    * @param listeners the listeners
+    * @return the consumer container
+    */
+  @Bean
+  @ConditionalOnBean(Array(classOf[SqsClient], classOf[SqsMessageListener]))
+  @ConditionalOnMissingBean
+  def sqsConsumerContainer(sqs: SqsClient, listeners: JList[SqsMessageListener]): SqsConsumerContainer = {
+    new SqsConsumerContainer(sqs, CollectionUtils.asScalaListOrEmpty(listeners), properties)
+  }
+
   /**
     * Ensure each configured queue exists and optionally create on missing, also subscribe
     * to all topics listed in config
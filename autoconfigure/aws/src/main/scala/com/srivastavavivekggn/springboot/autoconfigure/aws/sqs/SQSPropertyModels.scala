@@ -18,6 +18,19 @@ object SQSPropertyModels {
 
     @BeanProperty
     var queues: JMap[String, QueueProperties] = new JHashMap[String, QueueProperties]()
+
+    /**
+      * The number of threads messages are handled on (shared by all queues). If 0, messages are handled on
+      * virtual threads where they are available, otherwise on 4 threads per processor.
+      */
+    @BeanProperty
+    var handlerThreads: Integer = 0
+
+    /**
+      * How long to wait for messages that are being handled when shutting down
+      */
+    @BeanProperty
+    var shutdownTimeoutSeconds: Integer = 30
   }
 
   class QueueProperties {
@@ -39,6 +52,54 @@ object SQSPropertyModels {
       */
     @BeanProperty
     var topics: JList[Topic] = new JArrayList[Topic]()
+
+    /**
+      * Settings for consuming this queue (if there is a SqsMessageListener for it)
+      */
+    @BeanProperty
+    var consumer: ConsumerProperties = new ConsumerProperties()
+  }
+
+  /**
+    * Queue consumer settings
+    */
+  class ConsumerProperties {
+
+    /**
+      * The number of threads concurrently receiving messages
+      */
+    @BeanProperty
+    var pollers: Integer = 2
+
+    /**
+      * The maximum number of messages per receive (at most 10)
+      */
+    @BeanProperty
+    var batchSize: Integer = 10
+
+    /**
+      * How long a receive waits for messages to arrive (long polling, at most 20)
+      */
+    @BeanProperty
+    var waitTimeSeconds: Integer = 20
+
+    /**
+      * The visibility timeout for received messages, this is extended for as long as a message is being handled
+      */
+    @BeanProperty
+    var visibilityTimeoutSeconds: Integer = 30
+
+    /**
+      * The maximum number of messages received but not yet handled, pollers wait when this is reached
+      */
+    @BeanProperty
+    var maxInFlight: Integer = 100
+
+    /**
+      * How often handled messages are deleted (in batches of up to 10)
+      */
+    @BeanProperty
+    var deleteIntervalMillis: Integer = 100
   }
 
   /**
@@ -0,0 +1,127 @@
+package com.srivastavavivekggn.springboot.autoconfigure.aws.sqs
+
+import com.srivastavavivekggn.scala.util.collection.CollectionUtils
+import com.srivastavavivekggn.scala.util.concurrent.AsyncUtils
+import com.typesafe.scalalogging.Logger
+import org.springframework.context.SmartLifecycle
+import software.amazon.awssdk.services.sqs.SqsClient
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest
+
+import java.util.concurrent._
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+  * Consumes the queue of each SqsMessageListener (see SqsQueueConsumer), starting once the application context is
+  * ready and stopping (after handling the messages already received) when it is closed.
+  *
+  * Messages from all queues are handled on one executor -- virtual threads, or a fixed pool if
+  * aws.sqs.handler-threads is set (or virtual threads are not available).
+  *
+  * The container only depends on the SqsClient interface, so it can be run against a local stand-in (e.g., ElasticMQ)
+  * or an in-memory SqsClient.
+  *
+  * @param sqs        the sqs client
+  * @param listeners  the listeners (at most one per queue)
+  * @param properties the sqs properties
+  */
+class SqsConsumerContainer(sqs: SqsClient,
+                           listeners: List[SqsMessageListener],
+                           properties: SQSPropertyModels.AwsSQSProperties) extends SmartLifecycle {
+
+  /**
+    * logger for this class
+    */
+  private val logger = Logger[SqsConsumerContainer]
+
+  listeners.groupBy(l => queueProperties(l.queue).name).foreach {
+    case (name, l) if l.size > 1 => throw new IllegalStateException(s"Found ${l.size} SqsMessageListeners for queue $name")
+    case _ => ()
+  }
+
+  @volatile private var consumers: List[SqsQueueConsumer] = List.empty
+
+  // the handler pool, if we created it (virtual threads are shared)
+  private var handlerPool: Option[ExecutorService] = None
+
+  private var scheduler: ScheduledExecutorService = _
+
+  override def start(): Unit = synchronized {
+    if (consumers.isEmpty && listeners.nonEmpty) {
+      val handlers = handlerExecutor()
+      scheduler = Executors.newScheduledThreadPool(2, threadFactory("sqs-consumer-scheduler"))
+
+      consumers = listeners.map(listener => {
+        val queue = queueProperties(listener.queue)
+        val queueUrl = sqs.getQueueUrl(GetQueueUrlRequest.builder().queueName(queue.name).build()).queueUrl()
+
+        new SqsQueueConsumer(sqs, queueUrl, listener, queue.consumer, handlers, scheduler)
+      })
+
+      consumers.foreach(_.start())
+    }
+  }
+
+  override def stop(): Unit = synchronized {
+    if (consumers.nonEmpty) {
+      val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(properties.shutdownTimeoutSeconds.longValue)
+
+      consumers.foreach(_.stopPolling())
+      consumers.foreach(c => c.awaitStop(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())))
+
+      scheduler.shutdown()
+      handlerPool.foreach(_.shutdown())
+      handlerPool = None
+      consumers = List.empty
+    }
+  }
+
+  override def isRunning: Boolean = consumers.nonEmpty
+
+  /**
+    * the consumer for each queue (empty until started)
+    */
+  def getConsumers: List[SqsQueueConsumer] = consumers
+
+  /**
+    * Get the settings for the given queue
+    *
+    * @param queue a key under aws.sqs.queues, or a queue name
+    * @return the queue properties (defaults, if the queue is not configured)
+    */
+  private def queueProperties(queue: String): SQSPropertyModels.QueueProperties = {
+    val configured = CollectionUtils.asScalaMapOrEmpty(properties.queues)
+
+    configured.get(queue)
+      .orElse(configured.values.find(_.name == queue))
+      .getOrElse({
+        val q = new SQSPropertyModels.QueueProperties
+        q.name = queue
+        q
+      })
+  }
+
+  private def handlerExecutor(): Executor = {
+    val threads = Option(properties.handlerThreads).map(_.intValue).getOrElse(0)
+
+    AsyncUtils.Contexts.VirtualThreads.filter(_ => threads <= 0).getOrElse({
+      val pool = Executors.newFixedThreadPool(
+        if (threads > 0) threads else Runtime.getRuntime.availableProcessors() * 4,
+        threadFactory("sqs-handler")
+      )
+
+      logger.info(s"Handling sqs messages on ${if (threads > 0) threads else "default"} threads")
+      handlerPool = Option(pool)
+      pool
+    })
+  }
+
+  private def threadFactory(prefix: String): ThreadFactory = {
+    val counter = new AtomicInteger(0)
+
+    (r: Runnable) => {
+      val thread = new Thread(r, s"$prefix-${counter.incrementAndGet()}")
+      thread.setDaemon(true)
+      thread
+    }
+  }
+}
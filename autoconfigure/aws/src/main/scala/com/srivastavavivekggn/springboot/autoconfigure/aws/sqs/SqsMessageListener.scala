@@ -0,0 +1,24 @@
+package com.srivastavavivekggn.springboot.autoconfigure.aws.sqs
+
+import software.amazon.awssdk.services.sqs.model.Message
+
+/**
+  * Handles messages from a single queue (see SqsConsumerContainer).
+  *
+  * A message is deleted once onMessage returns. If it throws, the message is left on the queue and will be
+  * received again once its visibility timeout expires (or moved to the queue's dead letter queue, if it has one).
+  */
+trait SqsMessageListener {
+
+  /**
+    * the queue to consume -- either a key under aws.sqs.queues, or a queue name
+    */
+  def queue: String
+
+  /**
+    * Handle a message. This is called concurrently, from the container's handler threads.
+    *
+    * @param message the message
+    */
+  def onMessage(message: Message): Unit
+}
@@ -0,0 +1,380 @@
+package com.srivastavavivekggn.springboot.autoconfigure.aws.sqs
+
+import com.srivastavavivekggn.scala.util.collection.CollectionUtils
+import com.srivastavavivekggn.springboot.autoconfigure.aws.sqs.SqsQueueConsumer.{ERROR_BACKOFF_MILLIS, InFlight, MAX_BATCH, MAX_WAIT_SECONDS, PERMIT_WAIT_MILLIS}
+import com.typesafe.scalalogging.Logger
+import software.amazon.awssdk.services.sqs.SqsClient
+import software.amazon.awssdk.services.sqs.model._
+
+import java.util.concurrent._
+import java.util.concurrent.atomic.{AtomicInteger, AtomicLong}
+import scala.jdk.CollectionConverters._
+
+/**
+  * Consumes a single queue for a SqsMessageListener.
+  *
+  *  - pollers long-poll the queue, receiving up to 10 messages at a time, and hand each message to the handler
+  *    executor. The number of messages in flight is bounded (maxInFlight), so pollers wait for handlers to catch up
+  *  - handled messages are deleted in batches of up to 10 (DeleteMessageBatch)
+  *  - the visibility of messages still being handled is extended in batches (ChangeMessageVisibilityBatch), so a
+  *    slow handler does not cause the message to be delivered again
+  *
+  * @param sqs        the sqs client
+  * @param queueUrl   the queue url
+  * @param listener   the listener
+  * @param properties the consumer settings
+  * @param handlers   the executor messages are handled on
+  * @param scheduler  the executor deletes and visibility extensions run on
+  */
+class SqsQueueConsumer(sqs: SqsClient,
+                       val queueUrl: String,
+                       listener: SqsMessageListener,
+                       properties: SQSPropertyModels.ConsumerProperties,
+                       handlers: Executor,
+                       scheduler: ScheduledExecutorService) {
+
+  /**
+    * logger for this class
+    */
+  private val logger = Logger[SqsQueueConsumer]
+
+  private val pollerCount = math.max(1, properties.pollers.intValue)
+
+  private val batchSize = math.max(1, math.min(MAX_BATCH, properties.batchSize.intValue))
+
+  private val waitTimeSeconds = math.max(0, math.min(MAX_WAIT_SECONDS, properties.waitTimeSeconds.intValue))
+
+  private val visibilityTimeout = math.max(1, properties.visibilityTimeoutSeconds.intValue)
+
+  private val maxInFlight = math.max(batchSize, properties.maxInFlight.intValue)
+
+  // extend a message's visibility once half its timeout has passed, checking every quarter
+  private val extendAfterNanos = TimeUnit.SECONDS.toNanos(visibilityTimeout) / 2
+
+  private val extendIntervalMillis = math.max(250L, TimeUnit.SECONDS.toMillis(visibilityTimeout) / 4)
+
+  private val deleteIntervalMillis = math.max(1L, properties.deleteIntervalMillis.longValue)
+
+  // one permit per message in flight
+  private val permits = new Semaphore(maxInFlight)
+
+  // messages being handled (a message delivered again while it is being handled has an entry per delivery)
+  private val inFlight = ConcurrentHashMap.newKeySet[InFlight]()
+
+  // handled messages waiting to be deleted
+  private val pendingDeletes = new ConcurrentLinkedQueue[Message]()
+
+  private val pendingDeleteCount = new AtomicInteger()
+
+  private val received = new AtomicLong()
+  private val processed = new AtomicLong()
+  private val failed = new AtomicLong()
+  private val deleted = new AtomicLong()
+
+  @volatile private var running = false
+
+  private var pollers: Seq[Thread] = Seq.empty
+
+  private var tasks: Seq[ScheduledFuture[_]] = Seq.empty
+
+  /**
+    * Start polling
+    */
+  def start(): Unit = synchronized {
+    if (!running) {
+      running = true
+
+      pollers = (1 to pollerCount).map(i => {
+        val thread = new Thread(() => poll(), s"sqs-poller-${listener.queue}-$i")
+        thread.setDaemon(true)
+        thread.start()
+        thread
+      })
+
+      tasks = Seq(
+        scheduler.scheduleWithFixedDelay(() => deletePending(), deleteIntervalMillis, deleteIntervalMillis, TimeUnit.MILLISECONDS),
+        scheduler.scheduleWithFixedDelay(() => extendVisibility(), extendIntervalMillis, extendIntervalMillis, TimeUnit.MILLISECONDS)
+      )
+
+      logger.info(s"Consuming $queueUrl with $pollerCount pollers")
+    }
+  }
+
+  /**
+    * Stop receiving new messages (messages already received are still handled, see awaitStop)
+    */
+  def stopPolling(): Unit = {
+    running = false
+  }
+
+  /**
+    * Wait for messages being handled to finish and for the pollers to exit, then delete the handled messages. Pollers
+    * still receiving at the timeout are interrupted.
+    *
+    * @param timeoutMillis how long to wait
+    */
+  def awaitStop(timeoutMillis: Long): Unit = synchronized {
+    val deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(math.max(0L, timeoutMillis))
+    def remainingMillis: Long = math.max(0L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()))
+
+    if (permits.tryAcquire(maxInFlight, remainingMillis, TimeUnit.MILLISECONDS)) {
+      permits.release(maxInFlight)
+    }
+    else {
+      logger.warn(s"Stopped consuming $queueUrl with ${inFlight.size()} messages still being handled")
+    }
+
+    tasks.foreach(_.cancel(false))
+    tasks = Seq.empty
+
+    // a poller can be in a long poll, so join them within what is left of the timeout, then interrupt the rest
+    pollers.foreach(_.join(math.max(1L, remainingMillis)))
+    pollers.filter(_.isAlive).foreach(thread => {
+      logger.warn(s"Interrupting ${thread.getName}, which is still receiving from $queueUrl")
+      thread.interrupt()
+    })
+    pollers = Seq.empty
+
+    deletePending()
+  }
+
+  /**
+    * the number of messages received
+    */
+  def getReceived: Long = received.get()
+
+  /**
+    * the number of messages handled successfully
+    */
+  def getProcessed: Long = processed.get()
+
+  /**
+    * the number of messages the listener failed to handle
+    */
+  def getFailed: Long = failed.get()
+
+  /**
+    * the number of messages deleted
+    */
+  def getDeleted: Long = deleted.get()
+
+  /**
+    * the number of messages being handled
+    */
+  def getInFlight: Int = inFlight.size()
+
+  /**
+    * Poller loop -- wait for room for a full batch, receive and dispatch
+    */
+  private def poll(): Unit = {
+    while (running) {
+      try {
+        if (permits.tryAcquire(batchSize, PERMIT_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+          val messages = try {
+            receive()
+          }
+          catch {
+            case e: Exception =>
+              permits.release(batchSize)
+              throw e
+          }
+
+          permits.release(batchSize - messages.size)
+
+          if (running) {
+            messages.foreach(dispatch)
+          }
+          else {
+            // stopped while waiting, make these visible again straight away
+            messages.grouped(MAX_BATCH).foreach(batch => changeVisibility(batch, 0))
+            permits.release(messages.size)
+          }
+        }
+      }
+      catch {
+        case _: InterruptedException =>
+          Thread.currentThread().interrupt()
+          return
+
+        // e.g., a receive aborted by awaitStop
+        case _: Exception if !running =>
+          return
+
+        case e: Exception =>
+          logger.error(s"Failed to receive messages from $queueUrl", e)
+
+          try {
+            Thread.sleep(ERROR_BACKOFF_MILLIS)
+          }
+          catch {
+            case _: InterruptedException =>
+              Thread.currentThread().interrupt()
+              return
+          }
+      }
+    }
+  }
+
+  private def receive(): List[Message] = {
+    val request = ReceiveMessageRequest.builder()
+      .queueUrl(queueUrl)
+      .maxNumberOfMessages(batchSize)
+      .waitTimeSeconds(waitTimeSeconds)
+      .visibilityTimeout(visibilityTimeout)
+      .attributeNamesWithStrings("All")
+      .messageAttributeNames("All")
+      .build()
+
+    val messages = CollectionUtils.asScalaListOrEmpty(sqs.receiveMessage(request).messages())
+    received.addAndGet(messages.size)
+    messages
+  }
+
+  /**
+    * Hand the message to the executor (holds one permit until it is handled)
+    */
+  private def dispatch(message: Message): Unit = {
+    val entry = new InFlight(message, System.nanoTime())
+    inFlight.add(entry)
+
+    try {
+      handlers.execute(() => handle(entry))
+    }
+    catch {
+      case e: RejectedExecutionException =>
+        inFlight.remove(entry)
+        permits.release()
+        logger.error(s"Could not handle message ${message.messageId()} from $queueUrl", e)
+    }
+  }
+
+  private def handle(entry: InFlight): Unit = {
+    var fullBatch = false
+
+    try {
+      listener.onMessage(entry.message)
+      processed.incrementAndGet()
+      pendingDeletes.add(entry.message)
+      fullBatch = pendingDeleteCount.incrementAndGet() == MAX_BATCH
+    }
+    catch {
+      case e: Exception =>
+        failed.incrementAndGet()
+        logger.error(s"Failed to handle message ${entry.message.messageId()} from $queueUrl", e)
+    }
+    finally {
+      inFlight.remove(entry)
+      permits.release()
+    }
+
+    // delete as soon as there is a full batch, rather than waiting for the next interval. Once the consumer has been
+    // stopped, messages handled after awaitStop are not deleted (they will be received again)
+    if (fullBatch && !scheduler.isShutdown) {
+      try {
+        scheduler.execute(() => deletePending())
+      }
+      catch {
+        case _: RejectedExecutionException =>
+          logger.warn(s"Could not delete messages from $queueUrl, the consumer has been stopped")
+      }
+    }
+  }
+
+  /**
+    * Delete all handled messages, in batches
+    */
+  private def deletePending(): Unit = {
+    var batch = CollectionUtils.drainQueue(pendingDeletes, MAX_BATCH)
+
+    while (batch.nonEmpty) {
+      pendingDeleteCount.addAndGet(-batch.size)
+      delete(batch)
+      batch = CollectionUtils.drainQueue(pendingDeletes, MAX_BATCH)
+    }
+  }
+
+  private def delete(batch: List[Message]): Unit = {
+    val entries = batch.zipWithIndex.map {
+      case (m, i) => DeleteMessageBatchRequestEntry.builder().id(i.toString).receiptHandle(m.receiptHandle()).build()
+    }
+
+    try {
+      val response = sqs.deleteMessageBatch(
+        DeleteMessageBatchRequest.builder().queueUrl(queueUrl).entries(entries.asJava).build()
+      )
+
+      deleted.addAndGet(response.successful().size())
+      logFailures("delete", response.failed())
+    }
+    catch {
+      case e: Exception => logger.error(s"Failed to delete ${batch.size} messages from $queueUrl", e)
+    }
+  }
+
+  /**
+    * Extend the visibility of messages that have been in flight for more than half the visibility timeout
+    */
+  private def extendVisibility(): Unit = {
+    val now = System.nanoTime()
+    val due = inFlight.asScala.filter(e => now - e.extendedAt >= extendAfterNanos).toList
+
+    due.grouped(MAX_BATCH).foreach(batch => {
+      changeVisibility(batch.map(_.message), visibilityTimeout)
+      batch.foreach(_.extendedAt = now)
+    })
+  }
+
+  private def changeVisibility(batch: List[Message], timeoutSeconds: Int): Unit = {
+    val entries = batch.zipWithIndex.map {
+      case (m, i) => ChangeMessageVisibilityBatchRequestEntry.builder()
+        .id(i.toString)
+        .receiptHandle(m.receiptHandle())
+        .visibilityTimeout(timeoutSeconds)
+        .build()
+    }
+
+    try {
+      val response = sqs.changeMessageVisibilityBatch(
+        ChangeMessageVisibilityBatchRequest.builder().queueUrl(queueUrl).entries(entries.asJava).build()
+      )
+
+      logFailures("change visibility of", response.failed())
+    }
+    catch {
+      case e: Exception => logger.error(s"Failed to change visibility of ${batch.size} messages from $queueUrl", e)
+    }
+  }
+
+  private def logFailures(action: String, failures: java.util.List[BatchResultErrorEntry]): Unit = {
+    CollectionUtils.asScalaListOrEmpty(failures).foreach(f =>
+      logger.warn(s"Failed to $action message from $queueUrl: ${f.code()} ${f.message()}")
+    )
+  }
+}
+
+object SqsQueueConsumer {
+
+  /**
+    * the maximum number of messages per receive / batch request
+    */
+  final val MAX_BATCH = 10
+
+  /**
+    * the maximum long polling wait
+    */
+  final val MAX_WAIT_SECONDS = 20
+
+  // how long a poller waits for room before checking if it's been stopped
+  private final val PERMIT_WAIT_MILLIS = 500L
+
+  // how long a poller waits after a failed receive
+  private final val ERROR_BACKOFF_MILLIS = 1000L
+
+  /**
+    * A message being handled
+    *
+    * @param message    the message
+    * @param extendedAt when the message was received, or its visibility was last extended
+    */
+  private class InFlight(val message: Message, @volatile var extendedAt: Long)
+}
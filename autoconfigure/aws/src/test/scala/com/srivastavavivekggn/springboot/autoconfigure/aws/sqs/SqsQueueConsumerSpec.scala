@@ -0,0 +1,288 @@
+package com.srivastavavivekggn.springboot.autoconfigure.aws.sqs
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{ConcurrentLinkedQueue, CountDownLatch, Executors, LinkedBlockingQueue, TimeUnit}
+
+import com.srivastavavivekggn.scala.util.test.SimpleFlatSpec
+import org.scalatest.BeforeAndAfterAll
+import software.amazon.awssdk.services.sqs.SqsClient
+import software.amazon.awssdk.services.sqs.model._
+
+import scala.jdk.CollectionConverters._
+
+class SqsQueueConsumerSpec extends SimpleFlatSpec with BeforeAndAfterAll {
+
+  private val handlers = Executors.newFixedThreadPool(20)
+
+  private val scheduler = Executors.newScheduledThreadPool(1)
+
+  override protected def afterAll(): Unit = {
+    handlers.shutdownNow()
+    scheduler.shutdownNow()
+  }
+
+  /**
+    * In-memory queue: receives return what is available (waiting briefly, like a short long-poll), deletes and
+    * visibility changes are recorded
+    */
+  class FakeSqsClient extends SqsClient {
+
+    val available = new LinkedBlockingQueue[Message]()
+
+    val receives = new AtomicInteger()
+
+    val deleteBatches = new ConcurrentLinkedQueue[List[String]]()
+
+    val visibilityChanges = new ConcurrentLinkedQueue[(String, Int)]()
+
+    def send(messages: Message*): Unit = messages.foreach(available.add)
+
+    def deleted: List[String] = deleteBatches.asScala.toList.flatten
+
+    override def receiveMessage(request: ReceiveMessageRequest): ReceiveMessageResponse = {
+      receives.incrementAndGet()
+
+      val messages = new java.util.ArrayList[Message]()
+      Option(available.poll(20, TimeUnit.MILLISECONDS)).foreach(first => {
+        messages.add(first)
+        available.drainTo(messages, request.maxNumberOfMessages() - 1)
+      })
+
+      ReceiveMessageResponse.builder().messages(messages).build()
+    }
+
+    override def deleteMessageBatch(request: DeleteMessageBatchRequest): DeleteMessageBatchResponse = {
+      deleteBatches.add(request.entries().asScala.map(_.receiptHandle()).toList)
+
+      DeleteMessageBatchResponse.builder()
+        .successful(request.entries().asScala.map(e => DeleteMessageBatchResultEntry.builder().id(e.id()).build()).asJava)
+        .failed(new java.util.ArrayList[BatchResultErrorEntry]())
+        .build()
+    }
+
+    override def changeMessageVisibilityBatch(request: ChangeMessageVisibilityBatchRequest): ChangeMessageVisibilityBatchResponse = {
+      request.entries().asScala.foreach(e => visibilityChanges.add((e.receiptHandle(), e.visibilityTimeout().intValue)))
+      ChangeMessageVisibilityBatchResponse.builder().failed(new java.util.ArrayList[BatchResultErrorEntry]()).build()
+    }
+
+    def serviceName(): String = "sqs"
+
+    def close(): Unit = ()
+  }
+
+  /**
+    * Records each message, tracking how many are being handled at once
+    */
+  class TestListener(handle: Message => Unit = _ => ()) extends SqsMessageListener {
+
+    val handled = new ConcurrentLinkedQueue[String]()
+
+    val active = new AtomicInteger()
+
+    val maxActive = new AtomicInteger()
+
+    override def queue: String = "test"
+
+    override def onMessage(message: Message): Unit = {
+      maxActive.accumulateAndGet(active.incrementAndGet(), math.max)
+
+      try {
+        handle(message)
+        handled.add(message.body())
+      }
+      finally {
+        active.decrementAndGet()
+      }
+    }
+  }
+
+  def sqsMessage(id: String, receiptHandle: String = null): Message = {
+    Message.builder().messageId(id).receiptHandle(Option(receiptHandle).getOrElse(s"rh-$id")).body(id).build()
+  }
+
+  def properties(batchSize: Int = 10, maxInFlight: Int = 100): SQSPropertyModels.ConsumerProperties = {
+    val p = new SQSPropertyModels.ConsumerProperties
+    p.pollers = 2
+    p.batchSize = batchSize
+    p.waitTimeSeconds = 0
+    p.maxInFlight = maxInFlight
+    p.deleteIntervalMillis = 20
+    p
+  }
+
+  def withConsumer[T](sqs: SqsClient, listener: SqsMessageListener, props: SQSPropertyModels.ConsumerProperties)
+                     (f: SqsQueueConsumer => T): T = {
+    val consumer = new SqsQueueConsumer(sqs, "https://sqs/test", listener, props, handlers, scheduler)
+    consumer.start()
+
+    try f(consumer) finally {
+      consumer.stopPolling()
+      consumer.awaitStop(5000)
+    }
+  }
+
+  behavior of "SqsQueueConsumer"
+
+  it should "handle messages and delete them in batches" in {
+    val sqs = new FakeSqsClient
+    val listener = new TestListener
+
+    withConsumer(sqs, listener, properties()) { consumer =>
+      sqs.send((1 to 35).map(i => sqsMessage(s"$i")): _*)
+
+      eventually(consumer.getDeleted == 35)
+
+      assertResult((1 to 35).map(_.toString).toSet)(listener.handled.asScala.toSet)
+      assertResult((1 to 35).map(i => s"rh-$i").toSet)(sqs.deleted.toSet)
+      assert(sqs.deleteBatches.asScala.forall(_.size <= SqsQueueConsumer.MAX_BATCH))
+      assertResult(35L)(consumer.getReceived)
+      assertResult(35L)(consumer.getProcessed)
+    }
+  }
+
+  it should "leave messages the listener failed on to be received again" in {
+    val sqs = new FakeSqsClient
+    val listener = new TestListener(m => if (m.body().toInt % 2 == 0) throw new IllegalStateException("bad message"))
+
+    withConsumer(sqs, listener, properties()) { consumer =>
+      sqs.send((1 to 10).map(i => sqsMessage(s"$i")): _*)
+
+      eventually(consumer.getDeleted == 5 && consumer.getFailed == 5)
+
+      assertResult(Set("rh-1", "rh-3", "rh-5", "rh-7", "rh-9"))(sqs.deleted.toSet)
+      assertResult(0)(consumer.getInFlight)
+    }
+  }
+
+  it should "stop receiving once maxInFlight messages are being handled" in {
+    val sqs = new FakeSqsClient
+    val release = new CountDownLatch(1)
+    val listener = new TestListener(_ => release.await(10, TimeUnit.SECONDS))
+
+    withConsumer(sqs, listener, properties(batchSize = 5, maxInFlight = 10)) { consumer =>
+      sqs.send((1 to 30).map(i => sqsMessage(s"$i")): _*)
+
+      // pollers only receive when there is room for a full batch
+      eventually(consumer.getInFlight > 5)
+      Thread.sleep(200)
+
+      assert(consumer.getReceived <= 10)
+      assertResult(consumer.getReceived)(consumer.getInFlight.toLong)
+      assertResult(30 - consumer.getReceived)(sqs.available.size().toLong)
+
+      release.countDown()
+
+      eventually(consumer.getDeleted == 30)
+      assert(listener.maxActive.get() <= 10)
+    }
+  }
+
+  it should "track each delivery of a message separately" in {
+    val sqs = new FakeSqsClient
+    val first = new CountDownLatch(1)
+    val second = new CountDownLatch(1)
+    val listener = new TestListener(m => (if (m.receiptHandle() == "rh-a") first else second).await(10, TimeUnit.SECONDS))
+
+    withConsumer(sqs, listener, properties()) { consumer =>
+      // the same message, delivered again while the first delivery is being handled
+      sqs.send(sqsMessage("1", "rh-a"), sqsMessage("1", "rh-b"))
+
+      eventually(consumer.getInFlight == 2)
+
+      first.countDown()
+      eventually(consumer.getProcessed == 1)
+      assertResult(1)(consumer.getInFlight)
+
+      second.countDown()
+      eventually(consumer.getDeleted == 2)
+      assertResult(0)(consumer.getInFlight)
+      assertResult(Set("rh-a", "rh-b"))(sqs.deleted.toSet)
+    }
+  }
+
+  it should "finish handling and delete received messages when stopped" in {
+    val sqs = new FakeSqsClient
+    val listener = new TestListener(_ => Thread.sleep(100))
+    val consumer = new SqsQueueConsumer(sqs, "https://sqs/test", listener, properties(), handlers, scheduler)
+
+    consumer.start()
+    sqs.send((1 to 5).map(i => sqsMessage(s"$i")): _*)
+    eventually(consumer.getReceived == 5)
+
+    consumer.stopPolling()
+    consumer.awaitStop(5000)
+
+    assertResult(5L)(consumer.getProcessed)
+    assertResult(5L)(consumer.getDeleted)
+    assertResult(0)(consumer.getInFlight)
+
+    // the pollers have stopped
+    assert(!pollerThreads.exists(_.isAlive))
+    val receives = sqs.receives.get()
+    sqs.send(sqsMessage("6"))
+    Thread.sleep(100)
+
+    assertResult(receives)(sqs.receives.get())
+    assertResult(5L)(consumer.getReceived)
+  }
+
+  it should "not fail messages handled after a timed out stop" in {
+    val sqs = new FakeSqsClient
+    val release = new CountDownLatch(1)
+    val listener = new TestListener(_ => release.await(10, TimeUnit.SECONDS))
+    val ownScheduler = Executors.newScheduledThreadPool(1)
+    val consumer = new SqsQueueConsumer(sqs, "https://sqs/test", listener, properties(), handlers, ownScheduler)
+
+    consumer.start()
+    sqs.send((1 to 10).map(i => sqsMessage(s"$i")): _*)
+    eventually(consumer.getInFlight == 10)
+
+    consumer.stopPolling()
+    consumer.awaitStop(100)
+    ownScheduler.shutdown()
+
+    // the tenth message completes a delete batch after the scheduler has been shut down
+    release.countDown()
+    eventually(consumer.getInFlight == 0)
+
+    assertResult(10L)(consumer.getProcessed)
+    assertResult(0L)(consumer.getFailed)
+  }
+
+  it should "interrupt pollers still receiving when the stop times out" in {
+    val started = new CountDownLatch(2)
+    val sqs = new FakeSqsClient {
+      override def receiveMessage(request: ReceiveMessageRequest): ReceiveMessageResponse = {
+        started.countDown()
+        // a long poll that ignores the stop
+        Thread.sleep(TimeUnit.SECONDS.toMillis(30))
+        super.receiveMessage(request)
+      }
+    }
+
+    val consumer = new SqsQueueConsumer(sqs, "https://sqs/test", new TestListener, properties(), handlers, scheduler)
+
+    consumer.start()
+    assert(started.await(5, TimeUnit.SECONDS))
+
+    consumer.stopPolling()
+    val start = System.nanoTime()
+    consumer.awaitStop(200)
+
+    assert(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000)
+    eventually(!pollerThreads.exists(_.isAlive))
+  }
+
+  private def pollerThreads: Iterable[Thread] = {
+    Thread.getAllStackTraces.keySet().asScala.filter(_.getName.startsWith("sqs-poller-test-"))
+  }
+
+  /**
+    * Wait (up to 5 seconds) for the condition
+    */
+  private def eventually(condition: => Boolean): Unit = {
+    val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+    while (!condition && System.nanoTime() < deadline) Thread.sleep(10)
+    assert(condition)
+  }
+}
@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory
 import org.springframework.boot.actuate.health.{HealthIndicator, Status}
 import org.springframework.boot.autoconfigure.condition.{ConditionalOnBean, ConditionalOnClass, ConditionalOnMissingBean, ConditionalOnProperty}
+import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.{Bean, Configuration}
 
 /**
@@ -20,12 +21,16 @@ import org.springframework.context.annotation.{Bean, Configuration}
   *
   * - optionally convert (wrap) all SpringBoot Actuator health checks as HealthCheck instances
   *
-  * - create the HealthCheckController bean with all HealthChecks
+  * - create the HealthCheckScheduler, which runs all HealthChecks on a bounded pool with a timeout, and caches the
+  * results (see HealthCheckProperties)
+  *
+  * - create the HealthCheckController bean with the scheduler
   *
   * @note <code>com.srivastavavivekggn.platform.heathcheck.HealthCheck</code> must be on the classpath
   */
 @Configuration
 @ConditionalOnClass(Array(classOf[HealthCheck]))
+@EnableConfigurationProperties(Array(classOf[HealthCheckProperties]))
 class HealthCheckAutoConfiguration {
 
   @Autowired(required = false)
@@ -89,30 +94,43 @@ class HealthCheckAutoConfiguration {
 //  }
 
   /**
-    * Register the health check controller with the list of all health checks
+    * Register the scheduler that runs all health checks
+    *
+    * @param checks     the health checks
+    * @param properties the scheduling properties
+    * @return the scheduler
+    */
+  @Bean(destroyMethod = "close")
+  @ConditionalOnMissingBean
+  def healthCheckScheduler(checks: JList[HealthCheck], properties: HealthCheckProperties): HealthCheckScheduler = {
+    new HealthCheckScheduler(checks, properties)
+  }
+
+  /**
+    * Register the health check controller with the health check scheduler
     *
-    * @param checks the health checks
+    * @param scheduler the health check scheduler
     * @return the controller
     */
   @Bean
   @ConditionalOnBean(Array(classOf[GitInfo], classOf[BuildInfo]))
-  def healthCheckController1(checks: JList[HealthCheck],
+  def healthCheckController1(scheduler: HealthCheckScheduler,
                              gitInfo: GitInfo,
                              buildInfo: BuildInfo): HealthCheckController = {
-    new HealthCheckController(checks, gitInfo, buildInfo)
+    new HealthCheckController(scheduler, gitInfo, buildInfo)
   }
 
   @Bean
   @ConditionalOnBean(Array(classOf[GitInfo]))
   @ConditionalOnMissingBean(Array(classOf[BuildInfo]))
-  def healthCheckController2(checks: JList[HealthCheck], gitInfo: GitInfo): HealthCheckController = {
-    new HealthCheckController(checks, gitInfo)
+  def healthCheckController2(scheduler: HealthCheckScheduler, gitInfo: GitInfo): HealthCheckController = {
+    new HealthCheckController(scheduler, gitInfo, null)
   }
 
   @Bean
   @ConditionalOnMissingBean(Array(classOf[GitInfo], classOf[BuildInfo]))
-  def healthCheckController3(checks: JList[HealthCheck]): HealthCheckController = {
-    new HealthCheckController(checks)
+  def healthCheckController3(scheduler: HealthCheckScheduler): HealthCheckController = {
+    new HealthCheckController(scheduler, null, null)
   }
 
 }
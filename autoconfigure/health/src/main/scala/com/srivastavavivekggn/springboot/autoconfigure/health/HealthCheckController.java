@@ -6,8 +6,7 @@ import com.srivastavavivekggn.platform.heathcheck.HealthCheck.Level;
 import j2html.tags.DomContent;
 import j2html.tags.specialized.TdTag;
 import j2html.tags.specialized.TrTag;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -25,10 +24,11 @@ import static j2html.TagCreator.*;
 
 @Controller
 @RequestMapping(value = "/healthcheck")
-public class HealthCheckController {
+public class HealthCheckController implements DisposableBean {
 
-    private final Logger logger = LoggerFactory.getLogger(HealthCheckController.class);
-    private final List<HealthCheck> healthChecks;
+    private final HealthCheckScheduler scheduler;
+    // true if the scheduler was created by (and is closed with) this controller
+    private final boolean ownsScheduler;
     private final GitInfo gitInfo;
     private final BuildInfo buildInfo;
 
@@ -41,27 +41,73 @@ public class HealthCheckController {
             new ResponseEntity<String>("Failed", HttpStatus.SERVICE_UNAVAILABLE);
 
 
-    // Spring will use this constructor if no health checks are found
+    /**
+     * Spring will use this constructor if no health checks are found
+     *
+     * @deprecated use {@link #HealthCheckController(HealthCheckScheduler, GitInfo, BuildInfo)} with a shared scheduler
+     */
+    @Deprecated
     @SuppressWarnings("UnusedDeclaration")
     public HealthCheckController() {
         this(new ArrayList<>(), null);
     }
 
+    /**
+     * @deprecated use {@link #HealthCheckController(HealthCheckScheduler, GitInfo, BuildInfo)} with a shared scheduler
+     */
+    @Deprecated
     @Autowired(required = false)
     public HealthCheckController(List<HealthCheck> healthChecks) {
         this(healthChecks, null);
     }
 
+    /**
+     * @deprecated use {@link #HealthCheckController(HealthCheckScheduler, GitInfo, BuildInfo)} with a shared scheduler
+     */
+    @Deprecated
     @Autowired(required = false)
     public HealthCheckController(List<HealthCheck> healthChecks, GitInfo gitInfo) {
         this(healthChecks, gitInfo, null);
     }
 
+    /**
+     * Create the controller with its own scheduler (with the default settings), closed when the controller is destroyed
+     *
+     * @deprecated use {@link #HealthCheckController(HealthCheckScheduler, GitInfo, BuildInfo)} with a shared scheduler
+     */
+    @Deprecated
     @Autowired(required = false)
     public HealthCheckController(List<HealthCheck> healthChecks, GitInfo gitInfo, BuildInfo buildInfo) {
-        this.healthChecks = healthChecks;
+        this(new HealthCheckScheduler(healthChecks, new HealthCheckProperties()), gitInfo, buildInfo, true);
+    }
+
+    /**
+     * Create the controller, serving health check results from the given scheduler
+     *
+     * @param scheduler the scheduler that runs (and caches) the health checks
+     * @param gitInfo   the git info, if any
+     * @param buildInfo the build info, if any
+     */
+    public HealthCheckController(HealthCheckScheduler scheduler, GitInfo gitInfo, BuildInfo buildInfo) {
+        this(scheduler, gitInfo, buildInfo, false);
+    }
+
+    private HealthCheckController(HealthCheckScheduler scheduler, GitInfo gitInfo, BuildInfo buildInfo,
+                                  boolean ownsScheduler) {
+        this.scheduler = scheduler;
         this.gitInfo = gitInfo;
         this.buildInfo = buildInfo;
+        this.ownsScheduler = ownsScheduler;
+    }
+
+    /**
+     * Close the scheduler if it was created by this controller (a shared scheduler is closed by its owner)
+     */
+    @Override
+    public void destroy() {
+        if (ownsScheduler) {
+            scheduler.close();
+        }
     }
 
     /**
@@ -92,8 +138,8 @@ public class HealthCheckController {
     @ResponseBody
     public String executeWithDetails(@RequestParam(required = false, defaultValue = "HIGH,MEDIUM") Level[] levels) {
 
-        List<DomContent> rows = getHealthChecksByLevel(levels)
-                .parallelStream()
+        List<DomContent> rows = scheduler.snapshot(orEmpty(levels))
+                .stream()
                 .map(this::tableRow)
                 .collect(Collectors.toList());
 
@@ -137,49 +183,39 @@ public class HealthCheckController {
                                                                     Level[] levels) {
 
 
-        Map<String, Map<String, String>> detailsMaps = new HashMap<>();
-
-        getHealthChecksByLevel(levels)
-                .parallelStream()
-                .forEach(healthCheck -> {
-
-                    HealthCheck hc = healthCheck;
+        Map<String, Map<String, String>> detailsMaps = new LinkedHashMap<>();
 
-                    try {
-                        healthCheck.execute();
-                    } catch (HealthCheckFailedException failed) {
-                        hc = failed.getHealthCheck();
-                        logger.error("HealthCheckFailure", failed);
-                    } catch (HealthCheckWarnException warned) {
-                        hc = warned.getHealthCheck();
-                        logger.error("HealthCheckWarning", warned);
-                    }
-
-                    Map<String, String> healthCheckDetails = hc.getDetailsMap();
-                    if (null != healthCheckDetails && !healthCheckDetails.isEmpty()) {
-                        detailsMaps.put(hc.getName(), healthCheckDetails);
-                    }
-                });
+        for (HealthCheckResult result : scheduler.snapshot(orEmpty(levels))) {
+            Map<String, String> healthCheckDetails = result.getDetailsMap();
+            if (null != healthCheckDetails && !healthCheckDetails.isEmpty()) {
+                detailsMaps.put(result.getName(), healthCheckDetails);
+            }
+        }
 
         return detailsMaps;
     }
 
-
     /**
-     * Get all health checks matching a particular level
-     * @param levels the levels to check
-     * @return the matching health checks
+     * Health check results, including status and latency percentiles for each check
+     *
+     * @param levels the levels to include
+     * @return the results
      */
-    private List<HealthCheck> getHealthChecksByLevel(Level... levels) {
-        if (levels == null || levels.length == 0) {
-            return healthChecks;
-        }
-
-        List<Level> levelList = Arrays.asList(levels);
+    @RequestMapping(params = "snapshot", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<HealthCheckResult> executeWithSnapshot(@RequestParam(required = false, defaultValue = "HIGH,MEDIUM")
+                                                               Level[] levels) {
+        return scheduler.snapshot(orEmpty(levels));
+    }
 
-        return healthChecks.stream()
-                .filter(hc -> levelList.contains(hc.getLevel()))
-                .collect(Collectors.toList());
+    /**
+     * Null-safe levels (no levels means all health checks)
+     *
+     * @param levels the levels
+     * @return the levels, or an empty array
+     */
+    private static Level[] orEmpty(Level[] levels) {
+        return levels == null ? new Level[0] : levels;
     }
 
     /**
@@ -189,23 +225,7 @@ public class HealthCheckController {
      * @return the OK response if all succeed, or the failure response if any one fails
      */
     private ResponseEntity<String> executeForLevels(Level... levels) {
-
-        boolean isFailed = getHealthChecksByLevel(levels)
-                .parallelStream()
-                .anyMatch(hc -> {
-                    try {
-                        hc.execute();
-                        return false;
-                    } catch (HealthCheckFailedException failedException) {
-                        logger.error("HealthCheckFailure", failedException);
-                        return true;
-                    } catch (HealthCheckWarnException warnException) {
-                        logger.error("HealthCheckWarning", warnException);
-                        return true;
-                    }
-                });
-
-        return isFailed ? FAILED_RESPONSE : OK_RESPONSE;
+        return scheduler.isHealthy(orEmpty(levels)) ? OK_RESPONSE : FAILED_RESPONSE;
     }
 
     private DomContent buildInfo() {
@@ -227,36 +247,28 @@ public class HealthCheckController {
         );
     }
 
-    private DomContent tableRow(HealthCheck healthCheck) {
-        try {
-            healthCheck.execute();
-            return getTr(healthCheck, "Succeeded", "healthy");
-        } catch (HealthCheckFailedException e) {
-            logger.error("HealthCheckFailure", e);
-            return getTr(e.getHealthCheck(), "Failed", "failure");
-        } catch (HealthCheckWarnException w) {
-            logger.error("HealthCheckWarning", w);
-            return getTr(w.getHealthCheck(), "Warned", "warning");
-        }
-    }
-
-    private TrTag getTr(HealthCheck healthCheck, String status, String statusCls) {
+    private DomContent tableRow(HealthCheckResult result) {
         return tr(
-                td(healthCheck.getName()),
-                td(healthCheck.getLevel().name()),
-                getDetailsTd(healthCheck, status, statusCls)
+                td(result.getName()),
+                td(result.getLevel().name()),
+                getDetailsTd(result)
         );
     }
 
-    private TdTag getDetailsTd(HealthCheck healthCheck, String status, String statusCls) {
+    private TdTag getDetailsTd(HealthCheckResult result) {
+        Map<String, String> details = result.getDetailsMap() == null ? Collections.emptyMap() : result.getDetailsMap();
+        Map<String, Long> latency = result.getLatencyMillis();
+
         return td(
-                div(status + ": " + healthCheck.getDetails()),
+                div(result.getStatus() + ": " + result.getDetails()),
                 div(
                         table(
-                                each(healthCheck.getDetailsMap().entrySet(), this::getDetailRow)
+                                each(details.entrySet(), this::getDetailRow)
                         )
-                ).withClasses("details")
-        ).withClass(statusCls);
+                ).withClasses("details"),
+                div("latency: p50 " + latency.get("p50") + "ms, p99 " + latency.get("p99") + "ms, max " +
+                        latency.get("max") + "ms").withClasses("details")
+        ).withClass(result.status().cssClass());
     }
 
     private TrTag getDetailRow(Map.Entry<String, String> entry) {
@@ -0,0 +1,53 @@
+package com.srivastavavivekggn.springboot.autoconfigure.health
+
+import java.time.Duration
+
+import com.srivastavavivekggn.platform.heathcheck.HealthCheck.Level
+import com.srivastavavivekggn.scala.util.TypeAlias.JMap
+import org.springframework.boot.context.properties.ConfigurationProperties
+
+import scala.beans.BeanProperty
+
+/**
+  * Settings for running health checks (see HealthCheckScheduler)
+  */
+@ConfigurationProperties(prefix = "health.check")
+class HealthCheckProperties {
+
+  /**
+    * the number of threads health checks run on
+    */
+  @BeanProperty
+  var threads: Int = 4
+
+  /**
+    * how long a request waits for a check before reporting it as timed out
+    */
+  @BeanProperty
+  var timeout: Duration = Duration.ofSeconds(5)
+
+  /**
+    * how long a result is served from the cache, for levels not in levelTtl
+    */
+  @BeanProperty
+  var ttl: Duration = Duration.ofSeconds(5)
+
+  /**
+    * how long a result is served from the cache, by level
+    */
+  @BeanProperty
+  var levelTtl: JMap[Level, Duration] = {
+    val m = new java.util.EnumMap[Level, Duration](classOf[Level])
+    m.put(Level.HIGH, Duration.ofSeconds(5))
+    m.put(Level.MEDIUM, Duration.ofSeconds(30))
+    m
+  }
+
+  /**
+    * Get the cache ttl for the given level
+    *
+    * @param level the level
+    * @return the ttl
+    */
+  def ttlFor(level: Level): Duration = Option(levelTtl).flatMap(m => Option(m.get(level))).getOrElse(ttl)
+}
@@ -0,0 +1,86 @@
+package com.srivastavavivekggn.springboot.autoconfigure.health
+
+import java.time.Instant
+import java.util.concurrent.TimeUnit
+
+import com.srivastavavivekggn.platform.heathcheck.HealthCheck
+import com.srivastavavivekggn.platform.heathcheck.HealthCheck.Level
+import com.srivastavavivekggn.scala.util.TypeAlias.JMap
+import com.srivastavavivekggn.scala.util.concurrent.trace.TaskTimingSnapshot
+
+import scala.beans.BeanProperty
+import scala.jdk.CollectionConverters._
+
+/**
+  * The outcome of a single health check execution, as cached by HealthCheckScheduler
+  *
+  * @param name       the check name
+  * @param level      the check level
+  * @param status     the outcome
+  * @param details    the check details
+  * @param detailsMap the check details map
+  * @param checkedAt  when the check completed
+  * @param timing     the latency of all executions of the check so far
+  */
+class HealthCheckResult(@BeanProperty val name: String,
+                        @BeanProperty val level: Level,
+                        val status: HealthCheckResult.Status,
+                        @BeanProperty val details: String,
+                        @BeanProperty val detailsMap: JMap[String, String],
+                        @BeanProperty val checkedAt: Instant,
+                        val timing: TaskTimingSnapshot) {
+
+  /**
+    * the status label
+    */
+  def getStatus: String = status.label
+
+  /**
+    * true if the check did not succeed (warnings and time outs fail a level, the same as failures)
+    */
+  def isFailed: Boolean = status != HealthCheckResult.Status.SUCCEEDED
+
+  /**
+    * the latency percentiles (p50, p99, p999) and max of the check, in millis
+    */
+  def getLatencyMillis: JMap[String, java.lang.Long] = Map(
+    "p50" -> timing.p50Nanos,
+    "p99" -> timing.p99Nanos,
+    "p999" -> timing.p999Nanos,
+    "max" -> timing.maxNanos
+  ).map(e => e._1 -> java.lang.Long.valueOf(TimeUnit.NANOSECONDS.toMillis(e._2))).asJava
+
+  override def toString: String = s"HealthCheckResult($name, $level, $status)"
+}
+
+object HealthCheckResult {
+
+  /**
+    * Health check outcomes, with their display label and css class
+    */
+  sealed abstract class Status(val label: String, val cssClass: String)
+
+  object Status {
+    case object SUCCEEDED extends Status("Succeeded", "healthy")
+
+    case object WARNED extends Status("Warned", "warning")
+
+    case object FAILED extends Status("Failed", "failure")
+
+    case object TIMED_OUT extends Status("Timed out", "failure")
+  }
+
+  /**
+    * Create a result from a check
+    *
+    * @param check  the check (or the check attached to its failure)
+    * @param status the outcome
+    * @param timing the latency so far
+    * @return the result
+    */
+  def apply(check: HealthCheck, status: Status, timing: TaskTimingSnapshot): HealthCheckResult = {
+    new HealthCheckResult(
+      check.getName, check.getLevel, status, check.getDetails, check.getDetailsMap, Instant.now(), timing
+    )
+  }
+}
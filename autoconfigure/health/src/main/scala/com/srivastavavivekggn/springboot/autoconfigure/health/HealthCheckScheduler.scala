@@ -0,0 +1,190 @@
+package com.srivastavavivekggn.springboot.autoconfigure.health
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{CompletableFuture, ExecutorService, LinkedBlockingQueue, RejectedExecutionException, ScheduledExecutorService, ScheduledThreadPoolExecutor, ThreadFactory, ThreadPoolExecutor, TimeUnit}
+
+import com.srivastavavivekggn.platform.heathcheck.HealthCheck.Level
+import com.srivastavavivekggn.platform.heathcheck.{HealthCheck, HealthCheckFailedException, HealthCheckWarnException}
+import com.srivastavavivekggn.scala.util.TypeAlias.JList
+import com.srivastavavivekggn.scala.util.collection.CollectionUtils._
+import com.srivastavavivekggn.scala.util.concurrent.trace.TaskHistogram
+import com.srivastavavivekggn.springboot.autoconfigure.health.HealthCheckResult.Status
+import org.slf4j.LoggerFactory
+
+import scala.annotation.varargs
+import scala.jdk.CollectionConverters._
+
+/**
+  * Runs health checks on a dedicated, bounded thread pool and caches their results.
+  *
+  * A result is served from the cache until it is older than the ttl for its level. Stale checks are run again, and
+  * a request waits at most the timeout for them, after which the check is reported as timed out (it keeps running,
+  * and its result is cached when it completes). A check is never run more than once at a time, so a hung dependency
+  * ties up at most one thread.
+  *
+  * @param checks     the health checks
+  * @param properties the settings
+  */
+class HealthCheckScheduler(checks: JList[HealthCheck], properties: HealthCheckProperties) extends AutoCloseable {
+
+  private val logger = LoggerFactory.getLogger(classOf[HealthCheckScheduler])
+
+  private val entries: Seq[HealthCheckScheduler.Entry] = checks.asScalaOrEmpty.toSeq.map(new HealthCheckScheduler.Entry(_))
+
+  private val executor: ExecutorService = {
+    val threads = math.max(1, properties.threads)
+
+    // each check is queued at most once
+    new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+      new LinkedBlockingQueue[Runnable](math.max(1, entries.size)), HealthCheckScheduler.threadFactory("health-check")
+    )
+  }
+
+  private val timer: ScheduledExecutorService = {
+    val scheduled = new ScheduledThreadPoolExecutor(1, HealthCheckScheduler.threadFactory("health-check-timer"))
+    scheduled.setRemoveOnCancelPolicy(true)
+    scheduled
+  }
+
+  /**
+    * Get the result of every check with one of the given levels, running any that are not cached
+    *
+    * @param levels the levels (all checks if empty)
+    * @return the results, in check order
+    */
+  @varargs
+  def snapshot(levels: Level*): JList[HealthCheckResult] = {
+    val futures: Seq[CompletableFuture[HealthCheckResult]] = entries
+      .filter(e => levels.isEmpty || levels.contains(e.check.getLevel))
+      .map(e => e.cached(properties.ttlFor(e.check.getLevel)).map(r => CompletableFuture.completedFuture(r)).getOrElse(run(e)))
+
+    // every future completes by its deadline
+    futures.map(_.join()).asJava
+  }
+
+  /**
+    * Check if every check with one of the given levels succeeds (see snapshot)
+    *
+    * @param levels the levels (all checks if empty)
+    * @return true if none failed, warned or timed out
+    */
+  @varargs
+  def isHealthy(levels: Level*): Boolean = !snapshot(levels: _*).asScala.exists(_.isFailed)
+
+  /**
+    * Drop all cached results
+    */
+  def invalidate(): Unit = entries.foreach(_.latest = None)
+
+  override def close(): Unit = {
+    timer.shutdownNow()
+    executor.shutdownNow()
+  }
+
+  /**
+    * Run the check (or join the run in progress), completing by the deadline
+    */
+  private def run(entry: HealthCheckScheduler.Entry): CompletableFuture[HealthCheckResult] = entry.synchronized {
+    entry.running.getOrElse({
+      val future = new CompletableFuture[HealthCheckResult]
+      entry.running = Some(future)
+
+      try {
+        executor.execute(() => {
+          var result: Option[HealthCheckResult] = None
+
+          try {
+            result = Some(execute(entry))
+          }
+          finally {
+            // an Error thrown by the check still ends the run, reported as failed
+            val completed = result.getOrElse(entry.toResult(entry.check, Status.FAILED))
+
+            entry.synchronized {
+              entry.latest = Some(completed)
+              entry.running = None
+            }
+            future.complete(completed)
+          }
+        })
+
+        val deadline = timer.schedule(
+          () => future.complete(entry.timedOut()), properties.timeout.toMillis, TimeUnit.MILLISECONDS
+        )
+        future.whenComplete((_, _) => deadline.cancel(false))
+      }
+      catch {
+        case e: RejectedExecutionException =>
+          logger.error("HealthCheckRejected", e)
+          entry.running = None
+          future.complete(entry.toResult(entry.check, Status.FAILED))
+      }
+
+      future
+    })
+  }
+
+  private def execute(entry: HealthCheckScheduler.Entry): HealthCheckResult = {
+    val start = System.nanoTime()
+
+    val (check, status) = try {
+      entry.check.execute()
+      (entry.check, Status.SUCCEEDED)
+    } catch {
+      case failed: HealthCheckFailedException =>
+        logger.error("HealthCheckFailure", failed)
+        (failed.getHealthCheck, Status.FAILED)
+
+      case warned: HealthCheckWarnException =>
+        logger.error("HealthCheckWarning", warned)
+        (warned.getHealthCheck, Status.WARNED)
+
+      case e: Exception =>
+        logger.error("HealthCheckFailure", e)
+        (entry.check, Status.FAILED)
+    }
+
+    entry.histogram.record(System.nanoTime() - start, status != Status.SUCCEEDED)
+    entry.toResult(check, status)
+  }
+}
+
+object HealthCheckScheduler {
+
+  /**
+    * A check, its latest result and the run in progress (guarded by the entry)
+    */
+  private class Entry(val check: HealthCheck) {
+
+    val histogram = new TaskHistogram(check.getName)
+
+    @volatile var latest: Option[HealthCheckResult] = None
+
+    var running: Option[CompletableFuture[HealthCheckResult]] = None
+
+    def cached(ttl: java.time.Duration): Option[HealthCheckResult] = {
+      latest.filter(r => r.checkedAt.plus(ttl).isAfter(java.time.Instant.now()))
+    }
+
+    def toResult(check: HealthCheck, status: Status): HealthCheckResult = HealthCheckResult(check, status, histogram.snapshot())
+
+    /**
+      * The result for a run that missed its deadline. The check is still running, so its details are taken from the
+      * latest completed result rather than read from the check.
+      */
+    def timedOut(): HealthCheckResult = new HealthCheckResult(
+      check.getName, check.getLevel, Status.TIMED_OUT, latest.map(_.details).orNull, latest.map(_.detailsMap).orNull,
+      java.time.Instant.now(), histogram.snapshot()
+    )
+  }
+
+  private def threadFactory(name: String): ThreadFactory = {
+    val count = new AtomicInteger()
+
+    (r: Runnable) => {
+      val thread = new Thread(r, s"$name-${count.incrementAndGet()}")
+      thread.setDaemon(true)
+      thread
+    }
+  }
+}
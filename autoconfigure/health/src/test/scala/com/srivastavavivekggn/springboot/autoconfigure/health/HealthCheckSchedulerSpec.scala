@@ -0,0 +1,147 @@
+package com.srivastavavivekggn.springboot.autoconfigure.health
+
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+
+import com.srivastavavivekggn.platform.heathcheck.HealthCheck
+import com.srivastavavivekggn.platform.heathcheck.HealthCheck.Level
+import com.srivastavavivekggn.scala.util.test.SimpleFlatSpec
+import com.srivastavavivekggn.springboot.autoconfigure.health.HealthCheckResult.Status
+
+import scala.concurrent.duration._
+import scala.concurrent.{Await, ExecutionContext, Future}
+import scala.jdk.CollectionConverters._
+
+class HealthCheckSchedulerSpec extends SimpleFlatSpec {
+
+  /**
+    * A check that counts its executions, blocks until released and then runs the given body
+    */
+  class TestCheck(body: () => Unit = () => ()) extends HealthCheck {
+
+    val executions = new AtomicInteger()
+
+    @volatile var gate: CountDownLatch = new CountDownLatch(0)
+
+    @volatile var details = "idle"
+
+    override def execute(): Unit = {
+      executions.incrementAndGet()
+      details = "running"
+      gate.await(10, TimeUnit.SECONDS)
+      body()
+      details = "done"
+    }
+
+    override def getName: String = "test"
+
+    override def getDetails: String = details
+
+    override def getLevel: Level = Level.HIGH
+  }
+
+  def properties(ttl: Duration, timeout: Duration = Duration.ofSeconds(5)): HealthCheckProperties = {
+    val p = new HealthCheckProperties
+    p.ttl = ttl
+    p.timeout = timeout
+    p.levelTtl = new java.util.HashMap[Level, Duration]()
+    p
+  }
+
+  def withScheduler[T](check: HealthCheck, props: HealthCheckProperties)(f: HealthCheckScheduler => T): T = {
+    val scheduler = new HealthCheckScheduler(List(check).asJava, props)
+    try f(scheduler) finally scheduler.close()
+  }
+
+  behavior of "HealthCheckScheduler"
+
+  it should "serve cached results until the ttl expires" in {
+    val check = new TestCheck
+
+    withScheduler(check, properties(Duration.ofMinutes(1))) { scheduler =>
+      assert(scheduler.isHealthy())
+      assert(scheduler.isHealthy())
+      assertResult(1)(check.executions.get())
+
+      scheduler.invalidate()
+      assert(scheduler.isHealthy())
+      assertResult(2)(check.executions.get())
+    }
+
+    val uncached = new TestCheck
+
+    withScheduler(uncached, properties(Duration.ZERO)) { scheduler =>
+      scheduler.snapshot()
+      scheduler.snapshot()
+      assertResult(2)(uncached.executions.get())
+    }
+  }
+
+  it should "report a slow check as timed out, and cache its result when it completes" in {
+    val check = new TestCheck
+    check.gate = new CountDownLatch(1)
+
+    withScheduler(check, properties(Duration.ofMinutes(1), Duration.ofMillis(100))) { scheduler =>
+      val timedOut = scheduler.snapshot().get(0)
+
+      assertResult(Status.TIMED_OUT)(timedOut.status)
+      // the running check's details are not read
+      assert(timedOut.details == null)
+
+      check.gate.countDown()
+
+      eventually(scheduler.snapshot().get(0).status == Status.SUCCEEDED)
+      assertResult("done")(scheduler.snapshot().get(0).details)
+      assertResult(1)(check.executions.get())
+    }
+  }
+
+  it should "join a run in progress rather than start another" in {
+    implicit val ec: ExecutionContext = ExecutionContext.global
+
+    val check = new TestCheck
+    check.gate = new CountDownLatch(1)
+
+    withScheduler(check, properties(Duration.ZERO)) { scheduler =>
+      val results = Future.sequence((1 to 5).map(_ => Future(scheduler.snapshot().get(0))))
+
+      // give every caller time to join before the run completes
+      eventually(check.executions.get() == 1)
+      Thread.sleep(200)
+      check.gate.countDown()
+
+      assert(Await.result(results, 10.seconds).forall(_.status == Status.SUCCEEDED))
+      assertResult(1)(check.executions.get())
+    }
+  }
+
+  it should "end the run when the check throws an Error" in {
+    val check = new TestCheck(() => throw new NoClassDefFoundError("missing"))
+
+    withScheduler(check, properties(Duration.ZERO, Duration.ofSeconds(2))) { scheduler =>
+      assertResult(Status.FAILED)(scheduler.snapshot().get(0).status)
+      // a check left running would time out here
+      assertResult(Status.FAILED)(scheduler.snapshot().get(0).status)
+      assertResult(2)(check.executions.get())
+    }
+  }
+
+  it should "fail checks that cannot be scheduled" in {
+    val check = new TestCheck
+    val scheduler = new HealthCheckScheduler(List[HealthCheck](check).asJava, properties(Duration.ZERO))
+    scheduler.close()
+
+    assertResult(Status.FAILED)(scheduler.snapshot().get(0).status)
+    assertResult(0)(check.executions.get())
+  }
+
+  /**
+    * Wait (up to 5 seconds) for the condition
+    */
+  private def eventually(condition: => Boolean): Unit = {
+    val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+    while (!condition && System.nanoTime() < deadline) Thread.sleep(10)
+    assert(condition)
+  }
+}
@@ -3,10 +3,9 @@ package com.srivastavavivekggn.springboot.autoconfigure.swagger.plugin
 import java.util.Locale
 
 import com.srivastavavivekggn.scala.util.TypeAlias.JBoolean
-import com.srivastavavivekggn.scala.util.lang.StringUtils
+import com.srivastavavivekggn.scala.util.lang.{MessageSourceUtils, StringUtils}
 import com.srivastavavivekggn.springboot.autoconfigure.swagger.SwaggerProperties
-import org.springframework.context.support.DefaultMessageSourceResolvable
-import org.springframework.context.{MessageSource, NoSuchMessageException}
+import org.springframework.context.MessageSource
 
 abstract class AbstractMessageSourcePlugin {
 
@@ -148,6 +147,7 @@ abstract class AbstractMessageSourcePlugin {
 
   /**
     * Gets a value from the messageSource trying each code in order until it finds one
+    * (see MessageSourceUtils, which avoids exceptions for missing codes when the source is a CachingMessageSource)
     *
     * @param codes   the codes to try
     * @param args    the arguments
@@ -159,16 +159,7 @@ abstract class AbstractMessageSourcePlugin {
                            args: Array[AnyRef],
                            default: String,
                            locale: Locale = defaultLocale): String = {
-
-    try {
-      messageSource.getMessage(
-        new DefaultMessageSourceResolvable(codes, args, default),
-        locale
-      )
-    }
-    catch {
-      case n: NoSuchMessageException => default
-    }
+    MessageSourceUtils.getMessage(messageSource, locale, codes.toSeq, args, default)
   }
 
 }
@@ -0,0 +1,50 @@
+package com.srivastavavivekggn.springboot.autoconfigure.web.tomcat
+
+import java.time.Duration
+
+import org.springframework.boot.context.properties.ConfigurationProperties
+
+import scala.beans.BeanProperty
+
+/**
+  * Settings for writing access logs asynchronously (see AsyncAccessLogWriter)
+  */
+@ConfigurationProperties(prefix = "server.tomcat.accesslog.async")
+class AsyncAccessLogProperties {
+
+  /**
+    * whether entries are written by a background thread, instead of on the request thread
+    */
+  @BeanProperty
+  var enabled: Boolean = false
+
+  /**
+    * the maximum number of entries waiting to be written (rounded up to a power of 2)
+    */
+  @BeanProperty
+  var capacity: Int = 8192
+
+  /**
+    * the maximum number of entries written at once
+    */
+  @BeanProperty
+  var batchSize: Int = 256
+
+  /**
+    * how long the writer waits for a full batch before writing what it has
+    */
+  @BeanProperty
+  var flushInterval: Duration = Duration.ofMillis(100)
+
+  /**
+    * when the buffer is full, block the request thread until there is room (instead of dropping the entry)
+    */
+  @BeanProperty
+  var blockWhenFull: Boolean = false
+
+  /**
+    * how long to wait for remaining entries to be written on shutdown
+    */
+  @BeanProperty
+  var shutdownTimeout: Duration = Duration.ofSeconds(5)
+}
@@ -0,0 +1,174 @@
+package com.srivastavavivekggn.springboot.autoconfigure.web.tomcat
+
+import com.srivastavavivekggn.scala.util.collection.CollectionUtils
+import com.srivastavavivekggn.scala.util.concurrent.RingBufferQueue
+import com.srivastavavivekggn.springboot.autoconfigure.web.tomcat.AsyncAccessLogWriter.{BLOCK_BACKOFF_NANOS, LINE_SEPARATOR}
+import org.slf4j.LoggerFactory
+
+import java.io.CharArrayWriter
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.LockSupport
+
+/**
+  * Writes access log entries on a background thread.
+  *
+  * Request threads copy each formatted entry into a bounded, lock-free ring buffer. The writer thread drains it in
+  * batches (whenever a batch fills up, or every flushInterval) and passes each batch to the sink as a single message,
+  * so the sink (i.e., the AccessLogValve) only locks and checks for rotation once per batch.
+  *
+  * When the buffer is full, entries are dropped (and counted) unless blockWhenFull is set.
+  *
+  * @param properties the settings
+  */
+class AsyncAccessLogWriter(properties: AsyncAccessLogProperties) {
+
+  // logger for this class
+  private val logger = LoggerFactory.getLogger(getClass)
+
+  private val queue = new RingBufferQueue[Array[Char]](properties.capacity)
+
+  private val batchSize = math.max(1, properties.batchSize)
+
+  private val flushIntervalNanos = math.max(1L, properties.flushInterval.toNanos)
+
+  private val dropped = new AtomicLong()
+
+  private val written = new AtomicLong()
+
+  @volatile private var running = false
+
+  @volatile private var worker: Thread = _
+
+  /**
+    * Start the writer thread (does nothing if it is already running)
+    *
+    * @param sink writes a batch of entries, separated by line separators
+    */
+  def start(sink: CharArrayWriter => Unit): Unit = synchronized {
+    if (!running) {
+      running = true
+      worker = new Thread(() => run(sink), "access-log-writer")
+      worker.setDaemon(true)
+      worker.start()
+    }
+  }
+
+  /**
+    * Stop the writer thread, after writing the remaining entries (waits up to shutdownTimeout)
+    */
+  def stop(): Unit = synchronized {
+    if (running) {
+      running = false
+      LockSupport.unpark(worker)
+      worker.join(math.max(1L, properties.shutdownTimeout.toMillis))
+
+      if (!queue.isEmpty) {
+        logger.warn(s"${queue.size()} access log entries were not written before shutdown")
+      }
+    }
+  }
+
+  /**
+    * Queue the given entry to be written. The entry is copied, so the writer can be reused once this returns.
+    *
+    * @param message the formatted entry
+    * @return true if the entry was queued, false if it was dropped
+    */
+  def submit(message: CharArrayWriter): Boolean = {
+    val entry = message.toCharArray
+
+    if (queue.offer(entry)) {
+      // only wake the writer once there is a full batch, otherwise it will pick this up on the next flush
+      if (queue.size() >= batchSize) {
+        LockSupport.unpark(worker)
+      }
+      true
+    }
+    else if (properties.blockWhenFull && offerBlocking(entry)) {
+      true
+    }
+    else {
+      dropped.incrementAndGet()
+      false
+    }
+  }
+
+  /**
+    * the number of entries waiting to be written
+    */
+  def getQueueDepth: Int = queue.size()
+
+  /**
+    * the maximum number of entries waiting to be written
+    */
+  def getCapacity: Int = queue.capacity
+
+  /**
+    * the number of entries dropped because the buffer was full (or the writer was stopped)
+    */
+  def getDropped: Long = dropped.get()
+
+  /**
+    * the number of entries passed to the sink
+    */
+  def getWritten: Long = written.get()
+
+  /**
+    * Wait for room in the queue, for as long as the writer is running
+    */
+  private def offerBlocking(entry: Array[Char]): Boolean = {
+    var offered = false
+
+    while (running && !offered) {
+      LockSupport.unpark(worker)
+      LockSupport.parkNanos(this, BLOCK_BACKOFF_NANOS)
+      offered = queue.offer(entry)
+    }
+
+    offered
+  }
+
+  /**
+    * Writer loop -- keeps going after stop until the queue is empty
+    */
+  private def run(sink: CharArrayWriter => Unit): Unit = {
+    val buffer = new CharArrayWriter(batchSize * 256)
+
+    while (running || !queue.isEmpty) {
+      val batch = CollectionUtils.drainQueue(queue, batchSize)
+
+      if (batch.isEmpty) {
+        LockSupport.parkNanos(this, flushIntervalNanos)
+      }
+      else {
+        write(sink, batch, buffer)
+      }
+    }
+  }
+
+  private def write(sink: CharArrayWriter => Unit, batch: List[Array[Char]], buffer: CharArrayWriter): Unit = {
+    buffer.reset()
+    buffer.write(batch.head)
+    batch.tail.foreach(entry => {
+      buffer.write(LINE_SEPARATOR)
+      buffer.write(entry)
+    })
+
+    try {
+      sink(buffer)
+      written.addAndGet(batch.size)
+    }
+    catch {
+      case e: Exception => logger.error(s"Failed to write ${batch.size} access log entries", e)
+    }
+  }
+}
+
+object AsyncAccessLogWriter {
+
+  private final val LINE_SEPARATOR = System.lineSeparator()
+
+  // how long a blocked request thread waits before trying again
+  private final val BLOCK_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50)
+}
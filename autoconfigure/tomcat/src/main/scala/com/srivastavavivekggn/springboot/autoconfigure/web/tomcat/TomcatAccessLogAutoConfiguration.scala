@@ -6,11 +6,13 @@ import org.apache.catalina.valves.AbstractAccessLogValve.StringElement
 import org.apache.catalina.valves.{AbstractAccessLogValve, AccessLogValve}
 import org.apache.catalina.{Container, LifecycleState, Valve}
 import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.ObjectProvider
 import org.springframework.boot.autoconfigure.condition.{ConditionalOnClass, ConditionalOnProperty, ConditionalOnWebApplication}
+import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory
 import org.springframework.boot.web.server.WebServerFactoryCustomizer
 import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory
-import org.springframework.context.annotation.{Bean, Configuration}
+import org.springframework.context.annotation.{Bean, Configuration, Import}
 
 import java.io.CharArrayWriter
 import java.util.Date
@@ -20,15 +22,34 @@ import scala.jdk.CollectionConverters._
 @ConditionalOnProperty(prefix = "server.tomcat.accesslog", name = Array("enabled"), matchIfMissing = false)
 @ConditionalOnClass(Array(classOf[AccessLogValve]))
 @ConditionalOnWebApplication
+@EnableConfigurationProperties(Array(classOf[AsyncAccessLogProperties]))
+@Import(Array(classOf[TomcatAccessLogMetricsConfiguration]))
 class TomcatAccessLogAutoConfiguration {
 
+  /**
+    * Create the async access log writer
+    *
+    * Enable this by setting {@ server.tomcat.accesslog.async.enabled=true in the properties
+    *
+    * @param properties the async settings
+    * @return the writer
+    */
+  @Bean(destroyMethod = "stop")
+  @ConditionalOnProperty(prefix = "server.tomcat.accesslog.async", name = Array("enabled"), havingValue = "true")
+  def asyncAccessLogWriter(properties: AsyncAccessLogProperties): AsyncAccessLogWriter = {
+    new AsyncAccessLogWriter(properties)
+  }
+
   /**
     * Create a servlet container customizer
     *
+    * @param delegates the custom access log elements
+    * @param writer    the async writer, if enabled
     * @return the customizer
     */
   @Bean
-  def servletContainerCustomizer(delegates: java.util.List[TomcatAccessDelegate]): WebServerFactoryCustomizer[ConfigurableServletWebServerFactory] = {
+  def servletContainerCustomizer(delegates: java.util.List[TomcatAccessDelegate],
+                                 writer: ObjectProvider[AsyncAccessLogWriter]): WebServerFactoryCustomizer[ConfigurableServletWebServerFactory] = {
     new WebServerFactoryCustomizer[ConfigurableServletWebServerFactory] {
 
       /**
@@ -45,7 +66,7 @@ class TomcatAccessLogAutoConfiguration {
           c.setEngineValves(
             (c.getEngineValves.asScala
               .map {
-                case a: AccessLogValve => new TomcatAccessLogAutoConfiguration.AccessLogDelegatingValve(a, delegates.asScalaOrEmpty)
+                case a: AccessLogValve => new TomcatAccessLogAutoConfiguration.AccessLogDelegatingValve(a, delegates.asScalaOrEmpty, Option(writer.getIfAvailable()))
                 case x: Valve => x
               }
               ).asJavaCollection
@@ -64,10 +85,13 @@ object TomcatAccessLogAutoConfiguration {
   /**
     * Delegating access log valve -- wraps the real valve so we can add custom formats
     *
-    * @param delegate the delegate valve
+    * @param delegate    the delegate valve
+    * @param delegateFns the custom access log elements
+    * @param writer      the async writer, if entries should be written off the request thread
     */
   class AccessLogDelegatingValve(delegate: AccessLogValve,
-                                 delegateFns: List[TomcatAccessDelegate]) extends AccessLogValve {
+                                 delegateFns: List[TomcatAccessDelegate],
+                                 writer: Option[AsyncAccessLogWriter] = None) extends AccessLogValve {
 
     // logger for this class
     private val logger = LoggerFactory.getLogger(getClass)
@@ -87,12 +111,13 @@ object TomcatAccessLogAutoConfiguration {
     }
 
     /**
-      * Log the formatted message out to file -- send this to the delegate
+      * Log the formatted message out to file -- send this to the delegate (or queue it for the async writer)
       *
       * @param message the message to log
       */
-    override def log(message: CharArrayWriter): Unit = {
-      delegate.log(message)
+    override def log(message: CharArrayWriter): Unit = writer match {
+      case Some(w) => w.submit(message)
+      case None => delegate.log(message)
     }
 
     /**
@@ -130,10 +155,13 @@ object TomcatAccessLogAutoConfiguration {
 
       if (state == LifecycleState.STARTING) {
         delegate.start()
-        logger.info(s"Writing AccessLogs to ${Option(delegate.getDirectory).getOrElse("")}")
+        writer.foreach(_.start(delegate.log))
+        logger.info(s"Writing AccessLogs${if (writer.isDefined) " asynchronously" else ""} to ${Option(delegate.getDirectory).getOrElse("")}")
       }
 
+      // write out anything still queued before the delegate closes its file
       if (state == LifecycleState.STOPPING) {
+        writer.foreach(_.stop())
         delegate.stop()
       }
     }
@@ -0,0 +1,45 @@
+package com.srivastavavivekggn.springboot.autoconfigure.web.tomcat
+
+import io.micrometer.core.instrument.binder.MeterBinder
+import io.micrometer.core.instrument.{FunctionCounter, Gauge, MeterRegistry}
+import org.springframework.boot.autoconfigure.condition.{ConditionalOnClass, ConditionalOnProperty}
+import org.springframework.context.annotation.{Bean, Configuration}
+
+/**
+  * Exposes the async access log writer's queue depth and counts to micrometer (when it is on the classpath)
+  */
+@Configuration
+@ConditionalOnClass(name = Array("io.micrometer.core.instrument.MeterRegistry"))
+class TomcatAccessLogMetricsConfiguration {
+
+  /**
+    * Register:
+    *  - tomcat.accesslog.queue.depth / tomcat.accesslog.queue.capacity (gauges)
+    *  - tomcat.accesslog.written / tomcat.accesslog.dropped (counters)
+    *
+    * The same condition as the writer (TomcatAccessLogAutoConfiguration), since ConditionalOnBean is evaluated before
+    * the importing configuration's beans are registered.
+    *
+    * @param writer the writer
+    * @return the binder
+    */
+  @Bean
+  @ConditionalOnProperty(prefix = "server.tomcat.accesslog.async", name = Array("enabled"), havingValue = "true")
+  def asyncAccessLogMetricsBinder(writer: AsyncAccessLogWriter): MeterBinder = (registry: MeterRegistry) => {
+
+    Gauge.builder("tomcat.accesslog.queue.depth", writer, (w: AsyncAccessLogWriter) => w.getQueueDepth.toDouble)
+      .description("access log entries waiting to be written")
+      .register(registry)
+
+    Gauge.builder("tomcat.accesslog.queue.capacity", writer, (w: AsyncAccessLogWriter) => w.getCapacity.toDouble)
+      .register(registry)
+
+    FunctionCounter.builder("tomcat.accesslog.written", writer, (w: AsyncAccessLogWriter) => w.getWritten.toDouble)
+      .description("access log entries written")
+      .register(registry)
+
+    FunctionCounter.builder("tomcat.accesslog.dropped", writer, (w: AsyncAccessLogWriter) => w.getDropped.toDouble)
+      .description("access log entries dropped because the buffer was full")
+      .register(registry)
+  }
+}
@@ -0,0 +1,128 @@
+package com.srivastavavivekggn.springboot.autoconfigure.web.tomcat
+
+import java.io.CharArrayWriter
+import java.time.Duration
+import java.util.concurrent.{ConcurrentLinkedQueue, CountDownLatch, TimeUnit}
+
+import com.srivastavavivekggn.scala.util.test.SimpleFlatSpec
+
+import scala.jdk.CollectionConverters._
+
+class AsyncAccessLogWriterSpec extends SimpleFlatSpec {
+
+  def properties(capacity: Int, batchSize: Int, blockWhenFull: Boolean = false): AsyncAccessLogProperties = {
+    val p = new AsyncAccessLogProperties
+    p.capacity = capacity
+    p.batchSize = batchSize
+    p.flushInterval = Duration.ofMillis(10)
+    p.blockWhenFull = blockWhenFull
+    p
+  }
+
+  def entry(value: String): CharArrayWriter = {
+    val w = new CharArrayWriter()
+    w.write(value)
+    w
+  }
+
+  /**
+    * Collects each batch written by the writer, as its lines
+    */
+  class Sink(gate: CountDownLatch = new CountDownLatch(0)) extends (CharArrayWriter => Unit) {
+
+    val batches = new ConcurrentLinkedQueue[List[String]]()
+
+    override def apply(batch: CharArrayWriter): Unit = {
+      gate.await(10, TimeUnit.SECONDS)
+      batches.add(batch.toString.split(System.lineSeparator()).toList)
+    }
+
+    def lines: List[String] = batches.asScala.toList.flatten
+  }
+
+  behavior of "AsyncAccessLogWriter"
+
+  it should "write entries in batches, in order" in {
+    val writer = new AsyncAccessLogWriter(properties(64, 4))
+    val sink = new Sink
+
+    writer.start(sink)
+    (1 to 10).foreach(i => assert(writer.submit(entry(s"line-$i"))))
+    writer.stop()
+
+    assertResult((1 to 10).map(i => s"line-$i").toList)(sink.lines)
+    assert(sink.batches.asScala.forall(_.size <= 4))
+    assertResult(10L)(writer.getWritten)
+    assertResult(0L)(writer.getDropped)
+    assertResult(0)(writer.getQueueDepth)
+  }
+
+  it should "copy entries, so the caller can reuse its buffer" in {
+    val writer = new AsyncAccessLogWriter(properties(64, 4))
+    val sink = new Sink
+    val buffer = entry("first")
+
+    writer.submit(buffer)
+    buffer.reset()
+    buffer.write("second")
+    writer.submit(buffer)
+
+    writer.start(sink)
+    writer.stop()
+
+    assertResult(List("first", "second"))(sink.lines)
+  }
+
+  it should "drop and count entries when the buffer is full" in {
+    val writer = new AsyncAccessLogWriter(properties(4, 4))
+
+    // not started, so nothing is drained
+    (1 to 4).foreach(i => assert(writer.submit(entry(s"line-$i"))))
+    assert(!writer.submit(entry("line-5")))
+    assert(!writer.submit(entry("line-6")))
+
+    assertResult(4)(writer.getCapacity)
+    assertResult(4)(writer.getQueueDepth)
+    assertResult(2L)(writer.getDropped)
+
+    val sink = new Sink
+    writer.start(sink)
+    writer.stop()
+
+    assertResult((1 to 4).map(i => s"line-$i").toList)(sink.lines)
+  }
+
+  it should "block instead of dropping entries when blockWhenFull is set" in {
+    val gate = new CountDownLatch(1)
+    val writer = new AsyncAccessLogWriter(properties(2, 1, blockWhenFull = true))
+    val sink = new Sink(gate)
+
+    writer.start(sink)
+
+    val producer = new Thread(() => (1 to 10).foreach(i => writer.submit(entry(s"line-$i"))))
+    producer.start()
+
+    // the sink is held up, so the producer fills the buffer and waits for room
+    producer.join(200)
+    assert(producer.isAlive)
+
+    gate.countDown()
+    producer.join(TimeUnit.SECONDS.toMillis(10))
+    writer.stop()
+
+    assertResult((1 to 10).map(i => s"line-$i").toList)(sink.lines)
+    assertResult(0L)(writer.getDropped)
+  }
+
+  it should "keep writing after the sink fails" in {
+    val writer = new AsyncAccessLogWriter(properties(64, 1))
+    val sink = new Sink
+
+    writer.start(batch => if (batch.toString == "bad") throw new IllegalStateException("bad") else sink(batch))
+    Seq("good-1", "bad", "good-2").foreach(e => writer.submit(entry(e)))
+    writer.stop()
+
+    assertResult(List("good-1", "good-2"))(sink.lines)
+    assertResult(2L)(writer.getWritten)
+  }
+}
@@ -1,14 +1,17 @@
 package com.srivastavavivekggn.scala.reactive.crud
 
-import com.srivastavavivekggn.scala.util.TypeAlias.JBoolean
+import com.srivastavavivekggn.scala.util.TypeAlias.{JBoolean, JLong}
 import com.srivastavavivekggn.scala.util.collection.CollectionUtils
 import com.srivastavavivekggn.scala.util.domain.BaseModel
 import org.reactivestreams.Publisher
 import org.springframework.core.convert.converter.Converter
 import org.springframework.data.repository.reactive.ReactiveCrudRepository
+import org.springframework.util.Assert
 import reactor.core.publisher.{Flux, Mono}
+import reactor.util.function.Tuple2
 
 import java.util.Objects
+import scala.jdk.CollectionConverters._
 
 /**
   * Base class for specific ReactiveCrudOperations implementations (e.g., Mongo, JPA, etc.)
@@ -118,7 +121,49 @@ abstract class AbstractReactiveCrudOperationsImpl[DAO <: BaseModel[ID], E <: Bas
     * @param entities the scala iterable of entities to save
     * @return the flux of results
     */
-  override def saveAll(entities: Iterable[E]): Flux[E] = saveAll(CollectionUtils.asJavaListOrEmpty(entities.toList))
+  override def saveAll(entities: Iterable[E]): Flux[E] = saveAll(orEmpty(entities).asJava)
+
+  /**
+    * Save a stream of entities in batches. Up to bulkWriteConcurrency batches are written at once, and entities are
+    * only requested from the flux as batches complete.
+    *
+    * @param entities  the entities to save
+    * @param batchSize the number of entities per write
+    * @return the result of each batch, in order
+    */
+  override def saveAll(entities: Flux[E], batchSize: Int): Flux[SaveBatch[E]] = {
+    Objects.requireNonNull(entities, "entities cannot be null for saveAll")
+    Assert.isTrue(batchSize > 0, "batchSize must be greater than 0")
+
+    entities
+      .buffer(batchSize)
+      .index()
+      .flatMapSequential((batch: Tuple2[JLong, java.util.List[E]]) => {
+        val index = batch.getT1.longValue
+
+        Mono.defer[SaveBatch[E]](() => saveBatch(index, batch.getT2))
+          .onErrorResume((e: Throwable) => Mono.just(SaveBatch.failed(index, batch.getT2, e)))
+      }, bulkWriteConcurrency, 1)
+  }
+
+  /**
+    * The number of batches saveAll(Flux, Int) and deleteAllById(Flux, Int) write at once
+    *
+    * @return the concurrency
+    */
+  protected def bulkWriteConcurrency: Int = AbstractReactiveCrudOperationsImpl.DEFAULT_BULK_WRITE_CONCURRENCY
+
+  /**
+    * Save one batch for saveAll(Flux, Int). By default this is a repository saveAll -- implementations should
+    * override it with a single bulk write where the data store supports one.
+    *
+    * @param index    the batch index
+    * @param entities the entities to save
+    * @return the batch result (an error fails the whole batch)
+    */
+  protected def saveBatch(index: Long, entities: java.util.List[E]): Mono[SaveBatch[E]] = {
+    repository.saveAll(Flux.fromIterable(entities).toDao).toDto.collectList().map((saved: java.util.List[E]) => SaveBatch.saved(index, saved))
+  }
 
   /**
     * Remove an item from the repository
@@ -159,7 +204,7 @@ abstract class AbstractReactiveCrudOperationsImpl[DAO <: BaseModel[ID], E <: Bas
     * @param entities the entities to remove
     * @return an empty mono
     */
-  override def deleteAll(entities: Iterable[E]): Mono[Void] = deleteAll(CollectionUtils.asJavaListOrEmpty(entities.toList))
+  override def deleteAll(entities: Iterable[E]): Mono[Void] = deleteAll(orEmpty(entities).asJava)
 
   /**
     * Remove all by id
@@ -184,7 +229,21 @@ abstract class AbstractReactiveCrudOperationsImpl[DAO <: BaseModel[ID], E <: Bas
     * @param ids the ids to remove
     * @return an empty mono
     */
-  override def deleteAllById(ids: Iterable[ID]): Mono[Void] = deleteAllById(CollectionUtils.asJavaListOrEmpty(ids.toList))
+  override def deleteAllById(ids: Iterable[ID]): Mono[Void] = deleteAllById(orEmpty(ids).asJava)
+
+  /**
+    * Remove a stream of ids, in batches (see bulkWriteConcurrency)
+    *
+    * @param ids       the ids to remove
+    * @param batchSize the number of ids per delete
+    * @return an empty mono
+    */
+  override def deleteAllById(ids: Flux[ID], batchSize: Int): Mono[Void] = {
+    Objects.requireNonNull(ids, "ids cannot be null for deleteAllById")
+    Assert.isTrue(batchSize > 0, "batchSize must be greater than 0")
+
+    ids.buffer(batchSize).flatMap((batch: java.util.List[ID]) => repository.deleteAllById(batch), bulkWriteConcurrency, 1).`then`()
+  }
 
   /**
     * See if an entity with the given ID exists
@@ -201,4 +260,14 @@ abstract class AbstractReactiveCrudOperationsImpl[DAO <: BaseModel[ID], E <: Bas
     * @return true if it exists, false otherwise
     */
   override def exists(id: Publisher[ID]): Mono[JBoolean] = repository.existsById(id)
+
+  private def orEmpty[T](i: Iterable[T]): Iterable[T] = Option(i).getOrElse(Iterable.empty)
+}
+
+object AbstractReactiveCrudOperationsImpl {
+
+  /**
+    * the default number of batches written at once by bulk operations
+    */
+  final val DEFAULT_BULK_WRITE_CONCURRENCY = 2
 }
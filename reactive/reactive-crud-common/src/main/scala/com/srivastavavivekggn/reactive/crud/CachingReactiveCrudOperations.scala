@@ -0,0 +1,371 @@
+package com.srivastavavivekggn.scala.reactive.crud
+
+import com.google.common.cache.{Cache, CacheBuilder, CacheStats}
+import com.srivastavavivekggn.scala.util.TypeAlias.JBoolean
+import com.srivastavavivekggn.scala.util.collection.CollectionUtils
+import com.srivastavavivekggn.scala.util.domain.BaseModel
+import org.reactivestreams.Publisher
+import org.springframework.data.domain.Page
+import reactor.core.publisher.{Flux, Mono}
+
+import java.time.Duration
+import java.util.Objects
+import java.util.concurrent.atomic.LongAdder
+import java.util.concurrent.{CompletableFuture, TimeUnit}
+import scala.jdk.CollectionConverters._
+
+/**
+  * A ReactiveCrudOperations decorator that caches entities by id (read-through), for entities that are read far more
+  * often than they change.
+  *
+  *  - findById and findAllById are served from the cache, and cache the (converted) entities they load. Concurrent
+  *    misses for the same id share one load, and findAllById loads all of its misses with one findAllById call
+  *  - exists is answered from the cache where the id is cached, otherwise it goes to the delegate (without caching)
+  *  - save, saveAll and the delete operations invalidate the ids they write once they complete. A load that was in
+  *    flight at the time is not cached
+  *  - findAll is not cached
+  *
+  * Entities that are not found are not cached. Writes that do not go through this instance (e.g., another
+  * application instance) are only seen once the cached entity expires.
+  *
+  * @param delegate         the operations to cache
+  * @param maximumSize      the maximum number of cached entities
+  * @param expireAfterWrite how long an entity is cached for (null to cache until evicted or invalidated)
+  * @tparam E  the entity type
+  * @tparam ID the ID type
+  */
+class CachingReactiveCrudOperations[E <: BaseModel[ID], ID <: java.io.Serializable](
+  delegate: ReactiveCrudOperations[E, ID],
+  maximumSize: Long = CachingReactiveCrudOperations.DEFAULT_MAXIMUM_SIZE,
+  expireAfterWrite: Duration = CachingReactiveCrudOperations.DEFAULT_EXPIRE_AFTER_WRITE) extends ReactiveCrudOperations[E, ID] {
+
+  /**
+    * Cached (or loading) entities by id. A load that finds nothing completes with null
+    */
+  private val cache: Cache[ID, CompletableFuture[E]] = {
+    val builder = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats()
+
+    Option(expireAfterWrite).filter(!_.isZero).foreach(t => builder.expireAfterWrite(t.toNanos, TimeUnit.NANOSECONDS))
+
+    builder.build[ID, CompletableFuture[E]]()
+  }
+
+  private val hits = new LongAdder
+  private val misses = new LongAdder
+  private val loadSuccesses = new LongAdder
+  private val loadFailures = new LongAdder
+  private val loadTime = new LongAdder
+
+  /**
+    * Tries to find a single entity by it's ID, from the cache if possible
+    *
+    * @param id the entity id
+    * @return the entity if found
+    */
+  override def findById(id: ID): Mono[E] = {
+    Objects.requireNonNull(id, "id cannot be null for findById")
+
+    Mono.defer[E](() => {
+      val future = Option(cache.getIfPresent(id)).map(f => hit(f)).getOrElse({
+        val loading = new CompletableFuture[E]()
+        val existing = cache.asMap().putIfAbsent(id, loading)
+
+        if (existing != null) hit(existing)
+        else {
+          misses.increment()
+          load(List(id), Map(id -> loading))
+          loading
+        }
+      })
+
+      toMono(future)
+    })
+  }
+
+  /**
+    * Find multiple by ID -- cached entities are returned from the cache, and the rest are loaded with a single
+    * findAllById call
+    *
+    * @param ids the ids to find
+    * @return the flux of results, in the order of the ids
+    */
+  override def findAllById(ids: java.lang.Iterable[ID]): Flux[E] = {
+    Objects.requireNonNull(ids, "ids cannot be null for findAll")
+
+    Flux.defer[E](() => {
+      val distinct = ids.asScala.filter(_ != null).toList.distinct
+
+      // (id, future, whether this call added the future and so has to load it)
+      val futures = distinct.map(id => Option(cache.getIfPresent(id)).map(f => (id, hit(f), false)).getOrElse({
+        val loading = new CompletableFuture[E]()
+        val existing = cache.asMap().putIfAbsent(id, loading)
+
+        if (existing != null) (id, hit(existing), false) else (id, loading, true)
+      }))
+
+      val toLoad = futures.collect { case (id, f, true) => id -> f }
+
+      if (toLoad.nonEmpty) {
+        misses.add(toLoad.size)
+        load(toLoad.map(_._1), toLoad.toMap)
+      }
+
+      Flux.fromIterable(futures.map(_._2).asJava).concatMap((f: CompletableFuture[E]) => toMono(f))
+    })
+  }
+
+  /**
+    * Find multiple by ID
+    *
+    * @param ids the ids to find
+    * @return the list of results
+    */
+  override def findAllById(ids: Iterable[ID]): Flux[E] = findAllById(CollectionUtils.asJavaListOrEmpty(ids.toList))
+
+  /**
+    * Find all entities in this collection (not cached)
+    *
+    * @return the flux of content
+    */
+  override def findAll: Flux[E] = delegate.findAll
+
+  /**
+    * Initiate a findAll utilizing pagination (not cached)
+    *
+    * @param pageIndex the page index
+    * @param pageSize  the page size
+    * @param sort      the sort criteria
+    * @return the Flux of entity results
+    */
+  override def findAll(pageIndex: Int, pageSize: Int, sort: Array[String]): Mono[Page[E]] = {
+    delegate.findAll(pageIndex, pageSize, sort)
+  }
+
+  /**
+    * Save the entity to the data store, invalidating its cached entry
+    *
+    * @param entity the entity to save
+    * @return the saved entity
+    */
+  override def save(entity: E): Mono[E] = {
+    delegate.save(entity)
+      .doOnNext((saved: E) => invalidate(saved.getId))
+      .doFinally(_ => invalidate(entity.getId))
+  }
+
+  /**
+    * Save multiple entities to the data store, invalidating their cached entries
+    *
+    * @param entities the java iterable of entities to save
+    * @return the flux of results
+    */
+  override def saveAll(entities: java.lang.Iterable[E]): Flux[E] = {
+    delegate.saveAll(entities)
+      .doOnNext((saved: E) => invalidate(saved.getId))
+      .doFinally(_ => invalidateEntities(entities))
+  }
+
+  /**
+    * Save multiple entities to the data store, invalidating their cached entries
+    *
+    * @param entities the scala iterable of entities to save
+    * @return the flux of results
+    */
+  override def saveAll(entities: Iterable[E]): Flux[E] = saveAll(CollectionUtils.asJavaListOrEmpty(entities.toList))
+
+  /**
+    * Save a stream of entities in batches, invalidating the cached entries of each batch once it is written
+    *
+    * @param entities  the entities to save
+    * @param batchSize the number of entities per write
+    * @return the result of each batch, in order
+    */
+  override def saveAll(entities: Flux[E], batchSize: Int): Flux[SaveBatch[E]] = {
+    delegate.saveAll(entities, batchSize).doOnNext((batch: SaveBatch[E]) => {
+      batch.saved.forEach(e => invalidate(e.getId))
+      batch.failures.forEach(f => Option(f.entity).foreach(e => invalidate(e.getId)))
+    })
+  }
+
+  /**
+    * Remove an item from the repository, invalidating its cached entry
+    *
+    * @param entity the entity to remove
+    * @return an empty Future
+    */
+  override def delete(entity: E): Mono[Void] = delegate.delete(entity).doFinally(_ => invalidate(entity.getId))
+
+  /**
+    * Remove by id, invalidating its cached entry
+    *
+    * @param id the id to remove
+    * @return an empty future
+    */
+  override def deleteById(id: ID): Mono[Void] = delegate.deleteById(id).doFinally(_ => invalidate(id))
+
+  /**
+    * Remove all entities, invalidating their cached entries
+    *
+    * @param entities the entities to remove
+    * @return an empty mono
+    */
+  override def deleteAll(entities: java.lang.Iterable[E]): Mono[Void] = {
+    delegate.deleteAll(entities).doFinally(_ => invalidateEntities(entities))
+  }
+
+  /**
+    * Remove all entities, invalidating their cached entries
+    *
+    * @param entities the entities to remove
+    * @return an empty mono
+    */
+  override def deleteAll(entities: Iterable[E]): Mono[Void] = deleteAll(CollectionUtils.asJavaListOrEmpty(entities.toList))
+
+  /**
+    * Remove all by id, invalidating their cached entries
+    *
+    * @param ids the ids to remove
+    * @return an empty mono
+    */
+  override def deleteAllById(ids: java.lang.Iterable[ID]): Mono[Void] = {
+    delegate.deleteAllById(ids).doFinally(_ => Option(ids).foreach(_.forEach(id => invalidate(id))))
+  }
+
+  /**
+    * Remove all by id, invalidating their cached entries
+    *
+    * @param ids the ids to remove
+    * @return an empty mono
+    */
+  override def deleteAllById(ids: Iterable[ID]): Mono[Void] = deleteAllById(CollectionUtils.asJavaListOrEmpty(ids.toList))
+
+  /**
+    * Remove a stream of ids in batches, invalidating each id as it is passed to the delegate (the ids are not held
+    * until the delete completes, so a load racing the delete may be cached until it expires)
+    *
+    * @param ids       the ids to remove
+    * @param batchSize the number of ids per delete
+    * @return an empty mono
+    */
+  override def deleteAllById(ids: Flux[ID], batchSize: Int): Mono[Void] = {
+    delegate.deleteAllById(ids.doOnNext((id: ID) => invalidate(id)), batchSize)
+  }
+
+  /**
+    * See if an entity with the given ID exists, from the cache if possible
+    *
+    * @param id the id
+    * @return true if it exists, false otherwise
+    */
+  override def exists(id: ID): Mono[JBoolean] = Mono.defer[JBoolean](() => {
+    Option(id).flatMap(i => Option(cache.getIfPresent(i))) match {
+      case Some(future) =>
+        hits.increment()
+        toMono(future).hasElement
+      case None => delegate.exists(id)
+    }
+  })
+
+  /**
+    * See if an entity with the given ID exists, from the cache if possible
+    *
+    * @param id the id
+    * @return true if it exists, false otherwise
+    */
+  override def exists(id: Publisher[ID]): Mono[JBoolean] = Mono.from(id).flatMap((i: ID) => exists(i))
+
+  /**
+    * Remove the given id from the cache
+    *
+    * @param id the id
+    */
+  def invalidate(id: ID): Unit = Option(id).foreach(cache.invalidate)
+
+  /**
+    * Remove all entities from the cache
+    */
+  def invalidateAll(): Unit = cache.invalidateAll()
+
+  /**
+    * the number of cached (or loading) entities
+    */
+  def size: Long = cache.size()
+
+  /**
+    * Cache statistics -- hits, misses (ids that were loaded), loads and their total time, and evictions
+    *
+    * @return the stats
+    */
+  def stats: CacheStats = new CacheStats(
+    hits.sum(),
+    misses.sum(),
+    loadSuccesses.sum(),
+    loadFailures.sum(),
+    loadTime.sum(),
+    cache.stats().evictionCount()
+  )
+
+  private def hit(future: CompletableFuture[E]): CompletableFuture[E] = {
+    hits.increment()
+    future
+  }
+
+  /**
+    * Load the given ids from the delegate, completing their futures. Ids that are not found, or fail to load, are
+    * removed from the cache (unless they have been replaced since).
+    */
+  private def load(ids: List[ID], futures: Map[ID, CompletableFuture[E]]): Unit = {
+    val start = System.nanoTime()
+
+    val loaded = ids match {
+      case id :: Nil => delegate.findById(id).map((e: E) => Map(id -> e))
+      case _ => delegate.findAllById(ids.asJava).collectList().map((l: java.util.List[E]) => l.asScala.map(e => e.getId -> e).toMap)
+    }
+
+    loaded.defaultIfEmpty(Map.empty[ID, E]).subscribe(
+      (entities: Map[ID, E]) => {
+        loadSuccesses.increment()
+        loadTime.add(System.nanoTime() - start)
+
+        futures.foreach { case (id, future) =>
+          val entity = entities.getOrElse(id, null.asInstanceOf[E])
+
+          if (entity == null) cache.asMap().remove(id, future)
+          future.complete(entity)
+        }
+      },
+      (e: Throwable) => {
+        loadFailures.increment()
+        loadTime.add(System.nanoTime() - start)
+
+        futures.foreach { case (id, future) =>
+          cache.asMap().remove(id, future)
+          future.completeExceptionally(e)
+        }
+      }
+    )
+  }
+
+  private def invalidateEntities(entities: java.lang.Iterable[E]): Unit = {
+    Option(entities).foreach(_.forEach(e => if (e != null) invalidate(e.getId)))
+  }
+
+  /**
+    * A mono for the given future. The mono gets its own copy of the future, so a cancelled subscriber does not
+    * cancel the shared load.
+    */
+  private def toMono(future: CompletableFuture[E]): Mono[E] = Mono.fromFuture(future.thenApply[E](e => e))
+}
+
+object CachingReactiveCrudOperations {
+
+  /**
+    * the default maximum number of cached entities
+    */
+  final val DEFAULT_MAXIMUM_SIZE = 10000L
+
+  /**
+    * the default time an entity is cached for
+    */
+  final val DEFAULT_EXPIRE_AFTER_WRITE: Duration = Duration.ofMinutes(10)
+}
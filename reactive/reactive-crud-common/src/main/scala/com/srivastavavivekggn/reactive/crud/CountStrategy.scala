@@ -0,0 +1,33 @@
+package com.srivastavavivekggn.scala.reactive.crud
+
+import java.time.Duration
+
+/**
+  * How the total number of entities is found for paged results
+  */
+sealed trait CountStrategy
+
+object CountStrategy {
+
+  /**
+    * count the entities for every page
+    */
+  case object Exact extends CountStrategy
+
+  /**
+    * use the data store's estimate (e.g., collection metadata), which is fast but may be out of date
+    */
+  case object Estimated extends CountStrategy
+
+  /**
+    * count the entities, and re-use the count for the given time
+    *
+    * @param ttl how long the count is re-used for
+    */
+  final case class Cached(ttl: Duration) extends CountStrategy
+
+  /**
+    * do not count (only applies to cursor pages, Page results always need a total)
+    */
+  case object Disabled extends CountStrategy
+}
@@ -0,0 +1,17 @@
+package com.srivastavavivekggn.scala.reactive.crud
+
+import com.srivastavavivekggn.scala.util.TypeAlias.JLong
+
+/**
+  * A page of results from keyset (cursor) pagination (see ReactiveCursorOperations.findAllByCursor)
+  *
+  * @param content    the content
+  * @param nextCursor the cursor for the next page, if there is one -- an opaque token that is only valid with the same
+  *                   sort criteria
+  * @param total      the total number of entities, if counted (see CountStrategy)
+  * @tparam E the entity type
+  */
+case class CursorPage[E](content: java.util.List[E], nextCursor: Option[String], total: Option[JLong]) {
+
+  def hasNext: Boolean = nextCursor.isDefined
+}
@@ -1,10 +1,14 @@
 package com.srivastavavivekggn.scala.reactive.crud
 
-import com.srivastavavivekggn.scala.util.TypeAlias.JBoolean
+import com.srivastavavivekggn.scala.util.TypeAlias.{JBoolean, JLong}
 import com.srivastavavivekggn.scala.util.domain.BaseModel
 import org.reactivestreams.Publisher
 import org.springframework.data.domain.{Page, PageRequest, Pageable}
+import org.springframework.util.Assert
 import reactor.core.publisher.{Flux, Mono}
+import reactor.util.function.Tuple2
+
+import java.util.Objects
 
 /**
   * A common set of crud-related operations as exposed to business services.  This interface deals solely
@@ -111,6 +115,34 @@ trait ReactiveCrudOperations[E <: BaseModel[ID], ID <: java.io.Serializable] {
     */
   def saveAll(entities: Iterable[E]): Flux[E]
 
+  /**
+    * Save a stream of entities to the data store in batches, for bulk imports. Entities are requested from the flux
+    * as batches are written (so it does not need to fit in memory), and a failed batch (or failed entities within a
+    * batch) does not stop the rest.
+    *
+    * By default each batch is a saveAll, one batch at a time.
+    *
+    * @param entities  the entities to save
+    * @param batchSize the number of entities per write
+    * @return the result of each batch, in order
+    */
+  def saveAll(entities: Flux[E], batchSize: Int): Flux[SaveBatch[E]] = {
+    Objects.requireNonNull(entities, "entities cannot be null for saveAll")
+    Assert.isTrue(batchSize > 0, "batchSize must be greater than 0")
+
+    entities
+      .buffer(batchSize)
+      .index()
+      .concatMap((batch: Tuple2[JLong, java.util.List[E]]) => {
+        val index = batch.getT1.longValue
+
+        Flux.defer[E](() => saveAll(batch.getT2: java.lang.Iterable[E]))
+          .collectList()
+          .map((saved: java.util.List[E]) => SaveBatch.saved(index, saved))
+          .onErrorResume((e: Throwable) => Mono.just(SaveBatch.failed(index, batch.getT2, e)))
+      }, 1)
+  }
+
   /**
     * Remove an item from the repository
     *
@@ -159,6 +191,29 @@ trait ReactiveCrudOperations[E <: BaseModel[ID], ID <: java.io.Serializable] {
     */
   def deleteAllById(ids: Iterable[ID]): Mono[Void]
 
+  /**
+    * Remove a stream of entities, in batches
+    *
+    * @param entities  the entities to remove
+    * @param batchSize the number of entities per delete
+    * @return an empty mono
+    */
+  def deleteAll(entities: Flux[E], batchSize: Int): Mono[Void] = deleteAllById(entities.map((e: E) => e.getId), batchSize)
+
+  /**
+    * Remove a stream of ids, in batches. By default each batch is a deleteAllById, one batch at a time.
+    *
+    * @param ids       the ids to remove
+    * @param batchSize the number of ids per delete
+    * @return an empty mono
+    */
+  def deleteAllById(ids: Flux[ID], batchSize: Int): Mono[Void] = {
+    Objects.requireNonNull(ids, "ids cannot be null for deleteAllById")
+    Assert.isTrue(batchSize > 0, "batchSize must be greater than 0")
+
+    ids.buffer(batchSize).concatMap((batch: java.util.List[ID]) => deleteAllById(batch: java.lang.Iterable[ID]), 1).`then`()
+  }
+
   /**
     * See if an entity with the given ID exists
     *
@@ -7,9 +7,11 @@ import org.springframework.core.convert.converter.Converter
 import org.springframework.data.domain.Sort.Order
 import org.springframework.data.domain.{Page, PageImpl, PageRequest, Pageable, Sort}
 import org.springframework.util.Assert
-import reactor.core.publisher.{Flux, Mono}
+import reactor.core.publisher.{Flux, Mono, Sinks}
+import reactor.util.context.ContextView
 
 import java.util.Objects
+import scala.jdk.CollectionConverters._
 
 /**
   * Helper utilities that can be applied to any AbstractReactiveCrudOperationsImpl class.
@@ -31,12 +33,46 @@ trait ReactiveCrudOperationsImplHelpers[DAO <: BaseModel[ID], E <: BaseModel[ID]
     fluxToPage(daoFlux.map(toDto), pageable, totalSupplier)
   }
 
+  def toDtoPage(daoFlux: Flux[DAO], pageable: Pageable, totalSupplier: Mono[JLong], countConcurrently: Boolean): Mono[Page[E]] = {
+    fluxToPage(daoFlux.map(toDto), pageable, totalSupplier, countConcurrently)
+  }
+
+  /**
+    * Creates a CursorPage from the given flux, which should return up to pageSize + 1 results (the extra result only
+    * shows that there is a next page). The total, if requested, is fetched at the same time as the content rather
+    * than after it.
+    *
+    * @param daoFlux       the content
+    * @param pageSize      the page size
+    * @param cursorOf      creates the cursor that continues after the given (last) result
+    * @param totalSupplier the total supplier, if the page should include a total
+    * @return the CursorPage as a mono
+    */
+  def toDtoCursorPage(daoFlux: Flux[DAO],
+                      pageSize: Int,
+                      cursorOf: DAO => String,
+                      totalSupplier: Option[Mono[JLong]]): Mono[CursorPage[E]] = {
+
+    val page = daoFlux.take(pageSize + 1L).collectList().map((daos: java.util.List[DAO]) => {
+      val content = daos.asScala.take(pageSize)
+      val nextCursor = if (daos.size > pageSize) content.lastOption.map(cursorOf) else None
+
+      CursorPage[E](content.map(toDto).asJava, nextCursor, None)
+    })
+
+    totalSupplier match {
+      case Some(total) => Mono.zip(page, total).map(t => t.getT1.copy(total = Option(t.getT2)))
+      case None => page
+    }
+  }
+
   //=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
   //=-=- Page / Sort Utilities
   //=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
 
   /**
-    * Creates a Page response from the given flux
+    * Creates a Page response from the given flux. The total is only fetched if the content does not give it (see
+    * listToPage), once the content has been read.
     *
     * @param contentFlux   the content as a flux
     * @param pageable      the pageable
@@ -45,11 +81,49 @@ trait ReactiveCrudOperationsImplHelpers[DAO <: BaseModel[ID], E <: BaseModel[ID]
     * @return a Page result as a mono
     */
   protected def fluxToPage(contentFlux: Flux[E], pageable: Pageable, totalSupplier: Mono[JLong]): Mono[Page[E]] = {
+    fluxToPage(contentFlux, pageable, totalSupplier, countConcurrently = false)
+  }
+
+  /**
+    * Creates a Page response from the given flux, optionally fetching the total at the same time as the content.
+    *
+    * Counting concurrently saves waiting on an expensive count for full pages, but the count is always started, even
+    * when the content turns out to give the total (it is cancelled then, which may not stop the data store's work).
+    * The count runs in the subscriber's context, e.g. the same transaction as the content.
+    *
+    * @param contentFlux       the content as a flux
+    * @param pageable          the pageable
+    * @param totalSupplier     the total supplier
+    * @param countConcurrently true to fetch the total at the same time as the content
+    * @tparam T the result type
+    * @return a Page result as a mono
+    */
+  protected def fluxToPage(contentFlux: Flux[E],
+                           pageable: Pageable,
+                           totalSupplier: Mono[JLong],
+                           countConcurrently: Boolean): Mono[Page[E]] = {
 
     Objects.requireNonNull(pageable, "Pageable must not be null!")
     Objects.requireNonNull(totalSupplier, "TotalSupplier must not be null!")
 
-    contentFlux.collectList().flatMap(lst => listToPage(lst, pageable, totalSupplier))
+    if (countConcurrently && pageable.isPaged) {
+      Mono.deferContextual[Page[E]]((ctx: ContextView) => {
+        // listToPage reads the result if it needs the total (errors surface there)
+        val total = Sinks.one[JLong]()
+        val counting = totalSupplier.contextWrite(ctx).subscribe(
+          (t: JLong) => total.tryEmitValue(t),
+          (e: Throwable) => total.tryEmitError(e),
+          () => total.tryEmitEmpty()
+        )
+
+        contentFlux.collectList()
+          .flatMap((lst: java.util.List[E]) => listToPage(lst, pageable, total.asMono()))
+          .doFinally(_ => counting.dispose())
+      })
+    }
+    else {
+      contentFlux.collectList().flatMap(lst => listToPage(lst, pageable, totalSupplier))
+    }
   }
 
   /**
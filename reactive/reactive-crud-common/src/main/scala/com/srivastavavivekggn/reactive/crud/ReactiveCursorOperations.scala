@@ -0,0 +1,45 @@
+package com.srivastavavivekggn.scala.reactive.crud
+
+import reactor.core.publisher.Mono
+
+/**
+  * Keyset (cursor) pagination, for ReactiveCrudOperations implementations whose data store supports it (e.g.,
+  * MongoReactiveCrudOperationsImpl). Unlike findAll with a page index, each page costs the same however deep it is.
+  *
+  * @tparam E the entity type
+  */
+trait ReactiveCursorOperations[E] {
+
+  /**
+    * Initiate a findAll utilizing keyset (cursor) pagination
+    *
+    * @param cursor   the nextCursor from the previous page, or null for the first page
+    * @param pageSize the page size
+    * @param sort     the sort criteria (must be the same for every page)
+    * @return the page of entity results
+    */
+  def findAllByCursor(cursor: String, pageSize: Int, sort: Array[String]): Mono[CursorPage[E]]
+
+  /**
+    * Initiate a findAll utilizing keyset (cursor) pagination
+    *
+    * @param cursor   the nextCursor from the previous page, or null for the first page
+    * @param pageSize the page size
+    * @param sort     the sort criteria (must be the same for every page)
+    * @return the page of entity results
+    */
+  def findAllByCursor(cursor: String, pageSize: Int, sort: String): Mono[CursorPage[E]] = {
+    findAllByCursor(cursor, pageSize, Array(sort))
+  }
+
+  /**
+    * Initiate a findAll utilizing keyset (cursor) pagination
+    *
+    * @param cursor   the nextCursor from the previous page, or null for the first page
+    * @param pageSize the page size
+    * @return the page of entity results
+    */
+  def findAllByCursor(cursor: String, pageSize: Int): Mono[CursorPage[E]] = {
+    findAllByCursor(cursor, pageSize, Array.empty[String])
+  }
+}
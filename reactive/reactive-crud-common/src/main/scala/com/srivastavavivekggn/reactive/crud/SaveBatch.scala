@@ -0,0 +1,51 @@
+package com.srivastavavivekggn.scala.reactive.crud
+
+import scala.jdk.CollectionConverters._
+
+/**
+  * The result of writing one batch of a bulk save (see ReactiveCrudOperations.saveAll(Flux, Int))
+  *
+  * @param index    the batch index (0 for the first batchSize entities, and so on)
+  * @param saved    the saved entities
+  * @param failures the entities that could not be saved, and why
+  * @tparam E the entity type
+  */
+case class SaveBatch[E](index: Long, saved: java.util.List[E], failures: java.util.List[SaveBatch.Failure[E]]) {
+
+  def hasFailures: Boolean = !failures.isEmpty
+}
+
+object SaveBatch {
+
+  /**
+    * An entity that could not be saved
+    *
+    * @param entity the entity
+    * @param error  the error
+    * @tparam E the entity type
+    */
+  case class Failure[E](entity: E, error: Throwable)
+
+  /**
+    * A batch that was saved in full
+    *
+    * @param index the batch index
+    * @param saved the saved entities
+    * @tparam E the entity type
+    * @return the batch result
+    */
+  def saved[E](index: Long, saved: java.util.List[E]): SaveBatch[E] = SaveBatch(index, saved, java.util.Collections.emptyList())
+
+  /**
+    * A batch that failed as a whole
+    *
+    * @param index    the batch index
+    * @param entities the entities in the batch
+    * @param error    the error
+    * @tparam E the entity type
+    * @return the batch result
+    */
+  def failed[E](index: Long, entities: java.util.List[E], error: Throwable): SaveBatch[E] = {
+    SaveBatch(index, java.util.Collections.emptyList(), entities.asScala.map(e => Failure(e, error)).asJava)
+  }
+}
@@ -0,0 +1,186 @@
+package com.srivastavavivekggn.scala.reactive.crud
+
+import java.time.Duration
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import com.srivastavavivekggn.scala.reactive.crud.AbstractReactiveCrudOperationsImplSpec.{BatchRepository, ForwardingOperations}
+import com.srivastavavivekggn.scala.util.TypeAlias.JBoolean
+import com.srivastavavivekggn.scala.util.test.SimpleFlatSpec
+import org.reactivestreams.Publisher
+import org.springframework.data.domain.Page
+import reactor.core.publisher.{Flux, Mono}
+
+import scala.jdk.CollectionConverters._
+
+class AbstractReactiveCrudOperationsImplSpec extends SimpleFlatSpec {
+
+  def entities(count: Int): Flux[TestEntity] = Flux.range(1, count).map(i => TestEntity(s"e-$i", s"name-$i"))
+
+  def ids(from: Int, to: Int): List[String] = (from to to).map(i => s"e-$i").toList
+
+  def saveAll(operations: ReactiveCrudOperations[TestEntity, String], count: Int, batchSize: Int): List[SaveBatch[TestEntity]] = {
+    operations.saveAll(entities(count), batchSize).collectList().block(Duration.ofSeconds(10)).asScala.toList
+  }
+
+  /**
+    * the abstract implementation, and the trait defaults
+    */
+  def implementations(repository: BatchRepository): List[(String, ReactiveCrudOperations[TestEntity, String])] = {
+    List(
+      "AbstractReactiveCrudOperationsImpl" -> new TestCrudOperations(repository),
+      "ReactiveCrudOperations" -> new ForwardingOperations(new TestCrudOperations(repository))
+    )
+  }
+
+  behavior of "saveAll(Flux, Int)"
+
+  it should "save in batches of batchSize" in {
+    val repository = new BatchRepository
+
+    implementations(repository).foreach { case (name, operations) =>
+      repository.entities.clear()
+      repository.batches.clear()
+
+      val batches = saveAll(operations, 10, 4)
+
+      withClue(name) {
+        assertResult(List(ids(1, 4), ids(5, 8), ids(9, 10)))(repository.batches.asScala.toList.sortBy(_.head.drop(2).toInt))
+        assertResult(List(0L, 1L, 2L))(batches.map(_.index))
+        assertResult(ids(1, 10))(batches.flatMap(_.saved.asScala.map(_.id)))
+        assert(batches.forall(!_.hasFailures))
+        assertResult(10)(repository.entities.size())
+      }
+    }
+  }
+
+  it should "emit batches in index order when a later batch is written first" in {
+    val repository = new BatchRepository
+    repository.slow = _.id == "e-1"
+
+    val operations = new TestCrudOperations(repository)
+    val batches = saveAll(operations, 9, 3)
+
+    // the first batch is still being written when the next ones start
+    assertResult(ids(4, 6))(repository.completed.peek())
+    assertResult(List(0L, 1L, 2L))(batches.map(_.index))
+    assertResult(ids(1, 9))(batches.flatMap(_.saved.asScala.map(_.id)))
+  }
+
+  it should "report a failing batch, and save the rest" in {
+    val repository = new BatchRepository
+    repository.failing = _.id == "e-6"
+
+    implementations(repository).foreach { case (name, operations) =>
+      repository.entities.clear()
+
+      val batches = saveAll(operations, 10, 4)
+
+      withClue(name) {
+        assertResult(List(0L, 1L, 2L))(batches.map(_.index))
+
+        val failed = batches(1)
+        assert(failed.saved.isEmpty)
+        assertResult(ids(5, 8))(failed.failures.asScala.map(_.entity.id))
+        assert(failed.failures.asScala.forall(_.error.getMessage == "batch failed"))
+
+        assertResult(ids(1, 4) ++ ids(9, 10))(repository.entities.keySet().asScala.toList.sortBy(_.drop(2).toInt))
+      }
+    }
+  }
+
+  it should "reject a batchSize less than 1" in {
+    implementations(new BatchRepository).foreach { case (_, operations) =>
+      assertThrows[IllegalArgumentException](operations.saveAll(entities(1), 0))
+      assertThrows[IllegalArgumentException](operations.deleteAllById(Flux.just("e-1"), 0))
+    }
+  }
+
+  behavior of "deleteAllById(Flux, Int)"
+
+  it should "delete in batches of batchSize" in {
+    val repository = new BatchRepository
+
+    implementations(repository).foreach { case (name, operations) =>
+      saveAll(operations, 10, 10)
+      val deletes = repository.callCount("deleteAllById")
+
+      operations.deleteAllById(Flux.fromIterable(ids(1, 7).asJava), 3).block(Duration.ofSeconds(10))
+
+      withClue(name) {
+        assertResult(3)(repository.callCount("deleteAllById") - deletes)
+        assertResult(ids(8, 10))(repository.entities.keySet().asScala.toList.sortBy(_.drop(2).toInt))
+      }
+    }
+  }
+}
+
+object AbstractReactiveCrudOperationsImplSpec {
+
+  /**
+    * Records each saveAll batch, and can slow down or fail batches containing the matching entities
+    */
+  class BatchRepository extends InMemoryReactiveCrudRepository {
+
+    val batches = new ConcurrentLinkedQueue[List[String]]()
+
+    val completed = new ConcurrentLinkedQueue[List[String]]()
+
+    @volatile var slow: TestEntity => Boolean = _ => false
+
+    @volatile var failing: TestEntity => Boolean = _ => false
+
+    override def saveAll[S <: TestEntity](entityStream: Publisher[S]): Flux[S] = {
+      Flux.from(entityStream).collectList().flatMapMany((es: java.util.List[S]) => {
+        val batch = es.asScala.toList
+        batches.add(batch.map(_.id))
+
+        if (batch.exists(failing)) Flux.error[S](new IllegalStateException("batch failed"))
+        else {
+          val saved = super.saveAll(es: java.lang.Iterable[S]).doOnComplete(() => completed.add(batch.map(_.id)))
+          if (batch.exists(slow)) saved.delaySubscription(Duration.ofMillis(200)) else saved
+        }
+      })
+    }
+  }
+
+  /**
+    * Forwards the abstract operations only, so the trait's default implementations are used for the rest
+    */
+  class ForwardingOperations(delegate: ReactiveCrudOperations[TestEntity, String])
+    extends ReactiveCrudOperations[TestEntity, String] {
+
+    override def findById(id: String): Mono[TestEntity] = delegate.findById(id)
+
+    override def findAll: Flux[TestEntity] = delegate.findAll
+
+    override def findAll(pageIndex: Int, pageSize: Int, sort: Array[String]): Mono[Page[TestEntity]] = {
+      delegate.findAll(pageIndex, pageSize, sort)
+    }
+
+    override def findAllById(ids: java.lang.Iterable[String]): Flux[TestEntity] = delegate.findAllById(ids)
+
+    override def findAllById(ids: Iterable[String]): Flux[TestEntity] = delegate.findAllById(ids)
+
+    override def save(entity: TestEntity): Mono[TestEntity] = delegate.save(entity)
+
+    override def saveAll(entities: java.lang.Iterable[TestEntity]): Flux[TestEntity] = delegate.saveAll(entities)
+
+    override def saveAll(entities: Iterable[TestEntity]): Flux[TestEntity] = delegate.saveAll(entities)
+
+    override def delete(entity: TestEntity): Mono[Void] = delegate.delete(entity)
+
+    override def deleteById(id: String): Mono[Void] = delegate.deleteById(id)
+
+    override def deleteAll(entities: java.lang.Iterable[TestEntity]): Mono[Void] = delegate.deleteAll(entities)
+
+    override def deleteAll(entities: Iterable[TestEntity]): Mono[Void] = delegate.deleteAll(entities)
+
+    override def deleteAllById(ids: java.lang.Iterable[String]): Mono[Void] = delegate.deleteAllById(ids)
+
+    override def deleteAllById(ids: Iterable[String]): Mono[Void] = delegate.deleteAllById(ids)
+
+    override def exists(id: String): Mono[JBoolean] = delegate.exists(id)
+
+    override def exists(id: Publisher[String]): Mono[JBoolean] = delegate.exists(id)
+  }
+}
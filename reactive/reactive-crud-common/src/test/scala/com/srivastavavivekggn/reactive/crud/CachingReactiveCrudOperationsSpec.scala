@@ -0,0 +1,205 @@
+package com.srivastavavivekggn.scala.reactive.crud
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+
+import com.srivastavavivekggn.scala.util.test.SimpleFlatSpec
+import reactor.core.publisher.{Flux, Mono, Sinks}
+
+import scala.jdk.CollectionConverters._
+
+class CachingReactiveCrudOperationsSpec extends SimpleFlatSpec {
+
+  private val entityA = TestEntity("a", "A")
+  private val entityB = TestEntity("b", "B")
+
+  /**
+    * A cache over an in-memory repository holding a and b
+    */
+  class Fixture {
+    val repository = new InMemoryReactiveCrudRepository
+    repository.add(entityA, entityB)
+
+    val cache = new CachingReactiveCrudOperations[TestEntity, String](new TestCrudOperations(repository))
+
+    /**
+      * Hold reads until the returned sink completes
+      */
+    def holdReads(): Sinks.Empty[Void] = {
+      val gate = Sinks.empty[Void]()
+      repository.readGate = gate.asMono()
+      gate
+    }
+
+    def release(gate: Sinks.Empty[Void]): Unit = {
+      repository.readGate = Mono.empty()
+      gate.tryEmitEmpty()
+    }
+
+    def find(id: String): Option[TestEntity] = Option(cache.findById(id).block(Duration.ofSeconds(5)))
+
+    def findAll(ids: String*): List[TestEntity] = {
+      cache.findAllById(ids.asJava).collectList().block(Duration.ofSeconds(5)).asScala.toList
+    }
+  }
+
+  behavior of "CachingReactiveCrudOperations"
+
+  it should "count hits and misses, loading misses once" in {
+    val f = new Fixture
+
+    assertResult(Some(entityA))(f.find("a"))
+    assertResult(Some(entityA))(f.find("a"))
+    assertResult(List(entityA, entityB))(f.findAll("a", "b", "c"))
+
+    val stats = f.cache.stats
+    assertResult(2L)(stats.hitCount())
+    assertResult(3L)(stats.missCount())
+    assertResult(2L)(stats.loadSuccessCount())
+
+    // the misses of findAllById are loaded together
+    assertResult(1)(f.repository.callCount("findById"))
+    assertResult(1)(f.repository.callCount("findAllById"))
+    assertResult(2L)(f.cache.size)
+  }
+
+  it should "share one load between concurrent callers" in {
+    val f = new Fixture
+    val gate = f.holdReads()
+
+    val callers = (1 to 5).map(_ => f.cache.findById("a").toFuture)
+    val batch = f.cache.findAllById(List("a", "b")).collectList().toFuture
+
+    f.release(gate)
+
+    assert(callers.forall(_.get(5, TimeUnit.SECONDS) == entityA))
+    assertResult(List(entityA, entityB))(batch.get(5, TimeUnit.SECONDS).asScala.toList)
+
+    // a was loaded once, and b (the only id left for findAllById to load) on its own
+    assertResult(2)(f.repository.callCount("findById"))
+    assertResult(0)(f.repository.callCount("findAllById"))
+    assertResult(2L)(f.cache.stats.missCount())
+    assertResult(5L)(f.cache.stats.hitCount())
+  }
+
+  it should "not cache entities that are not found" in {
+    val f = new Fixture
+
+    assertResult(None)(f.find("missing"))
+    assertResult(List(entityA))(f.findAll("a", "missing"))
+    assertResult(1L)(f.cache.size)
+
+    f.repository.add(TestEntity("missing", "found"))
+    assertResult(Some(TestEntity("missing", "found")))(f.find("missing"))
+  }
+
+  it should "not cache failed loads" in {
+    val f = new Fixture
+    f.repository.readFailure = new IllegalStateException("read failed")
+
+    assertThrows[IllegalStateException](f.find("a"))
+    assertThrows[IllegalStateException](f.findAll("a", "b"))
+    assertResult(0L)(f.cache.size)
+    assertResult(2L)(f.cache.stats.loadExceptionCount())
+
+    f.repository.readFailure = null
+    assertResult(Some(entityA))(f.find("a"))
+    assertResult(1L)(f.cache.size)
+  }
+
+  it should "invalidate saved entities" in {
+    val f = new Fixture
+    f.find("a")
+    f.find("b")
+
+    f.cache.save(TestEntity("a", "saved")).block()
+    assertResult(Some(TestEntity("a", "saved")))(f.find("a"))
+
+    f.cache.saveAll(List(TestEntity("a", "saved-all"), TestEntity("b", "saved-all"))).blockLast()
+    assertResult(List(TestEntity("a", "saved-all"), TestEntity("b", "saved-all")))(f.findAll("a", "b"))
+
+    f.cache.saveAll(Flux.just(TestEntity("a", "batched"), TestEntity("b", "batched")), 1).blockLast()
+    assertResult(List(TestEntity("a", "batched"), TestEntity("b", "batched")))(f.findAll("a", "b"))
+  }
+
+  it should "invalidate deleted entities" in {
+    def deleted(delete: CachingReactiveCrudOperations[TestEntity, String] => Unit): Unit = {
+      val f = new Fixture
+      f.findAll("a", "b")
+
+      delete(f.cache)
+
+      assertResult(List.empty)(f.findAll("a", "b"))
+      assertResult(0L)(f.cache.size)
+    }
+
+    deleted(c => List(entityA, entityB).foreach(e => c.delete(e).block()))
+    deleted(c => List("a", "b").foreach(id => c.deleteById(id).block()))
+    deleted(_.deleteAll(List(entityA, entityB)).block())
+    deleted(_.deleteAllById(List("a", "b")).block())
+    deleted(_.deleteAllById(Flux.just("a", "b"), 1).block())
+  }
+
+  it should "keep loading for other callers when a subscriber cancels" in {
+    val f = new Fixture
+    val gate = f.holdReads()
+
+    val cancelled = f.cache.findById("a").subscribe()
+    val waiting = f.cache.findById("a").toFuture
+
+    cancelled.dispose()
+    f.release(gate)
+
+    assertResult(entityA)(waiting.get(5, TimeUnit.SECONDS))
+
+    // a load whose only caller cancelled is still cached
+    val alone = f.holdReads()
+    f.cache.findById("b").subscribe().dispose()
+    f.release(alone)
+
+    eventually(f.cache.size == 2)
+    assertResult(Some(entityB))(f.find("b"))
+    assertResult(2)(f.repository.callCount("findById"))
+  }
+
+  it should "find each distinct, non-null id once, in the order given" in {
+    val f = new Fixture
+
+    val ids = new java.util.ArrayList[String]()
+    ids.add("b")
+    ids.add(null)
+    ids.add("a")
+    ids.add("b")
+
+    assertResult(List(entityB, entityA))(f.cache.findAllById(ids).collectList().block().asScala.toList)
+    assertResult(2L)(f.cache.stats.missCount())
+
+    // served from the cache
+    assertResult(List(entityA, entityB))(f.findAll("a", "b", "a"))
+    assertResult(1)(f.repository.callCount("findAllById"))
+
+    assertResult(List.empty)(f.cache.findAllById(List[String](null)).collectList().block().asScala.toList)
+  }
+
+  it should "answer exists from the cache where it can" in {
+    val f = new Fixture
+    f.find("a")
+
+    assert(f.cache.exists("a").block())
+    assert(f.cache.exists("b").block())
+    assert(!f.cache.exists("c").block())
+
+    assertResult(1L)(f.cache.stats.hitCount())
+    // b and c went to the delegate, and were not cached
+    assertResult(1L)(f.cache.size)
+  }
+
+  /**
+    * Wait (up to 5 seconds) for the condition
+    */
+  private def eventually(condition: => Boolean): Unit = {
+    val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+    while (!condition && System.nanoTime() < deadline) Thread.sleep(10)
+    assert(condition)
+  }
+}
@@ -0,0 +1,118 @@
+package com.srivastavavivekggn.scala.reactive.crud
+
+import java.time.Duration
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicBoolean
+
+import com.srivastavavivekggn.scala.util.TypeAlias.JLong
+import com.srivastavavivekggn.scala.util.test.SimpleFlatSpec
+import org.springframework.data.domain.{PageRequest, Pageable}
+import reactor.core.publisher.{Flux, Mono}
+import reactor.util.context.{Context, ContextView}
+
+import scala.jdk.CollectionConverters._
+
+class ReactiveCrudOperationsImplHelpersSpec extends SimpleFlatSpec {
+
+  private val operations = new TestCrudOperations
+
+  def entities(count: Int): Flux[TestEntity] = Flux.range(1, count).map(i => TestEntity(s"id-$i", s"name-$i"))
+
+  def page(content: Flux[TestEntity], pageable: Pageable, total: Mono[JLong], concurrently: Boolean = false) = {
+    operations.toDtoPage(content, pageable, total, concurrently).block(Duration.ofSeconds(5))
+  }
+
+  /**
+    * A total of 25 that records when it is subscribed to
+    */
+  class Total(events: ConcurrentLinkedQueue[String] = new ConcurrentLinkedQueue[String]()) {
+    val counted = new AtomicBoolean()
+
+    val mono: Mono[JLong] = Mono.fromCallable[JLong](() => {
+      counted.set(true)
+      events.add("count")
+      25L
+    })
+  }
+
+  behavior of "ReactiveCrudOperationsImplHelpers.fluxToPage"
+
+  it should "only count when the content does not give the total" in {
+    val events = new ConcurrentLinkedQueue[String]()
+    val total = new Total(events)
+
+    assertResult(5L)(page(entities(5), PageRequest.of(0, 10), total.mono).getTotalElements)
+    assertResult(25L)(page(entities(5), PageRequest.of(2, 10), total.mono).getTotalElements)
+    assert(!total.counted.get())
+
+    val full = page(entities(10).doOnComplete(() => events.add("content")), PageRequest.of(0, 10), total.mono)
+    assertResult(25L)(full.getTotalElements)
+    assertResult(List("content", "count"))(events.asScala.toList)
+  }
+
+  it should "count at the same time as fetching the content, when asked to" in {
+    val events = new ConcurrentLinkedQueue[String]()
+    val content = entities(10).delaySubscription(Duration.ofMillis(100)).doOnComplete(() => events.add("content"))
+
+    val result = page(content, PageRequest.of(0, 10), new Total(events).mono, concurrently = true)
+
+    assertResult(List("count", "content"))(events.asScala.toList)
+    assertResult(25L)(result.getTotalElements)
+    assertResult(10)(result.getContent.size)
+  }
+
+  it should "run a concurrent count in the subscriber's context" in {
+    val total = Mono.deferContextual[JLong]((ctx: ContextView) => Mono.just[JLong](ctx.getOrDefault[JLong]("total", -1L)))
+
+    val result = operations.toDtoPage(entities(10), PageRequest.of(0, 10), total, countConcurrently = true)
+      .contextWrite(Context.of("total", Long.box(25L)))
+      .block(Duration.ofSeconds(5))
+
+    assertResult(25L)(result.getTotalElements)
+  }
+
+  it should "cancel a concurrent count when the content gives the total" in {
+    val cancelled = new AtomicBoolean()
+    val total = Mono.never[JLong]().doOnCancel(() => cancelled.set(true))
+
+    val first = page(entities(5), PageRequest.of(0, 10), total, concurrently = true)
+    assertResult(5L)(first.getTotalElements)
+    assert(cancelled.get())
+  }
+
+  it should "fail the page when a needed count fails, and ignore the failure otherwise" in {
+    val total = Mono.error[JLong](new IllegalStateException("count failed"))
+
+    Seq(false, true).foreach(concurrently => {
+      assertThrows[IllegalStateException](page(entities(10), PageRequest.of(0, 10), total, concurrently))
+      assertResult(5L)(page(entities(5), PageRequest.of(0, 10), total, concurrently).getTotalElements)
+    })
+  }
+
+  it should "not count unpaged content" in {
+    Seq(false, true).foreach(concurrently => {
+      val total = new Total
+
+      assertResult(30L)(page(entities(30), Pageable.unpaged(), total.mono, concurrently).getTotalElements)
+      assert(!total.counted.get())
+    })
+  }
+
+  it should "page through the repository" in {
+    val ops = new TestCrudOperations
+    ops.repository.add((1 to 25).map(i => TestEntity(f"id-$i%02d", s"name-$i")): _*)
+
+    val second = ops.findAll(1, 10).block()
+
+    assertResult(25L)(second.getTotalElements)
+    assertResult((11 to 20).map(i => f"id-$i%02d"))(second.getContent.asScala.map(_.id))
+
+    assertResult(1)(ops.repository.callCount("count"))
+
+    val last = ops.findAll(2, 10).block()
+    assertResult(5)(last.getContent.size)
+    assertResult(25L)(last.getTotalElements)
+    // the last page gives the total without counting
+    assertResult(1)(ops.repository.callCount("count"))
+  }
+}
@@ -0,0 +1,143 @@
+package com.srivastavavivekggn.scala.reactive.crud
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{ConcurrentHashMap, ConcurrentSkipListMap}
+
+import com.srivastavavivekggn.scala.util.TypeAlias.{JBoolean, JLong}
+import com.srivastavavivekggn.scala.util.domain.BaseModel
+import org.reactivestreams.Publisher
+import org.springframework.core.convert.converter.Converter
+import org.springframework.data.domain.Page
+import org.springframework.data.repository.reactive.ReactiveCrudRepository
+import reactor.core.publisher.{Flux, Mono}
+
+import scala.jdk.CollectionConverters._
+
+/**
+  * Test entity, used as both the DAO and the DTO
+  */
+case class TestEntity(id: String, name: String) extends BaseModel[String] {
+  override def getId: String = id
+}
+
+/**
+  * In-memory repository (ordered by id) that counts the calls made to it
+  */
+class InMemoryReactiveCrudRepository extends ReactiveCrudRepository[TestEntity, String] {
+
+  val entities = new ConcurrentSkipListMap[String, TestEntity]()
+
+  private val calls = new ConcurrentHashMap[String, AtomicInteger]()
+
+  /**
+    * @param method the repository method name
+    * @return how many times it was called
+    */
+  def callCount(method: String): Int = Option(calls.get(method)).map(_.get()).getOrElse(0)
+
+  def add(es: TestEntity*): Unit = es.foreach(e => entities.put(e.id, e))
+
+  /**
+    * findById and findAllById wait for this to complete before they read
+    */
+  @volatile var readGate: Mono[Void] = Mono.empty()
+
+  /**
+    * if set, findById and findAllById fail with this
+    */
+  @volatile var readFailure: Throwable = _
+
+  protected def called(method: String): Unit = calls.computeIfAbsent(method, _ => new AtomicInteger()).incrementAndGet()
+
+  private def read[T](method: String, f: () => T): Mono[T] = readGate.`then`(Mono.fromCallable(() => {
+    called(method)
+    Option(readFailure).foreach(e => throw e)
+    f()
+  }))
+
+  override def save[S <: TestEntity](entity: S): Mono[S] = Mono.fromCallable(() => {
+    called("save")
+    entities.put(entity.id, entity)
+    entity
+  })
+
+  override def saveAll[S <: TestEntity](entities: java.lang.Iterable[S]): Flux[S] = {
+    Flux.defer(() => {
+      called("saveAll")
+      Flux.fromIterable(entities).doOnNext(e => this.entities.put(e.id, e))
+    })
+  }
+
+  override def saveAll[S <: TestEntity](entityStream: Publisher[S]): Flux[S] = Flux.from(entityStream).concatMap(save(_))
+
+  override def findById(id: String): Mono[TestEntity] = read("findById", () => entities.get(id))
+
+  override def findById(id: Publisher[String]): Mono[TestEntity] = Mono.from(id).flatMap(findById(_))
+
+  override def existsById(id: String): Mono[JBoolean] = findById(id).hasElement
+
+  override def existsById(id: Publisher[String]): Mono[JBoolean] = Mono.from(id).flatMap(existsById(_))
+
+  override def findAll(): Flux[TestEntity] = Flux.defer(() => {
+    called("findAll")
+    Flux.fromIterable(entities.values())
+  })
+
+  override def findAllById(ids: java.lang.Iterable[String]): Flux[TestEntity] = {
+    read("findAllById", () => ids.asScala.toSet.flatMap((id: String) => Option(entities.get(id))).toList.sortBy(_.id).asJava)
+      .flatMapMany((l: java.util.List[TestEntity]) => Flux.fromIterable(l))
+  }
+
+  override def findAllById(ids: Publisher[String]): Flux[TestEntity] = {
+    Flux.from(ids).collectList().flatMapMany(findAllById(_))
+  }
+
+  override def count(): Mono[JLong] = Mono.fromCallable(() => {
+    called("count")
+    Long.box(entities.size().toLong)
+  })
+
+  override def deleteById(id: String): Mono[Void] = Mono.fromRunnable(() => {
+    called("deleteById")
+    entities.remove(id)
+  })
+
+  override def deleteById(id: Publisher[String]): Mono[Void] = Mono.from(id).flatMap(deleteById(_))
+
+  override def delete(entity: TestEntity): Mono[Void] = deleteById(entity.id)
+
+  override def deleteAllById(ids: java.lang.Iterable[_ <: String]): Mono[Void] = Mono.fromRunnable(() => {
+    called("deleteAllById")
+    ids.forEach(id => entities.remove(id))
+  })
+
+  override def deleteAll(es: java.lang.Iterable[_ <: TestEntity]): Mono[Void] = {
+    deleteAllById(es.asScala.map(_.id).asJava)
+  }
+
+  override def deleteAll(entityStream: Publisher[_ <: TestEntity]): Mono[Void] = {
+    Flux.from(entityStream).concatMap((e: TestEntity) => delete(e)).`then`()
+  }
+
+  override def deleteAll(): Mono[Void] = Mono.fromRunnable(() => {
+    called("deleteAll")
+    entities.clear()
+  })
+}
+
+/**
+  * Operations over an in-memory repository
+  */
+class TestCrudOperations(override val repository: InMemoryReactiveCrudRepository = new InMemoryReactiveCrudRepository)
+  extends AbstractReactiveCrudOperationsImpl[TestEntity, TestEntity, String] {
+
+  override protected val daoToDtoConverter: Converter[TestEntity, TestEntity] = (d: TestEntity) => d
+
+  override protected val dtoToDaoConverter: Converter[TestEntity, TestEntity] = (d: TestEntity) => d
+
+  // the repository has no sort support, so results are in id order
+  override def findAll(pageIndex: Int, pageSize: Int, sort: Array[String]): Mono[Page[TestEntity]] = {
+    val pg = toPageRequest(pageIndex, pageSize)
+    toDtoPage(repository.findAll().skip(pg.getOffset).take(pg.getPageSize.toLong), pg, repository.count())
+  }
+}
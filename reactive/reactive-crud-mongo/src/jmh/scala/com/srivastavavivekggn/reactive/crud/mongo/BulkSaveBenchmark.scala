@@ -0,0 +1,112 @@
+package com.srivastavavivekggn.scala.reactive.crud.mongo
+
+import java.util.concurrent.TimeUnit
+
+import com.mongodb.reactivestreams.client.{MongoClient, MongoClients}
+import com.srivastavavivekggn.scala.reactive.crud.mongo.BulkSaveBenchmark.{BenchmarkDocument, BenchmarkOperations}
+import com.srivastavavivekggn.scala.util.domain.BaseModel
+import de.bwaldvogel.mongo.MongoServer
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend
+import org.openjdk.jmh.annotations._
+import org.springframework.core.convert.converter.Converter
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity
+import org.springframework.data.mongodb.core.{ReactiveMongoOperations, ReactiveMongoTemplate}
+import org.springframework.data.mongodb.repository.support.{MappingMongoEntityInformation, SimpleReactiveMongoRepository}
+import org.springframework.data.repository.reactive.ReactiveCrudRepository
+import reactor.core.publisher.Flux
+
+import scala.jdk.CollectionConverters._
+
+/**
+  * Saving new documents with the repository saveAll (a write per document) and with the batched saveAll(Flux, Int)
+  * (an unordered bulk write per batch).
+  *
+  * Runs against an in-process mongo-java-server (in-memory) unless -Dbenchmark.mongo.uri is set, e.g. to a mongod
+  * started with `docker run -p 27017:27017 mongo:5` -- the in-memory server shows the difference in round trips, a
+  * real server the cost of its writes too. The benchmark collection is dropped before each iteration.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.SingleShotTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+class BulkSaveBenchmark {
+
+  @Param(Array("10000"))
+  var documents: Int = _
+
+  @Param(Array("100", "1000"))
+  var batchSize: Int = _
+
+  private var server: Option[MongoServer] = None
+
+  private var client: MongoClient = _
+
+  private var operations: BenchmarkOperations = _
+
+  @Setup
+  def setup(): Unit = {
+    val uri = Option(System.getProperty("benchmark.mongo.uri")).getOrElse({
+      val inMemory = new MongoServer(new MemoryBackend())
+      server = Some(inMemory)
+
+      val address = inMemory.bind()
+      s"mongodb://${address.getHostString}:${address.getPort}"
+    })
+
+    client = MongoClients.create(uri)
+    operations = new BenchmarkOperations(new ReactiveMongoTemplate(client, "benchmark"))
+  }
+
+  @Setup(Level.Iteration)
+  def dropCollection(): Unit = operations.mongoOperations.dropCollection(classOf[BenchmarkDocument]).block()
+
+  @TearDown
+  def tearDown(): Unit = {
+    client.close()
+    server.foreach(_.shutdownNow())
+  }
+
+  @Benchmark
+  def repositorySaveAll(): Long = operations.saveAll((0 until documents).map(document)).count().block()
+
+  @Benchmark
+  def bulkSaveAll(): Long = {
+    val batches = operations.saveAll(Flux.range(0, documents).map[BenchmarkDocument](i => document(i)), batchSize)
+
+    batches.collectList().block().asScala.map(_.saved.size.toLong).sum
+  }
+
+  private def document(i: Int): BenchmarkDocument = new BenchmarkDocument(null, s"document-$i", i)
+}
+
+object BulkSaveBenchmark {
+
+  class BenchmarkDocument(var id: String, var name: String, var value: Int) extends BaseModel[String] {
+
+    def this() = this(null, null, 0)
+
+    override def getId: String = id
+  }
+
+  class BenchmarkOperations(template: ReactiveMongoTemplate)
+    extends MongoReactiveCrudOperationsImpl[BenchmarkDocument, BenchmarkDocument, String] {
+
+    override val daoClass: Class[BenchmarkDocument] = classOf[BenchmarkDocument]
+
+    override val mongoOperations: ReactiveMongoOperations = template
+
+    override protected val repository: ReactiveCrudRepository[BenchmarkDocument, String] = {
+      val entity = template.getConverter.getMappingContext.getRequiredPersistentEntity(daoClass)
+
+      new SimpleReactiveMongoRepository[BenchmarkDocument, String](
+        new MappingMongoEntityInformation[BenchmarkDocument, String](entity.asInstanceOf[MongoPersistentEntity[BenchmarkDocument]]),
+        template
+      )
+    }
+
+    override protected val daoToDtoConverter: Converter[BenchmarkDocument, BenchmarkDocument] = (d: BenchmarkDocument) => d
+
+    override protected val dtoToDaoConverter: Converter[BenchmarkDocument, BenchmarkDocument] = (d: BenchmarkDocument) => d
+  }
+}
@@ -1,12 +1,28 @@
 package com.srivastavavivekggn.scala.reactive.crud.mongo
 
-import com.srivastavavivekggn.scala.reactive.crud.AbstractReactiveCrudOperationsImpl
+import com.mongodb.client.model.{BulkWriteOptions, Filters, InsertOneModel, ReplaceOneModel, ReplaceOptions}
+import com.mongodb.reactivestreams.client.MongoCollection
+import com.mongodb.{MongoBulkWriteException, MongoWriteException}
+import com.srivastavavivekggn.scala.reactive.crud.mongo.MongoReactiveCrudOperationsImpl.{ID_FIELD, JSON_SETTINGS, UNORDERED, UPSERT}
+import com.srivastavavivekggn.scala.reactive.crud.{AbstractReactiveCrudOperationsImpl, CountStrategy, CursorPage, ReactiveCursorOperations, SaveBatch}
+import com.srivastavavivekggn.scala.util.TypeAlias.JLong
 import com.srivastavavivekggn.scala.util.domain.BaseModel
-import org.springframework.data.domain.Page
+import org.bson.Document
+import org.bson.json.{JsonMode, JsonWriterSettings}
+import org.bson.types.ObjectId
+import org.springframework.data.domain.Sort.Order
+import org.springframework.data.domain.{Page, Sort}
 import org.springframework.data.mongodb.core.ReactiveMongoOperations
-import org.springframework.data.mongodb.core.query.Query
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity
+import org.springframework.data.mongodb.core.query.{Criteria, Query}
 import reactor.core.publisher.Mono
 
+import java.nio.charset.StandardCharsets
+import java.time.Duration
+import java.util.Base64
+import java.util.concurrent.ConcurrentHashMap
+import scala.jdk.CollectionConverters._
+
 /**
   * Abstract implementation of the ReactiveCrudOperations specific to MongoDB
   *
@@ -15,12 +31,13 @@ import reactor.core.publisher.Mono
   * @tparam ID  the entity ID type
   */
 abstract class MongoReactiveCrudOperationsImpl[DAO <: BaseModel[ID], E <: BaseModel[ID], ID <: java.io.Serializable]
-  extends AbstractReactiveCrudOperationsImpl[DAO, E, ID] {
+  extends AbstractReactiveCrudOperationsImpl[DAO, E, ID]
+    with ReactiveCursorOperations[E] {
 
   /**
-    * Re-usable empty query
+    * Cached counts, by ttl (see CountStrategy.Cached)
     */
-  private val emptyQuery = new Query()
+  private val cachedCounts = new ConcurrentHashMap[Duration, Mono[JLong]]()
 
   /**
     * Specify the DAO class type so we can make queries using mongo operations
@@ -36,6 +53,29 @@ abstract class MongoReactiveCrudOperationsImpl[DAO <: BaseModel[ID], E <: BaseMo
     */
   def mongoOperations: ReactiveMongoOperations
 
+  /**
+    * How the total is found for findAll pages (Disabled is treated as Exact, since a Page needs a total)
+    *
+    * @return the count strategy
+    */
+  protected def countStrategy: CountStrategy = CountStrategy.Exact
+
+  /**
+    * How the total is found for findAllByCursor pages
+    *
+    * @return the count strategy
+    */
+  protected def cursorCountStrategy: CountStrategy = CountStrategy.Disabled
+
+  /**
+    * Whether findAll runs an exact count at the same time as the page query, rather than after it. This saves waiting
+    * on the count for full pages of large collections, at the cost of also counting for pages that would not need it
+    * (a short first or last page). Estimated and cached counts are cheap, so are always fetched after the page.
+    *
+    * @return true to count concurrently
+    */
+  protected def countConcurrently: Boolean = false
+
   /**
     * Initiate a findAll utilizing pagination
     *
@@ -50,9 +90,191 @@ abstract class MongoReactiveCrudOperationsImpl[DAO <: BaseModel[ID], E <: BaseMo
 
     val pg = toPageRequest(pageIndex, pageSize, sort)
 
-    mongoOperations
-      .find(emptyQuery.`with`(pg), daoClass)
-      .toPage(pg, mongoOperations.count(emptyQuery, daoClass))
+    // Disabled has no total supplier, and falls back to an exact count
+    val total = count(countStrategy)
+    val exact = total.isEmpty || countStrategy == CountStrategy.Exact
+
+    toDtoPage(mongoOperations.find(new Query().`with`(pg), daoClass), pg, total.getOrElse(exactCount), countConcurrently && exact)
+  }
+
+  /**
+    * Initiate a findAll utilizing keyset pagination. Results are sorted by the given criteria, then by id, and each
+    * page queries for the results after the last one on the previous page, so deep pages do not skip.
+    *
+    * Sort properties should not be null, and the cursor is only valid with the same sort criteria.
+    *
+    * @param cursor   the nextCursor from the previous page, or null for the first page
+    * @param pageSize the page size
+    * @param sort     the sort criteria
+    * @return the page of entity results
+    */
+  override def findAllByCursor(cursor: String, pageSize: Int, sort: Array[String]): Mono[CursorPage[E]] = Mono.defer[CursorPage[E]](() => {
+
+    val orders = keysetOrders(sort)
+    val query = new Query().`with`(Sort.by(orders.asJava)).limit(pageSize + 1)
+
+    Option(cursor).filter(_.nonEmpty).foreach(c => query.addCriteria(after(orders, decodeCursor(c, orders))))
+
+    toDtoCursorPage(mongoOperations.find(query, daoClass), pageSize, dao => encodeCursor(orders, dao), count(cursorCountStrategy))
+  })
+
+  /**
+    * Save one batch for saveAll(Flux, Int) with a single unordered bulk write -- an insert for entities without an id
+    * (one is generated), and an upsert for the rest. Entities that fail (e.g., a duplicate key) are reported as
+    * failures without affecting the rest of the batch.
+    *
+    * The documents are written directly to the collection, so mapping events, auditing and optimistic locking
+    * (@Version) do not apply.
+    *
+    * @param index    the batch index
+    * @param entities the entities to save
+    * @return the batch result
+    */
+  override protected def saveBatch(index: Long, entities: java.util.List[E]): Mono[SaveBatch[E]] = {
+    val documents = entities.asScala.map(e => {
+      val document = new Document()
+      mongoOperations.getConverter.write(toDao(e), document)
+      document
+    }).toVector
+
+    val models = documents.map(document => Option(document.get(ID_FIELD)) match {
+      case Some(id) => new ReplaceOneModel[Document](Filters.eq(ID_FIELD, id), document, UPSERT)
+      case None =>
+        document.put(ID_FIELD, new ObjectId())
+        new InsertOneModel[Document](document)
+    })
+
+    mongoOperations.getCollection(mongoOperations.getCollectionName(daoClass))
+      .flatMap((collection: MongoCollection[Document]) => Mono.from(collection.bulkWrite(models.asJava, UNORDERED)))
+      .map(_ => SaveBatch.saved(index, documents.map(fromDocument).asJava))
+      .onErrorResume((e: Throwable) => e match {
+        // a write concern error leaves every write in doubt
+        case b: MongoBulkWriteException if b.getWriteConcernError == null && !b.getWriteErrors.isEmpty =>
+          Mono.just(partiallySaved(index, entities, documents, b))
+        case _ => Mono.error[SaveBatch[E]](e)
+      })
   }
 
+  /**
+    * The result of a bulk write where some writes failed
+    */
+  private def partiallySaved(index: Long,
+                             entities: java.util.List[E],
+                             documents: Vector[Document],
+                             e: MongoBulkWriteException): SaveBatch[E] = {
+
+    val errors = e.getWriteErrors.asScala.map(w => w.getIndex -> w).toMap
+    val (failed, saved) = documents.indices.partition(errors.contains)
+
+    SaveBatch(
+      index,
+      saved.map(i => fromDocument(documents(i))).asJava,
+      failed.map(i => SaveBatch.Failure(entities.get(i), new MongoWriteException(errors(i), e.getServerAddress))).asJava
+    )
+  }
+
+  private def fromDocument(document: Document): E = toDto(mongoOperations.getConverter.read(daoClass, document))
+
+  /**
+    * Get the total supplier for the given strategy
+    *
+    * @param strategy the count strategy
+    * @return the total supplier, or None if the total should not be counted
+    */
+  protected def count(strategy: CountStrategy): Option[Mono[JLong]] = strategy match {
+    case CountStrategy.Exact => Option(exactCount)
+    case CountStrategy.Estimated => Option(mongoOperations.estimatedCount(daoClass))
+    case CountStrategy.Cached(ttl) => Option(cachedCounts.computeIfAbsent(ttl, (t: Duration) =>
+      exactCount.cache((_: JLong) => t, (_: Throwable) => Duration.ZERO, () => Duration.ZERO)
+    ))
+    case CountStrategy.Disabled => None
+  }
+
+  private def exactCount: Mono[JLong] = Mono.defer[JLong](() => mongoOperations.count(new Query(), daoClass))
+
+  /**
+    * The sort orders for keyset pagination -- the requested sort, then id (so every result has a unique position)
+    */
+  private def keysetOrders(sort: Array[String]): List[Order] = {
+    val idProperty = persistentEntity.getRequiredIdProperty.getName
+    val orders = toOrder(sort.filter(_ != null).mkString(","))
+
+    if (orders.exists(_.getProperty == idProperty)) orders else orders :+ Order.asc(idProperty)
+  }
+
+  /**
+    * Criteria for results after the given sort values:
+    * (k1 > v1) or (k1 = v1 and k2 > v2) or ... (using < for descending keys)
+    */
+  private def after(orders: List[Order], values: List[AnyRef]): Criteria = {
+    val branches = orders.indices.map(i => {
+      val equal = (0 until i).foldLeft(Option.empty[Criteria])((c, j) => {
+        Option(c.map(_.and(orders(j).getProperty)).getOrElse(Criteria.where(orders(j).getProperty)).is(values(j)))
+      })
+
+      val key = equal.map(_.and(orders(i).getProperty)).getOrElse(Criteria.where(orders(i).getProperty))
+
+      if (orders(i).isAscending) key.gt(values(i)) else key.lt(values(i))
+    })
+
+    new Criteria().orOperator(branches: _*)
+  }
+
+  /**
+    * Create the cursor for results after the given one -- its sort values and the sort signature, as extended JSON
+    * (so value types survive the round trip), base64 encoded
+    */
+  private def encodeCursor(orders: List[Order], dao: DAO): String = {
+    val accessor = persistentEntity.getPropertyPathAccessor(dao)
+    val mappingContext = mongoOperations.getConverter.getMappingContext
+
+    val values = orders.map(o => {
+      val path = mappingContext.getPersistentPropertyPath(o.getProperty, daoClass)
+      mongoOperations.getConverter.convertToMongoType(accessor.getProperty(path))
+    })
+
+    val document = new Document("s", signature(orders)).append("v", values.asJava)
+
+    Base64.getUrlEncoder.withoutPadding().encodeToString(document.toJson(JSON_SETTINGS).getBytes(StandardCharsets.UTF_8))
+  }
+
+  /**
+    * Get the sort values from a cursor
+    */
+  private def decodeCursor(cursor: String, orders: List[Order]): List[AnyRef] = {
+    val document = try {
+      Document.parse(new String(Base64.getUrlDecoder.decode(cursor), StandardCharsets.UTF_8))
+    }
+    catch {
+      case e: RuntimeException => throw new IllegalArgumentException("Invalid cursor", e)
+    }
+
+    val values = Option(document.getList("v", classOf[AnyRef])).map(_.asScala.toList).getOrElse(List.empty)
+
+    if (document.getString("s") != signature(orders) || values.size != orders.size) {
+      throw new IllegalArgumentException("Cursor does not match the sort criteria")
+    }
+
+    values
+  }
+
+  private def signature(orders: List[Order]): String = {
+    orders.map(o => s"${if (o.isAscending) "" else "-"}${o.getProperty}").mkString(",")
+  }
+
+  private def persistentEntity: MongoPersistentEntity[_] = mongoOperations.getConverter.getMappingContext.getRequiredPersistentEntity(daoClass)
+}
+
+object MongoReactiveCrudOperationsImpl {
+
+  /**
+    * extended JSON keeps the bson type of cursor values (dates, object ids, longs, decimals)
+    */
+  private final val JSON_SETTINGS = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build()
+
+  private final val ID_FIELD = "_id"
+
+  private final val UNORDERED = new BulkWriteOptions().ordered(false)
+
+  private final val UPSERT = new ReplaceOptions().upsert(true)
 }
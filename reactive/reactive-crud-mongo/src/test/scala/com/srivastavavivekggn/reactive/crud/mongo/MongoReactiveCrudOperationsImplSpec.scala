@@ -0,0 +1,264 @@
+package com.srivastavavivekggn.scala.reactive.crud.mongo
+
+import java.time.Duration
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import com.mongodb.event.{CommandListener, CommandStartedEvent}
+import com.mongodb.reactivestreams.client.{MongoClient, MongoClients}
+import com.mongodb.{ConnectionString, ErrorCategory, MongoClientSettings, MongoWriteException}
+import com.srivastavavivekggn.scala.reactive.crud.mongo.MongoReactiveCrudOperationsImplSpec.{Item, ItemOperations}
+import com.srivastavavivekggn.scala.reactive.crud.{CountStrategy, CursorPage}
+import com.srivastavavivekggn.scala.util.domain.BaseModel
+import com.srivastavavivekggn.scala.util.test.SimpleFlatSpec
+import de.bwaldvogel.mongo.MongoServer
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend
+import org.scalatest.BeforeAndAfterEach
+import org.springframework.core.convert.converter.Converter
+import org.springframework.data.domain.Sort.Direction
+import org.springframework.data.mongodb.core.index.Index
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity
+import org.springframework.data.mongodb.core.{ReactiveMongoOperations, ReactiveMongoTemplate}
+import org.springframework.data.mongodb.repository.support.{MappingMongoEntityInformation, SimpleReactiveMongoRepository}
+import org.springframework.data.repository.reactive.ReactiveCrudRepository
+import reactor.core.publisher.Flux
+
+import scala.jdk.CollectionConverters._
+
+/**
+  * Runs against mongo-java-server (an in-memory server speaking the MongoDB wire protocol), so no mongod is needed
+  */
+class MongoReactiveCrudOperationsImplSpec extends SimpleFlatSpec with BeforeAndAfterEach {
+
+  private var server: MongoServer = _
+
+  private var client: MongoClient = _
+
+  private var template: ReactiveMongoTemplate = _
+
+  // the commands sent to the server
+  private val commands = new ConcurrentLinkedQueue[String]()
+
+  override protected def beforeEach(): Unit = {
+    server = new MongoServer(new MemoryBackend())
+    val address = server.bind()
+
+    commands.clear()
+    client = MongoClients.create(MongoClientSettings.builder()
+      .applyConnectionString(new ConnectionString(s"mongodb://${address.getHostString}:${address.getPort}"))
+      .addCommandListener(new CommandListener {
+        override def commandStarted(event: CommandStartedEvent): Unit = commands.add(event.getCommandName)
+      })
+      .build())
+    template = new ReactiveMongoTemplate(client, "test")
+  }
+
+  override protected def afterEach(): Unit = {
+    client.close()
+    server.shutdownNow()
+  }
+
+  def insert(items: Item*): Unit = template.insertAll(items.asJava).collectList().block()
+
+  /**
+    * Follow the cursors from the first page to the last
+    */
+  def allPages(operations: ItemOperations, pageSize: Int, sort: String): List[CursorPage[Item]] = {
+    Iterator.iterate(operations.findAllByCursor(null, pageSize, sort).block())(page =>
+      if (page.hasNext) operations.findAllByCursor(page.nextCursor.get, pageSize, sort).block() else null
+    ).takeWhile(_ != null).toList
+  }
+
+  behavior of "MongoReactiveCrudOperationsImpl.findAllByCursor"
+
+  it should "page through every result, in sort order" in {
+    insert((1 to 25).map(i => new Item(f"id-$i%02d", s"item-$i", 100 - i)): _*)
+
+    val pages = allPages(new ItemOperations(template), 10, "rank")
+
+    assertResult(List(10, 10, 5))(pages.map(_.content.size))
+    assertResult((1 to 25).reverse.map(i => f"id-$i%02d"))(pages.flatMap(_.content.asScala.map(_.id)))
+    assert(!pages.last.hasNext)
+  }
+
+  it should "break ties in the sort key by id, so no result is skipped or repeated" in {
+    insert((1 to 20).map(i => new Item(f"id-$i%02d", s"item-$i", i % 3)): _*)
+
+    val pages = allPages(new ItemOperations(template), 4, "-rank")
+    val ids = pages.flatMap(_.content.asScala.map(i => (i.rank, i.id)))
+
+    assertResult(5)(pages.size)
+    assertResult((1 to 20).map(i => (i % 3, f"id-$i%02d")).sortBy(r => (-r._1, r._2)))(ids)
+  }
+
+  it should "end without a cursor when the last page is full" in {
+    insert((1 to 8).map(i => new Item(s"id-$i", s"item-$i", i)): _*)
+
+    val pages = allPages(new ItemOperations(template), 4, "rank")
+
+    assertResult(List(4, 4))(pages.map(_.content.size))
+    assert(!pages.last.hasNext)
+  }
+
+  it should "reject cursors for other sort criteria" in {
+    insert((1 to 5).map(i => new Item(s"id-$i", s"item-$i", i)): _*)
+
+    val operations = new ItemOperations(template)
+    val cursor = operations.findAllByCursor(null, 2, "rank").block().nextCursor.get
+
+    assertThrows[IllegalArgumentException](operations.findAllByCursor(cursor, 2, "-rank").block())
+    assertThrows[IllegalArgumentException](operations.findAllByCursor("not a cursor", 2, "rank").block())
+  }
+
+  it should "count the total with each CountStrategy" in {
+    insert((1 to 5).map(i => new Item(s"id-$i", s"item-$i", i)): _*)
+
+    def total(strategy: CountStrategy): Option[Long] = {
+      new ItemOperations(template, cursorCountStrategy = strategy).findAllByCursor(null, 2, "rank").block().total.map(_.longValue)
+    }
+
+    assertResult(None)(total(CountStrategy.Disabled))
+    assertResult(Some(5L))(total(CountStrategy.Exact))
+    assertResult(Some(5L))(total(CountStrategy.Estimated))
+    assertResult(Some(5L))(total(CountStrategy.Cached(Duration.ofMinutes(1))))
+  }
+
+  it should "re-use cached counts until they expire" in {
+    insert((1 to 5).map(i => new Item(s"id-$i", s"item-$i", i)): _*)
+
+    val cached = new ItemOperations(template, cursorCountStrategy = CountStrategy.Cached(Duration.ofMinutes(1)))
+    val uncached = new ItemOperations(template, cursorCountStrategy = CountStrategy.Cached(Duration.ZERO))
+
+    assertResult(Some(5L))(cached.findAllByCursor(null, 2).block().total.map(_.longValue))
+    assertResult(Some(5L))(uncached.findAllByCursor(null, 2).block().total.map(_.longValue))
+
+    insert(new Item("id-6", "item-6", 6))
+
+    assertResult(Some(5L))(cached.findAllByCursor(null, 2).block().total.map(_.longValue))
+    assertResult(Some(6L))(uncached.findAllByCursor(null, 2).block().total.map(_.longValue))
+  }
+
+  behavior of "MongoReactiveCrudOperationsImpl.saveAll(Flux, Int)"
+
+  it should "save each batch with one bulk write, inserting and replacing" in {
+    insert(new Item("id-1", "old", 1))
+
+    val batches = new ItemOperations(template)
+      .saveAll(Flux.just(new Item("id-1", "new", 1), new Item(null, "generated", 2), new Item("id-3", "three", 3)), 2)
+      .collectList().block().asScala
+
+    assertResult(List(0L, 1L))(batches.map(_.index))
+    assert(batches.forall(!_.hasFailures))
+    // ids are generated for new entities, and returned
+    assert(batches.flatMap(_.saved.asScala).forall(_.id != null))
+
+    val names = template.findAll(classOf[Item]).collectList().block().asScala.map(_.name).toSet
+    assertResult(Set("new", "generated", "three"))(names)
+  }
+
+  it should "report the entities that failed, and save the rest of their batch" in {
+    template.indexOps(classOf[Item]).ensureIndex(new Index("name", Direction.ASC).unique()).block()
+    insert(new Item("id-0", "taken", 0))
+
+    val items = Seq(
+      new Item("id-1", "one", 1), new Item("id-2", "taken", 2), new Item("id-3", "three", 3),
+      new Item("id-4", "four", 4), new Item("id-5", "five", 5)
+    )
+
+    val batches = new ItemOperations(template).saveAll(Flux.fromIterable(items.asJava), 3).collectList().block().asScala
+
+    val partial = batches.head
+    assertResult(List("id-1", "id-3"))(partial.saved.asScala.map(_.id))
+    assertResult(List("id-2"))(partial.failures.asScala.map(_.entity.id))
+    assert(partial.failures.get(0).error.isInstanceOf[MongoWriteException])
+    assertResult(ErrorCategory.DUPLICATE_KEY)(ErrorCategory.fromErrorCode(
+      partial.failures.get(0).error.asInstanceOf[MongoWriteException].getCode
+    ))
+
+    assert(!batches(1).hasFailures)
+
+    val saved = template.findAll(classOf[Item]).collectList().block().asScala.map(_.id).toSet
+    assertResult(Set("id-0", "id-1", "id-3", "id-4", "id-5"))(saved)
+  }
+
+  behavior of "MongoReactiveCrudOperationsImpl.findAll"
+
+  it should "page with a total" in {
+    insert((1 to 25).map(i => new Item(f"id-$i%02d", s"item-$i", i)): _*)
+
+    val operations = new ItemOperations(template)
+
+    val first = operations.findAll(0, 10, "rank").block()
+    assertResult(25L)(first.getTotalElements)
+    assertResult((1 to 10).map(i => f"id-$i%02d"))(first.getContent.asScala.map(_.id))
+
+    // the last page gives the total without counting
+    val last = operations.findAll(2, 10, "rank").block()
+    assertResult(25L)(last.getTotalElements)
+    assertResult(5)(last.getContent.size)
+
+    val estimated = new ItemOperations(template, countStrategy = CountStrategy.Estimated).findAll(1, 10, "rank").block()
+    assertResult(25L)(estimated.getTotalElements)
+  }
+
+  it should "only count when the page does not give the total" in {
+    insert((1 to 25).map(i => new Item(f"id-$i%02d", s"item-$i", i)): _*)
+
+    Seq(false, true).foreach(concurrently => {
+      val operations = new ItemOperations(template, countConcurrently = concurrently)
+
+      commands.clear()
+      assertResult(25L)(operations.findAll(2, 10, "rank").block().getTotalElements)
+      assertResult(concurrently)(countCommands > 0)
+
+      commands.clear()
+      assertResult(25L)(operations.findAll(1, 10, "rank").block().getTotalElements)
+      assertResult(1)(countCommands)
+    })
+
+    // estimated counts are always fetched after the page
+    commands.clear()
+    new ItemOperations(template, countStrategy = CountStrategy.Estimated, countConcurrently = true).findAll(2, 10).block()
+    assertResult(0)(countCommands)
+  }
+
+  /**
+    * count commands (an exact count is an aggregation)
+    */
+  private def countCommands: Int = commands.asScala.count(c => c == "count" || c == "aggregate")
+}
+
+object MongoReactiveCrudOperationsImplSpec {
+
+  class Item(var id: String, var name: String, var rank: Int) extends BaseModel[String] {
+
+    def this() = this(null, null, 0)
+
+    override def getId: String = id
+
+    override def toString: String = s"Item($id, $name, $rank)"
+  }
+
+  class ItemOperations(template: ReactiveMongoTemplate,
+                       override protected val countStrategy: CountStrategy = CountStrategy.Exact,
+                       override protected val cursorCountStrategy: CountStrategy = CountStrategy.Disabled,
+                       override protected val countConcurrently: Boolean = false)
+    extends MongoReactiveCrudOperationsImpl[Item, Item, String] {
+
+    override val daoClass: Class[Item] = classOf[Item]
+
+    override val mongoOperations: ReactiveMongoOperations = template
+
+    override protected val repository: ReactiveCrudRepository[Item, String] = {
+      val entity = template.getConverter.getMappingContext.getRequiredPersistentEntity(daoClass)
+
+      new SimpleReactiveMongoRepository[Item, String](
+        new MappingMongoEntityInformation[Item, String](entity.asInstanceOf[MongoPersistentEntity[Item]]),
+        template
+      )
+    }
+
+    override protected val daoToDtoConverter: Converter[Item, Item] = (d: Item) => d
+
+    override protected val dtoToDaoConverter: Converter[Item, Item] = (d: Item) => d
+  }
+}
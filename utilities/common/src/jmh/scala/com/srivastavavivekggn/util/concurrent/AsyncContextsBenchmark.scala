@@ -0,0 +1,43 @@
+package com.srivastavavivekggn.scala.util.concurrent
+
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations._
+
+import scala.concurrent.duration.Duration
+import scala.concurrent.{Await, ExecutionContext, Future}
+
+/**
+  * Blocking-heavy workload (a batch of tasks that each block for 1ms) on the IO thread pool, the virtual thread
+  * context and the fork join context. The virtual context falls back to the thread pool on JVMs without virtual
+  * threads, in which case those results match the thread pool.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+class AsyncContextsBenchmark {
+
+  @Param(Array("100", "1000"))
+  var tasks: Int = _
+
+  @Benchmark
+  def threadPool(): Int = AsyncContextsBenchmark.run(tasks)(AsyncUtils.Contexts.Implicit.threadPool)
+
+  @Benchmark
+  def virtual(): Int = AsyncContextsBenchmark.run(tasks)(AsyncUtils.Contexts.virtual)
+
+  @Benchmark
+  def forkJoin(): Int = AsyncContextsBenchmark.run(tasks)(AsyncUtils.Contexts.forkJoin)
+}
+
+object AsyncContextsBenchmark {
+
+  def run(tasks: Int)(implicit ec: ExecutionContext): Int = {
+    val all = Future.traverse((1 to tasks).toList)(i => Future {
+      Thread.sleep(1)
+      i
+    })
+
+    Await.result(all, Duration.Inf).size
+  }
+}
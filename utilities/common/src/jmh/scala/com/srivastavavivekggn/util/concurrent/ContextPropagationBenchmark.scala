@@ -0,0 +1,84 @@
+package com.srivastavavivekggn.scala.util.concurrent
+
+import java.util.concurrent.{Executors, TimeUnit}
+
+import com.srivastavavivekggn.scala.util.concurrent.context.DynamicContext
+import com.srivastavavivekggn.scala.util.concurrent.context.DynamicContext.{Audit, C, Flow, Meta}
+import org.openjdk.jmh.annotations._
+import org.slf4j.MDC
+
+import scala.concurrent.duration.Duration
+import scala.concurrent.{Await, ExecutionContext, ExecutionContextExecutor, Future}
+
+/**
+  * A chain of future hops (map) with a flow, audit and meta context set, on the snapshot-based
+  * DelegatingExecutionContextExecutor and on the previous wrapper (copy the MDC, then nest the three withValues calls
+  * for every task).
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.SingleShotTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+class ContextPropagationBenchmark {
+
+  @Param(Array("1000000"))
+  var hops: Int = _
+
+  private val pool = Executors.newFixedThreadPool(4)
+
+  private val snapshot = DelegatingExecutionContextExecutor(ExecutionContext.fromExecutor(pool))
+
+  private val legacy = ContextPropagationBenchmark.LegacyExecutor(ExecutionContext.fromExecutor(pool))
+
+  @TearDown
+  def tearDown(): Unit = pool.shutdown()
+
+  @Benchmark
+  def contextSnapshot(): Int = ContextPropagationBenchmark.run(hops)(snapshot)
+
+  @Benchmark
+  def legacyWrapper(): Int = ContextPropagationBenchmark.run(hops)(legacy)
+}
+
+object ContextPropagationBenchmark {
+
+  def run(hops: Int)(implicit ec: ExecutionContext): Int = {
+    val chain = DynamicContext.withFlow("benchmark-flow") {
+      DynamicContext.withAudit("benchmark", "jwt") {
+        DynamicContext.withMeta(Map("tenant" -> "t1")) {
+          (1 to hops).foldLeft(Future(0))((f, _) => f.map(_ + 1))
+        }
+      }
+    }
+
+    Await.result(chain, Duration.Inf)
+  }
+
+  /**
+    * The previous DelegatingExecutionContextExecutor, for comparison
+    */
+  case class LegacyExecutor(delegate: ExecutionContext) extends ExecutionContextExecutor {
+
+    override def execute(command: Runnable): Unit = {
+      val mdcContext = MDC.getCopyOfContextMap
+      val audit: C = Audit.getContext
+      val flow: C = Flow.getContext
+      val meta: C = Meta.getContext
+
+      delegate.execute(() => {
+        if (mdcContext == null) MDC.clear() else MDC.setContextMap(mdcContext)
+
+        Audit.withValues(audit) {
+          Flow.withValues(flow) {
+            Meta.withValues(meta) {
+              command.run()
+            }
+          }
+        }
+      })
+    }
+
+    override def reportFailure(cause: Throwable): Unit = delegate.reportFailure(cause)
+  }
+}
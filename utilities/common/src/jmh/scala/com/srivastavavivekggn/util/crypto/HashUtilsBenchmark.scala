@@ -0,0 +1,73 @@
+package com.srivastavavivekggn.scala.util.crypto
+
+import java.security.MessageDigest
+import java.util.concurrent.TimeUnit
+
+import com.google.common.io.BaseEncoding
+import javax.crypto.Mac
+import javax.crypto.spec.SecretKeySpec
+import org.openjdk.jmh.annotations._
+
+/**
+  * Compares HashUtils against the previous implementation (new MessageDigest / Mac per call, "%02X" hex formatting)
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+class HashUtilsBenchmark {
+
+  val input: String = "zD61bf636eF1|GET|/api/v1/members/1234567890/eligibility|1634567890123|8f2d4c|svc"
+
+  val inputBytes: Array[Byte] = input.getBytes
+
+  val hmacKey: String = "ZZ===WWWYYYY"
+
+  @Benchmark
+  def legacySha256Hex(): String = HashUtilsBenchmark.legacyHash(HashUtils.SHA256, input, useHex = true)
+
+  @Benchmark
+  def sha256Hex(): String = HashUtils.hash(HashUtils.SHA256, input, useHex = true)
+
+  @Benchmark
+  def sha256HexBytes(): String = HashUtils.hash(HashUtils.SHA256, inputBytes, useHex = true)
+
+  @Benchmark
+  def legacySha256Base64(): String = HashUtilsBenchmark.legacyHash(HashUtils.SHA256, input, useHex = false)
+
+  @Benchmark
+  def sha256Base64(): String = HashUtils.hash(HashUtils.SHA256, input, useHex = false)
+
+  @Benchmark
+  def legacyHmac(): String = HashUtilsBenchmark.legacyHmac(hmacKey, input)
+
+  @Benchmark
+  def hmac(): String = HashUtils.sha256Hmac(hmacKey, input)
+
+  @Benchmark
+  @Threads(8)
+  def legacyHmac_8(): String = HashUtilsBenchmark.legacyHmac(hmacKey, input)
+
+  @Benchmark
+  @Threads(8)
+  def hmac_8(): String = HashUtils.sha256Hmac(hmacKey, input)
+}
+
+object HashUtilsBenchmark {
+
+  /**
+    * The previous HashUtils.hash
+    */
+  def legacyHash(encType: String, s: String, useHex: Boolean): String = {
+    val buf = MessageDigest.getInstance(encType).digest(s.getBytes)
+    if (useHex) buf.map("%02X" format _).mkString else BaseEncoding.base64().encode(buf)
+  }
+
+  /**
+    * The previous HashUtils.sha256Hmac
+    */
+  def legacyHmac(hmacKey: String, input: String): String = {
+    val mac = Mac.getInstance(HashUtils.HMAC_SHA256)
+    mac.init(new SecretKeySpec(hmacKey.getBytes, HashUtils.HMAC_SHA256))
+    BaseEncoding.base64().encode(mac.doFinal(input.getBytes))
+  }
+}
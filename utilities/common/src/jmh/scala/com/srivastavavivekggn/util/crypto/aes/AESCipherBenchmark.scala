@@ -0,0 +1,62 @@
+package com.srivastavavivekggn.scala.util.crypto.aes
+
+import java.util.concurrent.TimeUnit
+
+import com.srivastavavivekggn.scala.util.crypto.EncodeUtils
+import javax.crypto.Cipher
+import javax.crypto.spec.{IvParameterSpec, SecretKeySpec}
+import org.openjdk.jmh.annotations._
+
+/**
+  * Compares a shared, pooled AESCipher against the previous usage pattern (a new cipher per call, since the
+  * previous AESCipher could not be shared across threads) at 1, 8 and 32 threads
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+class AESCipherBenchmark {
+
+  val key: Array[Byte] = new SimpleKeyProvider().getKey("11")
+
+  val iv: Array[Byte] = AESVector.getVector(27)
+
+  val message: String = "member 1234567890 eligibility payload " * 8
+
+  val shared: AESCipher = AESCipher(key, iv)
+
+  @Benchmark
+  @Threads(1)
+  def perCall_1(): String = AESCipherBenchmark.legacyEncrypt(key, iv, message)
+
+  @Benchmark
+  @Threads(8)
+  def perCall_8(): String = AESCipherBenchmark.legacyEncrypt(key, iv, message)
+
+  @Benchmark
+  @Threads(32)
+  def perCall_32(): String = AESCipherBenchmark.legacyEncrypt(key, iv, message)
+
+  @Benchmark
+  @Threads(1)
+  def shared_1(): String = shared.getEncryptedMessage(message)
+
+  @Benchmark
+  @Threads(8)
+  def shared_8(): String = shared.getEncryptedMessage(message)
+
+  @Benchmark
+  @Threads(32)
+  def shared_32(): String = shared.getEncryptedMessage(message)
+}
+
+object AESCipherBenchmark {
+
+  /**
+    * The previous getEncryptedMessage: get and initialize a cipher, then encrypt
+    */
+  def legacyEncrypt(key: Array[Byte], iv: Array[Byte], message: String): String = {
+    val cipher = Cipher.getInstance(AESCipher.ALGORITHM_AES256)
+    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv))
+    EncodeUtils.encodeBase64(cipher.doFinal(message.getBytes))
+  }
+}
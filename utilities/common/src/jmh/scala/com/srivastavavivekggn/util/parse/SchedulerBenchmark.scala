@@ -0,0 +1,41 @@
+package com.srivastavavivekggn.scala.util.parse
+
+import java.time.{Instant, LocalDateTime}
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations._
+
+/**
+  * Resolves a set of schedule expressions: parsing each one per call (Scheduler.schedule), resolving cached compiled
+  * expressions one at a time, and resolving them all at once with resolveAll.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+class SchedulerBenchmark {
+
+  val scheduler: Scheduler = Scheduler()
+
+  val expressions: Seq[String] = Seq(
+    "now",
+    "now + 2 days",
+    "tomorrow at 09:00:00",
+    "friday at 23:59:59",
+    "between 09:00:00 and 17:00:00",
+    "now + 7 days between 09:00:00 and 21:00:00",
+    "2021-04-01 at 10:00:00",
+    "monday between 08:00:00 and 08:30:00"
+  )
+
+  @Benchmark
+  def parsePerCall(): Int = expressions.count(e => fastparse.parse(e, scheduler.schedule(_)).isSuccess)
+
+  @Benchmark
+  def compiled(): Int = {
+    val now = Instant.now()
+    expressions.count(e => scheduler.compile(e).map(_.resolve(now)).isDefined)
+  }
+
+  @Benchmark
+  def resolveAll(): Seq[Option[LocalDateTime]] = scheduler.resolveAll(expressions, Instant.now())
+}
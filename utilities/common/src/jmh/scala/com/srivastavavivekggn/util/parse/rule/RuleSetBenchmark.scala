@@ -0,0 +1,67 @@
+package com.srivastavavivekggn.scala.util.parse.rule
+
+import java.util.concurrent.TimeUnit
+
+import com.srivastavavivekggn.scala.util.concurrent.AsyncUtils
+import com.srivastavavivekggn.scala.util.parse.rule.context.{ColumnarBatch, MapRuleEvaluationContext, RuleEvaluationContext}
+import com.srivastavavivekggn.scala.util.parse.rule.impl.{ArrayOfStringRule, ExistenceRule, NumberArrayRule, NumberRule, StringArrayRule, StringRule}
+import org.openjdk.jmh.annotations._
+
+import scala.concurrent.Await
+import scala.concurrent.duration.Duration
+
+/**
+  * Evaluates one rule set against a batch of contexts: parsing per context (RuleSet.evaluate), compiled once and
+  * evaluated sequentially, compiled once and evaluated in parallel on the fork join context, and compiled once and
+  * evaluated against the same rows stored by column.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+class RuleSetBenchmark {
+
+  @Param(Array("1000", "100000"))
+  var records: Int = _
+
+  val rules: String = """MONTH does not exist AND (YEAR found in [1969, 1970, 1971] OR AGE < 18) AND """ +
+    """(GENDER is M OR (GENDER is F AND BIOS has one of [a]))"""
+
+  val factors: Seq[Rule[_]] = Seq(
+    NumberRule("AGE"), StringRule("GENDER", "ZIP"), NumberArrayRule("YEAR"), StringArrayRule("GENDER"),
+    ArrayOfStringRule("BIOS", "LABS"), ExistenceRule("MONTH", "YEAR")
+  )
+
+  var contexts: Array[RuleEvaluationContext] = _
+
+  var batch: ColumnarBatch = _
+
+  @Setup
+  def setup(): Unit = {
+    contexts = Array.tabulate(records)(i => MapRuleEvaluationContext(Map(
+      "AGE" -> i % 90,
+      "YEAR" -> (1960 + i % 20),
+      "GENDER" -> (if (i % 2 == 0) "F" else "M"),
+      "BIOS" -> Seq("a", "b", "c").take(i % 4)
+    )))
+
+    batch = ColumnarBatch.fromRows(contexts.toIndexedSeq, Seq("AGE", "YEAR", "GENDER", "BIOS", "MONTH"))
+  }
+
+  @Benchmark
+  def parsePerContext(): Int = contexts.count(ctx => RuleSet(ctx, factors: _*).evaluate(rules))
+
+  @Benchmark
+  def compiled(): Int = {
+    val compiled = RuleSet.compile(rules, factors: _*)
+    contexts.count(compiled.evaluate)
+  }
+
+  @Benchmark
+  def compiledParallel(): Int = {
+    val results = RuleSet.compile(rules, factors: _*).evaluateAll(contexts.iterator)(AsyncUtils.Contexts.forkJoin)
+    Await.result(results, Duration.Inf).count(identity)
+  }
+
+  @Benchmark
+  def compiledColumnar(): Int = RuleSet.compile(rules, factors: _*).evaluate(batch).cardinality()
+}
@@ -0,0 +1,89 @@
+package com.srivastavavivekggn.scala.util.placeholder
+
+import java.time.LocalDate
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+
+import com.srivastavavivekggn.scala.util.placeholder.PlaceholderUtils.ReplacementMode
+import com.srivastavavivekggn.scala.util.placeholder.context.{PlaceholderContextProvider, StaticPlaceholderContextProvider}
+import org.openjdk.jmh.annotations._
+
+import scala.annotation.tailrec
+
+/**
+  * Compares the compiled / cached template path against the original regex-and-fold implementation
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+class PlaceholderUtilsBenchmark {
+
+  val template: String = "{{greeting}}, {{ name }}! Your appointment with {{provider.name}} is on " +
+    "{{ startDate|date:MMMM }} {{ startDate|date:dd }}, {{ startDate|date:YYYY }}. " +
+    "Click {{ link|e }} to confirm, or call {{phone}}. {{ signature }}"
+
+  val context: PlaceholderContextProvider = StaticPlaceholderContextProvider(Map(
+    "greeting" -> "Hi",
+    "name" -> "Bob",
+    "provider.name" -> "Dr. Smith",
+    "startDate" -> LocalDate.of(2020, 3, 15),
+    "link" -> "https://www.example.com?a=1&b=2",
+    "phone" -> "555-1234",
+    "signature" -> "-- {{team}}",
+    "team" -> "The Care Team"
+  ))
+
+  @Benchmark
+  def legacy(): String = PlaceholderUtilsBenchmark.legacyReplaceAll(template, context)
+
+  @Benchmark
+  def compiled(): String = PlaceholderUtils.replaceAll(template, context)
+
+  @Benchmark
+  def uncached(): String = CompiledTemplate.parse(template).render(context)
+}
+
+object PlaceholderUtilsBenchmark {
+
+  /**
+    * The implementation of PlaceholderUtils.replaceAll prior to CompiledTemplate
+    */
+  @tailrec
+  def legacyReplaceAll(in: String,
+                       replacementCtx: PlaceholderContextProvider,
+                       replacementMode: ReplacementMode = ReplacementMode.STRIP_PLACEHOLDERS,
+                       locale: Locale = Locale.getDefault): String = {
+
+    val placeholders = PlaceholderUtils.placeholderRegex.findAllMatchIn(in)
+      .flatMap(_.subgroups)
+      .toList
+      .map(Placeholder.fromString)
+      .distinct
+
+    if (placeholders.isEmpty) {
+      in
+    }
+    else if (ReplacementMode.LEAVE_PLACEHOLDERS.equals(replacementMode) &&
+      !placeholders.exists(p => replacementCtx.contains(p.key))) {
+      in
+    }
+    else {
+      val result = placeholders.foldLeft(in) {
+        case (str, placeholder) if replacementCtx.contains(placeholder.key) =>
+          placeholder.replace(str, PlaceholderUtils.getFormattedValue(
+            replacementCtx.get(placeholder.key), placeholder, List.empty, locale
+          ))
+
+        case (str, placeholder) if ReplacementMode.STRIP_PLACEHOLDERS.equals(replacementMode) =>
+          placeholder.replace(str, PlaceholderUtils.getFormattedValue(None, placeholder, List.empty, locale))
+
+        case (str, placeholder) if ReplacementMode.DROP_BRACES.equals(replacementMode) =>
+          placeholder.replace(str, PlaceholderUtils.getFormattedValue(placeholder.key, placeholder, List.empty, locale))
+
+        case (str, _) => str
+      }
+
+      legacyReplaceAll(result, replacementCtx, replacementMode, locale)
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package com.srivastavavivekggn.scala.util.translate
+
+import java.util.concurrent.TimeUnit
+
+import com.srivastavavivekggn.scala.util.crypto.HashUtils
+import org.openjdk.jmh.annotations._
+
+/**
+  * Sanitizes and hashes a block of translatable text: with regex replacements and String hashing (the original
+  * implementation), and with the single-pass sanitizeAndHash.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+class TranslationUtilsBenchmark {
+
+  val text: String =
+    """<p>Employees are eligible to earn a payroll contribution for completing the following activities,
+      |    by December 31.</p>
+      |<ul>
+      |  <li>Earn $250 when you take the health assessment.</li>
+      |  <li>Earn $250 when you complete a health screening.</li>
+      |</ul>""".stripMargin
+
+  @Benchmark
+  def regexAndString(): String = {
+    val noNewlines = TranslationUtils.NEWLINE_REGEX.matcher(text).replaceAll("")
+    val sanitized = TranslationUtils.MULTI_SPACE_REGEX.matcher(noNewlines).replaceAll(" ").trim
+    HashUtils.hash(HashUtils.SHA256, sanitized, useHex = true).toLowerCase
+  }
+
+  @Benchmark
+  def singlePass(): String = TranslationUtils.sanitizeAndHash(text)
+}
@@ -0,0 +1,55 @@
+package com.srivastavavivekggn.scala.util.unit
+
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations.{Benchmark, BenchmarkMode, Mode, OutputTimeUnit, Param, Scope, Setup, State}
+
+/**
+  * Converts a batch of amounts: one measurement at a time through the conversion functions, one at a time through the
+  * compiled converter, with convertAll, and to a locale's measurement system.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+class UnitConversionBenchmark {
+
+  @Param(Array("10000"))
+  var size: Int = _
+
+  var values: Array[Double] = _
+
+  var result: Array[Double] = _
+
+  @Setup
+  def setup(): Unit = {
+    values = Array.tabulate(size)(i => i * 0.25d)
+    result = new Array[Double](size)
+  }
+
+  @Benchmark
+  def functionPerValue(): Double = {
+    val convert = UnitConversionUtils.conversions((MeasurementUnit.DEGREE_FAHRENHEIT, MeasurementUnit.DEGREE_CELSIUS))
+    values.foldLeft(0d)((sum, v) => sum + convert(v))
+  }
+
+  @Benchmark
+  def measurementPerValue(): Double = {
+    values.foldLeft(0d)((sum, v) =>
+      sum + UnitConversionUtils.convert(Measurement(v, MeasurementUnit.DEGREE_FAHRENHEIT), MeasurementUnit.DEGREE_CELSIUS).amount
+    )
+  }
+
+  @Benchmark
+  def convertAll(): Array[Double] = {
+    UnitConversionUtils.converter(MeasurementUnit.DEGREE_FAHRENHEIT, MeasurementUnit.DEGREE_CELSIUS).convertAll(values, result)
+    result
+  }
+
+  @Benchmark
+  def localePerValue(): Double = {
+    values.foldLeft(0d)((sum, v) =>
+      sum + UnitConversionUtils.convert(Measurement(v, MeasurementUnit.POUND), Locale.GERMANY).amount
+    )
+  }
+}
@@ -1,14 +1,17 @@
 package com.srivastavavivekggn.scala.util.concurrent
 
-import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{Executor, ExecutorService, Executors, ForkJoinPool, ForkJoinWorkerThread, ThreadFactory}
 
 import com.srivastavavivekggn.scala.util.lang.NumberUtils
 import com.srivastavavivekggn.scala.util.system.SystemUtils
 import com.typesafe.scalalogging.Logger
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor
 
+import scala.collection.mutable
 import scala.concurrent.{ExecutionContext, ExecutionContextExecutor, Future, Promise}
-import scala.util.{Failure, Success}
+import scala.util.control.NonFatal
+import scala.util.{Failure, Success, Try}
 
 object AsyncUtils {
 
@@ -18,6 +21,13 @@ object AsyncUtils {
    */
   final val AWAIT_TERM_SECONDS = 60
 
+  /**
+   * IO context types (see concurrent.context.io)
+   */
+  final val IO_THREAD_POOL = "threadPool"
+  final val IO_VIRTUAL = "virtual"
+  final val IO_FORK_JOIN = "forkJoin"
+
   /**
    * The logger for this class
    */
@@ -34,7 +44,8 @@ object AsyncUtils {
   object Contexts {
 
     /**
-     * Implicit versions of the available execution contexts
+     * Implicit versions of the available execution contexts (threadPool, virtual and forkJoin are not implicit, so
+     * importing Implicit._ only brings in global and IO)
      */
     object Implicit {
 
@@ -43,12 +54,42 @@ object AsyncUtils {
        */
       implicit lazy val global = DelegatingExecutionContextExecutor(scala.concurrent.ExecutionContext.global)
 
+      /**
+       * execution context for IO operations, backed by the executor selected with 'concurrent.context.io'
+       * (threadPool [default], virtual or forkJoin)
+       */
+      implicit lazy val IO: DelegatingExecutionContextExecutor = {
+        SystemUtils.getProperty("concurrent.context.io", IO_THREAD_POOL) match {
+          case IO_VIRTUAL => virtual
+          case IO_FORK_JOIN => forkJoin
+          case _ => threadPool
+        }
+      }
+
       /**
        * execution context using our custom thread pool executor
        */
-      implicit lazy val IO = DelegatingExecutionContextExecutor(
+      lazy val threadPool: DelegatingExecutionContextExecutor = DelegatingExecutionContextExecutor(
         ExecutionContext.fromExecutor(ThreadPool, errorReporter)
       )
+
+      /**
+       * execution context that runs each task on a new virtual thread (falls back to the thread pool if virtual
+       * threads are not available in this JVM)
+       */
+      lazy val virtual: DelegatingExecutionContextExecutor = VirtualThreads.map(executor =>
+        DelegatingExecutionContextExecutor(ExecutionContext.fromExecutor(executor, errorReporter))
+      ).getOrElse({
+        logger.warn("Virtual threads are not available, using the IO thread pool")
+        threadPool
+      })
+
+      /**
+       * execution context using a bounded work-stealing pool, for CPU-bound work
+       */
+      lazy val forkJoin: DelegatingExecutionContextExecutor = DelegatingExecutionContextExecutor(
+        ExecutionContext.fromExecutor(WorkStealingPool, errorReporter)
+      )
     }
 
     /**
@@ -61,6 +102,55 @@ object AsyncUtils {
      */
     def IO: ExecutionContextExecutor = ImplicitIO
 
+    /**
+     * context that runs each task on a new virtual thread (or the IO thread pool if virtual threads are not available)
+     */
+    def virtual: ExecutionContextExecutor = Implicit.virtual
+
+    /**
+     * bounded work-stealing context for CPU-bound work
+     */
+    def forkJoin: ExecutionContextExecutor = Implicit.forkJoin
+
+    /**
+     * Thread-per-task executor using virtual threads (named virtual-N), if supported by the running JVM (21+).
+     *
+     * Looked up reflectively since we compile for Java 8.
+     */
+    lazy val VirtualThreads: Option[ExecutorService] = Try({
+      // Thread.ofVirtual().name("virtual-", 0).factory()
+      val builderClass = Class.forName("java.lang.Thread$Builder")
+      val builder = classOf[Thread].getMethod("ofVirtual").invoke(None.orNull)
+      val named = builderClass.getMethod("name", classOf[String], classOf[Long]).invoke(builder, "virtual-", Long.box(0L))
+      val factory = builderClass.getMethod("factory").invoke(named)
+
+      classOf[Executors].getMethod("newThreadPerTaskExecutor", classOf[ThreadFactory])
+        .invoke(None.orNull, factory)
+        .asInstanceOf[ExecutorService]
+    }).toOption
+
+    /**
+     * Bounded work-stealing pool (threads named cpu-N).
+     *
+     * Parallelism is set with 'concurrent.context.forkJoin.parallelism' (default x1, i.e. one thread per processor).
+     * Blocking in this pool is not compensated with extra threads, so it should only be used for CPU-bound work.
+     */
+    lazy val WorkStealingPool: ForkJoinPool = {
+      val parallelism = math.max(1, SystemUtils.getIntMultiplier("concurrent.context.forkJoin.parallelism", "x1"))
+      val counter = new AtomicInteger(0)
+
+      val factory = new ForkJoinPool.ForkJoinWorkerThreadFactory {
+        override def newThread(pool: ForkJoinPool): ForkJoinWorkerThread = {
+          val thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool)
+          thread.setName(s"cpu-${counter.incrementAndGet()}")
+          thread.setDaemon(true)
+          thread
+        }
+      }
+
+      new ForkJoinPool(parallelism, factory, (_: Thread, t: Throwable) => errorReporter(t), true)
+    }
+
     /**
      * Custom thread pool definition.
      *
@@ -174,6 +264,47 @@ object AsyncUtils {
     Future.sequence(elements.map(op))
   }
 
+  /**
+   * Map over the given elements using the provided operation, with at most 'parallelism' operations in flight at a
+   * time. Elements are pulled from the input as capacity frees up, so an Iterator / LazyList input is never fully
+   * materialized. Results are in input order. The first failure fails the result, and no further operations are started.
+   *
+   * Each operation is started through the given execution context.
+   *
+   * @param elements    the elements to map
+   * @param parallelism the maximum number of operations in flight
+   * @param op          the operation
+   * @param exec        the execution context
+   * @tparam T the element type
+   * @tparam Z the result type
+   * @return the future List of result types
+   */
+  def mapPar[T, Z](elements: IterableOnce[T], parallelism: Int, op: T => Future[Z])(implicit exec: ExecutionContext): Future[List[Z]] = {
+    require(parallelism > 0, "Parallelism must be greater than 0")
+    new BoundedMapper[T, Z](elements.iterator, parallelism, op).run()
+  }
+
+  /**
+   * Map over the given elements in batches of 'batchSize', with at most 'parallelism' batches in flight at a time
+   * (see mapPar). Results are flattened, in input order.
+   *
+   * @param elements    the elements to map
+   * @param batchSize   the maximum number of elements per batch
+   * @param parallelism the maximum number of batches in flight
+   * @param op          the batch operation, returning one result per element
+   * @param exec        the execution context
+   * @tparam T the element type
+   * @tparam Z the result type
+   * @return the future List of result types
+   */
+  def mapBatched[T, Z](elements: IterableOnce[T],
+                       batchSize: Int,
+                       parallelism: Int,
+                       op: Seq[T] => Future[Seq[Z]])(implicit exec: ExecutionContext): Future[List[Z]] = {
+    require(batchSize > 0, "Batch size must be greater than 0")
+    mapPar(elements.iterator.grouped(batchSize), parallelism, op).map(_.flatten)
+  }
+
   /**
    * Perform a mapping function on the given list of elements, where the mapping function returns a Future
    *
@@ -297,4 +428,109 @@ object AsyncUtils {
       })
     })
   }
+
+  /**
+   * Drives mapPar: pulls elements from the iterator while fewer than 'parallelism' operations are in flight.
+   *
+   * Operations that complete synchronously (e.g., with the currentThread context) do not recurse; the thread already
+   * pulling elements picks up the freed capacity.
+   */
+  private class BoundedMapper[T, Z](elements: Iterator[T], parallelism: Int, op: T => Future[Z])
+                                   (implicit exec: ExecutionContext) {
+
+    private val promise = Promise[List[Z]]()
+
+    private val results = mutable.ArrayBuffer.empty[Any]
+
+    private var inFlight = 0
+
+    private var failed = false
+
+    private var pumping = false
+
+    private var pumpAgain = false
+
+    def run(): Future[List[Z]] = {
+      pump()
+      promise.future
+    }
+
+    /**
+     * Start operations until we are at capacity or out of elements
+     */
+    private def pump(): Unit = {
+      val owner = synchronized {
+        if (pumping) {
+          pumpAgain = true
+          false
+        }
+        else {
+          pumping = true
+          true
+        }
+      }
+
+      var keepGoing = owner
+
+      while (keepGoing) {
+        claimNext() match {
+          case Some((idx, element)) => start(idx, element)
+
+          case None => keepGoing = synchronized {
+            pumping = pumpAgain
+            pumpAgain = false
+            pumping
+          }
+        }
+      }
+    }
+
+    /**
+     * Take the next element if there is capacity, completing the result if everything is done (or failing it if the
+     * elements cannot be read)
+     */
+    private def claimNext(): Option[(Int, T)] = synchronized {
+      try {
+        if (failed || inFlight >= parallelism) {
+          None
+        }
+        else if (!elements.hasNext) {
+          if (inFlight == 0) {
+            promise.trySuccess(results.toList.asInstanceOf[List[Z]])
+          }
+          None
+        }
+        else {
+          val element = elements.next()
+          val idx = results.length
+          results += None.orNull
+          inFlight += 1
+          Some((idx, element))
+        }
+      }
+      catch {
+        case NonFatal(ex) =>
+          failed = true
+          promise.tryFailure(ex)
+          None
+      }
+    }
+
+    private def start(idx: Int, element: T): Unit = {
+      Future.unit.flatMap(_ => op(element)).onComplete {
+        case Success(result) =>
+          synchronized {
+            results(idx) = result
+            inFlight -= 1
+          }
+          pump()
+
+        case Failure(ex) =>
+          synchronized {
+            failed = true
+          }
+          promise.tryFailure(ex)
+      }
+    }
+  }
 }
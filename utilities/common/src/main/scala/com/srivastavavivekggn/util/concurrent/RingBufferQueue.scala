@@ -0,0 +1,254 @@
+package com.srivastavavivekggn.scala.util.concurrent
+
+import java.util
+import java.util.concurrent.atomic.{AtomicLong, AtomicLongArray, AtomicReferenceArray}
+
+/**
+ * Bounded, lock-free queue backed by a ring buffer (a sequence number per slot, so producers and the consumer only
+ * contend on a single CAS each).
+ *
+ * Any number of threads may offer; it is intended for a single consumer (e.g., draining with CollectionUtils.drainQueue),
+ * though concurrent polls are also safe. offer returns false when the queue is full, it never blocks.
+ *
+ * size and peek are estimates while other threads are modifying the queue. Iteration is weakly consistent: it
+ * returns the elements between the head and the tail when the iterator was created, skipping any consumed since, and
+ * never throws ConcurrentModificationException. remove(Object) marks the element's slot as removed (it is skipped when
+ * polled), so removed elements count towards size until they reach the head.
+ *
+ * @param requestedCapacity the minimum capacity (rounded up to a power of 2, at most MAX_CAPACITY)
+ * @tparam T the element type
+ */
+class RingBufferQueue[T <: AnyRef](requestedCapacity: Int) extends util.AbstractQueue[T] {
+
+  import RingBufferQueue._
+
+  require(requestedCapacity > 0, s"Capacity must be positive, got $requestedCapacity")
+  require(requestedCapacity <= MAX_CAPACITY, s"Capacity must be at most $MAX_CAPACITY, got $requestedCapacity")
+
+  /**
+   * the actual capacity
+   */
+  val capacity: Int = Integer.highestOneBit(math.max(2, requestedCapacity) * 2 - 1)
+
+  private val mask = capacity - 1
+
+  // the elements, or REMOVED for elements removed before reaching the head
+  private val elements = new AtomicReferenceArray[AnyRef](capacity)
+
+  // the sequence for each slot: equal to the write position when free, and the write position + 1 when filled
+  private val sequences = {
+    val s = new AtomicLongArray(capacity)
+    (0 until capacity).foreach(i => s.set(i, i))
+    s
+  }
+
+  private val writePosition = new AtomicLong()
+  private val readPosition = new AtomicLong()
+
+  override def offer(e: T): Boolean = {
+    require(e != null, "Null elements are not supported")
+
+    var pos = writePosition.get()
+
+    while (true) {
+      val index = (pos & mask).toInt
+      val diff = sequences.get(index) - pos
+
+      if (diff == 0) {
+        if (writePosition.compareAndSet(pos, pos + 1)) {
+          elements.lazySet(index, e)
+          sequences.set(index, pos + 1)
+          return true
+        }
+
+        pos = writePosition.get()
+      }
+      else if (diff < 0) {
+        // the slot has not been consumed yet, the queue is full
+        return false
+      }
+      else {
+        pos = writePosition.get()
+      }
+    }
+
+    false
+  }
+
+  override def poll(): T = {
+    var pos = readPosition.get()
+
+    while (true) {
+      val index = (pos & mask).toInt
+      val diff = sequences.get(index) - (pos + 1)
+
+      if (diff == 0) {
+        if (readPosition.compareAndSet(pos, pos + 1)) {
+          // taken atomically, so a concurrent remove either wins the element or sees it gone
+          val e = elements.getAndSet(index, null)
+          sequences.set(index, pos + capacity)
+
+          if (e ne REMOVED) {
+            return e.asInstanceOf[T]
+          }
+        }
+
+        pos = readPosition.get()
+      }
+      else if (diff < 0) {
+        // the slot has not been filled yet, the queue is empty
+        return null.asInstanceOf[T]
+      }
+      else {
+        pos = readPosition.get()
+      }
+    }
+
+    null.asInstanceOf[T]
+  }
+
+  override def peek(): T = {
+    val it = new Itr
+    if (it.hasNext) it.next() else null.asInstanceOf[T]
+  }
+
+  override def size(): Int = {
+    val size = writePosition.get() - readPosition.get()
+    math.max(0L, math.min(size, capacity.toLong)).toInt
+  }
+
+  override def isEmpty: Boolean = writePosition.get() == readPosition.get()
+
+  /**
+   * the number of elements that can be offered before the queue is full (an estimate, see size)
+   */
+  def remainingCapacity: Int = capacity - size()
+
+  override def iterator(): util.Iterator[T] = new Itr
+
+  override def remove(o: Any): Boolean = {
+    if (o != null) {
+      var pos = readPosition.get()
+      val end = writePosition.get()
+
+      while (pos < end) {
+        val e = elementAt(pos)
+
+        if (e == null && readPosition.get() <= pos) {
+          // not published yet
+          return false
+        }
+
+        if (e != null && (e ne REMOVED) && e == o && elements.compareAndSet((pos & mask).toInt, e, REMOVED)) {
+          return true
+        }
+
+        pos = math.max(pos + 1, readPosition.get())
+      }
+    }
+
+    false
+  }
+
+  /**
+   * Get the element written at the given position
+   *
+   * @param pos the write position
+   * @return the element (or REMOVED), null if the slot has not been filled yet or has been consumed
+   */
+  private def elementAt(pos: Long): AnyRef = {
+    val index = (pos & mask).toInt
+
+    if (sequences.get(index) == pos + 1) {
+      val e = elements.get(index)
+
+      // the element may have been consumed (and the slot refilled) while reading it
+      if (sequences.get(index) == pos + 1) e else null
+    }
+    else {
+      null
+    }
+  }
+
+  /**
+   * Weakly consistent iterator over the elements between the head and the tail at creation, stopping at the first
+   * slot that has been reserved but not yet written
+   */
+  private class Itr extends util.Iterator[T] {
+
+    private val end = writePosition.get()
+
+    private var pos = readPosition.get()
+
+    private var nextElement: AnyRef = advance()
+
+    private var lastPos = -1L
+
+    private var lastElement: AnyRef = _
+
+    override def hasNext: Boolean = nextElement != null
+
+    override def next(): T = {
+      if (nextElement == null) {
+        throw new util.NoSuchElementException
+      }
+
+      lastPos = pos - 1
+      lastElement = nextElement
+      nextElement = advance()
+      lastElement.asInstanceOf[T]
+    }
+
+    override def remove(): Unit = {
+      if (lastElement == null) {
+        throw new IllegalStateException
+      }
+
+      // no effect if the element has been consumed since
+      val index = (lastPos & mask).toInt
+      if (sequences.get(index) == lastPos + 1) {
+        elements.compareAndSet(index, lastElement, REMOVED)
+      }
+
+      lastElement = null
+    }
+
+    /**
+     * Find the next element, leaving pos just after it
+     */
+    private def advance(): AnyRef = {
+      while (pos < end) {
+        val e = elementAt(pos)
+
+        if (e == null && readPosition.get() <= pos) {
+          // not published yet
+          pos = end
+        }
+        else {
+          pos = pos + 1
+
+          if (e != null && (e ne REMOVED)) {
+            return e
+          }
+
+          pos = math.max(pos, readPosition.get())
+        }
+      }
+
+      null
+    }
+  }
+}
+
+object RingBufferQueue {
+
+  /**
+   * the largest supported capacity
+   */
+  final val MAX_CAPACITY = 1 << 30
+
+  /**
+   * marks the slot of an element removed before it reached the head
+   */
+  private final val REMOVED = new AnyRef
+}
@@ -0,0 +1,102 @@
+package com.srivastavavivekggn.scala.util.concurrent.context
+
+import com.srivastavavivekggn.scala.util.concurrent.context.DynamicContext.{Flow, Values}
+import org.slf4j.MDC
+
+import java.lang.reflect.Method
+import scala.util.Try
+
+/**
+  * An immutable capture of the current thread's MDC and DynamicContext values, for running tasks on another thread
+  * with the same context (see DelegatingExecutionContextExecutor).
+  *
+  * Running a task is equivalent to setting the MDC to the captured map, then calling Audit.withValues,
+  * Flow.withValues and Meta.withValues with the captured values, but all the DynamicContext values are swapped at
+  * once, and nothing is changed where the running thread already has the captured values (e.g., a chain of futures
+  * on the same thread).
+  *
+  * @param mdc    the MDC map (read only, may be null)
+  * @param values the DynamicContext values
+  */
+final class ContextSnapshot private(val mdc: java.util.Map[String, String], val values: Values) {
+
+  /**
+    * Run the given thunk with this context
+    *
+    * @param thunk the thunk
+    * @tparam S the return type
+    * @return the result of the thunk
+    */
+  def run[S](thunk: => S): S = {
+
+    ContextSnapshot.restoreMdc(mdc)
+
+    val previous = DynamicContext.current.value
+    val merged = previous.merge(values)
+
+    // the same as Flow.withValues -- the flow's xflow (if any) goes in the MDC while running
+    val xflowBefore = MDC.get(Flow.XFLOW)
+    val xflow = merged.flow.get(Flow.XFLOW).map(_.toString).getOrElse(xflowBefore)
+
+    val swapValues = !(merged eq previous)
+    val swapXflow = xflow != xflowBefore
+
+    if (swapValues) DynamicContext.current.value = merged
+    if (swapXflow) MDC.put(Flow.XFLOW, xflow)
+
+    try thunk
+    finally {
+      if (swapXflow) MDC.put(Flow.XFLOW, xflowBefore)
+      if (swapValues) DynamicContext.current.value = previous
+    }
+  }
+
+  /**
+    * Wrap the given command to run with this context
+    *
+    * @param command the command
+    * @return the wrapped command
+    */
+  def wrap(command: Runnable): Runnable = () => run(command.run())
+}
+
+object ContextSnapshot {
+
+  // logback's MDC map is copy-on-write once it has been read with getPropertyMap, so it can be captured without
+  // copying it (other adapters are copied with getCopyOfContextMap)
+  private val propertyMap: Option[Method] = Try(MDC.getMDCAdapter)
+    .filter(a => a != null && a.getClass.getName == "ch.qos.logback.classic.util.LogbackMDCAdapter")
+    .flatMap(a => Try(a.getClass.getMethod("getPropertyMap")))
+    .toOption
+
+  /**
+    * Capture the current thread's context
+    *
+    * @return the snapshot
+    */
+  def capture(): ContextSnapshot = new ContextSnapshot(currentMdc, DynamicContext.current.value)
+
+  /**
+    * Get the current MDC map, without copying it where possible. The map must not be modified.
+    */
+  private def currentMdc: java.util.Map[String, String] = propertyMap match {
+    case Some(m) => m.invoke(MDC.getMDCAdapter).asInstanceOf[java.util.Map[String, String]]
+    case None => MDC.getCopyOfContextMap
+  }
+
+  /**
+    * Set the MDC to the given map, unless it already has those values
+    */
+  private def restoreMdc(mdc: java.util.Map[String, String]): Unit = {
+    val current = currentMdc
+
+    if (!(current eq mdc) && !sameValues(current, mdc)) {
+      if (mdc == null) MDC.clear() else MDC.setContextMap(mdc)
+    }
+  }
+
+  private def sameValues(left: java.util.Map[String, String], right: java.util.Map[String, String]): Boolean = {
+    if (left == null || left.isEmpty) right == null || right.isEmpty
+    else left.equals(right)
+  }
+}
@@ -11,11 +11,21 @@ import scala.util.DynamicVariable
 sealed trait DynamicContext {
 
   /**
-    * The underlying DynamicVariable
+    * Get this context's values from the values of all contexts
     *
-    * @return the context
+    * @param values the values of all contexts
+    * @return this context's values
     */
-  protected def context: DynamicContext.D
+  protected def get(values: DynamicContext.Values): DynamicContext.C
+
+  /**
+    * Replace this context's values
+    *
+    * @param values  the values of all contexts
+    * @param updated this context's new values
+    * @return the values of all contexts
+    */
+  protected def set(values: DynamicContext.Values, updated: DynamicContext.C): DynamicContext.Values
 
   /**
     * Sets the incoming values and executes the given thunk
@@ -27,10 +37,10 @@ sealed trait DynamicContext {
     */
   def withValues[S](values: Map[String, AnyRef])(thunk: => S): S = {
 
-    val current = context.value
-    val updated = values.foldLeft(current)((ctx, newVal) => ctx.updated(newVal._1, newVal._2))
+    val current = DynamicContext.current.value
+    val updated = values.foldLeft(get(current))((ctx, newVal) => ctx.updated(newVal._1, newVal._2))
 
-    context.withValue(updated) {
+    DynamicContext.current.withValue(set(current, updated)) {
       thunk
     }
   }
@@ -43,7 +53,7 @@ sealed trait DynamicContext {
     * @tparam T the result value type
     * @return the value, if found, or none
     */
-  def getValue[T](key: String, expectedType: Class[T]): Option[T] = context.value.get(key) match {
+  def getValue[T](key: String, expectedType: Class[T]): Option[T] = getContext.get(key) match {
     case Some(v) if expectedType.isAssignableFrom(v.getClass) => Some(v.asInstanceOf[T])
     case Some(v) => throw new RuntimeException(s"Value with type ${v.getClass} does not match expected type $expectedType")
     case None => None
@@ -54,7 +64,7 @@ sealed trait DynamicContext {
     *
     * @return the context value
     */
-  def getContext: DynamicContext.C = context.value
+  def getContext: DynamicContext.C = get(DynamicContext.current.value)
 }
 
 
@@ -68,11 +78,48 @@ object DynamicContext {
   type D = DynamicVariable[C]
 
   /**
-    * Helper method to create a new dynamic variable
+    * The values of every context, kept together so they can be captured and restored at once (see ContextSnapshot)
     *
-    * @return the new dynamic variable
+    * @param audit the audit values
+    * @param flow  the flow values
+    * @param meta  the meta values
+    */
+  final case class Values(audit: C, flow: C, meta: C) {
+
+    /**
+      * Add the given values to these (the same as calling withValues on each context)
+      *
+      * @param other the values to add
+      * @return the merged values (this instance, if nothing changed)
+      */
+    def merge(other: Values): Values = {
+      if (other eq this) {
+        this
+      }
+      else {
+        val a = mergeContext(audit, other.audit)
+        val f = mergeContext(flow, other.flow)
+        val m = mergeContext(meta, other.meta)
+
+        if ((a eq audit) && (f eq flow) && (m eq meta)) this else Values(a, f, m)
+      }
+    }
+
+    private def mergeContext(current: C, added: C): C = {
+      if (added.isEmpty || (added eq current)) current
+      else if (current.isEmpty) added
+      else added.foldLeft(current)((ctx, newVal) => ctx.updated(newVal._1, newVal._2))
+    }
+  }
+
+  object Values {
+    final val empty: Values = Values(Map.empty, Map.empty, Map.empty)
+  }
+
+  /**
+    * The values of every context, for the current thread
     */
-  private def newContext = new DynamicVariable[C](Map.empty[String, AnyRef])
+  private[context] val current = new DynamicVariable[Values](Values.empty)
 
   /**
     * Audit context definition
@@ -82,7 +129,9 @@ object DynamicContext {
     final val ADMIN = "administrator"
     final val AUTH_METHOD = "method"
 
-    override protected val context: D = newContext
+    override protected def get(values: Values): C = values.audit
+
+    override protected def set(values: Values, updated: C): Values = values.copy(audit = updated)
   }
 
   /**
@@ -93,19 +142,21 @@ object DynamicContext {
     final val XFLOW = "xflow"
     final val TIMER = "timer"
 
-    override protected val context: D = newContext
+    override protected def get(values: Values): C = values.flow
+
+    override protected def set(values: Values, updated: C): Values = values.copy(flow = updated)
 
     def getTimer: Option[TraceableFutureTimer] = getValue(TIMER, classOf[TraceableFutureTimer])
 
     override def withValues[S](values: Map[String, AnyRef])(thunk: => S): S = {
 
-      val current = context.value
-      val updated = values.foldLeft(current)((ctx, newVal) => ctx.updated(newVal._1, newVal._2))
+      val current = DynamicContext.current.value
+      val updated = values.foldLeft(current.flow)((ctx, newVal) => ctx.updated(newVal._1, newVal._2))
 
       val xflowBefore = MDC.get(XFLOW)
 
-      context.withValue(updated) {
-        MDC.put(XFLOW, context.value.get(XFLOW).map(_.toString).getOrElse(xflowBefore))
+      DynamicContext.current.withValue(current.copy(flow = updated)) {
+        MDC.put(XFLOW, updated.get(XFLOW).map(_.toString).getOrElse(xflowBefore))
 
         try thunk
         finally MDC.put(XFLOW, xflowBefore)
@@ -117,7 +168,10 @@ object DynamicContext {
     * Meta context definition
     */
   case object Meta extends DynamicContext {
-    override protected val context: D = newContext
+
+    override protected def get(values: Values): C = values.meta
+
+    override protected def set(values: Values, updated: C): Values = values.copy(meta = updated)
   }
 
 
@@ -0,0 +1,185 @@
+package com.srivastavavivekggn.scala.util.concurrent.trace
+
+import java.util.concurrent.atomic.{AtomicLongArray, LongAdder}
+import java.util.concurrent.{ConcurrentHashMap, CopyOnWriteArrayList}
+
+import scala.jdk.CollectionConverters._
+
+/**
+  * Timer factory that records task timings into per-task histograms (see TaskHistogram).
+  *
+  * Timings are aggregated by task name across all flows. Recording is lock-free, and once a task has been seen it
+  * does not allocate, so it can stay enabled under full load.
+  *
+  * To enable:
+  * {{{
+  *   TraceableFutureTimerFactory.setFactoryInstance(MetricsTraceableFutureTimerFactory.instance)
+  * }}}
+  */
+class MetricsTraceableFutureTimerFactory extends TraceableFutureTimerFactory {
+
+  /**
+    * histograms by task name
+    */
+  private val byTask = new ConcurrentHashMap[String, TaskHistogram]()
+
+  /**
+    * callbacks for newly seen tasks
+    */
+  private val listeners = new CopyOnWriteArrayList[TaskHistogram => Unit]()
+
+  /**
+    * number of timings that could not be recorded (too many concurrent tasks in a single flow)
+    */
+  private val dropped = new LongAdder
+
+  override def createTimer(name: String): TraceableFutureTimer = new MetricsTraceableFutureTimer(name, this)
+
+  override def record(taskName: String, nanos: Long): Unit = record(taskName, nanos, failed = false)
+
+  override def record(taskName: String, nanos: Long, failed: Boolean): Unit = histogram(taskName).record(nanos, failed)
+
+  /**
+    * Get the histogram for the given task (created on first use)
+    *
+    * @param taskName the task name
+    * @return the histogram
+    */
+  def histogram(taskName: String): TaskHistogram = {
+    val existing = byTask.get(taskName)
+
+    if (existing != null) {
+      existing
+    }
+    else {
+      var created = false
+
+      val histogram = byTask.computeIfAbsent(taskName, (t: String) => {
+        created = true
+        new TaskHistogram(t)
+      })
+
+      if (created) {
+        listeners.forEach(_.apply(histogram))
+      }
+
+      histogram
+    }
+  }
+
+  /**
+    * All task histograms
+    *
+    * @return the histograms
+    */
+  def histograms(): Seq[TaskHistogram] = byTask.values().asScala.toSeq
+
+  /**
+    * Take a snapshot of every task
+    *
+    * @return the snapshots, ordered by task name
+    */
+  def snapshot(): Seq[TaskTimingSnapshot] = histograms().map(_.snapshot()).sortBy(_.task)
+
+  /**
+    * Take a snapshot of every task, and reset all values
+    *
+    * @return the snapshots, ordered by task name
+    */
+  def snapshotAndReset(): Seq[TaskTimingSnapshot] = histograms().map(_.snapshotAndReset()).sortBy(_.task)
+
+  /**
+    * the number of timings that could not be recorded
+    */
+  def getDropped: Long = dropped.sum()
+
+  /**
+    * Register a callback for each task histogram, now and as new tasks are seen
+    *
+    * @param listener the callback
+    */
+  def forEachHistogram(listener: TaskHistogram => Unit): Unit = {
+    listeners.add(listener)
+    byTask.values().forEach(h => listener(h))
+  }
+
+  private[trace] def drop(): Unit = dropped.increment()
+}
+
+object MetricsTraceableFutureTimerFactory {
+
+  /**
+    * A shared factory instance
+    */
+  lazy val instance: MetricsTraceableFutureTimerFactory = new MetricsTraceableFutureTimerFactory
+}
+
+/**
+  * Timer for a single flow. Start times of in-flight tasks are kept in a small open-addressed table of
+  * (id, start nanos) pairs, so starting and stopping a task does not allocate.
+  *
+  * @param tracerName the name of the tracer (flow)
+  * @param factory    the factory to record timings in
+  */
+class MetricsTraceableFutureTimer(val tracerName: String,
+                                  factory: MetricsTraceableFutureTimerFactory) extends TraceableFutureTimer {
+
+  import MetricsTraceableFutureTimer._
+
+  /**
+    * slot i holds the task id at 2i and the start time at 2i + 1 (id 0 = empty)
+    */
+  private val slots = new AtomicLongArray(SLOTS * 2)
+
+  override def start(name: String, id: Long): Unit = {
+    val now = System.nanoTime()
+    var probe = 0
+    var claimed = false
+
+    while (!claimed && probe < SLOTS) {
+      val idx = slotIndex(id, probe)
+
+      if (slots.compareAndSet(idx, 0L, id)) {
+        slots.set(idx + 1, now)
+        claimed = true
+      }
+
+      probe += 1
+    }
+
+    if (!claimed) {
+      factory.drop()
+    }
+  }
+
+  override def stop(name: String, id: Long): Unit = stop(name, id, failed = false)
+
+  override def stop(name: String, id: Long, failed: Boolean): Unit = {
+    val now = System.nanoTime()
+    var probe = 0
+    var found = false
+
+    while (!found && probe < SLOTS) {
+      val idx = slotIndex(id, probe)
+
+      if (slots.get(idx) == id) {
+        val started = slots.get(idx + 1)
+        slots.set(idx, 0L)
+        factory.record(name, now - started, failed)
+        found = true
+      }
+
+      probe += 1
+    }
+  }
+}
+
+object MetricsTraceableFutureTimer {
+
+  /**
+    * the maximum number of concurrently running tasks tracked per flow
+    */
+  private final val SLOTS = 32
+
+  @inline private def slotIndex(id: Long, probe: Int): Int = (((id + probe) & (SLOTS - 1)) * 2).toInt
+}
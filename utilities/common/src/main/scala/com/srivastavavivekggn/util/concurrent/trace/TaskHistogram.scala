@@ -0,0 +1,205 @@
+package com.srivastavavivekggn.scala.util.concurrent.trace
+
+import java.util.concurrent.atomic.{LongAccumulator, LongAdder}
+
+/**
+  * Lock-free latency histogram for a single task.
+  *
+  * Values (nanos) are counted in log-linear buckets: 16 linear sub-buckets per power of two, so a reported
+  * percentile is within 1/16 (6.25%) of the recorded value. Each bucket is a LongAdder, so concurrent recording is
+  * striped rather than contended, and recording does not allocate once the adders have expanded.
+  *
+  * Values above MAX_TRACKABLE_NANOS are counted in the last bucket (the max is still tracked exactly).
+  *
+  * @param task the task name
+  */
+final class TaskHistogram(val task: String) {
+
+  import TaskHistogram._
+
+  private val buckets: Array[LongAdder] = Array.fill(BUCKET_COUNT)(new LongAdder)
+
+  private val count = new LongAdder
+
+  private val errors = new LongAdder
+
+  private val totalNanos = new LongAdder
+
+  private val maxNanos = new LongAccumulator((a: Long, b: Long) => math.max(a, b), 0L)
+
+  /**
+    * Record a task execution
+    *
+    * @param nanos  the execution time in nanos
+    * @param failed true if the task failed
+    */
+  def record(nanos: Long, failed: Boolean): Unit = {
+    val value = math.max(nanos, 0L)
+
+    buckets(bucketIndex(value)).increment()
+    count.increment()
+    totalNanos.add(value)
+    maxNanos.accumulate(value)
+
+    if (failed) {
+      errors.increment()
+    }
+  }
+
+  /**
+    * the number of recorded executions
+    */
+  def getCount: Long = count.sum()
+
+  /**
+    * the number of recorded executions that failed
+    */
+  def getErrors: Long = errors.sum()
+
+  /**
+    * the total recorded time, in nanos
+    */
+  def getTotalNanos: Long = totalNanos.sum()
+
+  /**
+    * the maximum recorded time, in nanos
+    */
+  def getMaxNanos: Long = maxNanos.get()
+
+  /**
+    * Get the value at the given percentile
+    *
+    * @param percentile the percentile (0.0 to 1.0)
+    * @return the value in nanos (the upper bound of the matching bucket, capped at the max), 0 if nothing recorded
+    */
+  def percentile(percentile: Double): Long = math.min(valueAt(buckets.map(_.sum()), percentile), getMaxNanos)
+
+  /**
+    * Take a snapshot of the current values
+    *
+    * @return the snapshot
+    */
+  def snapshot(): TaskTimingSnapshot = toSnapshot(buckets.map(_.sum()), getCount, getErrors, getTotalNanos, getMaxNanos)
+
+  /**
+    * Take a snapshot of the current values and reset them (executions recorded concurrently may be split across the
+    * snapshot and the next interval)
+    *
+    * @return the snapshot
+    */
+  def snapshotAndReset(): TaskTimingSnapshot = {
+    toSnapshot(buckets.map(_.sumThenReset()), count.sumThenReset(), errors.sumThenReset(),
+      totalNanos.sumThenReset(), maxNanos.getThenReset())
+  }
+
+  private def toSnapshot(counts: Array[Long], count: Long, errors: Long, total: Long, max: Long): TaskTimingSnapshot = {
+    TaskTimingSnapshot(
+      task = task,
+      count = count,
+      errors = errors,
+      totalNanos = total,
+      maxNanos = max,
+      p50Nanos = math.min(valueAt(counts, 0.5), max),
+      p99Nanos = math.min(valueAt(counts, 0.99), max),
+      p999Nanos = math.min(valueAt(counts, 0.999), max)
+    )
+  }
+
+  private def valueAt(counts: Array[Long], percentile: Double): Long = {
+    val total = counts.sum
+
+    if (total == 0) {
+      0L
+    }
+    else {
+      val rank = math.max(1L, math.ceil(percentile * total).toLong)
+      var seen = 0L
+      var idx = 0
+
+      while (idx < counts.length - 1 && seen + counts(idx) < rank) {
+        seen += counts(idx)
+        idx += 1
+      }
+
+      bucketUpperBound(idx)
+    }
+  }
+}
+
+object TaskHistogram {
+
+  /**
+    * number of bits of precision below the leading bit (16 sub-buckets)
+    */
+  private final val SUB_BITS = 4
+
+  private final val SUB_COUNT = 1 << SUB_BITS
+
+  /**
+    * the highest power of two tracked precisely (2^44 nanos is ~4.9 hours)
+    */
+  private final val MAX_EXPONENT = 43
+
+  final val MAX_TRACKABLE_NANOS: Long = (1L << (MAX_EXPONENT + 1)) - 1
+
+  private[trace] final val BUCKET_COUNT = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT
+
+  /**
+    * Get the bucket for the given (non-negative) value
+    */
+  private[trace] def bucketIndex(value: Long): Int = {
+    if (value < SUB_COUNT) {
+      value.toInt
+    }
+    else {
+      val exponent = math.min(63 - java.lang.Long.numberOfLeadingZeros(value), MAX_EXPONENT + 1)
+
+      if (exponent > MAX_EXPONENT) {
+        BUCKET_COUNT - 1
+      }
+      else {
+        val sub = ((value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1)).toInt
+        (exponent - SUB_BITS + 1) * SUB_COUNT + sub
+      }
+    }
+  }
+
+  /**
+    * Get the highest value counted in the given bucket
+    */
+  private[trace] def bucketUpperBound(index: Int): Long = {
+    if (index < SUB_COUNT) {
+      index.toLong
+    }
+    else {
+      val exponent = index / SUB_COUNT + SUB_BITS - 1
+      val sub = index % SUB_COUNT
+      val lower = (SUB_COUNT + sub).toLong << (exponent - SUB_BITS)
+      lower + (1L << (exponent - SUB_BITS)) - 1
+    }
+  }
+}
+
+/**
+  * Point-in-time timing values for a task
+  *
+  * @param task       the task name
+  * @param count      the number of executions
+  * @param errors     the number of failed executions
+  * @param totalNanos the total execution time
+  * @param maxNanos   the longest execution time
+  * @param p50Nanos   the median execution time
+  * @param p99Nanos   the 99th percentile execution time
+  * @param p999Nanos  the 99.9th percentile execution time
+  */
+case class TaskTimingSnapshot(task: String,
+                              count: Long,
+                              errors: Long,
+                              totalNanos: Long,
+                              maxNanos: Long,
+                              p50Nanos: Long,
+                              p99Nanos: Long,
+                              p999Nanos: Long) {
+
+  def meanNanos: Long = if (count == 0) 0L else totalNanos / count
+}
@@ -70,7 +70,7 @@ object TraceableFuture {
       .map(_ => DynamicContext.Flow.getTimer.foreach(_.start(task, id)))
       .map(_ => body)
       .andThen {
-        case _ => DynamicContext.Flow.getTimer.foreach(_.stop(task, id))
+        case result => DynamicContext.Flow.getTimer.foreach(_.stop(task, id, result.isFailure))
       }
   }
 }
@@ -0,0 +1,60 @@
+package com.srivastavavivekggn.scala.util.concurrent.trace
+
+import java.util.concurrent.TimeUnit
+
+import io.micrometer.core.instrument.binder.MeterBinder
+import io.micrometer.core.instrument.{FunctionCounter, MeterRegistry, Tag, TimeGauge}
+
+import scala.jdk.CollectionConverters._
+
+/**
+  * Micrometer binder for the task timings recorded by a MetricsTraceableFutureTimerFactory.
+  *
+  * For each task (tagged with task=name), registers:
+  *  - traceable.future.count / traceable.future.errors (counters)
+  *  - traceable.future.total / traceable.future.max (time gauges)
+  *  - traceable.future.latency (time gauge, tagged with quantile=0.5, 0.99 and 0.999)
+  *
+  * Tasks first seen after binding are registered as they appear.
+  *
+  * @param factory the factory to expose
+  * @param tags    additional tags for every meter
+  */
+class TraceableFutureMetricsBinder(factory: MetricsTraceableFutureTimerFactory,
+                                   tags: Iterable[Tag] = Iterable.empty) extends MeterBinder {
+
+  override def bindTo(registry: MeterRegistry): Unit = factory.forEachHistogram(h => register(registry, h))
+
+  private def register(registry: MeterRegistry, histogram: TaskHistogram): Unit = {
+
+    val taskTags = (tags.toSeq :+ Tag.of("task", histogram.task)).asJava
+
+    FunctionCounter.builder("traceable.future.count", histogram, (h: TaskHistogram) => h.getCount.toDouble)
+      .tags(taskTags)
+      .description("number of completed executions")
+      .register(registry)
+
+    FunctionCounter.builder("traceable.future.errors", histogram, (h: TaskHistogram) => h.getErrors.toDouble)
+      .tags(taskTags)
+      .description("number of failed executions")
+      .register(registry)
+
+    TimeGauge.builder("traceable.future.total", histogram, TimeUnit.NANOSECONDS,
+      (h: TaskHistogram) => h.getTotalNanos.toDouble)
+      .tags(taskTags)
+      .register(registry)
+
+    TimeGauge.builder("traceable.future.max", histogram, TimeUnit.NANOSECONDS,
+      (h: TaskHistogram) => h.getMaxNanos.toDouble)
+      .tags(taskTags)
+      .register(registry)
+
+    Seq(0.5, 0.99, 0.999).foreach(q =>
+      TimeGauge.builder("traceable.future.latency", histogram, TimeUnit.NANOSECONDS,
+        (h: TaskHistogram) => h.percentile(q).toDouble)
+        .tags(taskTags)
+        .tag("quantile", q.toString)
+        .register(registry)
+    )
+  }
+}
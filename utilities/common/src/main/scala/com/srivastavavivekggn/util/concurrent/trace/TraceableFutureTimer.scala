@@ -7,6 +7,15 @@ trait TraceableFutureTimer {
   def start(name: String, id: Long): Unit
 
   def stop(name: String, id: Long): Unit
+
+  /**
+    * Stop timing a task, noting whether it failed. By default the outcome is ignored.
+    *
+    * @param name   the task name
+    * @param id     the task id
+    * @param failed true if the task failed
+    */
+  def stop(name: String, id: Long, failed: Boolean): Unit = stop(name, id)
 }
 
 /**
@@ -20,6 +20,15 @@ trait TraceableFutureTimerFactory {
     * @param nanos    the execute time in nanos
     */
   def record(taskName: String, nanos: Long): Unit
+
+  /**
+    * Record timing for a task in this timer, noting whether it failed. By default the outcome is ignored.
+    *
+    * @param taskName the task name
+    * @param nanos    the execute time in nanos
+    * @param failed   true if the task failed
+    */
+  def record(taskName: String, nanos: Long, failed: Boolean): Unit = record(taskName, nanos)
 }
 
 /**
@@ -28,9 +37,10 @@ trait TraceableFutureTimerFactory {
 object TraceableFutureTimerFactory {
 
   /**
-    * The singleton timer factory configured for the system
+    * The singleton timer factory configured for the system (volatile, since it is typically set once at startup
+    * and read from every thread that starts a timed flow)
     */
-  private var timerFactory: Option[TraceableFutureTimerFactory] = None
+  @volatile private var timerFactory: Option[TraceableFutureTimerFactory] = None
 
   /**
     * Setter for the single factory instance
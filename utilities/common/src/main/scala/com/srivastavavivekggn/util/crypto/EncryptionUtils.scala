@@ -14,7 +14,7 @@ object EncryptionUtils {
       val (vectorId, vector) = AESVector.getRandomVector
       val (keyId, key) = keyProvider.getRandomKey
 
-      val encrypted = AESCipher(key, vector).getEncryptedMessage(valueToEncrypt)
+      val encrypted = AESCipher.cached(key, vector).getEncryptedMessage(valueToEncrypt)
 
       // return the encrypted value, and append the keyId and vectorId so we can decrypt later
       s"$encrypted$indicator${keyId}_$vectorId"
@@ -28,7 +28,7 @@ object EncryptionUtils {
       val initialVector = AESVector.getVector(vectorId)
 
       // return the decrypted value
-      AESCipher(key, initialVector).getDecryptedMessage(encryptedString)
+      AESCipher.cached(key, initialVector).getDecryptedMessage(encryptedString)
     }
   }
 
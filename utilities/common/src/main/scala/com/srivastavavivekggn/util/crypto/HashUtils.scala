@@ -1,12 +1,16 @@
 package com.srivastavavivekggn.scala.util.crypto
 
+import java.nio.ByteBuffer
 import java.security.MessageDigest
+import java.util.concurrent.ConcurrentLinkedQueue
 
-import com.google.common.io.BaseEncoding
+import com.google.common.cache.{Cache, CacheBuilder}
 import com.srivastavavivekggn.scala.util.lang.StringUtils
 import javax.crypto.Mac
 import javax.crypto.spec.SecretKeySpec
 
+import scala.util.Try
+
 /**
   * Created by JohnDeverna on 1/29/15.
   */
@@ -37,6 +41,41 @@ object HashUtils {
     */
   private final val SALT = "zD61bf636eF1"
 
+  /**
+    * The salt, as bytes (using the same platform charset as String.getBytes)
+    */
+  private final val SALT_BYTES = SALT.getBytes
+
+  /**
+    * the maximum number of distinct HMAC keys to keep initialized Macs for
+    */
+  private final val MAX_HMAC_KEYS = 128
+
+  /**
+    * lookup tables for hex encoding
+    */
+  private final val HEX_UPPER = "0123456789ABCDEF".toCharArray
+  private final val HEX_LOWER = "0123456789abcdef".toCharArray
+
+  /**
+    * lookup table for (standard, padded) base64 encoding
+    */
+  private final val BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray
+
+  /**
+    * Re-usable per-thread digests for each supported algorithm
+    */
+  private val digests: Map[String, ThreadLocal[MessageDigest]] = Seq(SHA128, SHA256, MD5)
+    .map(alg => alg -> ThreadLocal.withInitial[MessageDigest](() => MessageDigest.getInstance(alg)))
+    .toMap
+
+  /**
+    * Idle Mac instances, initialized with their HMAC key
+    */
+  private val macs: Cache[String, ConcurrentLinkedQueue[Mac]] = CacheBuilder.newBuilder()
+    .maximumSize(MAX_HMAC_KEYS)
+    .build[String, ConcurrentLinkedQueue[Mac]]()
+
   /**
     * Creates a hash string (sha256) out of the concatenated elements of the list, separated by ";"
     * This should primarily be used only on simple types, like Integer, Long, String, etc.
@@ -59,7 +98,7 @@ object HashUtils {
     * @param str the string to hash
     * @return the SHA128 hash
     */
-  def sha128(str: String, useHex: Boolean = false): String = hash(SHA128, SALT + str, useHex)
+  def sha128(str: String, useHex: Boolean = false): String = saltedHash(SHA128, str, useHex)
 
   /**
     * Calculate the SHA-256 hash of the given string
@@ -67,7 +106,29 @@ object HashUtils {
     * @param str the string to hash
     * @return the hashed value
     */
-  def sha256(str: String, useHex: Boolean = false): String = hash(SHA256, SALT + str, useHex)
+  def sha256(str: String, useHex: Boolean = false): String = saltedHash(SHA256, str, useHex)
+
+  /**
+    * Calculate the SHA-256 hash of the given bytes (salted the same way as sha256(str))
+    *
+    * @param bytes the bytes to hash
+    * @return the hashed value
+    */
+  def sha256(bytes: Array[Byte], useHex: Boolean): String = {
+    encode(salted(SHA256, d => d.digest(bytes)), useHex)
+  }
+
+  /**
+    * Pre-compute the salted digest state for a constant prefix (see PrefixedHash)
+    *
+    * @param encType the algorithm (SHA128 or SHA256)
+    * @param prefix  the constant prefix
+    * @return the prefixed hash
+    */
+  def prefixed(encType: String, prefix: String): PrefixedHash = {
+    require(encType == SHA128 || encType == SHA256)
+    new PrefixedHash(encType, prefix)
+  }
 
   /**
     * Calculate the SHA256 hash using the HMAC algorithm with the given key
@@ -77,18 +138,43 @@ object HashUtils {
     * @return the
     */
   def sha256Hmac(hmacKey: String, input: String): String = {
+    require(Option(input).isDefined, "Input must not be empty")
+    sha256Hmac(hmacKey, input.getBytes)
+  }
+
+  /**
+    * Calculate the SHA256 hash using the HMAC algorithm with the given key.
+    *
+    * Initialized Macs are kept per key, so repeated use of the same (stable) key does not create a new Mac.
+    *
+    * @param hmacKey the key
+    * @param input   the input bytes to hash
+    * @return the Base64 encoded hash
+    */
+  def sha256Hmac(hmacKey: String, input: Array[Byte]): String = {
 
     require(StringUtils.isNotEmpty(hmacKey), "HMAC Key must not be empty")
     require(Option(input).isDefined, "Input must not be empty")
 
     try {
-      val signingKey: SecretKeySpec = new SecretKeySpec(hmacKey.getBytes, HMAC_SHA256)
-      val mac: Mac = Mac.getInstance(HMAC_SHA256)
-      mac.init(signingKey)
+      val pool = Option(macs.getIfPresent(hmacKey)).getOrElse({
+        val newPool = new ConcurrentLinkedQueue[Mac]()
+        macs.put(hmacKey, newPool)
+        newPool
+      })
 
-      val rawHmac: Array[Byte] = mac.doFinal(input.getBytes)
+      val mac = Option(pool.poll()).getOrElse({
+        val signingKey: SecretKeySpec = new SecretKeySpec(hmacKey.getBytes, HMAC_SHA256)
+        val newMac: Mac = Mac.getInstance(HMAC_SHA256)
+        newMac.init(signingKey)
+        newMac
+      })
 
-      BaseEncoding.base64().encode(rawHmac)
+      // doFinal resets the mac for re-use with the same key
+      val rawHmac: Array[Byte] = mac.doFinal(input)
+      pool.offer(mac)
+
+      toBase64(rawHmac)
     }
     catch {
       case e: Exception => {
@@ -112,17 +198,194 @@ object HashUtils {
     require(encType == SHA128 || encType == SHA256 || encType == MD5)
 
     try {
-      val mda: MessageDigest = MessageDigest.getInstance(encType)
-      val buf: Array[Byte] = mda.digest(s.getBytes)
+      encode(digest(encType, s.getBytes), useHex)
+    }
+    catch {
+      case e: Exception =>
+        throw new RuntimeException(s"Unable to generate hash for input string using algorithm: ${encType}", e)
+    }
+  }
 
-      useHex match {
-        case true => buf.map("%02X" format _).mkString
-        case _ => BaseEncoding.base64().encode(buf)
-      }
+  /**
+    * Hashes the given bytes using the specified hashing algorithm.
+    *
+    * @param encType The algorithm to use for hashing
+    * @param bytes   the bytes to hash
+    * @param useHex  true to return a HEX representation of the hash, false to return Base64
+    * @return the hashed bytes, either as Hex or as Base64
+    */
+  def hash(encType: String, bytes: Array[Byte], useHex: Boolean): String = encode(digest(encType, bytes), useHex)
+
+  /**
+    * Hashes the remaining bytes of the given buffer using the specified hashing algorithm.
+    * The buffer's position is moved to its limit.
+    *
+    * @param encType The algorithm to use for hashing
+    * @param buffer  the bytes to hash
+    * @param useHex  true to return a HEX representation of the hash, false to return Base64
+    * @return the hashed bytes, either as Hex or as Base64
+    */
+  def hash(encType: String, buffer: ByteBuffer, useHex: Boolean): String = encode(digest(encType, buffer), useHex)
+
+  /**
+    * Compute the raw digest of the given bytes, using a re-usable per-thread MessageDigest
+    *
+    * @param encType The algorithm to use for hashing
+    * @param bytes   the bytes to hash
+    * @return the digest
+    */
+  def digest(encType: String, bytes: Array[Byte]): Array[Byte] = getDigest(encType).digest(bytes)
+
+  /**
+    * Compute the raw digest of the remaining bytes of the given buffer, using a re-usable per-thread MessageDigest
+    *
+    * @param encType The algorithm to use for hashing
+    * @param buffer  the bytes to hash
+    * @return the digest
+    */
+  def digest(encType: String, buffer: ByteBuffer): Array[Byte] = {
+    val md = getDigest(encType)
+    md.update(buffer)
+    md.digest()
+  }
+
+  /**
+    * Hex encode the given bytes
+    *
+    * @param bytes     the bytes
+    * @param upperCase true for upper case hex digits (the default, as returned by hash), false for lower case
+    * @return the hex string
+    */
+  def toHex(bytes: Array[Byte], upperCase: Boolean = true): String = {
+    val table = if (upperCase) HEX_UPPER else HEX_LOWER
+    val chars = new Array[Char](bytes.length * 2)
+    var i = 0
+
+    while (i < bytes.length) {
+      val b = bytes(i) & 0xFF
+      chars(i * 2) = table(b >>> 4)
+      chars(i * 2 + 1) = table(b & 0x0F)
+      i += 1
+    }
+
+    new String(chars)
+  }
+
+  /**
+    * Base64 encode (standard alphabet, padded) the given bytes
+    *
+    * @param bytes the bytes
+    * @return the base64 string
+    */
+  def toBase64(bytes: Array[Byte]): String = {
+    val chars = new Array[Char]((bytes.length + 2) / 3 * 4)
+    val fullGroups = bytes.length / 3
+    var i = 0
+    var c = 0
+
+    while (i < fullGroups * 3) {
+      val n = ((bytes(i) & 0xFF) << 16) | ((bytes(i + 1) & 0xFF) << 8) | (bytes(i + 2) & 0xFF)
+      chars(c) = BASE64((n >>> 18) & 0x3F)
+      chars(c + 1) = BASE64((n >>> 12) & 0x3F)
+      chars(c + 2) = BASE64((n >>> 6) & 0x3F)
+      chars(c + 3) = BASE64(n & 0x3F)
+      i += 3
+      c += 4
+    }
+
+    // 1 or 2 trailing bytes
+    bytes.length - i match {
+      case 1 =>
+        val n = (bytes(i) & 0xFF) << 16
+        chars(c) = BASE64((n >>> 18) & 0x3F)
+        chars(c + 1) = BASE64((n >>> 12) & 0x3F)
+        chars(c + 2) = '='
+        chars(c + 3) = '='
+
+      case 2 =>
+        val n = ((bytes(i) & 0xFF) << 16) | ((bytes(i + 1) & 0xFF) << 8)
+        chars(c) = BASE64((n >>> 18) & 0x3F)
+        chars(c + 1) = BASE64((n >>> 12) & 0x3F)
+        chars(c + 2) = BASE64((n >>> 6) & 0x3F)
+        chars(c + 3) = '='
+
+      case _ => // no remainder
+    }
+
+    new String(chars)
+  }
+
+  /**
+    * Get the per-thread digest for the given algorithm, reset and ready for use
+    *
+    * @param encType the algorithm
+    * @return the digest
+    */
+  private def getDigest(encType: String): MessageDigest = {
+    val md = digests.get(encType).map(_.get()).getOrElse(MessageDigest.getInstance(encType))
+    md.reset()
+    md
+  }
+
+  /**
+    * Hash SALT + str without building the concatenated string
+    */
+  private def saltedHash(encType: String, str: String, useHex: Boolean): String = {
+    try {
+      encode(salted(encType, d => d.digest(str.getBytes)), useHex)
     }
     catch {
       case e: Exception =>
         throw new RuntimeException(s"Unable to generate hash for input string using algorithm: ${encType}", e)
     }
   }
+
+  /**
+    * Run the given digest operation after feeding in the salt
+    */
+  private def salted(encType: String, f: MessageDigest => Array[Byte]): Array[Byte] = {
+    val md = getDigest(encType)
+    md.update(SALT_BYTES)
+    f(md)
+  }
+
+  /**
+    * Encode the digest as upper case hex, or base64
+    */
+  private def encode(digest: Array[Byte], useHex: Boolean): String = if (useHex) toHex(digest) else toBase64(digest)
+
+  /**
+    * A salted hash of a constant prefix plus a variable suffix, where the digest state for the salt and prefix is
+    * computed once and cloned for each hash. hash(suffix) returns the same value as sha256 / sha128(prefix + suffix).
+    *
+    * Instances are thread-safe.
+    *
+    * @param encType the algorithm
+    * @param prefix  the constant prefix
+    */
+  final class PrefixedHash private[HashUtils](encType: String, prefix: String) {
+
+    /**
+      * the digest state after the salt and prefix (None if the provider does not support cloning)
+      */
+    private val state: Option[MessageDigest] = Try({
+      val md = MessageDigest.getInstance(encType)
+      md.update(SALT_BYTES)
+      md.update(prefix.getBytes)
+      md.clone()
+      md
+    }).toOption
+
+    /**
+      * Hash the prefix plus the given suffix
+      *
+      * @param suffix the variable part of the input
+      * @param useHex true to return a HEX representation of the hash, false to return Base64
+      * @return the hashed value
+      */
+    def hash(suffix: String, useHex: Boolean): String = state match {
+      case Some(md) => encode(md.clone().asInstanceOf[MessageDigest].digest(suffix.getBytes), useHex)
+      case None => saltedHash(encType, prefix + suffix, useHex)
+    }
+  }
 }
@@ -1,14 +1,23 @@
 package com.srivastavavivekggn.scala.util.crypto.aes
 
+import java.io.{InputStream, OutputStream}
+import java.nio.ByteBuffer
 import java.security.Key
+import java.util.concurrent.ArrayBlockingQueue
 
+import com.google.common.cache.{Cache, CacheBuilder}
 import com.srivastavavivekggn.scala.util.crypto.EncodeUtils
-import javax.crypto.Cipher
+import javax.crypto.{Cipher, CipherInputStream, CipherOutputStream}
 import javax.crypto.spec.{IvParameterSpec, SecretKeySpec}
 
 /**
   * The AESCipher
   *
+  * Instances are thread-safe. Initialized javax.crypto.Cipher instances are pooled (one pool per mode) and borrowed
+  * for the duration of a single operation, so a shared instance never re-initializes a cipher per call and never
+  * shares one between threads. Each pool keeps up to MAX_POOLED idle ciphers; ciphers created beyond that (for bursts
+  * of concurrent callers) are discarded after use.
+  *
   * @param key the key
   * @param iv  the initial vector
   */
@@ -18,7 +27,15 @@ case class AESCipher(key: Array[Byte], iv: Array[Byte]) {
 
   private val ivParameterSpec: IvParameterSpec = new IvParameterSpec(iv)
 
-  private val cipher = Cipher.getInstance(AESCipher.ALGORITHM_AES256)
+  /**
+    * idle ciphers, initialized for encryption
+    */
+  private val encryptors = new ArrayBlockingQueue[Cipher](AESCipher.MAX_POOLED)
+
+  /**
+    * idle ciphers, initialized for decryption
+    */
+  private val decryptors = new ArrayBlockingQueue[Cipher](AESCipher.MAX_POOLED)
 
   /**
     * Takes message and encrypts with Key
@@ -26,12 +43,7 @@ case class AESCipher(key: Array[Byte], iv: Array[Byte]) {
     * @param message String
     * @return String Base64 encoded
     */
-  def getEncryptedMessage(message: String): String = {
-    val cipher: Cipher = getCipher(Cipher.ENCRYPT_MODE)
-    val encryptedTextBytes: Array[Byte] = cipher.doFinal(message.getBytes)
-
-    EncodeUtils.encodeBase64(encryptedTextBytes)
-  }
+  def getEncryptedMessage(message: String): String = EncodeUtils.encodeBase64(encrypt(message.getBytes))
 
   /**
     * Takes Base64 encoded String and decodes with provided key
@@ -39,15 +51,106 @@ case class AESCipher(key: Array[Byte], iv: Array[Byte]) {
     * @param message String encoded with Base64
     * @return String
     */
-  def getDecryptedMessage(message: String): String = {
-    val cipher: Cipher = getCipher(Cipher.DECRYPT_MODE)
-    val encryptedTextBytes: Array[Byte] = EncodeUtils.decode(message)
-    val decryptedTextBytes: Array[Byte] = cipher.doFinal(encryptedTextBytes)
+  def getDecryptedMessage(message: String): String = new String(decrypt(EncodeUtils.decode(message)))
+
+  /**
+    * Encrypt a batch of messages (see getEncryptedMessage), re-using a single cipher
+    *
+    * @param messages the messages
+    * @return the Base64 encoded encrypted messages, in the same order
+    */
+  def encryptAll(messages: Seq[String]): Seq[String] = withCipher(Cipher.ENCRYPT_MODE) {
+    // strict, so a lazy Seq cannot use the cipher after it is returned to the pool
+    cipher => messages.iterator.map(m => EncodeUtils.encodeBase64(cipher.doFinal(m.getBytes))).toVector
+  }
 
-    // return the new string
-    new String(decryptedTextBytes)
+  /**
+    * Decrypt a batch of messages (see getDecryptedMessage), re-using a single cipher
+    *
+    * @param messages the Base64 encoded encrypted messages
+    * @return the decrypted messages, in the same order
+    */
+  def decryptAll(messages: Seq[String]): Seq[String] = withCipher(Cipher.DECRYPT_MODE) {
+    cipher => messages.iterator.map(m => new String(cipher.doFinal(EncodeUtils.decode(m)))).toVector
   }
 
+  /**
+    * Encrypt the given bytes
+    *
+    * @param bytes the plain bytes
+    * @return the encrypted bytes
+    */
+  def encrypt(bytes: Array[Byte]): Array[Byte] = withCipher(Cipher.ENCRYPT_MODE)(_.doFinal(bytes))
+
+  /**
+    * Decrypt the given bytes
+    *
+    * @param bytes the encrypted bytes
+    * @return the plain bytes
+    */
+  def decrypt(bytes: Array[Byte]): Array[Byte] = withCipher(Cipher.DECRYPT_MODE)(_.doFinal(bytes))
+
+  /**
+    * Encrypt the remaining bytes of the input buffer into the output buffer
+    *
+    * @param input  the plain bytes
+    * @param output the output buffer (must have at least getEncryptedSize(input.remaining) bytes remaining)
+    * @return the number of bytes written to the output buffer
+    */
+  def encrypt(input: ByteBuffer, output: ByteBuffer): Int = withCipher(Cipher.ENCRYPT_MODE)(_.doFinal(input, output))
+
+  /**
+    * Decrypt the remaining bytes of the input buffer into the output buffer
+    *
+    * @param input  the encrypted bytes
+    * @param output the output buffer (must have at least input.remaining bytes remaining)
+    * @return the number of bytes written to the output buffer
+    */
+  def decrypt(input: ByteBuffer, output: ByteBuffer): Int = withCipher(Cipher.DECRYPT_MODE)(_.doFinal(input, output))
+
+  /**
+    * Encrypt everything from the input stream into the output stream. Neither stream is closed.
+    *
+    * @param in  the plain input
+    * @param out the encrypted output
+    * @return the number of bytes written
+    */
+  def encrypt(in: InputStream, out: OutputStream): Long = withCipher(Cipher.ENCRYPT_MODE)(transform(_, in, out))
+
+  /**
+    * Decrypt everything from the input stream into the output stream. Neither stream is closed.
+    *
+    * @param in  the encrypted input
+    * @param out the plain output
+    * @return the number of bytes written
+    */
+  def decrypt(in: InputStream, out: OutputStream): Long = withCipher(Cipher.DECRYPT_MODE)(transform(_, in, out))
+
+  /**
+    * Wrap the given stream so everything written to it is encrypted. Closing the returned stream writes the final
+    * block and closes the underlying stream.
+    *
+    * @param out the underlying stream
+    * @return the encrypting stream
+    */
+  def encryptingStream(out: OutputStream): OutputStream = new CipherOutputStream(out, newCipher(Cipher.ENCRYPT_MODE))
+
+  /**
+    * Wrap the given stream so everything read from it is decrypted
+    *
+    * @param in the underlying (encrypted) stream
+    * @return the decrypting stream
+    */
+  def decryptingStream(in: InputStream): InputStream = new CipherInputStream(in, newCipher(Cipher.DECRYPT_MODE))
+
+  /**
+    * Get the size of the encrypted output for an input of the given length
+    *
+    * @param inputLength the plain input length
+    * @return the encrypted length
+    */
+  def getEncryptedSize(inputLength: Int): Int = withCipher(Cipher.ENCRYPT_MODE)(_.getOutputSize(inputLength))
+
   /**
     * Get IV in Base64 Encoded String
     *
@@ -75,16 +178,63 @@ case class AESCipher(key: Array[Byte], iv: Array[Byte]) {
   }
 
   /**
-    * Get a chiper instance
+    * Borrow an initialized cipher from the pool for the given mode, and return it once the operation completes.
     *
-    * @param encryptMode
-    * @return
+    * A cipher whose operation failed is dropped rather than returned, since its state is unknown.
+    *
+    * @param encryptMode the cipher mode
+    * @param f           the operation
+    * @return the operation result
     */
-  private def getCipher(encryptMode: Int): Cipher = {
+  private def withCipher[T](encryptMode: Int)(f: Cipher => T): T = {
+    val pool = if (encryptMode == Cipher.ENCRYPT_MODE) encryptors else decryptors
+    val cipher = Option(pool.poll()).getOrElse(newCipher(encryptMode))
+
+    val result = f(cipher)
+
+    // doFinal resets the cipher to its initialized state, so it can be re-used as-is (dropped if the pool is full)
+    pool.offer(cipher)
+    result
+  }
+
+  /**
+    * Create a new, initialized cipher instance
+    *
+    * @param encryptMode the cipher mode
+    * @return the cipher
+    */
+  private def newCipher(encryptMode: Int): Cipher = {
+    val cipher = Cipher.getInstance(AESCipher.ALGORITHM_AES256)
     cipher.init(encryptMode, getSecretKeySpec, ivParameterSpec)
     cipher
   }
 
+  /**
+    * Stream the input through the cipher into the output
+    *
+    * @param cipher the cipher
+    * @param in     the input
+    * @param out    the output
+    * @return the number of bytes written
+    */
+  private def transform(cipher: Cipher, in: InputStream, out: OutputStream): Long = {
+    val inBuffer = new Array[Byte](AESCipher.STREAM_BUFFER_SIZE)
+    val outBuffer = new Array[Byte](cipher.getOutputSize(AESCipher.STREAM_BUFFER_SIZE) + cipher.getBlockSize)
+    var total = 0L
+    var read = in.read(inBuffer)
+
+    while (read >= 0) {
+      val written = cipher.update(inBuffer, 0, read, outBuffer, 0)
+      out.write(outBuffer, 0, written)
+      total += written
+      read = in.read(inBuffer)
+    }
+
+    val written = cipher.doFinal(outBuffer, 0)
+    out.write(outBuffer, 0, written)
+    total + written
+  }
+
   /**
     * Get the secret key spec
     *
@@ -98,10 +248,49 @@ object AESCipher {
 
   val ALGORITHM_AES256: String = "AES/CBC/PKCS5Padding"
 
+  /**
+    * size of the read buffer used when encrypting / decrypting streams
+    */
+  private final val STREAM_BUFFER_SIZE = 8192
+
+  /**
+    * the maximum number of idle ciphers kept per mode, per instance
+    */
+  final val MAX_POOLED = 32
+
+  /**
+    * the maximum number of ciphers to keep in the shared cache
+    */
+  private final val MAX_CACHED = 64
+
+  /**
+    * shared ciphers, keyed by (key, iv) contents
+    */
+  private val cache: Cache[(ByteBuffer, ByteBuffer), AESCipher] = CacheBuilder.newBuilder()
+    .maximumSize(MAX_CACHED)
+    .build[(ByteBuffer, ByteBuffer), AESCipher]()
+
   /**
     * Create AESCipher based on existing key
     *
     * @param key Key
     */
   def apply(key: Key, iv: Array[Byte]): AESCipher = new AESCipher(key.getEncoded, iv)
+
+  /**
+    * Get a shared (thread-safe) cipher for the given key and initial vector
+    *
+    * @param key the key
+    * @param iv  the initial vector
+    * @return the shared cipher
+    */
+  def cached(key: Array[Byte], iv: Array[Byte]): AESCipher = {
+    val cacheKey = (ByteBuffer.wrap(key), ByteBuffer.wrap(iv))
+
+    Option(cache.getIfPresent(cacheKey)).getOrElse({
+      val cipher = new AESCipher(key.clone, iv.clone)
+      cache.put((ByteBuffer.wrap(cipher.key), ByteBuffer.wrap(cipher.iv)), cipher)
+      cipher
+    })
+  }
 }
@@ -0,0 +1,190 @@
+package com.srivastavavivekggn.scala.util.lang
+
+import java.text.MessageFormat
+import java.util.Locale
+
+import com.google.common.cache.{Cache, CacheBuilder}
+import com.srivastavavivekggn.scala.util.lang.CachingMessageSource.Message
+import com.srivastavavivekggn.scala.util.system.SystemUtils
+import org.springframework.context.support.ReloadableResourceBundleMessageSource
+import org.springframework.context.{MessageSource, MessageSourceResolvable, NoSuchMessageException}
+
+import scala.util.Try
+
+/**
+  * MessageSource decorator that caches the message format for each (code, locale), including codes that were not
+  * found, so repeated lookups do not go back to the delegate (or throw and catch NoSuchMessageException to find a
+  * missing message).
+  *
+  * Messages are formatted the same way as Spring's AbstractMessageSource: without arguments the message is returned
+  * as-is, otherwise it is formatted with a MessageFormat parsed once when the message is first looked up.
+  *
+  * Cached messages do not see changes in the delegate, call invalidate/invalidateAll (or reload) when they change.
+  * MessageSourceUtils uses findMessage directly when given a CachingMessageSource.
+  *
+  * @param delegate    the message source to cache
+  * @param maximumSize the maximum number of (code, locale) entries to cache
+  */
+class CachingMessageSource(val delegate: MessageSource,
+                           maximumSize: Long = CachingMessageSource.CACHE_SIZE) extends MessageSource {
+
+  private val messages: Cache[(String, Locale), Option[Message]] = CacheBuilder.newBuilder()
+    .maximumSize(maximumSize)
+    .build[(String, Locale), Option[Message]]()
+
+  /**
+    * Find a message
+    *
+    * @param code   the code
+    * @param args   the arguments (or null)
+    * @param locale the locale
+    * @return the formatted message, or None if the code was not found
+    */
+  def findMessage(code: String, args: Array[AnyRef], locale: Locale): Option[String] = {
+    lookup(code, locale).map(_.format(resolveArguments(args, locale)))
+  }
+
+  /**
+    * Find the parsed format for a message
+    *
+    * @param code   the code
+    * @param locale the locale
+    * @return the message format, or None if the code was not found (or the message is not a valid format)
+    */
+  def findFormat(code: String, locale: Locale): Option[MessageFormat] = lookup(code, locale).flatMap(_.parsed)
+
+  override def getMessage(code: String, args: Array[AnyRef], defaultMessage: String, locale: Locale): String = {
+    findMessage(code, args, locale).getOrElse(renderDefault(defaultMessage, args, locale))
+  }
+
+  override def getMessage(code: String, args: Array[AnyRef], locale: Locale): String = {
+    findMessage(code, args, locale).getOrElse(throw new NoSuchMessageException(code, locale))
+  }
+
+  override def getMessage(resolvable: MessageSourceResolvable, locale: Locale): String = {
+    val codes = Option(resolvable.getCodes).getOrElse(Array.empty[String])
+
+    codes.iterator.flatMap(findMessage(_, resolvable.getArguments, locale)).nextOption()
+      .orElse(Option(resolvable.getDefaultMessage).map(renderDefault(_, resolvable.getArguments, locale)))
+      .getOrElse(throw new NoSuchMessageException(codes.lastOption.getOrElse(StringUtils.EMPTY), locale))
+  }
+
+  /**
+    * Drop the cached messages for a code, in every locale
+    *
+    * @param code the code
+    */
+  def invalidate(code: String): Unit = messages.asMap().keySet().removeIf(_._1 == code)
+
+  /**
+    * Drop the cached messages for a locale
+    *
+    * @param locale the locale
+    */
+  def invalidate(locale: Locale): Unit = messages.asMap().keySet().removeIf(_._2 == locale)
+
+  /**
+    * Drop all cached messages
+    */
+  def invalidateAll(): Unit = messages.invalidateAll()
+
+  /**
+    * Clear the delegate's own cache (if it is reloadable) and drop all cached messages, so the next lookups read the
+    * current message files
+    */
+  def reload(): Unit = {
+    delegate match {
+      case reloadable: ReloadableResourceBundleMessageSource => reloadable.clearCacheIncludingAncestors()
+      case _ =>
+    }
+
+    invalidateAll()
+  }
+
+  /**
+    * the number of cached (code, locale) entries
+    */
+  def size: Long = messages.size()
+
+  private def lookup(code: String, locale: Locale): Option[Message] = {
+    val key = (code, locale)
+
+    Option(messages.getIfPresent(key)).getOrElse({
+      val message = find(code, locale).map(new Message(_, locale))
+      messages.put(key, message)
+      message
+    })
+  }
+
+  /**
+    * Get the unformatted message from the delegate (message sources return the message as-is when there are no args)
+    */
+  private def find(code: String, locale: Locale): Option[String] = {
+    try {
+      Option(delegate.getMessage(code, None.orNull, None.orNull, locale))
+    } catch {
+      case _: NoSuchMessageException => None
+    }
+  }
+
+  private def renderDefault(defaultMessage: String, args: Array[AnyRef], locale: Locale): String = {
+    Option(defaultMessage).map(new Message(_, locale).format(resolveArguments(args, locale))).orNull
+  }
+
+  private def resolveArguments(args: Array[AnyRef], locale: Locale): Array[AnyRef] = {
+    if (args == null || !args.exists(_.isInstanceOf[MessageSourceResolvable])) {
+      args
+    }
+    else {
+      args.map {
+        case r: MessageSourceResolvable => getMessage(r, locale)
+        case arg => arg
+      }
+    }
+  }
+
+  override def toString: String = s"CachingMessageSource($delegate)"
+}
+
+object CachingMessageSource {
+
+  /**
+    * the default maximum number of (code, locale) entries to cache
+    */
+  final val CACHE_SIZE: Int = SystemUtils.getIntProperty("messageSource.cacheSize", 10000)
+
+  /**
+    * Wrap the given message source, unless it already caches
+    *
+    * @param messageSource the message source
+    * @return the caching message source
+    */
+  def of(messageSource: MessageSource): CachingMessageSource = messageSource match {
+    case caching: CachingMessageSource => caching
+    case _ => new CachingMessageSource(messageSource)
+  }
+
+  /**
+    * A message and its parsed format
+    *
+    * @param text   the message
+    * @param locale the locale
+    */
+  private final class Message(val text: String, locale: Locale) {
+
+    /**
+      * the parsed format, None if the message is not a valid format (it is then used as-is, like Spring does)
+      */
+    val parsed: Option[MessageFormat] = Try(new MessageFormat(text, locale)).toOption
+
+    def format(args: Array[AnyRef]): String = {
+      if (args == null || args.isEmpty) {
+        text
+      }
+      else {
+        // message formats are not thread safe
+        parsed.map(f => f.synchronized(f.format(args))).getOrElse(text)
+      }
+    }
+  }
+}
@@ -2,7 +2,9 @@ package com.srivastavavivekggn.scala.util.lang
 
 import java.time.temporal.Temporal
 import java.util.Locale
+import com.google.common.cache.{Cache, CacheBuilder}
 import com.srivastavavivekggn.scala.util.lang.i18n._
+import com.srivastavavivekggn.scala.util.system.SystemUtils
 import com.srivastavavivekggn.scala.util.unit.MeasurementSystem
 import org.springframework.util.StringUtils.parseLocaleString
 
@@ -41,12 +43,57 @@ object LocaleUtils {
     */
   final val localeDetailProviders: Map[Locale, LocaleDetail] = LocaleDetailProviders.ALL.map(d => d.locale -> d).toMap
 
+  /**
+    * the maximum number of resolved locales (and language tags) to cache
+    */
+  final val RESOLVED_CACHE_SIZE: Int = SystemUtils.getIntProperty("locale.resolved.cacheSize", 512)
+
+  /**
+    * resolved locales, by incoming locale
+    */
+  private val resolvedLocales: Cache[Locale, ResolvedLocale] = CacheBuilder.newBuilder()
+    .maximumSize(RESOLVED_CACHE_SIZE)
+    .build[Locale, ResolvedLocale]()
+
+  /**
+    * resolved locales, by incoming language tag
+    */
+  private val resolvedTags: Cache[String, ResolvedLocale] = CacheBuilder.newBuilder()
+    .maximumSize(RESOLVED_CACHE_SIZE)
+    .build[String, ResolvedLocale]()
+
+  /**
+    * Resolve the detail provider, measurement system and compiled date formats for the given locale (cached)
+    *
+    * @param l the locale
+    * @return the resolved locale
+    */
+  def resolve(l: Locale): ResolvedLocale = Option(resolvedLocales.getIfPresent(l)).getOrElse({
+    val resolved = ResolvedLocale(l, findLocaleDetail(l), getMeasurementSystem(l.toLanguageTag))
+    resolvedLocales.put(l, resolved)
+    resolved
+  })
+
+  /**
+    * Resolve the detail provider, measurement system and compiled date formats for the given locale string (cached)
+    *
+    * @param locale the locale string
+    * @return the resolved locale
+    */
+  def resolve(locale: String): ResolvedLocale = Option(resolvedTags.getIfPresent(locale)).getOrElse({
+    val resolved = resolve(getValidLocale(locale))
+    resolvedTags.put(locale, resolved)
+    resolved
+  })
+
   /**
     * Get a specific detail provider for the given locale
     * @param l the locale
     * @return the detail provider, or the default if a more specific one is not found
     */
-  def getLocaleDetail(l: Locale): LocaleDetail = {
+  def getLocaleDetail(l: Locale): LocaleDetail = resolve(l).detail
+
+  private def findLocaleDetail(l: Locale): LocaleDetail = {
     // look for full exact match
     localeDetailProviders.get(l)
       // drop any measurement system and try again
@@ -61,10 +108,7 @@ object LocaleUtils {
 
 
   object DateTimeFormat {
-    def format(dt: Temporal, fmt: String, locale: Locale): String = {
-      val detail = getLocaleDetail(locale)
-      detail.formatDate(dt, fmt)
-    }
+    def format(dt: Temporal, fmt: String, locale: Locale): String = resolve(locale).formatDate(dt, fmt)
   }
 
   /**
@@ -116,7 +160,7 @@ object LocaleUtils {
     * @param l the locale
     * @return the measurement system
     */
-  def getMeasurementSystem(l: Locale): MeasurementSystem = getMeasurementSystem(l.toLanguageTag)
+  def getMeasurementSystem(l: Locale): MeasurementSystem = resolve(l).measurementSystem
 
   /**
     * Get the appropriate measurement system for the given locale
@@ -2,10 +2,13 @@ package com.srivastavavivekggn.scala.util.lang
 
 import java.util.Locale
 
+import org.springframework.context.support.DefaultMessageSourceResolvable
 import org.springframework.context.{MessageSource, NoSuchMessageException}
 
 /**
-  * Utilities for retrieving values from a MessageSource
+  * Utilities for retrieving values from a MessageSource.
+  *
+  * A CachingMessageSource is queried directly, so missing messages do not throw.
   */
 object MessageSourceUtils {
 
@@ -23,12 +26,41 @@ object MessageSourceUtils {
                  locale: Locale,
                  key: String,
                  args: Array[Object],
-                 defaultValue: String): String = {
-    try {
-      messageSource.getMessage(key, args, locale)
-    } catch {
-      case _: NoSuchMessageException => defaultValue
-    }
+                 defaultValue: String): String = messageSource match {
+    case caching: CachingMessageSource => caching.findMessage(key, args, locale).getOrElse(defaultValue)
+
+    case _ =>
+      try {
+        messageSource.getMessage(key, args, locale)
+      } catch {
+        case _: NoSuchMessageException => defaultValue
+      }
+  }
+
+  /**
+    * Get the message for the first code that has one, or return default value
+    *
+    * @param messageSource the message source
+    * @param locale        the locale
+    * @param codes         the codes to try, in order
+    * @param args          the arguments
+    * @param defaultValue  the default value
+    * @return the message (or default if none of the codes are found)
+    */
+  def getMessage(messageSource: MessageSource,
+                 locale: Locale,
+                 codes: Seq[String],
+                 args: Array[Object],
+                 defaultValue: String): String = messageSource match {
+    case caching: CachingMessageSource =>
+      codes.iterator.flatMap(caching.findMessage(_, args, locale)).nextOption().getOrElse(defaultValue)
+
+    case _ =>
+      try {
+        messageSource.getMessage(new DefaultMessageSourceResolvable(codes.toArray, args, defaultValue), locale)
+      } catch {
+        case _: NoSuchMessageException => defaultValue
+      }
   }
 
   /**
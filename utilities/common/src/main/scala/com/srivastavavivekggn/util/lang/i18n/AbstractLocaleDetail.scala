@@ -5,6 +5,7 @@ import java.time.format.DateTimeFormatter
 import java.util.Locale
 
 import com.srivastavavivekggn.scala.util.collection.CollectionUtils
+import com.srivastavavivekggn.scala.util.lang.CachingMessageSource
 import com.srivastavavivekggn.scala.util.placeholder.format.{LocalizedTemporalValueFormatter, TranslationValueFormatter}
 import org.springframework.context.MessageSource
 import org.springframework.context.support.StaticMessageSource
@@ -66,7 +67,7 @@ abstract case class AbstractLocaleDetail(locale: Locale) extends LocaleDetail {
   )
 
   /**
-    * Construct a message source
+    * Construct a message source (cached, as the messages never change)
     */
   override lazy val messageSource: MessageSource = {
     val messageSource = new StaticMessageSource
@@ -107,7 +108,7 @@ abstract case class AbstractLocaleDetail(locale: Locale) extends LocaleDetail {
       locale
     )
 
-    messageSource
+    new CachingMessageSource(messageSource)
   }
 }
 
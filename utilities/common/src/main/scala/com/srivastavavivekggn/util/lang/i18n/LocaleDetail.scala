@@ -1,12 +1,18 @@
 package com.srivastavavivekggn.scala.util.lang.i18n
 
-import java.time.temporal.TemporalAccessor
+import java.time.format.{DateTimeFormatter, DateTimeFormatterBuilder, DecimalStyle}
+import java.time.temporal.{ChronoField, TemporalAccessor}
+import java.time.{DateTimeException, LocalDate, LocalTime}
 import java.util.Locale
+import java.util.regex.Pattern
 
 import com.srivastavavivekggn.scala.util.placeholder.PlaceholderUtils
 import com.srivastavavivekggn.scala.util.placeholder.PlaceholderUtils.ReplacementMode
+import com.srivastavavivekggn.scala.util.placeholder.format.{FormatterRegistry, LocalizedTemporalValueFormatter}
 import org.springframework.context.MessageSource
 
+import scala.jdk.CollectionConverters._
+
 trait LocaleDetail {
 
   /**
@@ -27,6 +33,34 @@ trait LocaleDetail {
     * @return the formatted date
     */
   def formatDate(dt: TemporalAccessor, fmt: String): String = {
+    val compiled = compiledFormats.get(fmt).flatMap(formatter => {
+      // fall back to placeholders if the temporal does not have the fields (they strip what they can't format)
+      try Some(formatter.format(dt)) catch {
+        case _: DateTimeException => None
+      }
+    })
+
+    compiled.getOrElse(formatPlaceholders(dt, fmt))
+  }
+
+  /**
+    * The standard formats that could be compiled to a DateTimeFormatter, by format key.
+    *
+    * Names and digits are translated once while compiling, so formatting with these does no placeholder parsing or
+    * message lookups.
+    */
+  lazy val compiledFormats: Map[String, DateTimeFormatter] = standardFormats.flatMap {
+    case (key, format) => LocaleDetail.compile(this, format).map(key -> _)
+  }
+
+  /**
+    * Format a temporal as a string by replacing the placeholders in the given format
+    *
+    * @param dt  the temporal
+    * @param fmt the named standard format or a custom format string
+    * @return the formatted date
+    */
+  protected def formatPlaceholders(dt: TemporalAccessor, fmt: String): String = {
 
     // get the named standard format or use the input string directly
     val formatStr = standardFormats.getOrElse(fmt, fmt)
@@ -73,6 +107,106 @@ object LocaleDetail {
     */
   final val INPUT = "input"
 
+  /**
+    * A (localized) date placeholder in a standard format
+    */
+  private val DATE_PLACEHOLDER = Pattern.compile(
+    s"\\{\\{$INPUT\\|(${LocalizedTemporalValueFormatter.FORMAT_TYPE}|date):([^{}|:]+)}}"
+  )
+
+  /**
+    * Patterns formatted as names, with the field and a sample temporal for each field value
+    */
+  private val TEXT_PATTERNS: Map[String, (ChronoField, Long => TemporalAccessor)] = {
+    val month: Long => TemporalAccessor = v => LocalDate.of(2021, v.toInt, 1)
+    val weekday: Long => TemporalAccessor = v => LocalDate.of(2021, 1, 3).plusDays(v)
+    val amPm: Long => TemporalAccessor = v => LocalTime.of(v.toInt * 12, 0)
+
+    Map(
+      "MMMM" -> (ChronoField.MONTH_OF_YEAR, month),
+      "MMM" -> (ChronoField.MONTH_OF_YEAR, month),
+      "EEEE" -> (ChronoField.DAY_OF_WEEK, weekday),
+      "EEE" -> (ChronoField.DAY_OF_WEEK, weekday),
+      "a" -> (ChronoField.AMPM_OF_DAY, amPm)
+    )
+  }
+
+  /**
+    * Patterns formatted as numbers
+    */
+  private val NUMBER_PATTERNS = Set("yyyy", "yy", "M", "MM", "d", "dd", "H", "HH", "h", "hh", "m", "mm", "s", "ss")
+
+  /**
+    * Compile a standard format (date placeholders and literal text) to a formatter that produces the same output as
+    * formatting the placeholders.
+    *
+    * @param detail the locale detail
+    * @param format the standard format
+    * @return the formatter, or None if the format uses anything else
+    */
+  private[i18n] def compile(detail: LocaleDetail, format: String): Option[DateTimeFormatter] = {
+    val matcher = DATE_PLACEHOLDER.matcher(format)
+    val segments = Seq.newBuilder[Either[String, (String, String)]]
+    var last = 0
+
+    while (matcher.find()) {
+      segments += Left(format.substring(last, matcher.start()))
+      segments += Right(matcher.group(1) -> matcher.group(2))
+      last = matcher.end()
+    }
+
+    segments += Left(format.substring(last))
+
+    decimalStyle(detail).flatMap(digits => {
+      val builder = segments.result().foldLeft(Option(new DateTimeFormatterBuilder())) {
+        // some other placeholder
+        case (_, Left(literal)) if literal.contains("{{") => None
+        case (b, Left(literal)) => b.map(_.appendLiteral(literal))
+
+        // plain dates are not translated, so their digits can only share the formatter with standard digits
+        case (b, Right(("date", pattern))) if NUMBER_PATTERNS.contains(pattern) && digits == DecimalStyle.STANDARD =>
+          b.map(_.appendPattern(pattern))
+        case (_, Right(("date", _))) => None
+
+        case (b, Right((_, pattern))) => b.flatMap(appendPattern(detail, _, pattern))
+      }
+
+      builder.map(_.toFormatter(detail.locale).withDecimalStyle(digits))
+    })
+  }
+
+  private def appendPattern(detail: LocaleDetail,
+                            builder: DateTimeFormatterBuilder,
+                            pattern: String): Option[DateTimeFormatterBuilder] = {
+    TEXT_PATTERNS.get(pattern) match {
+      case Some((field, sample)) =>
+        val range = field.range()
+        val names = (range.getMinimum to range.getMaximum).map(v => {
+          Long.box(v) -> LocalizedTemporalValueFormatter.translate(
+            detail, FormatterRegistry.dateTimeFormatter(pattern).format(sample(v)), List(pattern)
+          )
+        }).toMap
+
+        Some(builder.appendText(field, names.asJava))
+
+      case None if NUMBER_PATTERNS.contains(pattern) => Some(builder.appendPattern(pattern))
+
+      case None => None
+    }
+  }
+
+  /**
+    * The digits for the detail's locale, if they are a contiguous range (like 0-9)
+    */
+  private def decimalStyle(detail: LocaleDetail): Option[DecimalStyle] = {
+    val digits = (0 to 9).map(i => LocalizedTemporalValueFormatter.translate(detail, i.toString, List("d")))
+    val zero = digits.head.head
+
+    Option.when(digits.zipWithIndex.forall { case (d, i) => d.length == 1 && d.head == zero + i }) {
+      DecimalStyle.STANDARD.withZeroDigit(zero)
+    }
+  }
+
   /**
     * Standard set of date/time formats
     *
@@ -0,0 +1,31 @@
+package com.srivastavavivekggn.scala.util.lang.i18n
+
+import java.time.format.DateTimeFormatter
+import java.time.temporal.TemporalAccessor
+import java.util.Locale
+
+import com.srivastavavivekggn.scala.util.unit.MeasurementSystem
+
+/**
+  * Everything looked up for an incoming locale, cached by LocaleUtils.resolve
+  *
+  * @param locale            the incoming locale
+  * @param detail            the detail provider for the locale
+  * @param measurementSystem the measurement system for the locale
+  */
+final case class ResolvedLocale(locale: Locale, detail: LocaleDetail, measurementSystem: MeasurementSystem) {
+
+  /**
+    * the compiled standard formats, by format key
+    */
+  def formatters: Map[String, DateTimeFormatter] = detail.compiledFormats
+
+  /**
+    * Format a temporal as a string using the given format (see LocaleDetail.formatDate)
+    *
+    * @param dt  the temporal
+    * @param fmt the named standard format or a custom format string
+    * @return the formatted date
+    */
+  def formatDate(dt: TemporalAccessor, fmt: String): String = detail.formatDate(dt, fmt)
+}
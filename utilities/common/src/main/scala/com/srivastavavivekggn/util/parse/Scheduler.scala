@@ -1,11 +1,14 @@
 package com.srivastavavivekggn.scala.util.parse
 
+import com.google.common.cache.{Cache, CacheBuilder}
 import com.srivastavavivekggn.scala.util.lang.{DateUtils, StringUtils}
+import com.srivastavavivekggn.scala.util.parse.Scheduler.{CacheKey, Resolver, SCHEDULE, TEMPORAL, expressions}
+import com.srivastavavivekggn.scala.util.system.SystemUtils
 import fastparse.NoWhitespace.noWhitespaceImplicit
 import fastparse._
 
 import java.time.temporal.{TemporalAdjusters, TemporalAmount}
-import java.time.{DayOfWeek, LocalDate, LocalDateTime, LocalTime, ZoneOffset}
+import java.time.{DayOfWeek, Instant, LocalDate, LocalDateTime, LocalTime, ZoneOffset}
 
 case class Scheduler(offset: Option[ZoneOffset] = None, offsetString: Option[String] = None) {
 
@@ -15,19 +18,62 @@ case class Scheduler(offset: Option[ZoneOffset] = None, offsetString: Option[Str
   /**
     * Parse a scheduled date/time from a string
     */
-  final def schedule[_: P]: P[LocalDateTime] = P(dayAndTime | dateMath | now)
+  final def schedule[_: P]: P[LocalDateTime] = P(scheduleExpression).map(resolveNow)
 
   /**
     * Date keyword matching
     */
-  final def dateKeyword[_: P]: P[LocalDateTime] = P(
-    StringInIgnoreCase("now", "today", "tomorrow", "yesterday").!.map(_.toLowerCase).map {
-      case "now" => DateUtils.zonedLocalDateTime(DateUtils.now, zone)
-      case "today" => DateUtils.zonedLocalDate(DateUtils.now, zone).atStartOfDay()
-      case "tomorrow" => DateUtils.zonedLocalDate(DateUtils.now, zone).atStartOfDay().plusDays(1)
-      case "yesterday" => DateUtils.zonedLocalDate(DateUtils.now, zone).atStartOfDay().minusDays(1)
-    }
-  )
+  final def dateKeyword[_: P]: P[LocalDateTime] = P(dateKeywordExpression).map(resolveNow)
+
+  /**
+    * Compile a schedule (see schedule) into an expression that can be resolved at any time without parsing again.
+    *
+    * Expressions are cached by zone and text.
+    *
+    * @param expression the schedule text
+    * @return the expression, or None if the text is not a valid schedule
+    */
+  def compile(expression: String): Option[ScheduleExpression] = compile(SCHEDULE, expression, completeSchedule(_))
+
+  /**
+    * Compile a date/time (see anyTemporal) into an expression that can be resolved at any time without parsing again.
+    *
+    * Expressions are cached by zone and text.
+    *
+    * @param expression the date/time text
+    * @return the expression, or None if the text is not a valid date/time
+    */
+  def compileTemporal(expression: String): Option[ScheduleExpression] = {
+    compile(TEMPORAL, expression, completeTemporal(_))
+  }
+
+  /**
+    * Resolve each schedule at the given instant (schedules are compiled once and cached)
+    *
+    * @param schedules the schedule text
+    * @param at        the instant to resolve at
+    * @return the resolved date/time for each schedule (None if not a valid schedule), in the same order
+    */
+  def resolveAll(schedules: Seq[String], at: Instant = DateUtils.now): Seq[Option[LocalDateTime]] = {
+    val now = DateUtils.zonedLocalDateTime(at, zone)
+    schedules.map(s => compile(s).map(_.resolveLocal(now)))
+  }
+
+  private def compile(kind: Int, expression: String, parser: P[_] => P[Resolver]): Option[ScheduleExpression] = {
+    val key = CacheKey(zone, kind, expression)
+
+    Option(expressions.getIfPresent(key)).getOrElse({
+      val compiled = fastparse.parse(expression, parser) match {
+        case Parsed.Success(resolver, _) => Some(new ScheduleExpression(expression, zone, resolver))
+        case _ => None
+      }
+
+      expressions.put(key, compiled)
+      compiled
+    })
+  }
+
+  private def resolveNow(resolver: Resolver): LocalDateTime = resolver(DateUtils.zonedLocalDateTime(DateUtils.now, zone))
 
   /**
     * Capture date part as string
@@ -78,27 +124,54 @@ case class Scheduler(offset: Option[ZoneOffset] = None, offsetString: Option[Str
   /**
     * Date math logic
     */
-  final def dateMath[_: P]: P[LocalDateTime] = P(
-    ((dateKeyword | localDateTime | localDate) ~ space ~ CharIn("\\+\\-").! ~ space ~ temporalAmount).map {
-      case (temporal, "+", amount) => temporal.plus(amount)
-      case (temporal, "-", amount) => temporal.minus(amount)
-      case (temporal, _, _) => temporal
-    }
-  )
+  final def dateMath[_: P]: P[LocalDateTime] = P(dateMathExpression).map(resolveNow)
 
   /**
     * Any temporal capture
     */
-  final def anyTemporal[_: P]: P[LocalDateTime] = P(dateMath | localDateTime | localDate | dateKeyword)
+  final def anyTemporal[_: P]: P[LocalDateTime] = P(anyTemporalExpression).map(resolveNow)
 
   // =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-
   //  INTERNAL Parsers
+  //
+  //  Time dependent parsers capture a Resolver (a function of the current local date/time), so the parsed result
+  //  does not depend on when it was parsed
   // =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-
 
+  private def scheduleExpression[_: P]: P[Resolver] = P(dayAndTime | dateMathExpression | now)
+
+  // compiled expressions must match the whole text, not just a prefix of it
+  private def completeSchedule[_: P]: P[Resolver] = P(scheduleExpression ~ End)
+
+  private def completeTemporal[_: P]: P[Resolver] = P(anyTemporalExpression ~ End)
+
+  private def dateKeywordExpression[_: P]: P[Resolver] = P(
+    StringInIgnoreCase("now", "today", "tomorrow", "yesterday").!.map(_.toLowerCase).map {
+      case "now" => (now: LocalDateTime) => now
+      case "today" => (now: LocalDateTime) => now.toLocalDate.atStartOfDay()
+      case "tomorrow" => (now: LocalDateTime) => now.toLocalDate.atStartOfDay().plusDays(1)
+      case "yesterday" => (now: LocalDateTime) => now.toLocalDate.atStartOfDay().minusDays(1)
+    }
+  )
+
+  private def fixed[_: P](parser: => P[LocalDateTime]): P[Resolver] = parser.map(value => (_: LocalDateTime) => value)
+
+  private def dateMathExpression[_: P]: P[Resolver] = P(
+    ((dateKeywordExpression | fixed(localDateTime) | fixed(localDate)) ~ space ~ CharIn("\\+\\-").! ~ space ~ temporalAmount).map {
+      case (temporal, "+", amount) => (now: LocalDateTime) => temporal(now).plus(amount)
+      case (temporal, "-", amount) => (now: LocalDateTime) => temporal(now).minus(amount)
+      case (temporal, _, _) => temporal
+    }
+  )
+
+  private def anyTemporalExpression[_: P]: P[Resolver] = {
+    P(dateMathExpression | fixed(localDateTime) | fixed(localDate) | dateKeywordExpression)
+  }
+
   /**
     * Keyword for 'now', no specific date or time
     */
-  private def now[_: P]: P[LocalDateTime] = P(StringInIgnoreCase("now").!).map(_ => DateUtils.zonedLocalDateTime(DateUtils.now, zone))
+  private def now[_: P]: P[Resolver] = P(StringInIgnoreCase("now").!).map(_ => (now: LocalDateTime) => now)
 
   /**
     * A specific time or a range of times
@@ -131,39 +204,48 @@ case class Scheduler(offset: Option[ZoneOffset] = None, offsetString: Option[Str
   /**
     * A specific day of the week -- if today is that day, we'll use today, otherwise get the 'next' upcoming day
     */
-  private def dayOfWeek[_: P]: P[LocalDate] = P(StringInIgnoreCase("monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday").!).map(d => {
-    val now = DateUtils.zonedLocalDate(DateUtils.now, zone)
+  private def dayOfWeek[_: P]: P[LocalDateTime => LocalDate] = P(
+    StringInIgnoreCase("monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday").!
+  ).map(d => {
+    val day = DayOfWeek.valueOf(d.toUpperCase)
+    val next = TemporalAdjusters.next(day)
 
-    // today is the target day
-    if (now.getDayOfWeek.equals(DayOfWeek.valueOf(d.toUpperCase))) {
-      now
-    }
-    else {
-      now.`with`(TemporalAdjusters.next(DayOfWeek.valueOf(d.toUpperCase)))
+    (now: LocalDateTime) => {
+      val today = now.toLocalDate
+
+      // today is the target day
+      if (today.getDayOfWeek.equals(day)) {
+        today
+      }
+      else {
+        today.`with`(next)
+      }
     }
   })
 
   /**
     * Relative date (e.g., tomorrow)
     */
-  private def relative[_: P]: P[LocalDate] = P(StringInIgnoreCase("tomorrow")).map(_ => DateUtils.zonedLocalDate(DateUtils.now, zone).plusDays(1))
+  private def relative[_: P]: P[LocalDateTime => LocalDate] = {
+    P(StringInIgnoreCase("tomorrow")).map(_ => (now: LocalDateTime) => now.toLocalDate.plusDays(1))
+  }
 
   /**
     * Relative or explicit date and time
     */
-  private def dayAndTime[_: P]: P[LocalDateTime] = P(
-    (dateMath.map(_.toLocalDate) | dayOfWeek | relative | localDate.map(_.toLocalDate)).? ~ space.? ~ scheduledTime
+  private def dayAndTime[_: P]: P[Resolver] = P(
+    (
+      dateMathExpression.map(r => (now: LocalDateTime) => r(now).toLocalDate) |
+        dayOfWeek |
+        relative |
+        localDate.map(d => (_: LocalDateTime) => d.toLocalDate)
+      ).? ~ space.? ~ scheduledTime
   ).map {
+    case (date, (lowerBound, upperBound)) => (now: LocalDateTime) =>
 
-    // both time and date
-    case (Some(dt), (lowerBound, upperBound)) => (dt, (lowerBound, upperBound))
+      // time only uses today
+      val dt = date.map(_.apply(now)).getOrElse(now.toLocalDate)
 
-    // time only
-    case (None, (lowerBound, upperBound)) => (DateUtils.zonedLocalDate(DateUtils.now, zone), (lowerBound, upperBound))
-
-  }.map {
-    case (dt, (lowerBound, upperBound)) =>
-      val now = DateUtils.zonedLocalDateTime(DateUtils.now, zone)
       val nowDate = now.toLocalDate
       val nowTime = now.toLocalTime
 
@@ -191,3 +273,66 @@ case class Scheduler(offset: Option[ZoneOffset] = None, offsetString: Option[Str
       }
   }
 }
+
+object Scheduler {
+
+  /**
+    * the maximum number of compiled expressions to keep in the cache
+    */
+  final val CACHE_SIZE: Int = SystemUtils.getIntProperty("scheduler.expression.cacheSize", 4096)
+
+  /**
+    * A parsed date/time, as a function of the current (zoned) local date/time
+    */
+  private[parse] type Resolver = LocalDateTime => LocalDateTime
+
+  // the grammar an expression was compiled with
+  private final val SCHEDULE = 1
+  private final val TEMPORAL = 2
+
+  private case class CacheKey(zone: Option[String], kind: Int, expression: String)
+
+  /**
+    * compiled expressions (None for invalid expressions)
+    */
+  private val expressions: Cache[CacheKey, Option[ScheduleExpression]] = CacheBuilder.newBuilder()
+    .maximumSize(CACHE_SIZE)
+    .build[CacheKey, Option[ScheduleExpression]]()
+}
+
+/**
+  * A parsed schedule or date/time (see Scheduler.compile), which can be resolved at any instant without parsing again.
+  *
+  * The expression does not capture the time it was compiled at, so a cached expression gives the same result as
+  * parsing the text again.
+  *
+  * @param expression the expression text
+  * @param zone       the zone used to convert instants to local date/times
+  * @param resolver   the parsed expression
+  */
+final class ScheduleExpression private[parse](val expression: String,
+                                              zone: Option[String],
+                                              resolver: Scheduler.Resolver) {
+
+  /**
+    * Resolve the expression at the given instant
+    *
+    * @param at the instant to treat as 'now'
+    * @return the date/time
+    */
+  def resolve(at: Instant): LocalDateTime = resolver(DateUtils.zonedLocalDateTime(at, zone))
+
+  /**
+    * Resolve the expression now
+    *
+    * @return the date/time
+    */
+  def resolve(): LocalDateTime = resolve(DateUtils.now)
+
+  /**
+    * Resolve the expression at the given (already zoned) local date/time
+    */
+  private[parse] def resolveLocal(now: LocalDateTime): LocalDateTime = resolver(now)
+
+  override def toString: String = s"ScheduleExpression($expression)"
+}
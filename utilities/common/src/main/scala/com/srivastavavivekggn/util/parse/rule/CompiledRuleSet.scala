@@ -0,0 +1,140 @@
+package com.srivastavavivekggn.scala.util.parse.rule
+
+import com.srivastavavivekggn.scala.util.concurrent.AsyncUtils
+import com.srivastavavivekggn.scala.util.parse.rule.CompiledRuleSet.{BATCH_SIZE, PARALLELISM, Predicate}
+import com.srivastavavivekggn.scala.util.parse.rule.context.{ColumnarBatch, MapRuleEvaluationContext, RuleEvaluationContext}
+import com.srivastavavivekggn.scala.util.system.SystemUtils
+
+import java.util
+
+import scala.concurrent.{ExecutionContext, Future}
+
+/**
+ * A rule set that has been parsed once (see RuleSet.compile), for evaluating against many contexts.
+ *
+ * AND/OR joins are evaluated left to right (the same as RuleSet.evaluate), and short-circuit.
+ *
+ * @param rules     the rule text
+ * @param predicate the predicate tree
+ */
+final class CompiledRuleSet private[rule](val rules: String, val predicate: Predicate) {
+
+  /**
+   * Evaluate the rules against the given context
+   *
+   * @param context the context
+   * @return true if the rules pass
+   */
+  def evaluate(context: RuleEvaluationContext): Boolean = predicate.test(context)
+
+  /**
+   * Evaluate the rules against the given data
+   *
+   * @param data the context data
+   * @return true if the rules pass
+   */
+  def evaluate(data: Map[String, Any]): Boolean = evaluate(MapRuleEvaluationContext(data))
+
+  /**
+   * Evaluate the rules against every row in the batch. Each rule scans its column, and joins are bitset operations.
+   *
+   * @param batch the batch
+   * @return the rows that pass
+   */
+  def evaluate(batch: ColumnarBatch): util.BitSet = predicate.test(batch)
+
+  /**
+   * Evaluate the rules against each context, in parallel batches.
+   *
+   * Evaluation is CPU-bound, so this is best run on AsyncUtils.Contexts.forkJoin. Batch size and parallelism are set
+   * with 'ruleset.evaluateAll.batchSize' (default 1024) and 'ruleset.evaluateAll.parallelism' (default x1).
+   *
+   * @param contexts the contexts
+   * @param exec     the execution context
+   * @return the results, in the same order as the contexts
+   */
+  def evaluateAll(contexts: Iterator[RuleEvaluationContext])(implicit exec: ExecutionContext): Future[List[Boolean]] = {
+    evaluateAll(contexts, BATCH_SIZE, PARALLELISM)
+  }
+
+  /**
+   * Evaluate the rules against each context, in parallel batches
+   *
+   * @param contexts    the contexts
+   * @param batchSize   the number of contexts evaluated per task
+   * @param parallelism the maximum number of batches evaluated at once
+   * @param exec        the execution context
+   * @return the results, in the same order as the contexts
+   */
+  def evaluateAll(contexts: Iterator[RuleEvaluationContext],
+                  batchSize: Int,
+                  parallelism: Int)(implicit exec: ExecutionContext): Future[List[Boolean]] = {
+    AsyncUtils.mapBatched(contexts, batchSize, parallelism, (batch: Seq[RuleEvaluationContext]) => Future(batch.map(evaluate)))
+  }
+
+  override def toString: String = s"CompiledRuleSet($rules)"
+}
+
+object CompiledRuleSet {
+
+  /**
+   * the default number of contexts evaluated per task in evaluateAll
+   */
+  final val BATCH_SIZE: Int = SystemUtils.getIntProperty("ruleset.evaluateAll.batchSize", 1024)
+
+  /**
+   * the default number of batches evaluated at once in evaluateAll
+   */
+  final val PARALLELISM: Int = math.max(1, SystemUtils.getIntMultiplier("ruleset.evaluateAll.parallelism", "x1"))
+
+  /**
+   * A node in the compiled predicate tree
+   */
+  sealed trait Predicate {
+    def test(context: RuleEvaluationContext): Boolean
+
+    def test(batch: ColumnarBatch): util.BitSet
+  }
+
+  object Predicate {
+
+    /**
+     * A single parsed rule
+     */
+    final case class Leaf(rule: RulePredicate) extends Predicate {
+      override def test(context: RuleEvaluationContext): Boolean = rule.evaluate(context)
+
+      override def test(batch: ColumnarBatch): util.BitSet = rule.evaluate(batch)
+    }
+
+    final case class And(left: Predicate, right: Predicate) extends Predicate {
+      override def test(context: RuleEvaluationContext): Boolean = left.test(context) && right.test(context)
+
+      override def test(batch: ColumnarBatch): util.BitSet = {
+        val result = left.test(batch)
+
+        // the right side only needs evaluating if something on the left matched
+        if (!result.isEmpty) {
+          result.and(right.test(batch))
+        }
+
+        result
+      }
+    }
+
+    final case class Or(left: Predicate, right: Predicate) extends Predicate {
+      override def test(context: RuleEvaluationContext): Boolean = left.test(context) || right.test(context)
+
+      override def test(batch: ColumnarBatch): util.BitSet = {
+        val result = left.test(batch)
+
+        // the right side only needs evaluating if something on the left did not match
+        if (result.cardinality() < batch.rowCount) {
+          result.or(right.test(batch))
+        }
+
+        result
+      }
+    }
+  }
+}
@@ -10,4 +10,18 @@ trait Rule[T] {
   def withContext[_: P](ctx: RuleEvaluationContext): P[Boolean]
 
   final def withContext[_: P](ctx: Map[String, Any]): P[Boolean] = withContext(MapRuleEvaluationContext(ctx))
-}
\ No newline at end of file
+
+  /**
+   * Parse the rule into a predicate that can be evaluated against any context without parsing again
+   * (see RuleSet.compile).
+   *
+   * The default implementation captures the matched text and parses it against each context, rules should override
+   * this to evaluate their captured values directly.
+   */
+  def predicate[_: P]: P[RulePredicate] = P(parser.!).map(text => RulePredicate(ctx => {
+    fastparse.parse(text, withContext(ctx)(_)) match {
+      case Parsed.Success(v, _) => v
+      case _ => false
+    }
+  }))
+}
@@ -0,0 +1,41 @@
+package com.srivastavavivekggn.scala.util.parse.rule
+
+import com.srivastavavivekggn.scala.util.parse.rule.context.{ColumnarBatch, RuleEvaluationContext}
+
+/**
+ * A parsed rule, ready to be evaluated (see Rule.predicate)
+ */
+trait RulePredicate {
+
+  /**
+   * Evaluate the rule against a single context
+   *
+   * @param context the context
+   * @return true if the rule passes
+   */
+  def evaluate(context: RuleEvaluationContext): Boolean
+
+  /**
+   * Evaluate the rule against every row in the batch.
+   *
+   * The default implementation evaluates each row as a context, rules override this for the column types they
+   * can evaluate directly.
+   *
+   * @param batch the batch
+   * @return the rows that pass
+   */
+  def evaluate(batch: ColumnarBatch): java.util.BitSet = batch.evaluateRows(evaluate)
+}
+
+object RulePredicate {
+
+  /**
+   * Create a predicate that is only evaluated per row
+   *
+   * @param fn the evaluation function
+   * @return the predicate
+   */
+  def apply(fn: RuleEvaluationContext => Boolean): RulePredicate = new RulePredicate {
+    override def evaluate(context: RuleEvaluationContext): Boolean = fn(context)
+  }
+}
@@ -1,8 +1,11 @@
 package com.srivastavavivekggn.scala.util.parse.rule
 
+import com.google.common.cache.{Cache, CacheBuilder}
+import com.srivastavavivekggn.scala.util.parse.rule.CompiledRuleSet.Predicate
 import com.srivastavavivekggn.scala.util.parse.rule.RuleSet.{andOrCapture, evalRuleSetTree}
 import com.srivastavavivekggn.scala.util.parse.rule.context.RuleEvaluationContext
 import com.srivastavavivekggn.scala.util.parse.space
+import com.srivastavavivekggn.scala.util.system.SystemUtils
 import com.typesafe.scalalogging.StrictLogging
 import fastparse.NoWhitespace._
 import fastparse.Parsed.Extra
@@ -44,6 +47,14 @@ case class RuleSet(context: RuleEvaluationContext, factors: Rule[_]*) extends St
       case _ => throw new RuntimeException(s"Invalid rule set")
     }
   }
+
+  /**
+   * Compile the rules for evaluation against any number of contexts (this rule set's context is not used)
+   *
+   * @param rules the rules
+   * @return the compiled rule set
+   */
+  def compile(rules: String): CompiledRuleSet = RuleSet.compile(rules, factors: _*)
 }
 
 
@@ -62,6 +73,92 @@ object RuleSet {
   // capture for join operator
   private final def andOrCapture[_: P]: P[String] = P(space.? ~ StringIn(AND, OR).! ~ space.?)
 
+  /**
+   * the maximum number of compiled rule sets to keep in the cache
+   */
+  final val CACHE_SIZE: Int = SystemUtils.getIntProperty("ruleset.compiled.cacheSize", 1024)
+
+  /**
+   * compiled rule sets, keyed by the factors and rule text
+   */
+  private val compiled: Cache[(Seq[Rule[_]], String), CompiledRuleSet] = CacheBuilder.newBuilder()
+    .maximumSize(CACHE_SIZE)
+    .build[(Seq[Rule[_]], String), CompiledRuleSet]()
+
+  /**
+   * Parse the rules once into a predicate tree that can be evaluated against any number of contexts.
+   *
+   * Results are cached by rule text and factors.
+   *
+   * @param rules   the rules
+   * @param factors the rule types allowed in the rule set
+   * @return the compiled rule set
+   * @throws RuntimeException if the rules are invalid
+   */
+  def compile(rules: String, factors: Rule[_]*): CompiledRuleSet = {
+    val key = (factors.toList, rules)
+
+    Option(compiled.getIfPresent(key)).getOrElse({
+      val result = compileUncached(rules, factors: _*)
+      compiled.put(key, result)
+      result
+    })
+  }
+
+  /**
+   * Parse the rules once into a predicate tree, without using the cache
+   *
+   * @param rules   the rules
+   * @param factors the rule types allowed in the rule set
+   * @return the compiled rule set
+   * @throws RuntimeException if the rules are invalid
+   */
+  def compileUncached(rules: String, factors: Rule[_]*): CompiledRuleSet = {
+    if (factors.isEmpty) {
+      throw new RuntimeException("At least 1 Rule must be passed")
+    }
+
+    parse(rules, compiledParser(factors)(_)) match {
+      case Parsed.Success(v, _) => new CompiledRuleSet(rules, v)
+      case Parsed.Failure(p: String, _: Int, _: Extra) => throw new RuntimeException(s"Invalid rule set: $p")
+      case _ => throw new RuntimeException(s"Invalid rule set")
+    }
+  }
+
+  // the same grammar as the RuleSet parser, producing a predicate tree instead of a boolean
+  private def compiledFactor[_: P](factors: Seq[Rule[_]]): P[Predicate] = {
+    factors.tail.foldLeft(factors.head.predicate.map(Predicate.Leaf)) {
+      case (left, right) => P(left | right.predicate.map(Predicate.Leaf))
+    }
+  }
+
+  private def compiledWrapped[_: P](factors: Seq[Rule[_]]): P[Predicate] = P("(" ~/ compiledRuleSet(factors) ~ ")")
+
+  private def compiledSingleOrWrapped[_: P](factors: Seq[Rule[_]]): P[Predicate] = {
+    P(compiledFactor(factors) | compiledWrapped(factors))
+  }
+
+  private def compiledRuleSet[_: P](factors: Seq[Rule[_]]): P[Predicate] = P(
+    space.? ~ compiledSingleOrWrapped(factors) ~ (andOrCapture ~/ compiledSingleOrWrapped(factors)).rep ~ space.?
+  ).map(joinPredicates)
+
+  private def compiledParser[_: P](factors: Seq[Rule[_]]): P[Predicate] = {
+    P(Start ~ space.? ~ compiledRuleSet(factors) ~ space.? ~ End)
+  }
+
+  // joins predicates left to right, the same as evalRuleSetTree
+  private def joinPredicates(tree: (Predicate, Seq[(String, Predicate)])): Predicate = {
+    val (base, ops) = tree
+
+    ops.foldLeft(base) {
+      case (left, (op, right)) => op match {
+        case AND => Predicate.And(left, right)
+        case OR => Predicate.Or(left, right)
+        case _ => throw new RuntimeException(s"Invalid rule join: $op")
+      }
+    }
+  }
+
   // helper method that allows us to compare rules using the appropriate Join language (And/Or)
   private def evalRuleSetTree(tree: (Boolean, Seq[(String, Boolean)])): Boolean = {
     val (base, ops) = tree
@@ -0,0 +1,305 @@
+package com.srivastavavivekggn.scala.util.parse.rule.context
+
+import java.time.{LocalDate, LocalDateTime, ZoneOffset}
+import java.util
+
+import scala.collection.mutable
+
+/**
+ * A batch of rows stored by column, for evaluating rules against many rows at once (see CompiledRuleSet.evaluate).
+ *
+ * Column values are kept in primitive arrays (numbers, epoch millis) or dictionary encoded (strings), so rules can
+ * scan a column without per-row map lookups or boxing. Results are returned as a BitSet of passing row indexes.
+ *
+ * @param rowCount the number of rows
+ * @param columns  the columns, by field name (a missing column is treated as missing from every row)
+ */
+case class ColumnarBatch(rowCount: Int, columns: Map[String, RuleColumn]) {
+
+  columns.foreach {
+    case (name, column) => require(column.size == rowCount, s"Column $name has ${column.size} rows, expected $rowCount")
+  }
+
+  def column(name: String): Option[RuleColumn] = columns.get(name)
+
+  /**
+   * Evaluate the given function against each row
+   *
+   * @param fn the evaluation function
+   * @return the rows that pass
+   */
+  def evaluateRows(fn: RuleEvaluationContext => Boolean): util.BitSet = {
+    val result = new util.BitSet(rowCount)
+    val row = new ColumnarBatch.Row(this)
+
+    while (row.index < rowCount) {
+      if (fn(row)) {
+        result.set(row.index)
+      }
+
+      row.index += 1
+    }
+
+    result
+  }
+
+  /**
+   * Get a single row as a context
+   *
+   * @param index the row index
+   * @return the row context
+   */
+  def row(index: Int): RuleEvaluationContext = {
+    val row = new ColumnarBatch.Row(this)
+    row.index = index
+    row
+  }
+
+  /**
+   * all rows
+   */
+  def allRows: util.BitSet = {
+    val result = new util.BitSet(rowCount)
+    result.set(0, rowCount)
+    result
+  }
+}
+
+object ColumnarBatch {
+
+  /**
+   * A (movable) view of a single row
+   */
+  private class Row(batch: ColumnarBatch) extends RuleEvaluationContext {
+
+    var index: Int = 0
+
+    override def contains(key: String): Boolean = batch.columns.get(key).exists(_.isPresent(index))
+
+    override def get(key: String): Option[Any] = batch.columns.get(key).filter(_.isPresent(index)).map(_.value(index))
+  }
+
+  /**
+   * Build a batch from row contexts, using a number, string or generic column for each field based on its values
+   *
+   * @param rows   the rows
+   * @param fields the fields to include
+   * @return the batch
+   */
+  def fromRows(rows: IndexedSeq[RuleEvaluationContext], fields: Seq[String]): ColumnarBatch = {
+    val columns = fields.map(field => {
+      val values: Array[Any] = rows.map(r => if (r.contains(field)) r.get(field).orNull else None.orNull).toArray
+
+      val column: RuleColumn = values.filter(_ != null) match {
+        case v if v.forall(_.isInstanceOf[Number]) =>
+          NumberColumn(values.map(v => if (v == null) 0d else v.asInstanceOf[Number].doubleValue()), presence(values))
+
+        case v if v.forall(_.isInstanceOf[String]) => StringColumn.encode(values.map(_.asInstanceOf[String]))
+
+        case v if v.forall(_.isInstanceOf[Seq[_]]) =>
+          StringArrayColumn.encode(values.map(v => Option(v).map(_.asInstanceOf[Seq[_]].map(_.toString)).orNull))
+
+        case _ => ValueColumn(values)
+      }
+
+      field -> column
+    })
+
+    ColumnarBatch(rows.size, columns.toMap)
+  }
+
+  private[context] def presence(values: Array[_ <: Any]): util.BitSet = {
+    val present = new util.BitSet(values.length)
+    values.indices.foreach(i => if (values(i) != null) present.set(i))
+    present
+  }
+
+  private[context] def allPresent(size: Int): util.BitSet = {
+    val present = new util.BitSet(size)
+    present.set(0, size)
+    present
+  }
+}
+
+/**
+ * A column of values, with a flag for each row indicating if the value is present
+ */
+sealed trait RuleColumn {
+
+  /**
+   * the number of rows
+   */
+  def size: Int
+
+  /**
+   * the rows that have a value (rules should not modify this)
+   */
+  def present: util.BitSet
+
+  def isPresent(index: Int): Boolean = present.get(index)
+
+  /**
+   * the boxed value for the given row, for rules that are evaluated per row
+   */
+  def value(index: Int): Any
+}
+
+/**
+ * Numeric column.
+ *
+ * Whole numbers are exposed to per-row rules as Ints, matching how number rules read their fields.
+ *
+ * @param values  the values
+ * @param present the rows that have a value
+ */
+case class NumberColumn(values: Array[Double], present: util.BitSet) extends RuleColumn {
+
+  override def size: Int = values.length
+
+  override def value(index: Int): Any = {
+    val v = values(index)
+    if (v.isWhole && v >= Int.MinValue && v <= Int.MaxValue) v.toInt else v
+  }
+}
+
+object NumberColumn {
+
+  def apply(values: Array[Double]): NumberColumn = NumberColumn(values, ColumnarBatch.allPresent(values.length))
+
+  def apply(values: Array[Int]): NumberColumn = NumberColumn(values.map(_.toDouble))
+}
+
+/**
+ * Date/time column, stored as epoch millis (of the local date/time, at UTC, the same as DateUtils.toEpochMilli)
+ *
+ * @param epochMillis the values
+ * @param present     the rows that have a value
+ */
+case class TemporalColumn(epochMillis: Array[Long], present: util.BitSet) extends RuleColumn {
+
+  override def size: Int = epochMillis.length
+
+  override def value(index: Int): Any = {
+    val dateTime = LocalDateTime.ofEpochSecond(
+      Math.floorDiv(epochMillis(index), 1000L), Math.floorMod(epochMillis(index), 1000L).toInt * 1000000, ZoneOffset.UTC
+    )
+
+    if (dateTime.toLocalTime == java.time.LocalTime.MIDNIGHT) dateTime.toLocalDate else dateTime
+  }
+}
+
+object TemporalColumn {
+
+  private final val MILLIS_PER_DAY = 86400000L
+
+  def apply(epochMillis: Array[Long]): TemporalColumn = {
+    TemporalColumn(epochMillis, ColumnarBatch.allPresent(epochMillis.length))
+  }
+
+  /**
+   * Create a column of dates
+   *
+   * @param epochDays the values, as days since 1970-01-01
+   * @param present   the rows that have a value
+   * @return the column
+   */
+  def ofEpochDays(epochDays: Array[Long], present: util.BitSet): TemporalColumn = {
+    TemporalColumn(epochDays.map(_ * MILLIS_PER_DAY), present)
+  }
+
+  def ofEpochDays(epochDays: Array[Long]): TemporalColumn = {
+    ofEpochDays(epochDays, ColumnarBatch.allPresent(epochDays.length))
+  }
+
+  def ofDates(dates: Array[LocalDate]): TemporalColumn = {
+    ofEpochDays(dates.map(d => if (d == null) 0L else d.toEpochDay), ColumnarBatch.presence(dates))
+  }
+}
+
+/**
+ * Dictionary encoded string column
+ *
+ * @param dictionary the distinct values
+ * @param codes      the index into the dictionary for each row (-1 if the row has no value)
+ */
+case class StringColumn(dictionary: Array[String], codes: Array[Int]) extends RuleColumn {
+
+  override val present: util.BitSet = {
+    val p = new util.BitSet(codes.length)
+    codes.indices.foreach(i => if (codes(i) >= 0) p.set(i))
+    p
+  }
+
+  override def size: Int = codes.length
+
+  override def value(index: Int): Any = dictionary(codes(index))
+}
+
+object StringColumn {
+
+  /**
+   * Dictionary encode the given values
+   *
+   * @param values the values (null for no value)
+   * @return the column
+   */
+  def encode(values: Array[String]): StringColumn = {
+    val dictionary = mutable.LinkedHashMap.empty[String, Int]
+    val codes = values.map(v => if (v == null) -1 else dictionary.getOrElseUpdate(v, dictionary.size))
+    StringColumn(dictionary.keys.toArray, codes)
+  }
+}
+
+/**
+ * Column of string arrays. The strings for row i are dictionary codes offsets(i) until offsets(i + 1).
+ *
+ * @param dictionary the distinct values
+ * @param offsets    the start of each row in codes (rows + 1 entries)
+ * @param codes      the index into the dictionary for each string
+ * @param present    the rows that have a value
+ */
+case class StringArrayColumn(dictionary: Array[String],
+                             offsets: Array[Int],
+                             codes: Array[Int],
+                             present: util.BitSet) extends RuleColumn {
+
+  override def size: Int = offsets.length - 1
+
+  override def value(index: Int): Any = (offsets(index) until offsets(index + 1)).map(i => dictionary(codes(i)))
+}
+
+object StringArrayColumn {
+
+  /**
+   * Dictionary encode the given values
+   *
+   * @param values the values (null for no value)
+   * @return the column
+   */
+  def encode(values: Array[Seq[String]]): StringArrayColumn = {
+    val dictionary = mutable.LinkedHashMap.empty[String, Int]
+    val offsets = new Array[Int](values.length + 1)
+    val codes = mutable.ArrayBuilder.make[Int]
+
+    values.indices.foreach(i => {
+      Option(values(i)).foreach(_.foreach(v => codes += dictionary.getOrElseUpdate(v, dictionary.size)))
+      offsets(i + 1) = offsets(i) + Option(values(i)).map(_.size).getOrElse(0)
+    })
+
+    StringArrayColumn(dictionary.keys.toArray, offsets, codes.result(), ColumnarBatch.presence(values))
+  }
+}
+
+/**
+ * Column of arbitrary values, always evaluated per row
+ *
+ * @param values the values (null for no value)
+ */
+case class ValueColumn(values: Array[Any]) extends RuleColumn {
+
+  override val present: util.BitSet = ColumnarBatch.presence(values)
+
+  override def size: Int = values.length
+
+  override def value(index: Int): Any = values(index)
+}
@@ -1,12 +1,14 @@
 package com.srivastavavivekggn.scala.util.parse.rule.impl
 
-import com.srivastavavivekggn.scala.util.parse.rule.Rule
-import com.srivastavavivekggn.scala.util.parse.rule.context.RuleEvaluationContext
+import com.srivastavavivekggn.scala.util.parse.rule.context.{ColumnarBatch, RuleEvaluationContext, StringArrayColumn}
+import com.srivastavavivekggn.scala.util.parse.rule.{Rule, RulePredicate}
 import com.srivastavavivekggn.scala.util.parse.rule.impl.ArrayOfStringRule.{evaluateRule, operator}
 import com.srivastavavivekggn.scala.util.parse.{space, stringArray}
 import fastparse.NoWhitespace.noWhitespaceImplicit
 import fastparse.P
 
+import java.util
+
 case class ArrayOfStringRule(fields: String*) extends Rule[(String, String, Seq[String])] with FieldAware {
 
   override def parser[_: P]: P[(String, String, Seq[String])] = P(fieldsParser ~ space ~ operator ~ space ~ stringArray)
@@ -14,10 +16,85 @@ case class ArrayOfStringRule(fields: String*) extends Rule[(String, String, Seq[
   override def withContext[_: P](ctx: RuleEvaluationContext): P[Boolean] = {
     parser.map(v => evaluateRule(v, ctx))
   }
+
+  override def predicate[_: P]: P[RulePredicate] = parser.map(ArrayOfStringRule.compile)
 }
 
 object ArrayOfStringRule extends ArrayOfRules {
 
+  /**
+    * the maximum number of distinct values in a 'has all of' rule for column evaluation (one bit per value)
+    */
+  private final val MAX_COLUMNAR_VALUES = 64
+
+  /**
+    * Create the predicate for a parsed rule. For string array columns, each distinct value is looked up once, and
+    * rows are matched on dictionary codes.
+    *
+    * @param capture the parsed rule
+    * @return the predicate
+    */
+  def compile(capture: (String, String, Seq[String])): RulePredicate = new RulePredicate {
+
+    private val lowerRight = capture._3.map(_.toLowerCase).distinct
+
+    override def evaluate(context: RuleEvaluationContext): Boolean = evaluateRule(capture, context)
+
+    override def evaluate(batch: ColumnarBatch): util.BitSet = {
+      val (field, op, _) = capture
+
+      batch.column(field) match {
+        case Some(column: StringArrayColumn) if op == HAS_ONE_OF =>
+          val found = column.dictionary.map(d => lowerRight.contains(d.toLowerCase))
+          scan(column, (start, end) => {
+            var idx = start
+            while (idx < end && !found(column.codes(idx))) idx += 1
+            idx < end
+          })
+
+        case Some(column: StringArrayColumn) if op == HAS_ALL_OF && lowerRight.size <= MAX_COLUMNAR_VALUES =>
+          // each required value gets a bit, a row matches when it has all of them
+          val bits = column.dictionary.map(d => lowerRight.indexOf(d.toLowerCase) match {
+            case -1 => 0L
+            case i => 1L << i
+          })
+          val required = if (lowerRight.size == MAX_COLUMNAR_VALUES) -1L else (1L << lowerRight.size) - 1
+
+          scan(column, (start, end) => {
+            var mask = 0L
+            var idx = start
+            while (idx < end) {
+              mask |= bits(column.codes(idx))
+              idx += 1
+            }
+            mask == required
+          })
+
+        case Some(_) => super.evaluate(batch)
+
+        case None => new util.BitSet()
+      }
+    }
+  }
+
+  /**
+    * Apply the row test (given the start and end of the row in column.codes) to each present row
+    */
+  private def scan(column: StringArrayColumn, test: (Int, Int) => Boolean): util.BitSet = {
+    val result = new util.BitSet(column.size)
+    var i = column.present.nextSetBit(0)
+
+    while (i >= 0) {
+      if (test(column.offsets(i), column.offsets(i + 1))) {
+        result.set(i)
+      }
+
+      i = column.present.nextSetBit(i + 1)
+    }
+
+    result
+  }
+
   def evaluateRule(capture: (String, String, Seq[String]),
                    context: RuleEvaluationContext): Boolean = {
     capture match {
@@ -0,0 +1,90 @@
+package com.srivastavavivekggn.scala.util.parse.rule.impl
+
+import java.util
+
+/**
+ * Column scans shared by the rule implementations (see ColumnarBatch).
+ *
+ * Scans are simple loops over primitive arrays that build the result 64 rows at a time, with the comparison chosen
+ * before the loop, so they compile down to tight (and where possible, vectorized) code.
+ */
+private[impl] object ColumnarRules {
+
+  /**
+   * Rows where lo <= value <= hi (or outside that range, if negate is set), limited to present rows
+   */
+  def inRange(values: Array[Double], lo: Double, hi: Double, negate: Boolean, present: util.BitSet): util.BitSet = {
+    val words = new Array[Long]((values.length + 63) >>> 6)
+    var i = 0
+
+    while (i < values.length) {
+      val v = values(i)
+      val bit = if ((v >= lo && v <= hi) != negate) 1L else 0L
+      words(i >>> 6) |= bit << i
+      i += 1
+    }
+
+    and(words, present)
+  }
+
+  /**
+   * Rows where lo <= value <= hi (or outside that range, if negate is set), limited to present rows
+   */
+  def inRange(values: Array[Long], lo: Long, hi: Long, negate: Boolean, present: util.BitSet): util.BitSet = {
+    val words = new Array[Long]((values.length + 63) >>> 6)
+    var i = 0
+
+    while (i < values.length) {
+      val v = values(i)
+      val bit = if ((v >= lo && v <= hi) != negate) 1L else 0L
+      words(i >>> 6) |= bit << i
+      i += 1
+    }
+
+    and(words, present)
+  }
+
+  /**
+   * Rows whose dictionary code matches (codes < 0 never match)
+   *
+   * @param codes   the dictionary code for each row
+   * @param matches the result for each dictionary entry
+   */
+  def matchingCodes(codes: Array[Int], matches: Array[Boolean]): util.BitSet = {
+    val words = new Array[Long]((codes.length + 63) >>> 6)
+    var i = 0
+
+    while (i < codes.length) {
+      val code = codes(i)
+      val bit = if (code >= 0 && matches(code)) 1L else 0L
+      words(i >>> 6) |= bit << i
+      i += 1
+    }
+
+    util.BitSet.valueOf(words)
+  }
+
+  /**
+   * Rows whose dictionary code does not match, limited to present rows
+   */
+  def notMatchingCodes(codes: Array[Int], matches: Array[Boolean], present: util.BitSet): util.BitSet = {
+    val result = matchingCodes(codes, matches.map(!_))
+    result.and(present)
+    result
+  }
+
+  /**
+   * Rows in the first set, but not in the second
+   */
+  def andNot(rows: util.BitSet, excluded: util.BitSet): util.BitSet = {
+    val result = rows.clone().asInstanceOf[util.BitSet]
+    result.andNot(excluded)
+    result
+  }
+
+  private def and(words: Array[Long], present: util.BitSet): util.BitSet = {
+    val result = util.BitSet.valueOf(words)
+    result.and(present)
+    result
+  }
+}
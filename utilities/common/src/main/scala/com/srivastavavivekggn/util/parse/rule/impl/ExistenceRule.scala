@@ -1,13 +1,15 @@
 package com.srivastavavivekggn.scala.util.parse.rule.impl
 
 import com.srivastavavivekggn.scala.util.lang.StringUtils
-import com.srivastavavivekggn.scala.util.parse.rule.Rule
-import com.srivastavavivekggn.scala.util.parse.rule.context.RuleEvaluationContext
+import com.srivastavavivekggn.scala.util.parse.rule.context.{ColumnarBatch, RuleEvaluationContext, StringColumn, ValueColumn}
+import com.srivastavavivekggn.scala.util.parse.rule.{Rule, RulePredicate}
 import com.srivastavavivekggn.scala.util.parse.rule.impl.ExistenceRule.{evaluateRule, operator}
 import com.srivastavavivekggn.scala.util.parse.space
 import fastparse.NoWhitespace.noWhitespaceImplicit
 import fastparse.{P, StringInIgnoreCase}
 
+import java.util
+
 /**
   * Rule that checks for existence (present or missing) of a field
   * @param fields the fields
@@ -18,6 +20,8 @@ case class ExistenceRule(fields: String*) extends Rule[(String, String)] with Fi
   override def withContext[_: P](ctx: RuleEvaluationContext): P[Boolean] = {
     parser.map(v => evaluateRule(v, ctx))
   }
+
+  override def predicate[_: P]: P[RulePredicate] = parser.map(ExistenceRule.compile)
 }
 
 object ExistenceRule {
@@ -49,6 +53,39 @@ object ExistenceRule {
     }
   }
 
+  /**
+    * Create the predicate for a parsed rule, which uses column presence directly
+    *
+    * @param capture the parsed rule
+    * @return the predicate
+    */
+  def compile(capture: (String, String)): RulePredicate = new RulePredicate {
+
+    override def evaluate(context: RuleEvaluationContext): Boolean = evaluateRule(capture, context)
+
+    override def evaluate(batch: ColumnarBatch): util.BitSet = {
+      val (field, op) = capture
+
+      val existing = batch.column(field) match {
+        case Some(column: StringColumn) =>
+          ColumnarRules.matchingCodes(column.codes, column.dictionary.map(d => !StringUtils.isEmpty(d)))
+
+        case Some(_: ValueColumn) => batch.evaluateRows(ctx => evaluateRule((field, EXISTS), ctx))
+
+        // number, temporal and array values are never empty
+        case Some(column) => column.present.clone().asInstanceOf[util.BitSet]
+
+        case None => new util.BitSet()
+      }
+
+      op match {
+        case EXISTS => existing
+        case NOT_EXISTS => ColumnarRules.andNot(batch.allRows, existing)
+        case _ => new util.BitSet()
+      }
+    }
+  }
+
   def valueIsEmpty(v: Option[Any]): Boolean = {
     v.isEmpty || v.exists(v => v == null || None.equals(v) || StringUtils.isEmpty(v.toString))
   }
@@ -1,12 +1,14 @@
 package com.srivastavavivekggn.scala.util.parse.rule.impl
 
-import com.srivastavavivekggn.scala.util.parse.rule.Rule
-import com.srivastavavivekggn.scala.util.parse.rule.context.RuleEvaluationContext
+import com.srivastavavivekggn.scala.util.parse.rule.context.{ColumnarBatch, NumberColumn, RuleEvaluationContext}
+import com.srivastavavivekggn.scala.util.parse.rule.{Rule, RulePredicate}
 import com.srivastavavivekggn.scala.util.parse.rule.impl.NumberArrayRule.{evaluateRule, operator}
 import com.srivastavavivekggn.scala.util.parse.{numberArray, space}
 import fastparse.NoWhitespace.noWhitespaceImplicit
 import fastparse.P
 
+import java.util
+
 
 case class NumberArrayRule(fields: String*) extends Rule[(String, String, Seq[Int])] with FieldAware {
   override def parser[_: P]: P[(String, String, Seq[Int])] = P(fieldsParser ~ space ~ operator ~ space ~ numberArray)
@@ -14,11 +16,55 @@ case class NumberArrayRule(fields: String*) extends Rule[(String, String, Seq[In
   override def withContext[_: P](ctx: RuleEvaluationContext): P[Boolean] = {
     parser.map(v => evaluateRule(v, ctx))
   }
+
+  override def predicate[_: P]: P[RulePredicate] = parser.map(NumberArrayRule.compile)
 }
 
 
 object NumberArrayRule extends ArrayRules {
 
+  /**
+    * Create the predicate for a parsed rule, which scans number columns directly
+    *
+    * @param capture the parsed rule
+    * @return the predicate
+    */
+  def compile(capture: (String, String, Seq[Int])): RulePredicate = new RulePredicate {
+
+    private val sorted = capture._3.toArray.sorted
+
+    override def evaluate(context: RuleEvaluationContext): Boolean = evaluateRule(capture, context)
+
+    override def evaluate(batch: ColumnarBatch): util.BitSet = {
+      val (field, op, _) = capture
+
+      batch.column(field) match {
+        case Some(column: NumberColumn) if op == FOUND_IN || op == NOT_FOUND_IN =>
+          val result = new util.BitSet(batch.rowCount)
+          val values = column.values
+          val negate = op == NOT_FOUND_IN
+          var i = column.present.nextSetBit(0)
+
+          while (i >= 0) {
+            val v = values(i)
+            val found = v.isWhole && util.Arrays.binarySearch(sorted, v.toInt) >= 0
+
+            if (found != negate) {
+              result.set(i)
+            }
+
+            i = column.present.nextSetBit(i + 1)
+          }
+
+          result
+
+        case Some(_) => super.evaluate(batch)
+
+        case None => new util.BitSet()
+      }
+    }
+  }
+
   def evaluateRule(capture: (String, String, Seq[Int]), context: RuleEvaluationContext): Boolean = {
     capture match {
       case (leftKey, op, right) if context.contains(leftKey) =>
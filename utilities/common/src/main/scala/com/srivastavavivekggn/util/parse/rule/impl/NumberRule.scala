@@ -1,12 +1,14 @@
 package com.srivastavavivekggn.scala.util.parse.rule.impl
 
-import com.srivastavavivekggn.scala.util.parse.rule.Rule
-import com.srivastavavivekggn.scala.util.parse.rule.context.RuleEvaluationContext
+import com.srivastavavivekggn.scala.util.parse.rule.context.{ColumnarBatch, NumberColumn, RuleEvaluationContext}
+import com.srivastavavivekggn.scala.util.parse.rule.{Rule, RulePredicate}
 import com.srivastavavivekggn.scala.util.parse.rule.impl.NumberRule.operator
 import com.srivastavavivekggn.scala.util.parse.{number, space}
 import fastparse.NoWhitespace.noWhitespaceImplicit
 import fastparse.{P, StringIn}
 
+import java.util
+
 case class NumberRule(fields: String*) extends Rule[(String, String, Int)] with FieldAware {
 
   override def parser[_: P]: P[(String, String, Int)] = P(fieldsParser ~ space ~ operator ~ space ~ number)
@@ -14,6 +16,8 @@ case class NumberRule(fields: String*) extends Rule[(String, String, Int)] with
   override def withContext[_: P](ctx: RuleEvaluationContext): P[Boolean] = {
     parser.map(v => NumberRule.evaluateRule(v, ctx))
   }
+
+  override def predicate[_: P]: P[RulePredicate] = parser.map(NumberRule.compile)
 }
 
 
@@ -28,6 +32,40 @@ object NumberRule {
 
   def operator[_: P]: P[String] = P(StringIn(LT, LTE, EQ, NEQ, GT, GTE).!)
 
+  /**
+    * Create the predicate for a parsed rule, which scans number columns directly
+    *
+    * @param capture the parsed rule
+    * @return the predicate
+    */
+  def compile(capture: (String, String, Int)): RulePredicate = new RulePredicate {
+
+    override def evaluate(context: RuleEvaluationContext): Boolean = evaluateRule(capture, context)
+
+    override def evaluate(batch: ColumnarBatch): util.BitSet = {
+      val (field, op, right) = capture
+
+      batch.column(field) match {
+        case Some(column: NumberColumn) =>
+          val r = right.toDouble
+
+          op match {
+            case LT => ColumnarRules.inRange(column.values, Double.NegativeInfinity, Math.nextDown(r), negate = false, column.present)
+            case LTE => ColumnarRules.inRange(column.values, Double.NegativeInfinity, r, negate = false, column.present)
+            case EQ => ColumnarRules.inRange(column.values, r, r, negate = false, column.present)
+            case NEQ => ColumnarRules.inRange(column.values, r, r, negate = true, column.present)
+            case GT => ColumnarRules.inRange(column.values, Math.nextUp(r), Double.PositiveInfinity, negate = false, column.present)
+            case GTE => ColumnarRules.inRange(column.values, r, Double.PositiveInfinity, negate = false, column.present)
+            case _ => new util.BitSet()
+          }
+
+        case Some(_) => super.evaluate(batch)
+
+        case None => new util.BitSet()
+      }
+    }
+  }
+
   def evaluateRule(capture: (String, String, Int),
                    context: RuleEvaluationContext): Boolean = {
 
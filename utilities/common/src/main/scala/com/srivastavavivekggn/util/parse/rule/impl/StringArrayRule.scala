@@ -1,22 +1,59 @@
 package com.srivastavavivekggn.scala.util.parse.rule.impl
 
-import com.srivastavavivekggn.scala.util.parse.rule.Rule
-import com.srivastavavivekggn.scala.util.parse.rule.context.RuleEvaluationContext
+import com.srivastavavivekggn.scala.util.parse.rule.context.{ColumnarBatch, RuleEvaluationContext, StringColumn}
+import com.srivastavavivekggn.scala.util.parse.rule.{Rule, RulePredicate}
 import com.srivastavavivekggn.scala.util.parse.rule.impl.StringArrayRule.{evaluateRule, operator}
 import com.srivastavavivekggn.scala.util.parse.{space, stringArray}
 import fastparse.NoWhitespace.noWhitespaceImplicit
 import fastparse.P
 
+import java.util
+
 case class StringArrayRule(fields: String*) extends Rule[(String, String, Seq[String])] with FieldAware {
   override def parser[_: P]: P[(String, String, Seq[String])] = P(fieldsParser ~ space ~ operator ~ space ~ stringArray)
 
   override def withContext[_: P](ctx: RuleEvaluationContext): P[Boolean] = {
     parser.map(v => evaluateRule(v, ctx))
   }
+
+  override def predicate[_: P]: P[RulePredicate] = parser.map(StringArrayRule.compile)
 }
 
 object StringArrayRule extends ArrayRules {
 
+  /**
+    * Create the predicate for a parsed rule. For string columns, each distinct value is looked up once.
+    *
+    * @param capture the parsed rule
+    * @return the predicate
+    */
+  def compile(capture: (String, String, Seq[String])): RulePredicate = new RulePredicate {
+
+    private val lowerRight = capture._3.map(_.toLowerCase).toSet
+
+    override def evaluate(context: RuleEvaluationContext): Boolean = evaluateRule(capture, context)
+
+    override def evaluate(batch: ColumnarBatch): util.BitSet = {
+      val (field, op, _) = capture
+
+      batch.column(field) match {
+        case Some(column: StringColumn) if op == FOUND_IN || op == NOT_FOUND_IN =>
+          val found = column.dictionary.map(d => lowerRight.contains(d.toLowerCase))
+
+          if (op == FOUND_IN) {
+            ColumnarRules.matchingCodes(column.codes, found)
+          }
+          else {
+            ColumnarRules.notMatchingCodes(column.codes, found, column.present)
+          }
+
+        case Some(_) => super.evaluate(batch)
+
+        case None => new util.BitSet()
+      }
+    }
+  }
+
   def evaluateRule(capture: (String, String, Seq[String]), context: RuleEvaluationContext): Boolean = {
     capture match {
       case (leftKey, op, right) if context.contains(leftKey) =>
@@ -1,13 +1,15 @@
 package com.srivastavavivekggn.scala.util.parse.rule.impl
 
 import com.srivastavavivekggn.scala.util.lang.StringUtils
-import com.srivastavavivekggn.scala.util.parse.rule.Rule
-import com.srivastavavivekggn.scala.util.parse.rule.context.RuleEvaluationContext
+import com.srivastavavivekggn.scala.util.parse.rule.context.{ColumnarBatch, RuleEvaluationContext, StringColumn}
+import com.srivastavavivekggn.scala.util.parse.rule.{Rule, RulePredicate}
 import com.srivastavavivekggn.scala.util.parse.rule.impl.StringRule.{evaluateRule, operator}
 import com.srivastavavivekggn.scala.util.parse.{quotedString, space, string}
 import fastparse.NoWhitespace.noWhitespaceImplicit
 import fastparse.{P, StringInIgnoreCase}
 
+import java.util
+
 case class StringRule(fields: String*) extends Rule[(String, String, String)] with FieldAware {
 
   override def parser[_: P]: P[(String, String, String)] = P(fieldsParser ~ space ~ operator ~ space ~ (quotedString | string))
@@ -15,6 +17,8 @@ case class StringRule(fields: String*) extends Rule[(String, String, String)] wi
   override def withContext[_: P](ctx: RuleEvaluationContext): P[Boolean] = {
     parser.map(v => evaluateRule(v, ctx))
   }
+
+  override def predicate[_: P]: P[RulePredicate] = parser.map(StringRule.compile)
 }
 
 object StringRule {
@@ -29,23 +33,52 @@ object StringRule {
 
   def evaluateRule(capture: (String, String, String), context: RuleEvaluationContext): Boolean = {
     capture match {
-      case (leftKey, op, right) if context.contains(leftKey) =>
-        val left: Option[String] = context.get(leftKey).map(_.toString)
+      case (leftKey, op, right) if context.contains(leftKey) => matches(op, context.get(leftKey).map(_.toString), right)
+
+      case _ => false
+    }
+  }
 
-        val result = op match {
-          case IS => left.getOrElse(StringUtils.EMPTY).equalsIgnoreCase(right)
-          case IS_NOT => !left.getOrElse(StringUtils.EMPTY).equalsIgnoreCase(right)
+  /**
+    * Compare a (present) field value
+    *
+    * @param op    the operator
+    * @param left  the field value
+    * @param right the rule value
+    * @return true if the value matches
+    */
+  def matches(op: String, left: Option[String], right: String): Boolean = op match {
+    case IS => left.getOrElse(StringUtils.EMPTY).equalsIgnoreCase(right)
+    case IS_NOT => !left.getOrElse(StringUtils.EMPTY).equalsIgnoreCase(right)
 
-          case STARTS => left.map(_.toLowerCase).exists(_.startsWith(right.toLowerCase))
-          case ENDS => left.map(_.toLowerCase).exists(_.endsWith(right.toLowerCase))
-          case CONTAINS => left.map(_.toLowerCase).exists(_.contains(right.toLowerCase))
+    case STARTS => left.map(_.toLowerCase).exists(_.startsWith(right.toLowerCase))
+    case ENDS => left.map(_.toLowerCase).exists(_.endsWith(right.toLowerCase))
+    case CONTAINS => left.map(_.toLowerCase).exists(_.contains(right.toLowerCase))
 
-          case _ => false
-        }
+    case _ => false
+  }
 
-        result
+  /**
+    * Create the predicate for a parsed rule. For string columns, each distinct value is compared once.
+    *
+    * @param capture the parsed rule
+    * @return the predicate
+    */
+  def compile(capture: (String, String, String)): RulePredicate = new RulePredicate {
 
-      case _ => false
+    override def evaluate(context: RuleEvaluationContext): Boolean = evaluateRule(capture, context)
+
+    override def evaluate(batch: ColumnarBatch): util.BitSet = {
+      val (field, op, right) = capture
+
+      batch.column(field) match {
+        case Some(column: StringColumn) =>
+          ColumnarRules.matchingCodes(column.codes, column.dictionary.map(d => matches(op, Option(d), right)))
+
+        case Some(_) => super.evaluate(batch)
+
+        case None => new util.BitSet()
+      }
     }
   }
 }
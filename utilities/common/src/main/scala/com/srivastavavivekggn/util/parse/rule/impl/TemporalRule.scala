@@ -1,13 +1,14 @@
 package com.srivastavavivekggn.scala.util.parse.rule.impl
 
 import com.srivastavavivekggn.scala.util.lang.DateUtils
-import com.srivastavavivekggn.scala.util.parse.rule.Rule
-import com.srivastavavivekggn.scala.util.parse.rule.context.RuleEvaluationContext
+import com.srivastavavivekggn.scala.util.parse.rule.context.{ColumnarBatch, RuleEvaluationContext, TemporalColumn}
+import com.srivastavavivekggn.scala.util.parse.rule.{Rule, RulePredicate}
 import com.srivastavavivekggn.scala.util.parse.{Scheduler, space}
 import fastparse.NoWhitespace.noWhitespaceImplicit
 import fastparse._
 
 import java.time.LocalDateTime
+import java.util
 
 case class TemporalRule(fields: String*) extends Rule[(String, String, LocalDateTime)] with FieldAware {
 
@@ -20,6 +21,12 @@ case class TemporalRule(fields: String*) extends Rule[(String, String, LocalDate
   override def withContext[_: P](ctx: RuleEvaluationContext): P[Boolean] = {
     parser.map(v => TemporalRule.evaluateRule(v, ctx, scheduler))
   }
+
+  override def predicate[_: P]: P[RulePredicate] = {
+    P(fieldsParser ~ space ~ (NumberRule.operator | TemporalRule.operator) ~ space ~ scheduler.anyTemporal.!).map {
+      case (field, op, right) => TemporalRule.compile(field, op, right, scheduler)
+    }
+  }
 }
 
 object TemporalRule {
@@ -33,6 +40,57 @@ object TemporalRule {
 
   def operator[_: P]: P[String] = P(StringIn(LT, LTE, EQ, NEQ, GT, GTE).!)
 
+  /**
+    * Create the predicate for a parsed rule.
+    *
+    * The temporal text is compiled once (see Scheduler.compileTemporal), and resolved on each evaluation (once per
+    * batch for columns), so relative values (now, today + 7 days, etc.) match parsing the rule against a context.
+    *
+    * @param field     the field
+    * @param op        the operator
+    * @param right     the temporal text
+    * @param scheduler the scheduler
+    * @return the predicate
+    */
+  def compile(field: String, op: String, right: String, scheduler: Scheduler): RulePredicate = {
+
+    val expression = scheduler.compileTemporal(right)
+
+    def resolve(): Option[LocalDateTime] = expression.map(_.resolve())
+
+    new RulePredicate {
+
+      override def evaluate(context: RuleEvaluationContext): Boolean = {
+        resolve().exists(value => evaluateRule((field, op, value), context, scheduler))
+      }
+
+      override def evaluate(batch: ColumnarBatch): util.BitSet = batch.column(field) match {
+        case Some(column: TemporalColumn) => resolve().map(value => evaluateColumn(column, op, value)).getOrElse(new util.BitSet())
+
+        case Some(_) => super.evaluate(batch)
+
+        case None => new util.BitSet()
+      }
+    }
+  }
+
+  /**
+    * Compare each present value in the column
+    */
+  private def evaluateColumn(column: TemporalColumn, op: String, right: LocalDateTime): util.BitSet = {
+    val r: Long = DateUtils.toEpochMilli(right)
+
+    op match {
+      case LT | NumberRule.LT => ColumnarRules.inRange(column.epochMillis, Long.MinValue, r - 1, negate = false, column.present)
+      case LTE | NumberRule.LTE => ColumnarRules.inRange(column.epochMillis, Long.MinValue, r, negate = false, column.present)
+      case EQ | NumberRule.EQ => ColumnarRules.inRange(column.epochMillis, r, r, negate = false, column.present)
+      case NEQ | NumberRule.NEQ => ColumnarRules.inRange(column.epochMillis, r, r, negate = true, column.present)
+      case GT | NumberRule.GT => ColumnarRules.inRange(column.epochMillis, r + 1, Long.MaxValue, negate = false, column.present)
+      case GTE | NumberRule.GTE => ColumnarRules.inRange(column.epochMillis, r, Long.MaxValue, negate = false, column.present)
+      case _ => new util.BitSet()
+    }
+  }
+
   /**
     * Evaluate date comparison rules
     *
@@ -0,0 +1,257 @@
+package com.srivastavavivekggn.scala.util.placeholder
+
+import java.util.Locale
+
+import com.google.common.cache.{CacheBuilder, CacheLoader, LoadingCache}
+import com.srivastavavivekggn.scala.util.placeholder.PlaceholderUtils.ReplacementMode
+import com.srivastavavivekggn.scala.util.placeholder.context.PlaceholderContextProvider
+import com.srivastavavivekggn.scala.util.placeholder.format.{FormatterRegistry, PlaceholderValueFormatter}
+import com.srivastavavivekggn.scala.util.system.SystemUtils
+
+import scala.annotation.tailrec
+
+/**
+  * A template that has been parsed once into a list of literal and placeholder segments, so that it can be
+  * rendered many times without re-running the placeholder regex or re-building placeholders.
+  *
+  * Rendering is a single pass over the segments. A new pass is only made when the output may contain placeholders
+  * that were introduced by the previous pass (nested placeholders, or values that contain placeholders).
+  *
+  * compile caches templates by text, so every caller of the same template shares one instance.
+  *
+  * @param template the original template text
+  * @param segments the parsed segments
+  */
+final class CompiledTemplate private(val template: String, segments: Array[CompiledTemplate.Segment]) {
+
+  import CompiledTemplate._
+
+  /**
+    * the distinct list of placeholders in this template, in order of first appearance
+    */
+  val placeholders: List[Placeholder] = segments.toList.collect { case Slot(p, _) => p }.distinct
+
+  /**
+    * true if any literal text contains a brace (i.e., the output may form new placeholders)
+    */
+  private val literalsHaveBraces: Boolean = segments.exists {
+    case Literal(text) => hasBrace(text)
+    case _ => false
+  }
+
+  /**
+    * Render this template
+    *
+    * @param replacementCtx  the replacement context provider
+    * @param replacementMode how do we handle placeholders with no replacements
+    * @param formatters      any additional formatters to use (aside from the defaults)
+    * @param locale          the locale to format values with
+    * @return the rendered string
+    */
+  def render(replacementCtx: PlaceholderContextProvider,
+             replacementMode: ReplacementMode = ReplacementMode.STRIP_PLACEHOLDERS,
+             formatters: List[PlaceholderValueFormatter] = List.empty,
+             locale: Locale = Locale.getDefault): String = {
+    renderFrom(this, replacementCtx, replacementMode, FormatterRegistry.forFormatters(formatters), locale)
+  }
+
+  /**
+    * Perform a single rendering pass
+    *
+    * @return the output of this pass, and true if the output must be scanned again for new placeholders
+    */
+  private def renderOnce(replacementCtx: PlaceholderContextProvider,
+                         replacementMode: ReplacementMode,
+                         registry: FormatterRegistry,
+                         locale: Locale): (String, Boolean) = {
+
+    // nothing to replace
+    if (placeholders.isEmpty) {
+      (template, false)
+    }
+    // we have placeholders, but nothing to replace and mode = leave placeholders
+    else if (ReplacementMode.LEAVE_PLACEHOLDERS.equals(replacementMode) &&
+      !placeholders.exists(p => replacementCtx.contains(p.key))) {
+      (template, false)
+    }
+    else {
+      val sb = borrowBuilder()
+      var rescan = literalsHaveBraces
+
+      try {
+        var i = 0
+
+        while (i < segments.length) {
+          segments(i) match {
+            case Literal(text) => sb.append(text)
+
+            // we have a specific replacement
+            case Slot(placeholder, _) if replacementCtx.contains(placeholder.key) =>
+              val formattedValue = PlaceholderUtils.getFormattedValue(
+                replacementCtx.get(placeholder.key), placeholder, registry, locale
+              )
+              rescan = rescan || hasBrace(formattedValue)
+              sb.append(formattedValue)
+
+            // no replacement, stripping placeholders
+            case Slot(placeholder, _) if ReplacementMode.STRIP_PLACEHOLDERS.equals(replacementMode) =>
+              val formattedValue = PlaceholderUtils.getFormattedValue(None, placeholder, registry, locale)
+              rescan = rescan || hasBrace(formattedValue)
+              sb.append(formattedValue)
+
+            // no replacement, dropping braces
+            case Slot(placeholder, _) if ReplacementMode.DROP_BRACES.equals(replacementMode) =>
+              val formattedValue = PlaceholderUtils.getFormattedValue(placeholder.key, placeholder, registry, locale)
+              rescan = rescan || hasBrace(formattedValue)
+              sb.append(formattedValue)
+
+            // no replacement, leaving placeholders
+            case Slot(_, raw) => sb.append(raw)
+          }
+
+          i += 1
+        }
+
+        (sb.toString, rescan)
+      }
+      finally {
+        releaseBuilder(sb)
+      }
+    }
+  }
+
+  override def toString: String = template
+}
+
+object CompiledTemplate {
+
+  /**
+    * the maximum number of compiled templates to keep in the cache
+    */
+  final val CACHE_SIZE: Int = SystemUtils.getIntProperty("placeholder.template.cacheSize", 1024)
+
+  /**
+    * builders that grow beyond this size are not kept for re-use
+    */
+  private final val MAX_BUILDER_CAPACITY = 64 * 1024
+
+  /**
+    * A piece of a parsed template
+    */
+  private[placeholder] sealed trait Segment
+
+  /**
+    * Literal text that is copied to the output as-is
+    *
+    * @param text the text
+    */
+  private[placeholder] final case class Literal(text: String) extends Segment
+
+  /**
+    * A placeholder to be replaced
+    *
+    * @param placeholder the parsed placeholder
+    * @param raw         the original placeholder text (including braces)
+    */
+  private[placeholder] final case class Slot(placeholder: Placeholder, raw: String) extends Segment
+
+  /**
+    * bounded cache of compiled templates, keyed by template text
+    */
+  private val cache: LoadingCache[String, CompiledTemplate] = CacheBuilder.newBuilder()
+    .maximumSize(CACHE_SIZE)
+    .build[String, CompiledTemplate](new CacheLoader[String, CompiledTemplate] {
+      override def load(key: String): CompiledTemplate = parse(key)
+    })
+
+  /**
+    * re-usable per-thread output buffer (null while borrowed)
+    */
+  private val builders = new ThreadLocal[java.lang.StringBuilder]
+
+  /**
+    * Get the compiled version of the given template, using the cache
+    *
+    * @param template the template text
+    * @return the compiled template
+    */
+  def compile(template: String): CompiledTemplate = Option(template).map(cache.getUnchecked).getOrElse(parse(template))
+
+  /**
+    * Parse the given template, without using the cache
+    *
+    * @param template the template text
+    * @return the compiled template
+    */
+  def parse(template: String): CompiledTemplate = {
+
+    val segments = Option(template).map(t => {
+      val builder = Array.newBuilder[Segment]
+      var last = 0
+
+      PlaceholderUtils.placeholderRegex.findAllMatchIn(t).foreach(m => {
+        if (m.start > last) {
+          builder += Literal(t.substring(last, m.start))
+        }
+
+        builder += Slot(Placeholder.fromString(m.group(1)), m.matched)
+        last = m.end
+      })
+
+      if (last < t.length) {
+        builder += Literal(t.substring(last))
+      }
+
+      builder.result()
+    }).getOrElse(Array.empty[Segment])
+
+    new CompiledTemplate(template, segments)
+  }
+
+  /**
+    * Drop all cached templates
+    */
+  def invalidateAll(): Unit = cache.invalidateAll()
+
+  /**
+    * Render the given template, re-scanning the output as long as new placeholders may have been introduced
+    */
+  @tailrec
+  private def renderFrom(tpl: CompiledTemplate,
+                         replacementCtx: PlaceholderContextProvider,
+                         replacementMode: ReplacementMode,
+                         registry: FormatterRegistry,
+                         locale: Locale): String = {
+    tpl.renderOnce(replacementCtx, replacementMode, registry, locale) match {
+      // intermediate results depend on the values, so they are not cached
+      case (result, true) => renderFrom(parse(result), replacementCtx, replacementMode, registry, locale)
+      case (result, false) => result
+    }
+  }
+
+  /**
+    * Determine if the given string contains an open or close brace
+    */
+  @inline private def hasBrace(s: String): Boolean = s.indexOf('{') >= 0 || s.indexOf('}') >= 0
+
+  /**
+    * Take the per-thread builder (or a new one, if it is already in use further up the stack)
+    */
+  private def borrowBuilder(): java.lang.StringBuilder = Option(builders.get()) match {
+    case Some(sb) =>
+      builders.set(None.orNull)
+      sb
+
+    case None => new java.lang.StringBuilder(256)
+  }
+
+  /**
+    * Return a builder for re-use by this thread
+    */
+  private def releaseBuilder(sb: java.lang.StringBuilder): Unit = {
+    if (sb.capacity() <= MAX_BUILDER_CAPACITY) {
+      sb.setLength(0)
+      builders.set(sb)
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.srivastavavivekggn.scala.util.placeholder.format
+
+import java.time.format.DateTimeFormatter
+import java.util.concurrent.ConcurrentHashMap
+
+import com.google.common.cache.{Cache, CacheBuilder}
+import com.srivastavavivekggn.scala.util.placeholder.PlaceholderUtils
+
+/**
+  * Resolves format types and runtime value classes to a formatter.
+  *
+  * Formatters are checked in list order, so custom formatters take precedence over the defaults. Each format type and
+  * value class is only resolved once; the result (including "no formatter") is memoized, so lookup cost does not grow
+  * with the number of registered formatters.
+  *
+  * NOTE: memoizing by class assumes [[PlaceholderValueFormatter.canFormatValue]] depends only on the runtime class of
+  * the value, which is true for all formatters in this package.
+  *
+  * @param formatters the formatters, in order of precedence
+  */
+final class FormatterRegistry(val formatters: List[PlaceholderValueFormatter]) {
+
+  /**
+    * format type to formatter
+    */
+  private val byType = new ConcurrentHashMap[String, Option[PlaceholderValueFormatter]]()
+
+  /**
+    * value class to formatter
+    */
+  private val byClass = new ConcurrentHashMap[Class[_], Option[PlaceholderValueFormatter]]()
+
+  /**
+    * Find the formatter for the given format type
+    *
+    * @param formatType the format type (e.g., 'date')
+    * @return the first formatter that can handle the format type
+    */
+  def forType(formatType: String): Option[PlaceholderValueFormatter] = Option(formatType) match {
+    case Some(t) => byType.computeIfAbsent(t, (k: String) => formatters.find(_.canFormat(k)))
+    case None => None
+  }
+
+  /**
+    * Find the formatter for the given value, based on its runtime class
+    *
+    * @param value the value
+    * @return the first formatter that can handle the value
+    */
+  def forValue(value: Any): Option[PlaceholderValueFormatter] = Option(value) match {
+    case Some(v) => byClass.computeIfAbsent(v.getClass, (_: Class[_]) => formatters.find(_.canFormatValue(v)))
+    case None => None
+  }
+}
+
+object FormatterRegistry {
+
+  /**
+    * the maximum number of distinct custom formatter lists to keep a registry for
+    */
+  private final val MAX_REGISTRIES = 256
+
+  /**
+    * the maximum number of date/time patterns to keep a formatter for
+    */
+  private final val MAX_PATTERNS = 512
+
+  /**
+    * registry for the default formatters only
+    */
+  lazy val default: FormatterRegistry = new FormatterRegistry(PlaceholderUtils.defaultFormatters)
+
+  /**
+    * registries for custom formatter lists (custom formatters + defaults), keyed by the custom list
+    */
+  private val registries: Cache[List[PlaceholderValueFormatter], FormatterRegistry] = CacheBuilder.newBuilder()
+    .maximumSize(MAX_REGISTRIES)
+    .build[List[PlaceholderValueFormatter], FormatterRegistry]()
+
+  /**
+    * date/time formatters, keyed by pattern
+    */
+  private val patterns: Cache[String, DateTimeFormatter] = CacheBuilder.newBuilder()
+    .maximumSize(MAX_PATTERNS)
+    .build[String, DateTimeFormatter]()
+
+  /**
+    * Get the registry for the given custom formatters (which take precedence over the default formatters)
+    *
+    * @param formatters the custom formatters
+    * @return the registry
+    */
+  def forFormatters(formatters: List[PlaceholderValueFormatter]): FormatterRegistry = formatters match {
+    case null | Nil => default
+
+    case custom => Option(registries.getIfPresent(custom)).getOrElse({
+      val registry = new FormatterRegistry(custom ++ PlaceholderUtils.defaultFormatters)
+      registries.put(custom, registry)
+      registry
+    })
+  }
+
+  /**
+    * Get the (immutable, thread-safe) date/time formatter for the given pattern
+    *
+    * @param pattern the pattern (e.g., 'YYYY')
+    * @return the formatter
+    * @throws IllegalArgumentException if the pattern is invalid
+    */
+  def dateTimeFormatter(pattern: String): DateTimeFormatter = Option(patterns.getIfPresent(pattern)).getOrElse({
+    val formatter = DateTimeFormatter.ofPattern(pattern)
+    patterns.put(pattern, formatter)
+    formatter
+  })
+}
@@ -1,45 +1,31 @@
 package com.srivastavavivekggn.scala.util.placeholder.format
 
-import java.time.format.DateTimeFormatter
 import java.time.temporal.TemporalAccessor
 import java.util.Locale
 import java.util.regex.Pattern
 
 import com.srivastavavivekggn.scala.util.lang.LocaleUtils
+import com.srivastavavivekggn.scala.util.lang.i18n.LocaleDetail
 import com.srivastavavivekggn.scala.util.lang.i18n.LocaleDetail.DateTimeFormats
 
 class LocalizedTemporalValueFormatter extends PlaceholderValueFormatter {
 
-  private val numbersOnly = Pattern.compile("\\d+")
-
   override def canFormat(formatType: String): Boolean = LocalizedTemporalValueFormatter.FORMAT_TYPE.equals(formatType)
 
   override def format(value: Any, args: List[String], localeIn: Locale): String = {
 
-    val detailProvider = LocaleUtils.getLocaleDetail(localeIn)
-    val locale = detailProvider.locale
+    val resolved = LocaleUtils.resolve(localeIn)
 
     value match {
       // no format provided
-      case t: TemporalAccessor if args.isEmpty => detailProvider.formatDate(t, DateTimeFormats.L)
+      case t: TemporalAccessor if args.isEmpty => resolved.formatDate(t, DateTimeFormats.L)
 
       // recognized format provided
-      case t: TemporalAccessor if detailProvider.hasDateFormat(args.head) => detailProvider.formatDate(t, args.head)
+      case t: TemporalAccessor if resolved.detail.hasDateFormat(args.head) => resolved.formatDate(t, args.head)
 
       // non-standard format
       case t: TemporalAccessor =>
-
-        // perform basic date/time formatting
-        val formatted = DateTimeFormatter.ofPattern(args.head).format(t)
-
-        // if it's a string of all numbers, resolve each number to the appropriate character in that locale
-        if (numbersOnly.matcher(formatted).matches()) {
-          formatted.map(c => detailProvider.messageSource.getMessage(c.toString, args.toArray, c.toString, locale)).mkString("")
-        }
-        // otherwise, attempt to translate the given value (e.g., 'January' gets translated to 'Januar' in German)
-        else {
-          detailProvider.messageSource.getMessage(formatted, args.toArray, formatted, locale)
-        }
+        LocalizedTemporalValueFormatter.translate(resolved.detail, FormatterRegistry.dateTimeFormatter(args.head).format(t), args)
 
       // catch-all
       case _ => value.toString
@@ -49,4 +35,27 @@ class LocalizedTemporalValueFormatter extends PlaceholderValueFormatter {
 
 object LocalizedTemporalValueFormatter {
   final val FORMAT_TYPE = "localizedDate"
+
+  private val numbersOnly = Pattern.compile("\\d+")
+
+  /**
+    * Translate a formatted date/time value into the detail's locale
+    *
+    * @param detail    the locale detail
+    * @param formatted the value formatted with the (default locale) pattern
+    * @param args      the placeholder format args
+    * @return the translated value
+    */
+  def translate(detail: LocaleDetail, formatted: String, args: List[String]): String = {
+    val locale = detail.locale
+
+    // if it's a string of all numbers, resolve each number to the appropriate character in that locale
+    if (numbersOnly.matcher(formatted).matches()) {
+      formatted.map(c => detail.messageSource.getMessage(c.toString, args.toArray, c.toString, locale)).mkString("")
+    }
+    // otherwise, attempt to translate the given value (e.g., 'January' gets translated to 'Januar' in German)
+    else {
+      detail.messageSource.getMessage(formatted, args.toArray, formatted, locale)
+    }
+  }
 }
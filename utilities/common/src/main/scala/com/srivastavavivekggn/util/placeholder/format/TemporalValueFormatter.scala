@@ -14,7 +14,7 @@ class TemporalValueFormatter extends PlaceholderValueFormatter {
 
   override def format(value: Any, args: List[String], locale: Locale): String = value match {
     case t: TemporalAccessor if args.isEmpty => DateTimeFormatter.ISO_LOCAL_DATE.format(t)
-    case t: TemporalAccessor => DateTimeFormatter.ofPattern(args.head).format(t)
+    case t: TemporalAccessor => FormatterRegistry.dateTimeFormatter(args.head).format(t)
     case _ => value.toString
   }
 }
@@ -1,9 +1,15 @@
 package com.srivastavavivekggn.scala.util.translate
 
+import java.nio.charset.{Charset, CharsetEncoder, CodingErrorAction}
+import java.nio.{ByteBuffer, CharBuffer}
+import java.security.MessageDigest
 import java.util.regex.Pattern
 
+import com.srivastavavivekggn.scala.util.concurrent.AsyncUtils
 import com.srivastavavivekggn.scala.util.crypto.HashUtils
-import com.srivastavavivekggn.scala.util.lang.StringUtils
+import com.srivastavavivekggn.scala.util.system.SystemUtils
+
+import scala.concurrent.{ExecutionContext, Future}
 
 /**
   * Utilities for sanitizing and hashing values for purpose of Translating
@@ -17,28 +23,31 @@ object TranslationUtils {
   final val MULTI_SPACE_REGEX = Pattern.compile("\\s{2,}")
 
   /**
-    * Collection of functions to sanitize a string used for hashing / translation
+    * the default number of values hashed per task in sanitizeAndHashAll
     */
-  private val sanitizers: Seq[String => String] = Seq(
-
-    // replace newlines with empty string
-    (v: String) => NEWLINE_REGEX.matcher(v).replaceAll(StringUtils.EMPTY),
+  final val BATCH_SIZE: Int = SystemUtils.getIntProperty("translation.hash.batchSize", 256)
 
-    // replace multiple spaces with single spaces
-    (v: String) => MULTI_SPACE_REGEX.matcher(v).replaceAll(StringUtils.BLANK),
+  /**
+    * the default number of batches hashed at once in sanitizeAndHashAll
+    */
+  final val PARALLELISM: Int = math.max(1, SystemUtils.getIntMultiplier("translation.hash.parallelism", "x1"))
 
-    // trim leading and trailing spaces
-    (v: String) => v.trim
-  )
+  /**
+    * re-usable sanitizer / hasher for each thread
+    */
+  private val hashers: ThreadLocal[Hasher] = ThreadLocal.withInitial(() => new Hasher)
 
   /**
     * Sanitize the input being translated to trim, remove newlines, etc.
     *
+    * Newlines are removed, then runs of 2+ whitespace characters (MULTI_SPACE_REGEX) are replaced with a single space,
+    * then the result is trimmed. All three are applied in a single pass.
+    *
     * @param toSanitize the value
     * @return the updated value
     */
   def sanitize(toSanitize: String): String = Option(toSanitize)
-    .map(v => sanitizers.foldLeft(v)((value, op) => op(value)))
+    .map(hashers.get().sanitize(_).toString)
     .getOrElse(toSanitize)
 
   /**
@@ -48,14 +57,169 @@ object TranslationUtils {
     * @return the hashed value
     */
   def hash(toHash: String): String = Option(toHash)
-    .map(HashUtils.hash(HashUtils.SHA256, _, useHex = true).toLowerCase)
+    .map(hashers.get().hash(_))
     .getOrElse(toHash)
 
   /**
-    * Sanitize and hash the given string
+    * Sanitize and hash the given string.
+    *
+    * The sanitized characters are encoded and hashed directly from a re-used buffer, without creating the sanitized
+    * string.
     *
     * @param toSanitize the string to sanitize and hash
     * @return the sanitized and hashed value
     */
-  def sanitizeAndHash(toSanitize: String): String = hash(sanitize(toSanitize))
+  def sanitizeAndHash(toSanitize: String): String = Option(toSanitize)
+    .map(v => {
+      val hasher = hashers.get()
+      hasher.hash(hasher.sanitize(v))
+    })
+    .getOrElse(toSanitize)
+
+  /**
+    * Sanitize and hash all the given strings, in parallel batches. Batch size and parallelism are set with
+    * 'translation.hash.batchSize' (default 256) and 'translation.hash.parallelism' (default x1).
+    *
+    * @param values the strings to sanitize and hash
+    * @param exec   the execution context
+    * @return the hashed values, in the same order as the input
+    */
+  def sanitizeAndHashAll(values: Seq[String])(implicit exec: ExecutionContext): Future[List[String]] = {
+    sanitizeAndHashAll(values, BATCH_SIZE, PARALLELISM)
+  }
+
+  /**
+    * Sanitize and hash all the given strings, in parallel batches
+    *
+    * @param values      the strings to sanitize and hash
+    * @param batchSize   the number of strings hashed per task
+    * @param parallelism the maximum number of batches hashed at once
+    * @param exec        the execution context
+    * @return the hashed values, in the same order as the input
+    */
+  def sanitizeAndHashAll(values: Seq[String],
+                         batchSize: Int,
+                         parallelism: Int)(implicit exec: ExecutionContext): Future[List[String]] = {
+    AsyncUtils.mapBatched(values, batchSize, parallelism, (batch: Seq[String]) => Future(batch.map(sanitizeAndHash)))
+  }
+
+  /**
+    * Sanitizes into a re-used buffer, and hashes (default charset bytes, the same as String.getBytes) through a
+    * re-used encoder and digest. Not thread-safe, there is one per thread.
+    */
+  private final class Hasher {
+
+    private val sanitized = new java.lang.StringBuilder(256)
+
+    private val digest = MessageDigest.getInstance(HashUtils.SHA256)
+
+    private val encoder: CharsetEncoder = Charset.defaultCharset().newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE)
+
+    private val bytes = ByteBuffer.allocate(8192)
+
+    // length of the current whitespace run, and its first character
+    private var run = 0
+    private var runFirst = ' '
+
+    // length of the sanitized value up to its last non-trimmed character
+    private var end = 0
+
+    /**
+      * Sanitize the value into the re-used buffer (valid until the next call)
+      */
+    def sanitize(value: String): CharSequence = {
+      sanitized.setLength(0)
+      run = 0
+      end = 0
+
+      var i = 0
+      while (i < value.length) {
+        val c = value.charAt(i)
+
+        // newlines are removed (before collapsing, so spaces either side of one are a single run)
+        if (c != '\n') {
+          if (isSpace(c)) {
+            if (run == 0) {
+              runFirst = c
+            }
+            run += 1
+          }
+          else {
+            endRun()
+            append(c)
+          }
+        }
+
+        i += 1
+      }
+
+      endRun()
+
+      // trim trailing characters
+      sanitized.setLength(end)
+      sanitized
+    }
+
+    /**
+      * Hash the value as lower case hex
+      */
+    def hash(value: CharSequence): String = {
+      digest.reset()
+      encoder.reset()
+      bytes.clear()
+
+      val chars = CharBuffer.wrap(value)
+
+      while (encoder.encode(chars, bytes, true).isOverflow) {
+        update()
+      }
+
+      while (encoder.flush(bytes).isOverflow) {
+        update()
+      }
+
+      update()
+      HashUtils.toHex(digest.digest(), upperCase = false)
+    }
+
+    private def update(): Unit = {
+      bytes.flip()
+      digest.update(bytes)
+      bytes.clear()
+    }
+
+    /**
+      * a single whitespace character is kept as-is, longer runs become one space
+      */
+    private def endRun(): Unit = {
+      if (run == 1) {
+        append(runFirst)
+      }
+      else if (run > 1) {
+        append(' ')
+      }
+
+      run = 0
+    }
+
+    /**
+      * append, dropping leading characters that String.trim would remove
+      */
+    private def append(c: Char): Unit = {
+      if (c > ' ') {
+        sanitized.append(c)
+        end = sanitized.length
+      }
+      else if (sanitized.length > 0) {
+        sanitized.append(c)
+      }
+    }
+
+    /**
+      * whitespace as matched by \s
+      */
+    private def isSpace(c: Char): Boolean = c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r'
+  }
 }
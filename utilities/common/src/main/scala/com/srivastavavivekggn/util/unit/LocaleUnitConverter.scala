@@ -0,0 +1,127 @@
+package com.srivastavavivekggn.scala.util.unit
+
+import com.srivastavavivekggn.scala.util.unit.MeasurementSystem.{IMPERIAL, METRIC}
+import com.srivastavavivekggn.scala.util.unit.convert.UnitConverter
+import com.srivastavavivekggn.scala.util.unit.exception.{NoUnitConversionFound, UnitConversionException}
+
+import java.util.Locale
+
+/**
+  * Converts measurements to the measurement system of a locale (see UnitConversionUtils.forLocale).
+  *
+  * The measurement system and the converter for each source unit are resolved once, so converting does not look up
+  * the locale again.
+  *
+  * @param locale            the target locale
+  * @param measurementSystem the measurement system of the locale
+  */
+final class LocaleUnitConverter private[unit](val locale: Locale, val measurementSystem: MeasurementSystem) {
+
+  /**
+    * the converter for each source unit (by ordinal), null if the source must be returned unchanged or cannot be
+    * converted
+    */
+  private val converters: Array[UnitConverter] = MeasurementUnit.INDEXED_UNITS.map(unit => {
+    targetUnit(unit).flatMap(target => UnitConversionUtils.findConverter(unit, target)).orNull
+  }).toArray
+
+  /**
+    * Get the converter for the given source unit
+    *
+    * @param sourceUnit the source unit
+    * @return the converter, if the unit is converted for this locale
+    */
+  def converter(sourceUnit: MeasurementUnit): Option[UnitConverter] = Option(converters(sourceUnit.ordinal))
+
+  /**
+    * Convert the given measurement to this locale's measurement system
+    *
+    * @param source the source measurement
+    * @return the converted measurement, or the source if no conversion is needed
+    */
+  def convert(source: Measurement): Measurement = {
+    val converter = converters(source.unit.ordinal)
+
+    if (converter != null) {
+      Measurement(converter.convert(source.amount), converter.target)
+    }
+    else if (isUnchanged(source.unit)) {
+      source
+    }
+    else {
+      conversionError(source)
+    }
+  }
+
+  /**
+    * Convert all values in the given unit to this locale's measurement system
+    *
+    * @param values     the amounts in the source unit
+    * @param sourceUnit the source unit
+    * @return the converted amounts, always in a new array (a copy of the values if no conversion is needed)
+    */
+  def convertAll(values: Array[Double], sourceUnit: MeasurementUnit): Array[Double] = {
+    val converter = converters(sourceUnit.ordinal)
+
+    if (converter != null) {
+      converter.convertAll(values)
+    }
+    else if (isUnchanged(sourceUnit)) {
+      values.clone()
+    }
+    else {
+      conversionError(Measurement(0, sourceUnit))
+    }
+  }
+
+  private def isUnchanged(unit: MeasurementUnit): Boolean = {
+    // anything 'universal' needs no conversion, nor does anything already in the measurement system
+    measurementSystem == MeasurementSystem.UNIVERSAL || measurementSystem == unit.measurementSystem
+  }
+
+  private def targetUnit(unit: MeasurementUnit): Option[MeasurementUnit] = {
+    if (isUnchanged(unit)) {
+      None
+    }
+    else if (measurementSystem == IMPERIAL && unit.measurementSystem == METRIC) {
+      MeasurementUnit.METRIC_TO_IMPERIAL.get(unit)
+    }
+    else if (measurementSystem == METRIC && unit.measurementSystem == IMPERIAL) {
+      MeasurementUnit.IMPERIAL_TO_METRIC.get(unit)
+    }
+    else {
+      None
+    }
+  }
+
+  /**
+    * Throw the error for a source unit that has no converter and is not unchanged
+    */
+  private def conversionError(source: Measurement): Nothing = {
+    val (target, systemName) = (measurementSystem, source.unit.measurementSystem) match {
+      // target is imperial, source is metric
+      case (IMPERIAL, METRIC) => (MeasurementUnit.METRIC_TO_IMPERIAL.get(source.unit), Some("imperial"))
+
+      // target is metric, source is imperial
+      case (METRIC, IMPERIAL) => (MeasurementUnit.IMPERIAL_TO_METRIC.get(source.unit), Some("metric"))
+
+      case _ => (None, None)
+    }
+
+    // a target unit without a conversion (throws NoUnitConversionFound)
+    target.foreach(UnitConversionUtils.converter(source.unit, _))
+
+    systemName match {
+      case Some(name) => throw NoUnitConversionFound(
+        s"No $name target unit found for source '$source' to locale ${locale.toLanguageTag}"
+      )
+
+      // should not get here
+      case None => throw UnitConversionException(
+        s"Could not convert source '$source' to locale ${locale.toLanguageTag}"
+      )
+    }
+  }
+
+  override def toString: String = s"LocaleUnitConverter(${locale.toLanguageTag}, $measurementSystem)"
+}
@@ -9,7 +9,13 @@ sealed abstract class MeasurementUnit(val singular: String,
                                       val plural: String,
                                       val abbreviation: String,
                                       val unitType: UnitType,
-                                      val measurementSystem: MeasurementSystem)
+                                      val measurementSystem: MeasurementSystem) {
+
+  /**
+    * the index of this unit in MeasurementUnit.INDEXED_UNITS
+    */
+  lazy val ordinal: Int = MeasurementUnit.INDEXED_UNITS.indexOf(this)
+}
 
 object MeasurementUnit {
 
@@ -77,6 +83,11 @@ object MeasurementUnit {
 
   final val ALL_UNITS: Seq[MeasurementUnit] = LENGTH_UNITS ++ MASS_UNITS ++ VOLUME_UNITS ++ AREA_UNITS ++ TEMPERATURE_UNITS
 
+  /**
+    * All units including UNKNOWN, by ordinal
+    */
+  final val INDEXED_UNITS: IndexedSeq[MeasurementUnit] = (UNKNOWN +: ALL_UNITS).toIndexedSeq
+
   def of(name: String): MeasurementUnit = find(name).getOrElse(throw UnitNotFoundException(name))
 
   def exists(name: String): Boolean = find(name).isDefined
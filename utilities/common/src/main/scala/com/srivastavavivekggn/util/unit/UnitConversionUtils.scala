@@ -1,9 +1,10 @@
 package com.srivastavavivekggn.scala.util.unit
 
+import com.google.common.cache.{Cache, CacheBuilder}
 import com.srivastavavivekggn.scala.util.lang.LocaleUtils
-import com.srivastavavivekggn.scala.util.unit.MeasurementSystem.{IMPERIAL, METRIC}
-import com.srivastavavivekggn.scala.util.unit.convert.{AreaConversions, LengthConversions, MassConversions, TemperatureConversions, UnitConversions, VolumeConversions}
-import com.srivastavavivekggn.scala.util.unit.exception.{NoUnitConversionFound, UnitConversionException, UnitTypeMismatchException}
+import com.srivastavavivekggn.scala.util.system.SystemUtils
+import com.srivastavavivekggn.scala.util.unit.convert.{AreaConversions, LengthConversions, MassConversions, TemperatureConversions, UnitConversions, UnitConverter, VolumeConversions}
+import com.srivastavavivekggn.scala.util.unit.exception.{NoUnitConversionFound, UnitTypeMismatchException}
 
 import java.util.Locale
 
@@ -19,6 +20,40 @@ object UnitConversionUtils extends UnitConversions {
     AreaConversions ++
     VolumeConversions
 
+  /**
+    * the maximum number of locales to keep resolved converters for
+    */
+  final val LOCALE_CACHE_SIZE: Int = SystemUtils.getIntProperty("unit.conversion.localeCacheSize", 256)
+
+  /**
+    * converters for every (source, target) pair, indexed by source.ordinal * unit count + target.ordinal
+    * (null where there is no conversion)
+    */
+  private val matrix: Array[UnitConverter] = {
+    val units = MeasurementUnit.INDEXED_UNITS
+    val coefficients = LengthConversions.coefficients ++
+      MassConversions.coefficients ++
+      TemperatureConversions.coefficients ++
+      AreaConversions.coefficients ++
+      VolumeConversions.coefficients
+
+    val result = new Array[UnitConverter](units.size * units.size)
+
+    coefficients.foreach {
+      case ((source, target), (scale, offset)) =>
+        result(source.ordinal * units.size + target.ordinal) = new UnitConverter(source, target, scale, offset)
+    }
+
+    result
+  }
+
+  /**
+    * resolved converters by locale
+    */
+  private val localeConverters: Cache[Locale, LocaleUnitConverter] = CacheBuilder.newBuilder()
+    .maximumSize(LOCALE_CACHE_SIZE)
+    .build[Locale, LocaleUnitConverter]()
+
   /**
     * Determine if we can convert source unit to target unit
     *
@@ -42,7 +77,7 @@ object UnitConversionUtils extends UnitConversions {
     // source unit exists
     MeasurementUnit.exists(sourceUnit) && (
       // measurement system is not changing
-      MeasurementUnit.of(sourceUnit).measurementSystem.equals(LocaleUtils.getMeasurementSystem(locale)) ||
+      MeasurementUnit.of(sourceUnit).measurementSystem.equals(forLocale(locale).measurementSystem) ||
         // we have a way to go from metric to imperial
         MeasurementUnit.METRIC_TO_IMPERIAL.contains(MeasurementUnit.of(sourceUnit)) ||
         // we have a way to go from imperial to metric
@@ -117,37 +152,20 @@ object UnitConversionUtils extends UnitConversions {
     * @param targetLocale the target locale
     * @return the converted Measurement
     */
-  def convert(source: Measurement, targetLocale: Locale): Measurement = {
+  def convert(source: Measurement, targetLocale: Locale): Measurement = forLocale(targetLocale).convert(source)
 
-    LocaleUtils.getMeasurementSystem(targetLocale) match {
-
-      // anything 'universal' needs no conversion
-      case MeasurementSystem.UNIVERSAL => source
-
-      // no change in measurement system, simply return source unchanged
-      case s: MeasurementSystem if s.equals(source.unit.measurementSystem) => source
-
-      // target is imperial, source is metric
-      case IMPERIAL if METRIC.equals(source.unit.measurementSystem) =>
-        MeasurementUnit.METRIC_TO_IMPERIAL.get(source.unit)
-          .map(targetUnit => convert(source, targetUnit))
-          .getOrElse(throw NoUnitConversionFound(
-            s"No imperial target unit found for source '$source' to locale ${targetLocale.toLanguageTag}"
-          ))
-
-      // target is metric, source is imperial
-      case METRIC if IMPERIAL.equals(source.unit.measurementSystem) =>
-        MeasurementUnit.IMPERIAL_TO_METRIC.get(source.unit)
-          .map(targetUnit => convert(source, targetUnit))
-          .getOrElse(throw NoUnitConversionFound(
-            s"No metric target unit found for source '$source' to locale ${targetLocale.toLanguageTag}"
-          ))
-
-      // should not get here
-      case _ => throw UnitConversionException(
-        s"Could not convert source '$source' to locale ${targetLocale.toLanguageTag}"
-      )
-    }
+  /**
+    * Get the (cached) converters for the given locale
+    *
+    * @param locale the locale
+    * @return the converters
+    */
+  def forLocale(locale: Locale): LocaleUnitConverter = {
+    Option(localeConverters.getIfPresent(locale)).getOrElse({
+      val converter = new LocaleUnitConverter(locale, LocaleUtils.getMeasurementSystem(locale))
+      localeConverters.put(locale, converter)
+      converter
+    })
   }
 
   /**
@@ -158,19 +176,49 @@ object UnitConversionUtils extends UnitConversions {
     * @return the converted Measurement
     */
   def convert(source: Measurement, targetUnit: MeasurementUnit): Measurement = {
-    // ensure we're trying to convert Distance-to-Distance or Weight-to-Weight, etc.
-    if (!source.unit.unitType.equals(targetUnit.unitType)) {
-      throw UnitTypeMismatchException(s"UnitTypes must match, got ${source.unit.unitType} and ${targetUnit.unitType}")
-    }
+    Measurement(converter(source.unit, targetUnit).convert(source.amount), targetUnit)
+  }
 
-    // find applicable converter
-    val converter = conversions.get((source.unit, targetUnit))
+  /**
+    * Convert all values from the source unit to the target unit
+    *
+    * @param values     the amounts in the source unit
+    * @param sourceUnit the source unit
+    * @param targetUnit the target unit
+    * @return the amounts in the target unit
+    */
+  def convertAll(values: Array[Double], sourceUnit: MeasurementUnit, targetUnit: MeasurementUnit): Array[Double] = {
+    converter(sourceUnit, targetUnit).convertAll(values)
+  }
 
-    // no converter found
-    if (converter.isEmpty) {
-      throw NoUnitConversionFound(s"No conversion found from ${source.unit.abbreviation} to ${targetUnit.abbreviation}")
+  /**
+    * Get the converter from the source unit to the target unit
+    *
+    * @param sourceUnit the source unit
+    * @param targetUnit the target unit
+    * @return the converter
+    * @throws UnitTypeMismatchException if the units are for different types (e.g., length and mass)
+    * @throws NoUnitConversionFound     if there is no conversion between the units
+    */
+  def converter(sourceUnit: MeasurementUnit, targetUnit: MeasurementUnit): UnitConverter = {
+    // ensure we're trying to convert Distance-to-Distance or Weight-to-Weight, etc.
+    if (!sourceUnit.unitType.equals(targetUnit.unitType)) {
+      throw UnitTypeMismatchException(s"UnitTypes must match, got ${sourceUnit.unitType} and ${targetUnit.unitType}")
     }
 
-    Measurement(converter.orNull.apply(source.amount), targetUnit)
+    findConverter(sourceUnit, targetUnit).getOrElse(
+      throw NoUnitConversionFound(s"No conversion found from ${sourceUnit.abbreviation} to ${targetUnit.abbreviation}")
+    )
+  }
+
+  /**
+    * Find the converter from the source unit to the target unit
+    *
+    * @param sourceUnit the source unit
+    * @param targetUnit the target unit
+    * @return the converter, if there is a conversion between the units
+    */
+  def findConverter(sourceUnit: MeasurementUnit, targetUnit: MeasurementUnit): Option[UnitConverter] = {
+    Option(matrix(sourceUnit.ordinal * MeasurementUnit.INDEXED_UNITS.size + targetUnit.ordinal))
   }
 }
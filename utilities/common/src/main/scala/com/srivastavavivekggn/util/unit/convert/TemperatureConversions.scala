@@ -11,6 +11,16 @@ object TemperatureConversions extends UnitConversions {
     (C, C) -> identity
   )
 
+  /**
+    * exact coefficients (deriving them from the functions would lose precision to the offset)
+    */
+  override val coefficients: COEFFICIENT_MAP = Map(
+    (F, F) -> (1d, 0d),
+    (F, C) -> (1 / 1.8, -32 / 1.8),
+    (C, F) -> (1.8, 32d),
+    (C, C) -> (1d, 0d)
+  )
+
 
   // =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-
   def fahrenheitToCelsius(in: Double): Double = (in - 32) / 1.8
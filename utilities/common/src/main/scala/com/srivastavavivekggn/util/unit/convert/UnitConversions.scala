@@ -6,8 +6,22 @@ trait UnitConversions {
 
   type CNV_MAP = Map[(MeasurementUnit, MeasurementUnit), Double => Double]
 
+  /**
+    * (scale, offset) for each conversion, where the converted value is amount * scale + offset
+    */
+  type COEFFICIENT_MAP = Map[(MeasurementUnit, MeasurementUnit), (Double, Double)]
+
   implicit def conversionsToFnMap(uc: UnitConversions): CNV_MAP = uc.conversions
 
   def conversions: CNV_MAP
 
+  /**
+    * The conversions as scale and offset. All of our conversions are linear or affine, so by default these are taken
+    * from the conversion functions (offset = f(0), scale = f(1) - f(0)).
+    */
+  def coefficients: COEFFICIENT_MAP = conversions.map {
+    case (units, fn) =>
+      val offset = fn(0d)
+      units -> (fn(1d) - offset, offset)
+  }
 }
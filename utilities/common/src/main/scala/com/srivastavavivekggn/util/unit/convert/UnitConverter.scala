@@ -0,0 +1,62 @@
+package com.srivastavavivekggn.scala.util.unit.convert
+
+import com.srivastavavivekggn.scala.util.unit.MeasurementUnit
+
+/**
+  * Converts amounts from one unit to another, as amount * scale + offset (see UnitConversionUtils.converter).
+  *
+  * Conversion works on primitive doubles and does not allocate, other than the result array in convertAll(values).
+  *
+  * @param source the source unit
+  * @param target the target unit
+  * @param scale  the scale
+  * @param offset the offset
+  */
+final class UnitConverter(val source: MeasurementUnit,
+                          val target: MeasurementUnit,
+                          val scale: Double,
+                          val offset: Double) {
+
+  /**
+    * true if the source and target are the same unit
+    */
+  def isIdentity: Boolean = source == target
+
+  /**
+    * Convert a single amount
+    *
+    * @param amount the amount in the source unit
+    * @return the amount in the target unit
+    */
+  def convert(amount: Double): Double = amount * scale + offset
+
+  /**
+    * Convert all values into a new array
+    *
+    * @param values the amounts in the source unit
+    * @return the amounts in the target unit
+    */
+  def convertAll(values: Array[Double]): Array[Double] = {
+    val result = new Array[Double](values.length)
+    convertAll(values, result)
+    result
+  }
+
+  /**
+    * Convert all values into the given array (which may be the values array, to convert in place)
+    *
+    * @param values the amounts in the source unit
+    * @param result the array to write the amounts in the target unit to
+    */
+  def convertAll(values: Array[Double], result: Array[Double]): Unit = {
+    require(result.length >= values.length, "Result array is too small")
+
+    var i = 0
+    while (i < values.length) {
+      result(i) = values(i) * scale + offset
+      i += 1
+    }
+  }
+
+  override def toString: String = s"UnitConverter(${source.abbreviation} -> ${target.abbreviation})"
+}
@@ -1,6 +1,7 @@
 package com.srivastavavivekggn.scala.util.concurrent
 
 import com.srivastavavivekggn.scala.util.BaseAsyncUtilSpec
+import com.srivastavavivekggn.scala.util.concurrent.context.DynamicContext
 
 import scala.concurrent.{ExecutionContext, Future}
 
@@ -224,4 +225,109 @@ class AsyncUtilsSpec extends BaseAsyncUtilSpec {
         assert(failedCount == 1)
       })
   }
+
+
+  it should "run CPU-bound work in the fork join context, passing dynamic context along" in {
+
+    DynamicContext.Flow.withValues(Map(DynamicContext.Flow.XFLOW -> "cpu-flow")) {
+      Future {
+        (Thread.currentThread().getName, DynamicContext.Flow.getValue(DynamicContext.Flow.XFLOW, classOf[String]))
+      }(AsyncUtils.Contexts.forkJoin)
+    }.map(result => {
+      assert(result._1.startsWith("cpu-"))
+      assert(result._2.contains("cpu-flow"))
+    })
+  }
+
+
+  it should "run blocking work in the virtual context, passing dynamic context along" in {
+
+    val ctx = AsyncUtils.Contexts.virtual
+
+    DynamicContext.Flow.withValues(Map(DynamicContext.Flow.XFLOW -> "virtual-flow")) {
+      Future.sequence((1 to 50).map(i => Future {
+        Thread.sleep(20)
+        (Thread.currentThread().getName, DynamicContext.Flow.getValue(DynamicContext.Flow.XFLOW, classOf[String]))
+      }(ctx)))
+    }.map(results => {
+      // virtual threads where supported (Java 21+), the IO thread pool otherwise
+      val expectedPrefix = if (AsyncUtils.Contexts.VirtualThreads.isDefined) "virtual-" else "io-"
+
+      assert(results.forall(_._1.startsWith(expectedPrefix)))
+      assert(results.forall(_._2.contains("virtual-flow")))
+    })
+  }
+
+
+  it should "map with bounded parallelism, preserving order" in {
+
+    val inFlight = new java.util.concurrent.atomic.AtomicInteger(0)
+    val maxInFlight = new java.util.concurrent.atomic.AtomicInteger(0)
+
+    AsyncUtils.mapPar(1 to 100, 4, (i: Int) => Future {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), math.max)
+      Thread.sleep(2)
+      inFlight.decrementAndGet()
+      i * 2
+    }(AsyncUtils.Contexts.global)).map(result => {
+      assert(result == (1 to 100).map(_ * 2).toList)
+      assert(maxInFlight.get() <= 4)
+    })
+  }
+
+
+  it should "stop starting operations after a failure" in {
+
+    val started = new java.util.concurrent.atomic.AtomicInteger(0)
+
+    recoverToSucceededIf[IllegalStateException] {
+      AsyncUtils.mapPar(Iterator.from(1), 1, (i: Int) => {
+        started.incrementAndGet()
+        if (i == 3) Future.failed(new IllegalStateException("bad element")) else Future.successful(i)
+      })
+    }.map(_ => assert(started.get() == 3))
+  }
+
+
+  it should "stream a large iterator through synchronous operations without overflowing the stack" in {
+
+    AsyncUtils.mapPar(Iterator.range(0, 200000), 8, (i: Int) => Future.successful(i))(AsyncUtils.Contexts.currentThread)
+      .map(result => {
+        assert(result.size == 200000)
+        assert(result.last == 199999)
+      })
+  }
+
+
+  it should "fail if the input cannot be read" in {
+
+    // fails on the 3rd element, pulled from a callback once the first operations complete
+    val elements = Iterator.from(1).map(i => if (i == 3) throw new IllegalStateException("bad input") else i)
+
+    recoverToSucceededIf[IllegalStateException] {
+      AsyncUtils.mapPar(elements, 2, (i: Int) => Future {
+        Thread.sleep(10)
+        i
+      })
+    }
+  }
+
+
+  it should "map an empty input" in {
+    AsyncUtils.mapPar(LazyList.empty[Int], 2, (i: Int) => Future.successful(i)).map(result => assert(result.isEmpty))
+  }
+
+
+  it should "map in batches, preserving order" in {
+
+    val batchSizes = new java.util.concurrent.ConcurrentLinkedQueue[Int]()
+
+    AsyncUtils.mapBatched(LazyList.from(1).take(25), 10, 2, (batch: Seq[Int]) => {
+      batchSizes.add(batch.size)
+      Future.successful(batch.map(_.toString))
+    }).map(result => {
+      assert(result == (1 to 25).map(_.toString).toList)
+      assert(batchSizes.toArray.toSeq.map(_.asInstanceOf[Int]).sorted == Seq(5, 10, 10))
+    })
+  }
 }
@@ -0,0 +1,135 @@
+package com.srivastavavivekggn.scala.util.concurrent
+
+import com.srivastavavivekggn.scala.util.BaseUtilSpec
+import com.srivastavavivekggn.scala.util.collection.CollectionUtils
+
+import java.util.concurrent.{CountDownLatch, Executors, TimeUnit}
+
+class RingBufferQueueSpec extends BaseUtilSpec {
+
+  behavior of "RingBufferQueue"
+
+  it should "round the capacity up to a power of 2" in {
+    assert(new RingBufferQueue[String](1).capacity == 2)
+    assert(new RingBufferQueue[String](100).capacity == 128)
+    assert(new RingBufferQueue[String](128).capacity == 128)
+  }
+
+  it should "reject capacities that can not be rounded up" in {
+    assertThrows[IllegalArgumentException](new RingBufferQueue[String](0))
+    assertThrows[IllegalArgumentException](new RingBufferQueue[String](RingBufferQueue.MAX_CAPACITY + 1))
+  }
+
+  it should "iterate from head to tail" in {
+    val queue = new RingBufferQueue[String](4)
+    (1 to 4).foreach(i => queue.offer(s"$i"))
+    queue.poll()
+    queue.offer("5")
+
+    val it = queue.iterator()
+    assert(Iterator.continually(it).takeWhile(_.hasNext).map(_.next()).toList == List("2", "3", "4", "5"))
+    assertThrows[NoSuchElementException](it.next())
+
+    assert(queue.contains("3"))
+    assert(!queue.contains("1"))
+    assert(queue.toArray.toList == List("2", "3", "4", "5"))
+    assert(queue.toString == "[2, 3, 4, 5]")
+  }
+
+  it should "skip elements consumed while iterating" in {
+    val queue = new RingBufferQueue[String](8)
+    (1 to 5).foreach(i => queue.offer(s"$i"))
+
+    val it = queue.iterator()
+    assert(it.next() == "1")
+
+    queue.poll()
+    queue.poll()
+    queue.poll()
+
+    // the next element is read ahead, as in ConcurrentLinkedQueue
+    assert(it.next() == "2")
+    assert(it.next() == "4")
+    assert(it.next() == "5")
+    assert(!it.hasNext)
+  }
+
+  it should "remove elements, skipping them when polled" in {
+    val queue = new RingBufferQueue[String](8)
+    (1 to 5).foreach(i => queue.offer(s"$i"))
+
+    assert(queue.remove("3"))
+    assert(!queue.remove("3"))
+    assert(!queue.remove("6"))
+
+    val it = queue.iterator()
+    assert(it.next() == "1")
+    it.remove()
+    assertThrows[IllegalStateException](it.remove())
+
+    assert(queue.peek() == "2")
+    assert(queue.toArray.toList == List("2", "4", "5"))
+    assert(CollectionUtils.drainQueue(queue) == List("2", "4", "5"))
+    assert(queue.isEmpty)
+    assert(queue.offer("6") && queue.poll() == "6")
+  }
+
+  it should "reject offers when full and accept them again once drained" in {
+    val queue = new RingBufferQueue[String](4)
+
+    (1 to 4).foreach(i => assert(queue.offer(s"$i")))
+    assert(!queue.offer("5"))
+    assert(queue.size() == 4)
+    assert(queue.remainingCapacity == 0)
+
+    assert(queue.peek() == "1")
+    assert(queue.poll() == "1")
+    assert(queue.offer("5"))
+
+    assert(CollectionUtils.drainQueue(queue) == List("2", "3", "4", "5"))
+    assert(queue.isEmpty)
+    assert(queue.poll() == null)
+    assert(queue.peek() == null)
+  }
+
+  it should "drain in batches" in {
+    val queue = new RingBufferQueue[Integer](16)
+    (1 to 10).foreach(i => queue.offer(i))
+
+    assert(CollectionUtils.drainQueue(queue, 4).map(_.intValue) == List(1, 2, 3, 4))
+    assert(CollectionUtils.drainQueue(queue, 4).map(_.intValue) == List(5, 6, 7, 8))
+    assert(CollectionUtils.drainQueue(queue, 4).map(_.intValue) == List(9, 10))
+  }
+
+  it should "keep every element from concurrent producers, in order per producer" in {
+    val producers = 4
+    val perProducer = 20000
+    val queue = new RingBufferQueue[(Int, Int)](64)
+    val pool = Executors.newFixedThreadPool(producers)
+    val start = new CountDownLatch(1)
+
+    (0 until producers).foreach(p => pool.execute(() => {
+      start.await()
+      (0 until perProducer).foreach(i => while (!queue.offer((p, i))) Thread.`yield`())
+    }))
+
+    start.countDown()
+
+    val last = Array.fill(producers)(-1)
+    var received = 0
+
+    while (received < producers * perProducer) {
+      CollectionUtils.drainQueue(queue, 128).foreach {
+        case (p, i) =>
+          assert(i == last(p) + 1)
+          last(p) = i
+          received += 1
+      }
+    }
+
+    pool.shutdown()
+    assert(pool.awaitTermination(10, TimeUnit.SECONDS))
+    assert(queue.isEmpty)
+    assert(last.forall(_ == perProducer - 1))
+  }
+}
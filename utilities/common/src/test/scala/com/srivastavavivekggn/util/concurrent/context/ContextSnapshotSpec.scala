@@ -0,0 +1,111 @@
+package com.srivastavavivekggn.scala.util.concurrent.context
+
+import com.srivastavavivekggn.scala.util.BaseUtilSpec
+import com.srivastavavivekggn.scala.util.concurrent.DelegatingExecutionContextExecutor
+import com.srivastavavivekggn.scala.util.concurrent.context.DynamicContext.{Audit, Flow, Meta}
+import org.slf4j.MDC
+
+import java.util.concurrent.{Executors, ThreadFactory, TimeUnit}
+import scala.concurrent.duration.Duration
+import scala.concurrent.{Await, ExecutionContext, Future}
+
+class ContextSnapshotSpec extends BaseUtilSpec {
+
+  private val single = Executors.newSingleThreadExecutor(daemon)
+
+  private def daemon: ThreadFactory = (r: Runnable) => {
+    val thread = new Thread(r)
+    thread.setDaemon(true)
+    thread
+  }
+
+  // runs on another thread, without propagating anything
+  private def onOtherThread[T](fn: => T): T = single.submit(() => fn).get(10, TimeUnit.SECONDS)
+
+  behavior of "ContextSnapshot"
+
+  it should "carry the MDC and dynamic contexts to another thread" in {
+    val snapshot = Flow.withValues(Map(Flow.XFLOW -> "flow-1")) {
+      Audit.withValues(Map(Audit.ADMIN -> "admin")) {
+        Meta.withValues(Map("k" -> "v")) {
+          MDC.put("other", "value")
+          try ContextSnapshot.capture()
+          finally MDC.remove("other")
+        }
+      }
+    }
+
+    val (admin, xflow, meta, mdcXflow, other) = onOtherThread(snapshot.run {
+      (Audit.getValue(Audit.ADMIN, classOf[String]), Flow.getValue(Flow.XFLOW, classOf[String]),
+        Meta.getValue("k", classOf[String]), MDC.get(Flow.XFLOW), MDC.get("other"))
+    })
+
+    assert(admin.contains("admin"))
+    assert(xflow.contains("flow-1"))
+    assert(meta.contains("v"))
+    assert(mdcXflow == "flow-1")
+    assert(other == "value")
+
+    // the dynamic contexts are restored afterwards, the MDC is left as captured
+    onOtherThread {
+      assert(Audit.getContext.isEmpty && Flow.getContext.isEmpty && Meta.getContext.isEmpty)
+      assert(MDC.get("other") == "value")
+      MDC.clear()
+    }
+  }
+
+  it should "add to the running thread's values, and restore them afterwards" in {
+    val snapshot = Meta.withValues(Map("a" -> "1"))(ContextSnapshot.capture())
+
+    Meta.withValues(Map("a" -> "0", "b" -> "2")) {
+      val inside = snapshot.run(Meta.getContext)
+
+      assert(inside == Map("a" -> "1", "b" -> "2"))
+      assert(Meta.getContext == Map("a" -> "0", "b" -> "2"))
+    }
+  }
+
+  it should "leave the context unchanged when the thread already has the captured values" in {
+    Meta.withValues(Map("a" -> "1")) {
+      val before = DynamicContext.current.value
+      val snapshot = ContextSnapshot.capture()
+
+      snapshot.run {
+        assert(DynamicContext.current.value eq before)
+      }
+
+      assert(DynamicContext.current.value eq before)
+    }
+  }
+
+  it should "clear the MDC when nothing was captured" in {
+    val snapshot = onOtherThread {
+      MDC.clear()
+      ContextSnapshot.capture()
+    }
+
+    MDC.put("stale", "value")
+
+    try {
+      snapshot.run(assert(MDC.get("stale") == null))
+    }
+    finally {
+      MDC.clear()
+    }
+  }
+
+  behavior of "DelegatingExecutionContextExecutor"
+
+  it should "propagate contexts through a chain of futures" in {
+    implicit val ec: ExecutionContext = DelegatingExecutionContextExecutor(ExecutionContext.fromExecutor(Executors.newFixedThreadPool(2, daemon)))
+
+    val result = Flow.withValues(Map(Flow.XFLOW -> "chain")) {
+      (1 to 100).foldLeft(Future(0))((f, _) => f.map(i => {
+        assert(MDC.get(Flow.XFLOW) == "chain")
+        i + Flow.getValue(Flow.XFLOW, classOf[String]).map(_ => 1).getOrElse(0)
+      }))
+    }
+
+    assert(Await.result(result, Duration(10, TimeUnit.SECONDS)) == 100)
+  }
+}
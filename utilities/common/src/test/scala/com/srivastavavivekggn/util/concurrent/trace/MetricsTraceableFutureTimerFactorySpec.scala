@@ -0,0 +1,100 @@
+package com.srivastavavivekggn.scala.util.concurrent.trace
+
+import java.util.concurrent.TimeUnit
+
+import com.srivastavavivekggn.scala.util.BaseUtilSpec
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+
+class MetricsTraceableFutureTimerFactorySpec extends BaseUtilSpec {
+
+  behavior of "TaskHistogram"
+
+  it should "map values to buckets within 1/16 of the value" in {
+
+    for (value <- (0L to 5000L) ++ Seq(123456789L, 987654321012L, TaskHistogram.MAX_TRACKABLE_NANOS)) {
+      val upper = TaskHistogram.bucketUpperBound(TaskHistogram.bucketIndex(value))
+      assert(upper >= value)
+      assert(upper - value <= value / 16, s"value $value, upper $upper")
+    }
+
+    assert(TaskHistogram.bucketIndex(Long.MaxValue) == TaskHistogram.BUCKET_COUNT - 1)
+  }
+
+  it should "report counts, errors and percentiles" in {
+
+    val histogram = new TaskHistogram("task")
+
+    (1 to 1000).foreach(i => histogram.record(i * 1000L, failed = i % 100 == 0))
+
+    val snapshot = histogram.snapshot()
+
+    assert(snapshot.count == 1000)
+    assert(snapshot.errors == 10)
+    assert(snapshot.maxNanos == 1000000L)
+    assert(snapshot.meanNanos == 500500L)
+    assert(math.abs(snapshot.p50Nanos - 500000L) <= 500000L / 16)
+    assert(math.abs(snapshot.p99Nanos - 990000L) <= 990000L / 16)
+    assert(snapshot.p999Nanos <= snapshot.maxNanos)
+    assert(histogram.percentile(0.5) == snapshot.p50Nanos)
+  }
+
+  it should "reset values after a snapshot" in {
+
+    val histogram = new TaskHistogram("task")
+    histogram.record(100, failed = false)
+
+    assert(histogram.snapshotAndReset().count == 1)
+    assert(histogram.snapshot() == TaskTimingSnapshot("task", 0, 0, 0, 0, 0, 0, 0))
+  }
+
+  behavior of "MetricsTraceableFutureTimerFactory"
+
+  it should "record timings from its timers by task name" in {
+
+    val factory = new MetricsTraceableFutureTimerFactory
+    val flow1 = factory.createTimer("flow1")
+    val flow2 = factory.createTimer("flow2")
+
+    flow1.start("a", 1)
+    flow2.start("a", 2)
+    flow1.start("b", 3)
+    flow1.stop("a", 1)
+    flow2.stop("a", 2, failed = true)
+    flow1.stop("b", 3)
+
+    // unknown id
+    flow1.stop("b", 4)
+
+    val snapshots = factory.snapshot()
+    assert(snapshots.map(s => (s.task, s.count, s.errors)) == Seq(("a", 2, 1), ("b", 1, 0)))
+    assert(factory.getDropped == 0)
+  }
+
+  it should "count timings that cannot be tracked" in {
+
+    val factory = new MetricsTraceableFutureTimerFactory
+    val timer = factory.createTimer("flow")
+
+    (1 to 40).foreach(i => timer.start("a", i))
+    (1 to 40).foreach(i => timer.stop("a", i))
+
+    assert(factory.getDropped == 8)
+    assert(factory.histogram("a").getCount == 32)
+  }
+
+  it should "expose task timings through micrometer" in {
+
+    val factory = new MetricsTraceableFutureTimerFactory
+    val registry = new SimpleMeterRegistry()
+
+    factory.record("before", 1000)
+    new TraceableFutureMetricsBinder(factory).bindTo(registry)
+    factory.record("after", 2000, failed = true)
+
+    assert(registry.get("traceable.future.count").tag("task", "before").functionCounter().count() == 1)
+    assert(registry.get("traceable.future.errors").tag("task", "after").functionCounter().count() == 1)
+    assert(registry.get("traceable.future.max").tag("task", "after").timeGauge().value(TimeUnit.NANOSECONDS) == 2000)
+    assert(registry.get("traceable.future.latency").tag("task", "after").tag("quantile", "0.99").timeGauge()
+      .value(TimeUnit.NANOSECONDS) == 2000)
+  }
+}
@@ -63,4 +63,61 @@ class HashUtilsSpec extends BaseUtilSpec {
     assert(md5Hash == "lWfkJp6ZdOiyjC+QMDf1AQ==")
   }
 
+  it should "return the same hash for the String, Array[Byte] and ByteBuffer overloads" in {
+
+    val testValue = "hexTest"
+
+    assert(HashUtils.hash(HashUtils.MD5, testValue.getBytes, true) == "C0C242B1A547D409BAF5BE8919FD0B69")
+    assert(HashUtils.hash(HashUtils.MD5, java.nio.ByteBuffer.wrap(testValue.getBytes), true) ==
+      "C0C242B1A547D409BAF5BE8919FD0B69")
+
+    val eml = EmailGenerator.getRandomEmail
+    assert(HashUtils.sha256(eml.getBytes, useHex = true) == HashUtils.sha256(eml, useHex = true))
+    assert(HashUtils.sha256Hmac("ZZ===WWWYYYY", "test".getBytes) == "Qc7vzmGAqW9DUF3gmPHKYHsEjnhL5p2RLiBO5cp/LEE=")
+  }
+
+  it should "hex and base64 encode the same as the standard encoders" in {
+
+    for (i <- 0 to 64) {
+      val bytes = RandomUtils.getRandomString(i).getBytes
+      assert(HashUtils.toHex(bytes) == bytes.map("%02X" format _).mkString)
+      assert(HashUtils.toHex(bytes, upperCase = false) == bytes.map("%02x" format _).mkString)
+      assert(HashUtils.toBase64(bytes) == java.util.Base64.getEncoder.encodeToString(bytes))
+    }
+  }
+
+  it should "return consistent hashes when called concurrently" in {
+
+    val inputs = (1 to 200).map(i => s"value-$i")
+    val expectedSha = inputs.map(HashUtils.sha256(_, useHex = true))
+    val expectedHmac = inputs.map(HashUtils.sha256Hmac("ZZ===WWWYYYY", _))
+
+    val results = inputs.indices.map(i => new java.util.concurrent.Callable[Boolean] {
+      override def call(): Boolean = HashUtils.sha256(inputs(i), useHex = true) == expectedSha(i) &&
+        HashUtils.sha256Hmac("ZZ===WWWYYYY", inputs(i)) == expectedHmac(i)
+    })
+
+    val pool = java.util.concurrent.Executors.newFixedThreadPool(8)
+
+    try {
+      import scala.jdk.CollectionConverters._
+      assert(pool.invokeAll(results.asJava).asScala.forall(_.get()))
+    }
+    finally {
+      pool.shutdown()
+    }
+  }
+
+  it should "return the same hash for a prefixed hash as for the full string" in {
+
+    val prefixed = HashUtils.prefixed(HashUtils.SHA256, "secret|")
+
+    for (i <- 0 to 20) {
+      val suffix = RandomUtils.getRandomString(i)
+      assert(prefixed.hash(suffix, useHex = true) == HashUtils.sha256(s"secret|$suffix", useHex = true))
+      assert(prefixed.hash(suffix, useHex = false) == HashUtils.sha256(s"secret|$suffix"))
+    }
+
+    assert(HashUtils.prefixed(HashUtils.SHA128, "a").hash("b", useHex = false) == HashUtils.sha128("ab"))
+  }
 }
@@ -0,0 +1,107 @@
+package com.srivastavavivekggn.scala.util.crypto.aes
+
+import java.io.{ByteArrayInputStream, ByteArrayOutputStream}
+import java.nio.ByteBuffer
+
+import com.srivastavavivekggn.scala.util.BaseUtilSpec
+
+import scala.concurrent.duration._
+import scala.concurrent.{Await, ExecutionContext, Future}
+
+class AESCipherSpec extends BaseUtilSpec {
+
+  val keyProvider = new SimpleKeyProvider
+
+  val cipher = AESCipher(keyProvider.getKey("11"), AESVector.getVector(27))
+
+  val message = "s0m3 m3ssage !$@##&$%^U*%I* lkdsfj12$234#$2q!@#$"
+
+  behavior of "AESCipher"
+
+  it should "decrypt existing values" in {
+    assertResult("hi there!")(cipher.getDecryptedMessage("TdDi0pva0GyaloaD6sCmDg=="))
+    assertResult("TdDi0pva0GyaloaD6sCmDg==")(cipher.getEncryptedMessage("hi there!"))
+  }
+
+  it should "be safe to share across threads" in {
+    implicit val ec: ExecutionContext = ExecutionContext.global
+
+    val results = Future.sequence((1 to 500).map(i => Future {
+      val value = s"$message-$i"
+      cipher.getDecryptedMessage(cipher.getEncryptedMessage(value)) == value
+    }))
+
+    assert(Await.result(results, 30.seconds).forall(identity))
+  }
+
+  it should "encrypt and decrypt batches" in {
+    val messages = (1 to 20).map(i => s"$message-$i")
+    val encrypted = cipher.encryptAll(messages)
+
+    assertResult(messages.map(cipher.getEncryptedMessage))(encrypted)
+    assertResult(messages)(cipher.decryptAll(encrypted))
+  }
+
+  it should "finish lazy batches before returning the cipher to the pool" in {
+    implicit val ec: ExecutionContext = ExecutionContext.global
+
+    var evaluated = 0
+    val lazyMessages = LazyList.from(1).map(i => {
+      evaluated += 1
+      s"$message-$i"
+    }).take(20)
+
+    val encrypted = cipher.encryptAll(lazyMessages)
+    assertResult(20)(evaluated)
+
+    // other threads borrowing ciphers afterwards must not change the result
+    Await.result(Future.sequence((1 to 50).map(i => Future(cipher.getEncryptedMessage(s"$i")))), 30.seconds)
+
+    assertResult(lazyMessages.map(cipher.getEncryptedMessage).toList)(encrypted.toList)
+    assertResult(lazyMessages.toList)(cipher.decryptAll(encrypted.to(LazyList)).toList)
+  }
+
+  it should "encrypt and decrypt byte buffers" in {
+    val plain = ByteBuffer.wrap(message.getBytes)
+    val encrypted = ByteBuffer.allocateDirect(cipher.getEncryptedSize(plain.remaining))
+
+    cipher.encrypt(plain, encrypted)
+    encrypted.flip()
+
+    val decrypted = ByteBuffer.allocate(encrypted.remaining)
+    cipher.decrypt(encrypted, decrypted)
+
+    assertResult(message)(new String(decrypted.array, 0, decrypted.position))
+  }
+
+  it should "encrypt and decrypt streams" in {
+    val payload = Array.tabulate[Byte](100000)(i => (i % 127).toByte)
+
+    val encrypted = new ByteArrayOutputStream()
+    val written = cipher.encrypt(new ByteArrayInputStream(payload), encrypted)
+
+    assertResult(cipher.getEncryptedSize(payload.length).toLong)(written)
+    assert(encrypted.toByteArray sameElements cipher.encrypt(payload))
+
+    val decrypted = new ByteArrayOutputStream()
+    cipher.decrypt(new ByteArrayInputStream(encrypted.toByteArray), decrypted)
+    assert(decrypted.toByteArray sameElements payload)
+
+    val wrapped = new ByteArrayOutputStream()
+    val out = cipher.encryptingStream(wrapped)
+    out.write(payload)
+    out.close()
+
+    val in = cipher.decryptingStream(new ByteArrayInputStream(wrapped.toByteArray))
+    val roundTrip = Iterator.continually(in.read()).takeWhile(_ >= 0).map(_.toByte).toArray
+    assert(roundTrip sameElements payload)
+  }
+
+  it should "share cached ciphers for the same key and vector" in {
+    val first = AESCipher.cached(keyProvider.getKey("11"), AESVector.getVector(27))
+    val second = AESCipher.cached(keyProvider.getKey("11"), AESVector.getVector(27))
+
+    assert(first eq second)
+    assert(!(first eq AESCipher.cached(keyProvider.getKey("12"), AESVector.getVector(27))))
+  }
+}
@@ -0,0 +1,109 @@
+package com.srivastavavivekggn.scala.util.lang
+
+import java.util.Locale
+import java.util.concurrent.atomic.AtomicInteger
+
+import com.srivastavavivekggn.scala.util.BaseUtilSpec
+import org.springframework.context.NoSuchMessageException
+import org.springframework.context.support.{DefaultMessageSourceResolvable, StaticMessageSource}
+
+class CachingMessageSourceSpec extends BaseUtilSpec {
+
+  /**
+    * message source that counts lookups
+    */
+  class CountingMessageSource extends StaticMessageSource {
+    val lookups = new AtomicInteger()
+
+    override def resolveCodeWithoutArguments(code: String, locale: Locale): String = {
+      lookups.incrementAndGet()
+      super.resolveCodeWithoutArguments(code, locale)
+    }
+  }
+
+  def messageSource: CountingMessageSource = {
+    val ms = new CountingMessageSource
+    ms.addMessage("greeting", Locale.US, "Hello {0}, it''s {1}")
+    ms.addMessage("plain", Locale.US, "it's plain")
+    ms.addMessage("greeting", Locale.GERMANY, "Hallo {0}")
+    ms
+  }
+
+  behavior of "CachingMessageSource"
+
+  it should "format messages the same as the delegate" in {
+    val delegate = messageSource
+    val caching = new CachingMessageSource(delegate)
+    val args = Array[AnyRef]("Bob", "Monday")
+
+    Seq(Locale.US, Locale.GERMANY).foreach(locale => {
+      assertResult(delegate.getMessage("greeting", args, locale))(caching.getMessage("greeting", args, locale))
+    })
+
+    assertResult(delegate.getMessage("plain", None.orNull, Locale.US))(caching.getMessage("plain", None.orNull, Locale.US))
+    assertResult("Hello Bob, it's Monday")(caching.getMessage("greeting", args, Locale.US))
+    assertResult("it's plain")(caching.getMessage("plain", Array.empty[AnyRef], Locale.US))
+    assert(caching.findFormat("greeting", Locale.US).isDefined)
+  }
+
+  it should "cache found and missing messages" in {
+    val delegate = messageSource
+    val caching = new CachingMessageSource(delegate)
+
+    (1 to 10).foreach(_ => {
+      assertResult(Some("Hallo Bob"))(caching.findMessage("greeting", Array("Bob"), Locale.GERMANY))
+      assertResult(None)(caching.findMessage("missing", None.orNull, Locale.GERMANY))
+      assertResult("default")(caching.getMessage("missing", None.orNull, "default", Locale.GERMANY))
+    })
+
+    assertResult(2)(delegate.lookups.get())
+    assertResult(2)(caching.size)
+
+    intercept[NoSuchMessageException] {
+      caching.getMessage("missing", None.orNull, Locale.GERMANY)
+    }
+  }
+
+  it should "see new messages after invalidation" in {
+    val delegate = messageSource
+    val caching = new CachingMessageSource(delegate)
+
+    assertResult(None)(caching.findMessage("added", None.orNull, Locale.US))
+    delegate.addMessage("added", Locale.US, "added")
+    assertResult(None)(caching.findMessage("added", None.orNull, Locale.US))
+
+    caching.invalidate("added")
+    assertResult(Some("added"))(caching.findMessage("added", None.orNull, Locale.US))
+
+    delegate.addMessage("added", Locale.US, "changed")
+    caching.reload()
+    assertResult(Some("changed"))(caching.findMessage("added", None.orNull, Locale.US))
+    assertResult(1)(caching.size)
+  }
+
+  it should "resolve the first code found, or the default" in {
+    val caching = CachingMessageSource.of(messageSource)
+
+    assert(caching eq CachingMessageSource.of(caching))
+
+    val resolvable = new DefaultMessageSourceResolvable(Array("missing", "plain"), Array.empty[AnyRef], "default")
+    assertResult("it's plain")(caching.getMessage(resolvable, Locale.US))
+    assertResult("default")(caching.getMessage(resolvable, Locale.GERMANY))
+
+    intercept[NoSuchMessageException] {
+      caching.getMessage(new DefaultMessageSourceResolvable(Array("missing"), Array.empty[AnyRef]), Locale.US)
+    }
+  }
+
+  behavior of "MessageSourceUtils"
+
+  it should "look up messages in a caching message source without exceptions" in {
+    val caching = new CachingMessageSource(messageSource)
+
+    assertResult("Hallo Bob")(MessageSourceUtils.getMessage(caching, Locale.GERMANY, "greeting", Array[Object]("Bob"), "x"))
+    assertResult("x")(MessageSourceUtils.getMessage(caching, Locale.GERMANY, "missing", Array.empty[Object], "x"))
+    assertResult(None)(MessageSourceUtils.getOptionalMessage(caching, Locale.GERMANY, "missing"))
+    assertResult("it's plain")(MessageSourceUtils.getMessage(caching, Locale.US, Seq("missing", "plain"), Array.empty[Object], "x"))
+    assertResult("x")(MessageSourceUtils.getMessage(messageSource, Locale.GERMANY, Seq("missing"), Array.empty[Object], "x"))
+  }
+}
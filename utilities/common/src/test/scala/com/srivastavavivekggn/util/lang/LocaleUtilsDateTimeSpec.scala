@@ -1,9 +1,14 @@
 package com.srivastavavivekggn.scala.util.lang
 
-import java.time.LocalDateTime
+import java.time.{DateTimeException, LocalDateTime}
 import com.srivastavavivekggn.scala.util.BaseUtilSpec
 import com.srivastavavivekggn.scala.util.lang.LocaleUtils.DateTimeFormat
+import com.srivastavavivekggn.scala.util.lang.i18n.{LocaleDetail, LocaleDetailProviders}
+import com.srivastavavivekggn.scala.util.lang.i18n.LocaleDetail.CommonFormats
 import com.srivastavavivekggn.scala.util.lang.i18n.LocaleDetail.DateTimeFormats._
+import com.srivastavavivekggn.scala.util.placeholder.PlaceholderUtils
+import com.srivastavavivekggn.scala.util.placeholder.PlaceholderUtils.ReplacementMode
+import com.srivastavavivekggn.scala.util.unit.MeasurementSystem
 
 class LocaleUtilsDateTimeSpec extends BaseUtilSpec {
 
@@ -267,5 +272,38 @@ class LocaleUtilsDateTimeSpec extends BaseUtilSpec {
         assertResult("lunes, 4 de enero de 2021 2:15 PM")(DateTimeFormat.format(dt, LLLL, locale))
         assertResult("lun., 4 de ene. de 2021 2:15 PM")(DateTimeFormat.format(dt, llll, locale))
       }
-      
+
+      it must "compile every standard format for every locale" in {
+        LocaleDetailProviders.ALL.foreach(detail => {
+          val formats = ALL.filter(detail.hasDateFormat)
+          assertResult(formats.toSet, detail.locale)(detail.compiledFormats.keySet)
+        })
+      }
+
+      it must "fall back to placeholders when the temporal does not support a compiled format" in {
+        val locale = LocaleUtils.getValidLocale("en-US")
+
+        // en-US LT, formatted with placeholders
+        def placeholders = PlaceholderUtils.replaceAllPlaceholders(
+          in = s"${CommonFormats.H_MM} ${CommonFormats.AM_PM}",
+          replacementCtx = Map(LocaleDetail.INPUT -> dt.toLocalDate),
+          replacementMode = ReplacementMode.STRIP_PLACEHOLDERS,
+          locale = locale
+        )
+
+        assertResult("January 4, 2021")(DateTimeFormat.format(dt.toLocalDate, LL, locale))
+        intercept[DateTimeException](placeholders)
+        intercept[DateTimeException](DateTimeFormat.format(dt.toLocalDate, LT, locale))
+      }
+
+      it must "cache resolved locales" in {
+        val resolved = LocaleUtils.resolve("de-DE-u-ms-metric")
+
+        assert(resolved eq LocaleUtils.resolve("de-DE-u-ms-metric"))
+        assert(resolved eq LocaleUtils.resolve(resolved.locale))
+        assertResult(LocaleDetailProviders.GermanDe)(resolved.detail)
+        assertResult(MeasurementSystem.METRIC)(resolved.measurementSystem)
+        assertResult(MeasurementSystem.IMPERIAL)(LocaleUtils.resolve("en-US").measurementSystem)
+        assertResult("4. Januar 2021")(resolved.formatters(LL).format(dt))
+      }
 }
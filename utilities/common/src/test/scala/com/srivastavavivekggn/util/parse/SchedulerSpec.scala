@@ -3,7 +3,7 @@ package com.srivastavavivekggn.scala.util.parse
 import com.srivastavavivekggn.scala.util.BaseUtilSpec
 import com.srivastavavivekggn.scala.util.lang.DateUtils
 
-import java.time.{DayOfWeek, LocalDateTime, LocalTime}
+import java.time.{DayOfWeek, Instant, LocalDateTime, LocalTime, ZoneOffset}
 
 class SchedulerSpec extends BaseUtilSpec {
 
@@ -129,4 +129,74 @@ class SchedulerSpec extends BaseUtilSpec {
     assert(result.toLocalDate.equals(dateNow.plusMonths(1)))
     assert(result.toLocalTime.equals(LocalTime.of(10, 0, 0)))
   }
+
+  // 2021-03-10 (a Wednesday) 12:00:00 UTC
+  private val fixedInstant = Instant.parse("2021-03-10T12:00:00Z")
+  private val utcScheduler = Scheduler(offset = Some(ZoneOffset.UTC))
+
+  it should "compile a schedule that resolves against a given instant" in {
+    def resolve(expression: String): LocalDateTime = utcScheduler.compile(expression).get.resolve(fixedInstant)
+
+    assert(resolve("now") == LocalDateTime.of(2021, 3, 10, 12, 0, 0))
+    assert(resolve("now + 2 days") == LocalDateTime.of(2021, 3, 12, 12, 0, 0))
+    assert(resolve("tomorrow at 09:00:00") == LocalDateTime.of(2021, 3, 11, 9, 0, 0))
+    assert(resolve("at 09:00:00") == LocalDateTime.of(2021, 3, 11, 9, 0, 0))
+    assert(resolve("at 13:00:00") == LocalDateTime.of(2021, 3, 10, 13, 0, 0))
+    assert(resolve("friday at 08:00:00") == LocalDateTime.of(2021, 3, 12, 8, 0, 0))
+    assert(resolve("wednesday between 11:00:00 and 13:00:00") == LocalDateTime.of(2021, 3, 10, 12, 0, 0))
+    assert(resolve("between 08:00:00 and 09:00:00") == LocalDateTime.of(2021, 3, 11, 8, 0, 0))
+    assert(resolve("2021-04-01 at 10:00:00") == LocalDateTime.of(2021, 4, 1, 10, 0, 0))
+
+    // the same expression at a different instant
+    val compiled = utcScheduler.compile("at 09:00:00").get
+    assert(compiled.resolve(Instant.parse("2021-03-10T08:00:00Z")) == LocalDateTime.of(2021, 3, 10, 9, 0, 0))
+  }
+
+  it should "resolve a compiled schedule the same as parsing it" in {
+    Seq("now + 7 days between 09:00:00 and 21:00:00", "now + 1 month at 10:00:00", "tomorrow at 01:14:43", "01:14:43")
+      .foreach(expression => {
+        val parsed = parseLocalDateTime(expression)
+        val compiled = scheduler.compile(expression).get.resolve()
+        assert(!compiled.isBefore(parsed) && compiled.isBefore(parsed.plusMinutes(1)), expression)
+      })
+  }
+
+  it should "compile date/times with zone offsets" in {
+    val plusFive = Scheduler(offset = Some(ZoneOffset.ofHours(5)))
+
+    assert(plusFive.compileTemporal("today").get.resolve(fixedInstant) == LocalDateTime.of(2021, 3, 10, 0, 0, 0))
+    assert(plusFive.compileTemporal("now - 1 hour").get.resolve(fixedInstant) == LocalDateTime.of(2021, 3, 10, 16, 0, 0))
+    assert(plusFive.compileTemporal("2020-02-15 + 1 day").get.resolve(fixedInstant) == LocalDateTime.of(2020, 2, 16, 0, 0, 0))
+    assert(utcScheduler.compileTemporal("now - 1 hour").get.resolve(fixedInstant) == LocalDateTime.of(2021, 3, 10, 11, 0, 0))
+  }
+
+  it should "cache compiled expressions" in {
+    assert(utcScheduler.compile("tomorrow at 09:00:00").get eq Scheduler(offset = Some(ZoneOffset.UTC)).compile("tomorrow at 09:00:00").get)
+    assert(utcScheduler.compile("tomorrow at 09:00:00").get ne Scheduler(offset = Some(ZoneOffset.ofHours(1))).compile("tomorrow at 09:00:00").get)
+    assert(utcScheduler.compile("not a schedule").isEmpty)
+  }
+
+  it should "not compile text with trailing garbage" in {
+    assert(utcScheduler.compile("now garbage").isEmpty)
+    assert(utcScheduler.compile("tomorrow at 09:00:00 trailing junk").isEmpty)
+    assert(utcScheduler.compile("now + 2 days!").isEmpty)
+    assert(utcScheduler.compileTemporal("2020-01-01xyz").isEmpty)
+    assert(utcScheduler.compileTemporal("2020-01-01 10:00:00 later").isEmpty)
+    assert(utcScheduler.compileTemporal("today + 1 day and more").isEmpty)
+
+    // the complete text still compiles
+    assert(utcScheduler.compileTemporal("2020-01-01").isDefined)
+    assert(utcScheduler.compileTemporal("2020-01-01 10:00:00").isDefined)
+    assert(utcScheduler.compile("tomorrow at 09:00:00").isDefined)
+  }
+
+  it should "resolve many schedules at once" in {
+    val result = utcScheduler.resolveAll(Seq("now", "bad", "tomorrow at 09:00:00"), fixedInstant)
+
+    assert(result == Seq(
+      Some(LocalDateTime.of(2021, 3, 10, 12, 0, 0)),
+      None,
+      Some(LocalDateTime.of(2021, 3, 11, 9, 0, 0))
+    ))
+  }
 }
@@ -1,9 +1,16 @@
 package com.srivastavavivekggn.scala.util.parse.rule
 
 import com.srivastavavivekggn.scala.util.BaseUtilSpec
-import com.srivastavavivekggn.scala.util.parse.rule.impl.{ArrayOfStringRule, ExistenceRule, NumberArrayRule, NumberRule, StringArrayRule, StringRule}
+import com.srivastavavivekggn.scala.util.concurrent.AsyncUtils
+import com.srivastavavivekggn.scala.util.parse.rule.context.{ColumnarBatch, MapRuleEvaluationContext, NumberColumn, RuleEvaluationContext, StringArrayColumn, StringColumn, TemporalColumn, ValueColumn}
+import com.srivastavavivekggn.scala.util.parse.rule.impl.{ArrayOfStringRule, ExistenceRule, NumberArrayRule, NumberRule, StringArrayRule, StringRule, TemporalRule}
 import fastparse._
 
+import java.time.{LocalDate, LocalDateTime}
+import java.util.concurrent.TimeUnit
+import scala.concurrent.Await
+import scala.concurrent.duration.Duration
+
 class RuleSetSpec extends BaseUtilSpec with RuleHelpers {
 
   behavior of "RuleSet"
@@ -93,4 +100,127 @@ class RuleSetSpec extends BaseUtilSpec with RuleHelpers {
     )
   }
 
+  private val complexRules = Seq(
+    s"$AGE >= 18",
+    s"$AGE >= 18 AND $AGE < 100",
+    s"($AGE >= 18 AND $AGE < 99) OR $GENDER is M",
+    "(AGE >= 17 AND GENDER is F) OR (AGE < 44 AND GENDER is M)",
+    s"""$MONTH does not exist AND ($YEAR found in [1969, 1970, 1971] OR $AGE < 18) AND ($GENDER is M OR ($GENDER is F AND $BIOS has one of [a]))""",
+    s"""($YEAR found in [1969, 1970, 1971] OR $AGE < 18) AND $MONTH does not exist AND ($GENDER is M OR ($GENDER is F AND $BIOS has one of [z]))""",
+    s"$AGE < 18 OR $GENDER is F AND $ZIP is 07030"
+  )
+
+  it should "compile rules with the same results as evaluate" in {
+    complexRules.foreach(rule => {
+      assert(defaultRuleset.compile(rule).evaluate(defaultContext) == defaultRuleset.evaluate(rule), rule)
+    })
+  }
+
+  it should "evaluate a compiled rule set against different contexts" in {
+    val compiled = defaultRuleset.compile(s"$AGE >= 18 AND ($GENDER is F OR $YEAR found in [1980])")
+
+    assert(compiled.evaluate(Map[String, Any](AGE -> 30, GENDER -> "F")))
+    assert(compiled.evaluate(Map[String, Any](AGE -> 30, GENDER -> "M", YEAR -> 1980)))
+    assert(!compiled.evaluate(Map[String, Any](AGE -> 30, GENDER -> "M", YEAR -> 1981)))
+    assert(!compiled.evaluate(Map[String, Any](AGE -> 17, GENDER -> "F")))
+  }
+
+  it should "short-circuit compiled rules" in {
+    // AGE is not a number, but is never evaluated
+    val compiled = defaultRuleset.compile(s"$GENDER is M AND $AGE > 1")
+    assert(!compiled.evaluate(Map[String, Any](GENDER -> "F", AGE -> "unknown")))
+  }
+
+  it should "cache compiled rule sets by rule text" in {
+    val rule = s"$AGE >= 21 OR $AGE < 5"
+    assert(defaultRuleset.compile(rule) eq defaultRuleset.compile(rule))
+
+    // keyed by the factors as well
+    assert(RuleSet.compile(rule, numberRule) eq RuleSet.compile(rule, numberRule))
+    assert(RuleSet.compile(rule, numberRule) ne defaultRuleset.compile(rule))
+  }
+
+  it should "fail to compile invalid rules" in {
+    intercept[RuntimeException](defaultRuleset.compile(s"$AGE >= 18 X $AGE < 99"))
+    intercept[RuntimeException](defaultRuleset.compile(s"($AGE is 18 AND $AGE < 99) OR GENDER is F"))
+  }
+
+  it should "resolve relative dates when a compiled rule is evaluated" in {
+    val compiled = RuleSet.compile(s"$START before now AND $END after 2020-06-01", TemporalRule(START, END))
+
+    assert(compiled.evaluate(Map[String, Any](START -> LocalDateTime.now.minusMinutes(1).withNano(0), END -> "2021-01-01")))
+    assert(!compiled.evaluate(Map[String, Any](START -> LocalDateTime.now.plusDays(1).withNano(0), END -> "2021-01-01")))
+    assert(!compiled.evaluate(Map[String, Any](START -> LocalDateTime.now.minusMinutes(1).withNano(0), END -> "2020-01-01")))
+  }
+
+  it should "evaluate many contexts in parallel" in {
+    val compiled = defaultRuleset.compile(s"$AGE >= 18 AND $GENDER is F")
+
+    val contexts = (0 until 5000).map(i => MapRuleEvaluationContext(Map(AGE -> i % 40, GENDER -> (if (i % 3 == 0) "F" else "M"))))
+
+    val results = Await.result(
+      compiled.evaluateAll(contexts.iterator, batchSize = 128, parallelism = 4)(AsyncUtils.Contexts.forkJoin),
+      Duration(30, TimeUnit.SECONDS)
+    )
+
+    assert(results == contexts.map(compiled.evaluate))
+    assert(results.count(identity) == contexts.count(c => c.data(AGE).asInstanceOf[Int] >= 18 && c.data(GENDER) == "F"))
+  }
+
+  it should "evaluate a columnar batch with the same results as per-row evaluation" in {
+    val rows: IndexedSeq[RuleEvaluationContext] = (0 until 500).map(i => MapRuleEvaluationContext(
+      Map[String, Any](
+        AGE -> i % 90,
+        YEAR -> (1960 + i % 20),
+        GENDER -> (if (i % 2 == 0) "F" else "m"),
+        BIOS -> Seq("A", "b", "c").take(i % 4),
+        START -> LocalDate.of(2020, 1, 1).plusDays(i).toString
+      ) ++ (if (i % 7 == 0) Map(MONTH -> "") else if (i % 5 == 0) Map(MONTH -> "May") else Map.empty)
+    ))
+
+    val batch = ColumnarBatch(rows.size, Map(
+      AGE -> NumberColumn(rows.map(_.get(AGE).get.asInstanceOf[Int]).toArray),
+      YEAR -> NumberColumn(rows.map(_.get(YEAR).get.asInstanceOf[Int]).toArray),
+      GENDER -> StringColumn.encode(rows.map(_.get(GENDER).get.toString).toArray),
+      BIOS -> StringArrayColumn.encode(rows.map(_.get(BIOS).get.asInstanceOf[Seq[String]]).toArray),
+      START -> TemporalColumn.ofDates(rows.map(r => LocalDate.parse(r.get(START).get.toString)).toArray),
+      MONTH -> StringColumn.encode(rows.map(_.get(MONTH).map(_.toString).orNull).toArray)
+    ))
+
+    val ruleSet = RuleSet(defaultContext, numberRule, stringRule, numberArrayRule, stringArrayRule, arrayOfStringRule,
+      existenceRule, TemporalRule(START))
+
+    Seq(
+      s"$AGE >= 18 AND $AGE != 40",
+      s"$AGE < 18 OR $GENDER is f",
+      s"$GENDER starts with M AND $YEAR found in [1961, 1965, 1970]",
+      s"$YEAR not found in [1961, 1965] AND $GENDER not found in [m]",
+      s"$BIOS has one of [a, z] OR $AGE = 3",
+      s"$BIOS has all of [a, C]",
+      s"$MONTH exists OR ($MONTH does not exist AND $AGE > 80)",
+      s"$START after 2020-06-01 AND $START before or equal to 2020-09-01",
+      s"$START < 2020-03-01 OR $ZIP is 07030",
+      s"$AGE > 100"
+    ).foreach(rule => {
+      val compiled = ruleSet.compile(rule)
+      val expected = rows.indices.filter(i => compiled.evaluate(rows(i)))
+      val result = compiled.evaluate(batch)
+
+      assert(result.stream().toArray.toSeq == expected, rule)
+    })
+  }
+
+  it should "evaluate generic columns per row" in {
+    val batch = ColumnarBatch.fromRows(IndexedSeq(
+      MapRuleEvaluationContext(Map(AGE -> 20, NAME -> Some("x"))),
+      MapRuleEvaluationContext(Map(AGE -> 10, NAME -> None)),
+      MapRuleEvaluationContext(Map(AGE -> 30))
+    ), Seq(AGE, NAME))
+
+    assert(batch.column(AGE).exists(_.isInstanceOf[NumberColumn]))
+    assert(batch.column(NAME).exists(_.isInstanceOf[ValueColumn]))
+
+    val compiled = RuleSet.compile(s"$AGE >= 18 AND $NAME exists", numberRule, ExistenceRule(NAME))
+    assert(compiled.evaluate(batch).stream().toArray.toSeq == Seq(0))
+  }
 }
@@ -0,0 +1,86 @@
+package com.srivastavavivekggn.scala.util.placeholder
+
+import java.time.LocalDate
+
+import com.srivastavavivekggn.scala.util.BaseUtilSpec
+import com.srivastavavivekggn.scala.util.placeholder.PlaceholderUtils.ReplacementMode
+import com.srivastavavivekggn.scala.util.placeholder.context.StaticPlaceholderContextProvider
+
+class CompiledTemplateSpec extends BaseUtilSpec {
+
+  val template = "{{greeting |x   }}, {{  name}}! How's it {{verbs.primary}}? Bye {{name}}, see you {{ startDate|date:YYYY }}"
+
+  val context = StaticPlaceholderContextProvider(Map(
+    "greeting" -> "Hi",
+    "name" -> "Bob",
+    "startDate" -> LocalDate.of(2020, 3, 15)
+  ))
+
+  behavior of "CompiledTemplate.compile"
+
+  it should "cache compiled templates by template text" in {
+    val first = CompiledTemplate.compile(template)
+    val second = CompiledTemplate.compile(new String(template))
+
+    assert(first eq second)
+    assert(!(CompiledTemplate.parse(template) eq first))
+  }
+
+  it should "expose the distinct placeholders in order" in {
+    val result = CompiledTemplate.compile(template).placeholders.map(_.key)
+
+    assertResult(List("greeting", "name", "verbs.primary", "startDate"))(result)
+  }
+
+  it should "handle empty and null templates" in {
+    assertResult("")(CompiledTemplate.compile("").render(context))
+    assertResult(None.orNull)(CompiledTemplate.compile(None.orNull).render(context))
+  }
+
+  behavior of "CompiledTemplate.render"
+
+  it should "render every occurrence of a placeholder" in {
+    assertResult("Hi, Bob! How's it ? Bye Bob, see you 2020")(CompiledTemplate.compile(template).render(context))
+  }
+
+  it should "respect the replacement mode" in {
+    val compiled = CompiledTemplate.compile(template)
+
+    assertResult("Hi, Bob! How's it {{verbs.primary}}? Bye Bob, see you 2020")(
+      compiled.render(context, ReplacementMode.LEAVE_PLACEHOLDERS)
+    )
+
+    assertResult("Hi, Bob! How's it verbs.primary? Bye Bob, see you 2020")(
+      compiled.render(context, ReplacementMode.DROP_BRACES)
+    )
+
+    assertResult(template)(
+      compiled.render(StaticPlaceholderContextProvider(Map.empty), ReplacementMode.LEAVE_PLACEHOLDERS)
+    )
+  }
+
+  it should "replace placeholders introduced by replacement values and nesting" in {
+    val ctx = StaticPlaceholderContextProvider(Map(
+      "a" -> "b",
+      "b" -> "{{c}}",
+      "c" -> "d",
+      "d" -> "e"
+    ))
+
+    assertResult("d!")(CompiledTemplate.compile("{{ {{ a }} }}!").render(ctx))
+    assertResult("[d]")(CompiledTemplate.compile("[{{b}}]").render(ctx))
+  }
+
+  it should "insert replacement values literally" in {
+    val ctx = StaticPlaceholderContextProvider(Map("price" -> "$5.00 \\ each"))
+
+    assertResult("costs $5.00 \\ each")(CompiledTemplate.compile("costs {{price}}").render(ctx))
+  }
+
+  it should "produce the same output when rendered repeatedly" in {
+    val compiled = CompiledTemplate.compile(template)
+    val results = (1 to 100).map(_ => compiled.render(context)).distinct
+
+    assertResult(1)(results.size)
+  }
+}
@@ -0,0 +1,80 @@
+package com.srivastavavivekggn.scala.util.placeholder.format
+
+import java.time.LocalDate
+import java.util.Locale
+import java.util.concurrent.atomic.AtomicInteger
+
+import com.srivastavavivekggn.scala.util.BaseUtilSpec
+
+class FormatterRegistrySpec extends BaseUtilSpec {
+
+  /**
+    * formatter that counts how often it is consulted
+    */
+  class CountingFormatter(formatType: String) extends PlaceholderValueFormatter {
+    val typeChecks = new AtomicInteger()
+    val valueChecks = new AtomicInteger()
+
+    override def canFormat(t: String): Boolean = {
+      typeChecks.incrementAndGet()
+      formatType.equals(t)
+    }
+
+    override def canFormatValue(value: Any): Boolean = {
+      valueChecks.incrementAndGet()
+      value.isInstanceOf[Integer]
+    }
+
+    override def format(value: Any, args: List[String], locale: Locale): String = s"$formatType:$value"
+  }
+
+  behavior of "FormatterRegistry"
+
+  it should "resolve format types, with custom formatters taking precedence" in {
+    val custom = new CountingFormatter("date")
+    val registry = FormatterRegistry.forFormatters(List(custom))
+
+    assert(registry.forType("date").contains(custom))
+    assert(registry.forType("e").exists(_.isInstanceOf[UrlEncodingValueFormatter]))
+    assert(registry.forType("unknown").isEmpty)
+    assert(FormatterRegistry.default.forType("date").exists(_.isInstanceOf[TemporalValueFormatter]))
+  }
+
+  it should "resolve formatters by value class" in {
+    val custom = new CountingFormatter("int")
+    val registry = FormatterRegistry.forFormatters(List(custom))
+
+    assert(registry.forValue(5).contains(custom))
+    assert(registry.forValue(LocalDate.now).exists(_.isInstanceOf[TemporalValueFormatter]))
+    assert(registry.forValue("str").isEmpty)
+    assert(registry.forValue(None.orNull).isEmpty)
+  }
+
+  it should "only consult formatters once per format type and value class" in {
+    val custom = new CountingFormatter("count")
+    val registry = FormatterRegistry.forFormatters(List(custom))
+
+    (1 to 10).foreach(i => {
+      registry.forType("count")
+      registry.forType("missing")
+      registry.forValue(i)
+      registry.forValue(s"$i")
+    })
+
+    assertResult(2)(custom.typeChecks.get())
+    assertResult(2)(custom.valueChecks.get())
+  }
+
+  it should "re-use registries for equal formatter lists" in {
+    val custom = new CountingFormatter("x")
+
+    assert(FormatterRegistry.forFormatters(List(custom)) eq FormatterRegistry.forFormatters(List(custom)))
+    assert(FormatterRegistry.forFormatters(List.empty) eq FormatterRegistry.default)
+  }
+
+  it should "cache date/time formatters by pattern" in {
+    assert(FormatterRegistry.dateTimeFormatter("YYYY") eq FormatterRegistry.dateTimeFormatter("YYYY"))
+    assertResult("2020")(FormatterRegistry.dateTimeFormatter("YYYY").format(LocalDate.of(2020, 3, 15)))
+    assertThrows[IllegalArgumentException](FormatterRegistry.dateTimeFormatter("{{bad}}"))
+  }
+}
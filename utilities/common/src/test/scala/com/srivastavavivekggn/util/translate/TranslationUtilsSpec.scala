@@ -1,6 +1,13 @@
 package com.srivastavavivekggn.scala.util.translate
 
 import com.srivastavavivekggn.scala.util.BaseUtilSpec
+import com.srivastavavivekggn.scala.util.crypto.HashUtils
+import com.srivastavavivekggn.scala.util.lang.StringUtils
+
+import scala.concurrent.Await
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
+import scala.util.Random
 
 class TranslationUtilsSpec extends BaseUtilSpec {
 
@@ -68,4 +75,52 @@ class TranslationUtilsSpec extends BaseUtilSpec {
     assertResult(originalText)(TranslationUtils.sanitize(text))
     assertResult(hash)(TranslationUtils.sanitizeAndHash(text))
   }
+
+  /**
+    * sanitize and hash as originally implemented (regex replacements, then String hashing)
+    */
+  def referenceSanitize(v: String): String = {
+    val noNewlines = TranslationUtils.NEWLINE_REGEX.matcher(v).replaceAll(StringUtils.EMPTY)
+    TranslationUtils.MULTI_SPACE_REGEX.matcher(noNewlines).replaceAll(StringUtils.BLANK).trim
+  }
+
+  def referenceHash(v: String): String = HashUtils.hash(HashUtils.SHA256, v, useHex = true).toLowerCase
+
+  /**
+    * random strings, weighted towards whitespace and control characters
+    */
+  def randomStrings(seed: Long, count: Int): Seq[String] = {
+    val random = new Random(seed)
+    val alphabet = " \t\n\r\f\u000B\u0000\u0001\u001Fab Zz9.\u00e9\u4e2d\ud83d\ude00\ud800\udc00".toCharArray
+
+    (1 to count).map(_ => {
+      val chars = Array.fill(random.nextInt(64))(alphabet(random.nextInt(alphabet.length)))
+      new String(chars)
+    })
+  }
+
+  it should "sanitize and hash the same as the regex implementation for any input" in {
+    randomStrings(seed = 42L, count = 5000).foreach(v => {
+      val sanitized = referenceSanitize(v)
+
+      assertResult(sanitized, v)(TranslationUtils.sanitize(v))
+      assertResult(referenceHash(v), v)(TranslationUtils.hash(v))
+      assertResult(referenceHash(sanitized), v)(TranslationUtils.sanitizeAndHash(v))
+    })
+  }
+
+  it should "sanitize and hash long input" in {
+    val text = ("Some  long\n text \t\t with spaces " * 2000) + "\ud83d\ude00"
+
+    assertResult(referenceSanitize(text))(TranslationUtils.sanitize(text))
+    assertResult(referenceHash(referenceSanitize(text)))(TranslationUtils.sanitizeAndHash(text))
+  }
+
+  it should "sanitize and hash all values in parallel batches" in {
+    val values = randomStrings(seed = 7L, count = 1000)
+
+    val result = Await.result(TranslationUtils.sanitizeAndHashAll(values, batchSize = 64, parallelism = 4), 30.seconds)
+
+    assertResult(values.map(v => referenceHash(referenceSanitize(v))))(result)
+  }
 }
@@ -1,7 +1,7 @@
 package com.srivastavavivekggn.scala.util.unit
 
 import com.srivastavavivekggn.scala.util.BaseUtilSpec
-import com.srivastavavivekggn.scala.util.lang.{LocaleUtils, StringUtils}
+import com.srivastavavivekggn.scala.util.lang.{LocaleUtils, NumberUtils, StringUtils}
 import com.srivastavavivekggn.scala.util.unit.exception.{NoUnitConversionFound, UnitNotFoundException, UnitTypeMismatchException}
 
 class UnitConversionUtilsSpec extends BaseUtilSpec {
@@ -149,4 +149,46 @@ class UnitConversionUtilsSpec extends BaseUtilSpec {
     }
   }
 
+  it should "compile a converter for every known conversion" in {
+    UnitConversionUtils.conversions.foreach {
+      case ((source, target), fn) =>
+        val converter = UnitConversionUtils.converter(source, target)
+
+        Seq(-40d, 0d, 1d, 32d, 98.6d, 1234.5d).foreach(v => {
+          assertResult(NumberUtils.roundTo(fn(v), 6))(NumberUtils.roundTo(converter.convert(v), 6))
+        })
+    }
+  }
+
+  it should "convert all values at once" in {
+    val result = UnitConversionUtils.convertAll(Array(32d, 212d, -40d), MeasurementUnit.DEGREE_FAHRENHEIT, MeasurementUnit.DEGREE_CELSIUS)
+    assertResult(Seq(0d, 100d, -40d))(result.map(NumberUtils.roundTo(_, 6)).toSeq)
+
+    val inPlace = Array(12d, 24d, 36d)
+    UnitConversionUtils.converter(MeasurementUnit.INCH, MeasurementUnit.FOOT).convertAll(inPlace, inPlace)
+    assertResult(Seq(1d, 2d, 3d))(inPlace.map(NumberUtils.roundTo(_, 6)).toSeq)
+
+    intercept[UnitTypeMismatchException] {
+      UnitConversionUtils.convertAll(Array(1d), MeasurementUnit.INCH, MeasurementUnit.POUND)
+    }
+  }
+
+  it should "cache the converter for a locale" in {
+    val converter = UnitConversionUtils.forLocale(metricLocale)
+
+    assert(converter eq UnitConversionUtils.forLocale(metricLocale))
+    assertResult(MeasurementSystem.METRIC)(converter.measurementSystem)
+    assertResult(Some(MeasurementUnit.KILOGRAM))(converter.converter(MeasurementUnit.POUND).map(_.target))
+    assertResult(None)(converter.converter(MeasurementUnit.KILOGRAM))
+
+    val values = Array(1d, 2d)
+    val unchanged = converter.convertAll(values, MeasurementUnit.KILOGRAM)
+    assert(!(unchanged eq values))
+    assertResult(values.toSeq)(unchanged.toSeq)
+    assertResult(Seq(0.453592, 0.907185))(converter.convertAll(values, MeasurementUnit.POUND).map(NumberUtils.roundTo(_, 6)).toSeq)
+
+    intercept[NoUnitConversionFound] {
+      UnitConversionUtils.forLocale(imperialLocale).convert(Measurement(1, MeasurementUnit.KILOMETER))
+    }
+  }
 }
@@ -0,0 +1,63 @@
+package com.srivastavavivekggn.scala.util.web.security
+
+import java.util.concurrent.TimeUnit
+
+import com.srivastavavivekggn.scala.util.lang.StringUtils
+import org.openjdk.jmh.annotations._
+
+/**
+  * Compares method+url scope validation through the compiled scope index against the previous linear claim scan,
+  * for tokens with 10, 100 and 1000 scopes. Both paths use the verified token cache, so only matching is measured.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+class JwtAuthorizerBenchmark {
+
+  @Param(Array("10", "100", "1000"))
+  var scopes: Int = _
+
+  val authorizer: JwtAuthorizer = JwtAuthorizer("HMF6yBp+psF0jg/mVO4BDNwkG2tHuFc2U/FqLpBBl9Q=", 1209600)
+
+  var token: String = _
+
+  /**
+    * the route being authorized (covered by the last scope in the token)
+    */
+  var route: String = _
+
+  @Setup
+  def setup(): Unit = {
+    val all = (1 to scopes).flatMap(i => Seq(
+      s"GET:https://api.qa.xxxxx.com/service$i/resource",
+      s"POST:https://api.qa.xxxxx.com/service$i/resource"
+    ))
+
+    token = authorizer.createJwt("bench.user", all.head, all.tail: _*)._1
+    route = s"https://api.qa.xxxxx.com/service$scopes/resource/12345"
+  }
+
+  @Benchmark
+  def linear(): AuthResult = authorizer.validateJwt(token, JwtAuthorizerBenchmark.legacyMatchers(route, "GET"): _*)
+
+  @Benchmark
+  def compiled(): AuthResult = authorizer.validateJwt(token, s"GET:$route")
+}
+
+object JwtAuthorizerBenchmark {
+
+  /**
+    * The matchers the previous validateJwt built for a single {Method}:{Url} scope
+    */
+  def legacyMatchers(url: String, method: String): Seq[(String => Boolean, AnyRef => Boolean)] = {
+    val expectedMethodList = Seq(method)
+
+    Seq((
+      (claimKey: String) => url.startsWith(claimKey),
+      (claimValue: AnyRef) => {
+        val claimMethodList = claimValue.toString.split(StringUtils.COMMA)
+        claimMethodList.intersect(expectedMethodList).lengthCompare(expectedMethodList.size) == 0
+      }
+    ))
+  }
+}
@@ -18,6 +18,8 @@ public @interface CacheControl {
 
     /**
      *  The maximum amount of time, in seconds, that this content will be considered fresh.
+     *  Not added if the policy already includes a max-age, which then applies (to the Expires header too) instead --
+     *  as the default policy does, so maxAge has no effect unless the policy is overridden.
      */
     int maxAge() default 0;
 
@@ -26,4 +28,18 @@ public @interface CacheControl {
      * only for shared caches (e.g., proxy) caches.
      */
     int sharedMaxAge() default -1;
+
+    /**
+     * Add an ETag to GET responses, and answer a matching If-None-Match with 304 (Not Modified) and no body.
+     * Unless a version is given, the ETag is a hash of the response body, which needs the ETagResponseFilter
+     * to be registered.
+     */
+    boolean etag() default false;
+
+    /**
+     * A version for the response content, used as the ETag instead of hashing the body (implies etag).  Only for
+     * content that does not change until the version does, e.g., reference data published with a version.
+     * A matching If-None-Match is answered before the handler runs.
+     */
+    String version() default "";
 }
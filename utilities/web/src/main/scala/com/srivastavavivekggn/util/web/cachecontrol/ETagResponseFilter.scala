@@ -0,0 +1,34 @@
+package com.srivastavavivekggn.scala.util.web.cachecontrol
+
+import javax.servlet.FilterChain
+import javax.servlet.http.{HttpServletRequest, HttpServletResponse}
+
+import org.springframework.web.filter.OncePerRequestFilter
+import org.springframework.web.util.WebUtils
+
+/**
+  * Wraps each response so handlers annotated with @CacheControl(etag = true) (without a version) can be given an
+  * ETag from a hash of their body, and a 304 (Not Modified) when it matches the request's If-None-Match (see
+  * CacheControlHandlerInterceptor). Other responses are passed through as they are written.
+  *
+  * Unlike Spring's ShallowEtagHeaderFilter, only the annotated handlers' responses are held back.
+  */
+class ETagResponseFilter extends OncePerRequestFilter {
+
+  override protected def doFilterInternal(request: HttpServletRequest,
+                                          response: HttpServletResponse,
+                                          filterChain: FilterChain): Unit = {
+
+    // async dispatches get the wrapper from the initial dispatch
+    val wrapper = Option(WebUtils.getNativeResponse(response, classOf[ETagResponseWrapper]))
+      .getOrElse(new ETagResponseWrapper(response))
+
+    filterChain.doFilter(request, wrapper)
+
+    if (!isAsyncStarted(request)) {
+      wrapper.complete(request)
+    }
+  }
+
+  override protected def shouldNotFilterAsyncDispatch(): Boolean = false
+}
@@ -0,0 +1,141 @@
+package com.srivastavavivekggn.scala.util.web.cachecontrol
+
+import java.io.{ByteArrayOutputStream, OutputStreamWriter, PrintWriter}
+import java.nio.charset.Charset
+import java.security.MessageDigest
+import javax.servlet.http.{HttpServletRequest, HttpServletResponse, HttpServletResponseWrapper}
+import javax.servlet.{ServletOutputStream, WriteListener}
+
+import com.srivastavavivekggn.scala.util.crypto.HashUtils
+import org.springframework.http.HttpMethod
+import org.springframework.web.context.request.ServletWebRequest
+
+/**
+  * Response wrapper for the ETagResponseFilter. The response is passed through unless hashing is enabled (by the
+  * CacheControlHandlerInterceptor, before the body is written), in which case the body is hashed as it is written
+  * and held back until complete, so it can be replaced by a 304 (Not Modified).
+  *
+  * @param response the response to wrap
+  */
+class ETagResponseWrapper(response: HttpServletResponse) extends HttpServletResponseWrapper(response) {
+
+  private var buffer: ByteArrayOutputStream = _
+
+  private var digest: MessageDigest = _
+
+  private var outputStream: ServletOutputStream = _
+
+  private var writer: PrintWriter = _
+
+  /**
+    * Hash and hold back the body. Has no effect once the body has been written to.
+    */
+  def enable(): Unit = {
+    if (!isEnabled && outputStream == null && writer == null && !isCommitted) {
+      buffer = new ByteArrayOutputStream(ETagResponseWrapper.INITIAL_BUFFER_SIZE)
+      digest = MessageDigest.getInstance(HashUtils.MD5)
+    }
+  }
+
+  /**
+    * @return true if the body is being hashed
+    */
+  def isEnabled: Boolean = buffer != null
+
+  /**
+    * Send the held back body, or a 304 if the request's If-None-Match matches its ETag (the ETag is only added to
+    * successful GET responses)
+    *
+    * @param request the request
+    */
+  def complete(request: HttpServletRequest): Unit = {
+    if (isEnabled) {
+      Option(writer).foreach(_.flush())
+
+      val notModified = getStatus == HttpServletResponse.SC_OK &&
+        HttpMethod.GET.matches(request.getMethod) &&
+        new ServletWebRequest(request, getResponse.asInstanceOf[HttpServletResponse]).checkNotModified(etag)
+
+      if (!notModified && buffer.size() > 0) {
+        super.setContentLength(buffer.size())
+        buffer.writeTo(super.getOutputStream)
+      }
+
+      buffer = null
+    }
+  }
+
+  override def getOutputStream: ServletOutputStream = {
+    if (!isEnabled) super.getOutputStream
+    else if (writer != null) throw new IllegalStateException("getWriter() has already been called for this response")
+    else {
+      if (outputStream == null) outputStream = new HashingOutputStream
+      outputStream
+    }
+  }
+
+  override def getWriter: PrintWriter = {
+    if (!isEnabled) super.getWriter
+    else if (outputStream != null) throw new IllegalStateException("getOutputStream() has already been called for this response")
+    else {
+      if (writer == null) writer = new PrintWriter(new OutputStreamWriter(new HashingOutputStream, Charset.forName(getCharacterEncoding)))
+      writer
+    }
+  }
+
+  override def flushBuffer(): Unit = {
+    // flushing would commit the response before the ETag is known
+    if (isEnabled) Option(writer).foreach(_.flush()) else super.flushBuffer()
+  }
+
+  override def setContentLength(len: Int): Unit = if (!isEnabled) super.setContentLength(len)
+
+  override def setContentLengthLong(len: Long): Unit = if (!isEnabled) super.setContentLengthLong(len)
+
+  override def resetBuffer(): Unit = {
+    super.resetBuffer()
+    if (isEnabled) resetBody()
+  }
+
+  override def reset(): Unit = {
+    super.reset()
+    if (isEnabled) resetBody()
+  }
+
+  private def resetBody(): Unit = {
+    buffer.reset()
+    digest.reset()
+  }
+
+  /**
+    * the quoted (hex) digest of the body
+    */
+  private def etag: String = "\"" + HashUtils.toHex(digest.digest(), upperCase = false) + "\""
+
+  /**
+    * Writes to the buffer, updating the digest
+    */
+  private class HashingOutputStream extends ServletOutputStream {
+
+    override def write(b: Int): Unit = {
+      digest.update(b.toByte)
+      buffer.write(b)
+    }
+
+    override def write(b: Array[Byte], off: Int, len: Int): Unit = {
+      digest.update(b, off, len)
+      buffer.write(b, off, len)
+    }
+
+    override def isReady: Boolean = true
+
+    override def setWriteListener(listener: WriteListener): Unit = {
+      throw new UnsupportedOperationException("Non-blocking writes are not supported while hashing the body")
+    }
+  }
+}
+
+object ETagResponseWrapper {
+
+  private final val INITIAL_BUFFER_SIZE = 4096
+}
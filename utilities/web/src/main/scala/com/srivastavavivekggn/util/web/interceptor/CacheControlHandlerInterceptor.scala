@@ -1,12 +1,17 @@
 package com.srivastavavivekggn.scala.util.web.interceptor
 
-import java.util.{Calendar, GregorianCalendar, TimeZone}
+import java.lang.reflect.Method
+import java.util.concurrent.{ConcurrentHashMap, TimeUnit}
 import javax.servlet.http.{HttpServletRequest, HttpServletResponse}
 
-import com.srivastavavivekggn.scala.util.web.cachecontrol.{CacheControl, CachePolicy}
+import com.srivastavavivekggn.scala.util.web.cachecontrol.{CacheControl, CachePolicy, ETagResponseWrapper}
+import com.srivastavavivekggn.scala.util.web.interceptor.CacheControlHandlerInterceptor.Resolved
+import org.springframework.http.HttpMethod
+import org.springframework.web.context.request.ServletWebRequest
 import org.springframework.web.method.HandlerMethod
 import org.springframework.web.servlet.HandlerInterceptor
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter
+import org.springframework.web.util.WebUtils
 
 
 /**
@@ -15,6 +20,10 @@ import org.springframework.web.servlet.handler.HandlerInterceptorAdapter
   * to set the values for the header "cache-control". If no annotation is found it will create a
   * default header with the value of "no-cache, no-store, must-revalidate".
   *
+  * The annotation and header value are resolved once per handler method. Handlers annotated with etag = true also
+  * get an ETag, and a 304 (Not Modified) for a matching If-None-Match -- see CacheControl.etag and
+  * CacheControl.version.
+  *
   */
 class CacheControlHandlerInterceptor extends HandlerInterceptorAdapter with HandlerInterceptor {
 
@@ -23,6 +32,16 @@ class CacheControlHandlerInterceptor extends HandlerInterceptorAdapter with Hand
 
   private var useExpiresHeader = true
 
+  /**
+    * The resolved annotation and header for each handler method, by bean type and method
+    */
+  private val resolved = new ConcurrentHashMap[(Class[_], Method), Resolved]()
+
+  /**
+    * The header for handlers that are not annotated (or are not handler methods)
+    */
+  private lazy val unannotated = Resolved(null, createDefaultCacheControlHeader(), expiresMaxAge = None, None, hashBody = false)
+
   /**
     * Assigns a CacheControl header to the given response.
     *
@@ -31,17 +50,34 @@ class CacheControlHandlerInterceptor extends HandlerInterceptorAdapter with Hand
     * @param handler  the handler for the given request
     */
   protected def setCacheControlHeader(request: HttpServletRequest, response: HttpServletResponse, handler: Object): Unit = {
-    val cacheControl = this.getCacheControl(request, response, handler)
-    val cacheControlHeader = this.generateCacheControlHeader(cacheControl)
+    val cacheControl = resolve(handler)
 
-    Option(cacheControlHeader) match {
-      case Some(header) =>
-        response.setHeader(HEADER_CACHE_CONTROL, cacheControlHeader)
-        if (useExpiresHeader) response.setDateHeader(HEADER_EXPIRES, generateExpiresHeader(cacheControl))
+    response.setHeader(HEADER_CACHE_CONTROL, cacheControl.header)
+
+    if (useExpiresHeader) {
+      cacheControl.expiresMaxAge.foreach(maxAge => response.setDateHeader(HEADER_EXPIRES, generateExpiresHeader(maxAge)))
+    }
+  }
+
+  /**
+    * Adds the ETag for handlers annotated with etag = true -- a versioned ETag straight away, or enables hashing the
+    * body (if the ETagResponseFilter wrapped the response)
+    *
+    * @param request  the HttpServletRequest
+    * @param response the HttpServletResponse
+    * @param handler  the handler for the given request
+    * @return false if the request's If-None-Match matches the versioned ETag (the response is a 304), true otherwise
+    */
+  protected def checkETag(request: HttpServletRequest, response: HttpServletResponse, handler: Object): Boolean = {
+    val cacheControl = resolve(handler)
 
-      // set the default as no-cache
-      case _ => response.setHeader(HEADER_CACHE_CONTROL, createDefaultCacheControlHeader())
+    if (cacheControl.hashBody && HttpMethod.GET.matches(request.getMethod)) {
+      Option(WebUtils.getNativeResponse(response, classOf[ETagResponseWrapper])).foreach(_.enable())
     }
+
+    cacheControl.versionETag
+      .filter(_ => HttpMethod.GET.matches(request.getMethod) || HttpMethod.HEAD.matches(request.getMethod))
+      .forall(etag => !new ServletWebRequest(request, response).checkNotModified(etag))
   }
 
   /**
@@ -69,25 +105,26 @@ class CacheControlHandlerInterceptor extends HandlerInterceptorAdapter with Hand
   protected def generateCacheControlHeader(cacheControl: CacheControl): String = {
 
     Option(cacheControl)
-      .filterNot(c => c.maxAge() >= 0 || c.sharedMaxAge() >= 0 || c.policy().isEmpty)
+      .filter(c => c.maxAge() >= 0 || c.sharedMaxAge() >= 0 || c.policy().nonEmpty)
       .map(control => {
 
-        val maxAge = if (control.maxAge >= 0) {
+        val policies = Option(control.policy()).getOrElse(Array.empty)
+
+        // the default policy already has a max-age
+        val maxAge = if (control.maxAge >= 0 && policyMaxAge(control).isEmpty) {
           Seq(s"${CachePolicy.MAX_AGE}=${control.maxAge}")
         }
         else {
           Seq.empty
         }
 
-        val sharedMax = if (cacheControl.sharedMaxAge >= 0) {
+        val sharedMax = if (control.sharedMaxAge >= 0) {
           Seq(s"s-maxage=${control.sharedMaxAge()}")
         }
         else {
           Seq.empty
         }
 
-        val policies = Option(control.policy()).getOrElse(Array.empty)
-
         (maxAge ++ sharedMax ++ policies).mkString(", ")
       }).orNull
   }
@@ -100,9 +137,45 @@ class CacheControlHandlerInterceptor extends HandlerInterceptorAdapter with Hand
     * @return the expires header value
     */
   protected def generateExpiresHeader(cacheControl: CacheControl): Long = {
-    val expires = new GregorianCalendar(TimeZone.getTimeZone("GMT"))
-    if (cacheControl.maxAge >= 0) expires.add(Calendar.SECOND, cacheControl.maxAge)
-    expires.getTime.getTime
+    generateExpiresHeader(effectiveMaxAge(cacheControl).toLong)
+  }
+
+  /**
+    * Returns an expires header value for the given max-age.
+    *
+    * @param maxAge the max-age in seconds
+    * @return the expires header value
+    */
+  protected def generateExpiresHeader(maxAge: Long): Long = {
+    System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(math.max(0L, maxAge))
+  }
+
+  /**
+    * Returns the max-age of the given annotation's Cache-Control header -- the policy's max-age if it has one (as the
+    * default policy does), otherwise CacheControl.maxAge
+    *
+    * @param cacheControl the CacheControl annotation
+    * @return the max-age in seconds
+    */
+  protected def effectiveMaxAge(cacheControl: CacheControl): Int = {
+    policyMaxAge(cacheControl).getOrElse(cacheControl.maxAge())
+  }
+
+  /**
+    * Get the max-age given in the annotation's policy, if there is one
+    *
+    * @param cacheControl the CacheControl annotation
+    * @return the policy's max-age in seconds
+    */
+  private def policyMaxAge(cacheControl: CacheControl): Option[Int] = {
+    Option(cacheControl.policy()).getOrElse(Array.empty)
+      .flatMap(_.split(","))
+      .map(_.trim)
+      .collectFirst {
+        case directive if directive.startsWith(CachePolicy.MAX_AGE) =>
+          directive.drop(CachePolicy.MAX_AGE.length).dropWhile(c => c == '=' || c.isWhitespace).takeWhile(_.isDigit)
+      }
+      .map(digits => if (digits.isEmpty) 0 else digits.toInt)
   }
 
   /**
@@ -114,20 +187,35 @@ class CacheControlHandlerInterceptor extends HandlerInterceptorAdapter with Hand
     * @return the CacheControl annotation specified by the given handler if present; null otherwise
     */
   def getCacheControl(request: HttpServletRequest, response: HttpServletResponse, handler: Object): CacheControl = {
+    resolve(handler).annotation
+  }
 
-    Option(handler)
-      .filter(_.isInstanceOf[HandlerMethod])
-      .map(handle => {
+  /**
+    * Get the resolved annotation and header for the given handler, resolving them on first use
+    *
+    * @param handler the current request handler
+    * @return the resolved annotation and header
+    */
+  private def resolve(handler: Object): Resolved = handler match {
+    case handlerMethod: HandlerMethod =>
+      resolved.computeIfAbsent((handlerMethod.getBeanType, handlerMethod.getMethod), _ => {
 
-        val handlerMethod = handle.asInstanceOf[HandlerMethod]
-        val cacheControl = handlerMethod.getMethodAnnotation(classOf[CacheControl])
+        val cacheControl = Option(handlerMethod.getMethodAnnotation(classOf[CacheControl]))
+          .getOrElse(handlerMethod.getBeanType.getAnnotation(classOf[CacheControl]))
 
-        Option(cacheControl) match {
-          case Some(cache) => cache
-          case _ => handlerMethod.getBeanType.getAnnotation(classOf[CacheControl])
+        Option(generateCacheControlHeader(cacheControl)) match {
+          case Some(header) =>
+            val version = Option(cacheControl.version()).filter(_.nonEmpty)
+
+            Resolved(cacheControl, header, Some(effectiveMaxAge(cacheControl).toLong), version.map(v => "\"" + v + "\""),
+              cacheControl.etag() && version.isEmpty)
+
+          // set the default as no-cache
+          case _ => unannotated.copy(annotation = cacheControl)
         }
+      })
 
-      }).orNull
+    case _ => unannotated
   }
 
   /**
@@ -148,7 +236,26 @@ class CacheControlHandlerInterceptor extends HandlerInterceptorAdapter with Hand
     // add the cache control header
     this.setCacheControlHeader(request, response, handler)
 
-    super.preHandle(request, response, handler)
+    // stop here if we've answered with a 304
+    this.checkETag(request, response, handler) && super.preHandle(request, response, handler)
   }
 
 }
+
+object CacheControlHandlerInterceptor {
+
+  /**
+    * The settings for a handler
+    *
+    * @param annotation    the CacheControl annotation (may be null)
+    * @param header        the Cache-Control header value
+    * @param expiresMaxAge the max-age (in seconds) for an Expires header, if one should be set too
+    * @param versionETag   the ETag for a CacheControl.version, if there is one
+    * @param hashBody      true if the ETag is a hash of the body
+    */
+  private case class Resolved(annotation: CacheControl,
+                              header: String,
+                              expiresMaxAge: Option[Long],
+                              versionETag: Option[String],
+                              hashBody: Boolean)
+}
@@ -1,7 +1,9 @@
 package com.srivastavavivekggn.scala.util.web.security
 
+import com.google.common.cache.{CacheBuilder, CacheLoader, LoadingCache}
 import com.srivastavavivekggn.scala.util.TypeAlias.JLong
 import com.srivastavavivekggn.scala.util.crypto.HashUtils
+import com.srivastavavivekggn.scala.util.crypto.HashUtils.PrefixedHash
 import com.srivastavavivekggn.scala.util.lang.StringUtils
 import com.srivastavavivekggn.scala.util.random.RandomUtils
 import com.typesafe.scalalogging
@@ -9,7 +11,6 @@ import org.slf4j.Logger
 import org.springframework.http.{HttpHeaders, HttpRequest}
 
 import javax.servlet.http.HttpServletRequest
-import scala.util.{Failure, Try}
 
 /**
   * Utility to generate and validate internal service auth headers
@@ -31,10 +32,41 @@ object InternalAuthUtils {
     */
   private val internalAuthLength = internalAuth.length
 
+  /**
+    * The maximum allowed difference between the request timestamp and now
+    */
+  private[security] final val MAX_SKEW_MILLIS = 1000L * 60 * 5
+
+  /**
+    * The maximum number of secrets / secret sets to keep pre-computed hash state for
+    */
+  private final val MAX_CACHED_SECRETS = 64
+
   /**
     * default log impl
     */
-  private val defaultLogger = new DummyLogger
+  private[security] val defaultLogger = new DummyLogger
+
+  /**
+    * Hash state for the constant secret part of the auth hash, by secret
+    */
+  private val authHashPrefixes: LoadingCache[String, PrefixedHash] = CacheBuilder.newBuilder()
+    .maximumSize(MAX_CACHED_SECRETS)
+    .build[String, PrefixedHash](new CacheLoader[String, PrefixedHash] {
+      override def load(key: String): PrefixedHash = HashUtils.prefixed(HashUtils.SHA256, s"$key|")
+    })
+
+  /**
+    * Shared verifiers for the multi-secret authorize methods, by secrets + service indicator
+    */
+  private val verifiers: LoadingCache[(Seq[String], String), InternalAuthVerifier] = CacheBuilder.newBuilder()
+    .maximumSize(MAX_CACHED_SECRETS)
+    .build[(Seq[String], String), InternalAuthVerifier](new CacheLoader[(Seq[String], String), InternalAuthVerifier] {
+      // these methods have never rejected repeated headers, so neither does the shared verifier
+      override def load(key: (Seq[String], String)): InternalAuthVerifier = {
+        new InternalAuthVerifier(key._1, key._2, rejectReplays = false)
+      }
+    })
 
   /**
     * Generate SHA256 hash to use as the auth header
@@ -53,7 +85,24 @@ object InternalAuthUtils {
                                     ts: String,
                                     rand: String,
                                     prefix: String): String = {
-    HashUtils.sha256(s"$authSecret|${method.toUpperCase}|$url|$ts|$rand|$prefix", useHex = true)
+    getAuthHashPrefix(authSecret).hash(getAuthHashSuffix(method, url, ts, rand, prefix), useHex = true)
+  }
+
+  /**
+    * Get the pre-computed hash state for the secret part of the auth hash
+    *
+    * @param authSecret the auth secret
+    * @return the prefixed hash
+    */
+  private[security] def getAuthHashPrefix(authSecret: String): PrefixedHash = {
+    authHashPrefixes.getUnchecked(String.valueOf(authSecret))
+  }
+
+  /**
+    * Get the request specific part of the auth hash input
+    */
+  private[security] def getAuthHashSuffix(method: String, url: String, ts: String, rand: String, prefix: String): String = {
+    s"${method.toUpperCase}|$url|$ts|$rand|$prefix"
   }
 
   /**
@@ -245,28 +294,32 @@ object InternalAuthUtils {
       throw new AccessDeniedException("Missing required authorization data")
     }
 
-    if (timestampValue.forall(_ < System.currentTimeMillis - (1000 * 60 * 5))) {
+    if (timestampValue.forall(_ < System.currentTimeMillis - MAX_SKEW_MILLIS)) {
       throw new AccessDeniedException("Request too old")
     }
 
-    if (timestampValue.forall(_ > System.currentTimeMillis + (1000 * 60 * 5))) {
+    if (timestampValue.forall(_ > System.currentTimeMillis + MAX_SKEW_MILLIS)) {
       throw new AccessDeniedException("Request skew too large")
     }
 
     val expected = getAuthHash(authSecret, method, url, timestampHeader.orNull, random.orNull, serviceIndicator)
 
-    logger.debug(
-      String.format(
-        "Internal auth request: ts = %s, rand = %s, method = %s, url = %s, service = %s, original header = %s",
-        timestampHeader.orNull, random.orNull, method, url, serviceIndicator,
-        getHeader(HttpHeaders.AUTHORIZATION)
+    if (logger.isDebugEnabled) {
+      logger.debug(
+        String.format(
+          "Internal auth request: ts = %s, rand = %s, method = %s, url = %s, service = %s, original header = %s",
+          timestampHeader.orNull, random.orNull, method, url, serviceIndicator,
+          getHeader(HttpHeaders.AUTHORIZATION)
+        )
       )
-    )
+    }
 
     if (!StringUtils.isEqual(expected, authHeader)) {
-      logger.debug(
-        String.format("Internal Auth Failure: expected %s but got %s", expected, authHeader)
-      )
+      if (logger.isDebugEnabled) {
+        logger.debug(
+          String.format("Internal Auth Failure: expected %s but got %s", expected, authHeader)
+        )
+      }
 
       throw new AccessDeniedException("Not Authorized")
     }
@@ -354,18 +407,8 @@ object InternalAuthUtils {
 
     logger.debug("Authorizing internal for service " + serviceIndicator)
 
-    // authorize using each secret
-    val authAttempts = authSecrets.map(as => Try(authorize(as, serviceIndicator, request, method, url, logger)))
-
-    // all attempts failed
-    if (authAttempts.forall(_.isFailure)) {
-
-      // get the exception from the first failure (or create new failure if none exist)a
-      throw authAttempts.headOption.flatMap {
-        case Failure(ex) => Some(ex)
-        case _ => None
-      }.getOrElse(new AccessDeniedException("Not Authorized"))
-    }
+    // authorize using the shared verifier for these secrets (most recently matched secret first)
+    getVerifier(authSecrets, serviceIndicator).authorize((h) => request.getHeader(h), method, url, logger)
   }
 
   def authorize(authSecrets: Array[String],
@@ -377,36 +420,46 @@ object InternalAuthUtils {
 
     logger.debug("Authorizing internal for service " + serviceIndicator)
 
-    // authorize using each secret
-    val authAttempts = authSecrets.map(as => Try(authorize(as, serviceIndicator, request, method, url, logger)))
-
-    // all attempts failed
-    if (authAttempts.forall(_.isFailure)) {
+    // authorize using the shared verifier for these secrets (most recently matched secret first)
+    getVerifier(authSecrets, serviceIndicator).authorize((h) => request.getHeaders.getFirst(h), method, url, logger)
+  }
 
-      // get the exception from the first failure (or create new failure if none exist)a
-      throw authAttempts.headOption.flatMap {
-        case Failure(ex) => Some(ex)
-        case _ => None
-      }.getOrElse(new AccessDeniedException("Not Authorized"))
-    }
+  /**
+    * Get the shared verifier for the given secrets
+    *
+    * @param authSecrets      the auth secrets
+    * @param serviceIndicator the service indicator
+    * @return the verifier
+    */
+  private def getVerifier(authSecrets: Array[String], serviceIndicator: String): InternalAuthVerifier = {
+    verifiers.getUnchecked((Option(authSecrets).map(_.toSeq).getOrElse(Seq.empty), String.valueOf(serviceIndicator)))
   }
 
   trait AuthLogger {
     def debug(msg: String): Unit
+
+    // used to skip building debug messages that would be discarded
+    def isDebugEnabled: Boolean = true
   }
 
   // no-op logger
   class DummyLogger extends AuthLogger {
     override def debug(msg: String): Unit = ()
+
+    override def isDebugEnabled: Boolean = false
   }
 
   // slf4j wrapper
   case class Slf4JAuthLogger(log: Logger) extends AuthLogger {
     override def debug(msg: String): Unit = log.debug(msg)
+
+    override def isDebugEnabled: Boolean = log.isDebugEnabled
   }
 
   // scala logging wrapper
   case class ScalaLoggingAuthLogger(log: scalalogging.Logger) extends AuthLogger {
     override def debug(msg: String): Unit = log.debug(msg)
+
+    override def isDebugEnabled: Boolean = log.underlying.isDebugEnabled
   }
 }
@@ -0,0 +1,192 @@
+package com.srivastavavivekggn.scala.util.web.security
+
+import com.srivastavavivekggn.scala.util.lang.StringUtils
+import com.srivastavavivekggn.scala.util.web.security.InternalAuthUtils.AuthLogger
+import org.springframework.http.{HttpHeaders, HttpRequest}
+
+import java.nio.charset.StandardCharsets
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import javax.servlet.http.HttpServletRequest
+
+/**
+  * Verifies internal service auth headers (see InternalAuthUtils.generateHeaders) against one or more secrets.
+  *
+  * - the digest state for each secret's constant part is computed once
+  * - the secret that most recently matched is tried first, so during secret rotation most requests hash once
+  * - when rejectReplays is set, each ts/rand pair is accepted only once while its timestamp is within the allowed skew
+  *
+  * Instances are thread-safe and meant to be shared.
+  *
+  * @param authSecrets      the auth secrets (generateHeaders uses the last one)
+  * @param serviceIndicator the service indicator
+  * @param rejectReplays    true to reject headers that have already been accepted
+  */
+class InternalAuthVerifier(authSecrets: Seq[String], serviceIndicator: String, rejectReplays: Boolean = true) {
+
+  /**
+    * per-secret hash, with the secret part pre-computed
+    */
+  private val hashes = authSecrets.map(InternalAuthUtils.getAuthHashPrefix).toArray
+
+  /**
+    * the index of the secret that last matched (start with the newest)
+    */
+  @volatile private var preferred = hashes.length - 1
+
+  private val timestampHeaderName = s"x-$serviceIndicator-ts"
+
+  private val randomHeaderName = s"x-$serviceIndicator-rand"
+
+  private val nonces = new InternalAuthVerifier.NonceCache(InternalAuthUtils.MAX_SKEW_MILLIS)
+
+  @throws[AccessDeniedException]
+  def authorize(request: HttpServletRequest): Unit = authorize(request, InternalAuthUtils.defaultLogger)
+
+  @throws[AccessDeniedException]
+  def authorize(request: HttpRequest): Unit = authorize(request, InternalAuthUtils.defaultLogger)
+
+  @throws[AccessDeniedException]
+  def authorize(request: HttpServletRequest, logger: AuthLogger): Unit = {
+    authorize(h => request.getHeader(h), request.getMethod, request.getRequestURL.toString, logger)
+  }
+
+  @throws[AccessDeniedException]
+  def authorize(request: HttpRequest, logger: AuthLogger): Unit = {
+    authorize(h => request.getHeaders.getFirst(h), request.getMethod.name(), request.getURI.toString, logger)
+  }
+
+  /**
+    * Authorize the given request headers plus url + method
+    *
+    * @param getHeader the header accessor
+    * @param method    the http method
+    * @param url       the url to authorize
+    * @param logger    the logger
+    * @throws AccessDeniedException if the auth is invalid, or has already been used
+    */
+  @throws[AccessDeniedException]
+  def authorize(getHeader: String => String, method: String, url: String, logger: AuthLogger): Unit = {
+
+    if (hashes.isEmpty) {
+      throw new AccessDeniedException("Not Authorized")
+    }
+
+    val authHeader = StringUtils.nonEmpty(getHeader(HttpHeaders.AUTHORIZATION), trim = true)
+      .map(_.drop(InternalAuthUtils.internalAuth.length + 1))
+
+    val timestampHeader = StringUtils.nonEmpty(getHeader(timestampHeaderName), trim = true)
+    val random = StringUtils.nonEmpty(getHeader(randomHeaderName), trim = true)
+
+    if (timestampHeader.isEmpty || random.isEmpty) {
+      throw new AccessDeniedException("Missing required authorization data")
+    }
+
+    val ts = timestampHeader.get.toLong
+    val now = System.currentTimeMillis
+
+    if (ts < now - InternalAuthUtils.MAX_SKEW_MILLIS) {
+      throw new AccessDeniedException("Request too old")
+    }
+
+    if (ts > now + InternalAuthUtils.MAX_SKEW_MILLIS) {
+      throw new AccessDeniedException("Request skew too large")
+    }
+
+    if (logger.isDebugEnabled) {
+      logger.debug(
+        String.format(
+          "Internal auth request: ts = %s, rand = %s, method = %s, url = %s, service = %s, original header = %s",
+          timestampHeader.get, random.get, method, url, serviceIndicator, getHeader(HttpHeaders.AUTHORIZATION)
+        )
+      )
+    }
+
+    val suffix = InternalAuthUtils.getAuthHashSuffix(method, url, timestampHeader.get, random.get, serviceIndicator)
+    val actual = authHeader.map(_.getBytes(StandardCharsets.UTF_8)).orNull
+
+    def matches(idx: Int): Boolean = {
+      val expected = hashes(idx).hash(suffix, useHex = true)
+      val matched = Option(actual).exists(a => MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), a))
+
+      if (!matched && logger.isDebugEnabled) {
+        logger.debug(String.format("Internal Auth Failure: expected %s but got %s", expected, authHeader))
+      }
+
+      matched
+    }
+
+    // try the last successful secret first, then the others
+    val first = preferred
+
+    val matchedIdx = if (matches(first)) {
+      Some(first)
+    }
+    else {
+      hashes.indices.find(idx => idx != first && matches(idx))
+    }
+
+    matchedIdx match {
+      case Some(idx) =>
+        preferred = idx
+
+        if (rejectReplays && !nonces.add(ts, s"${timestampHeader.get}|${random.get}", now)) {
+          throw new AccessDeniedException("Request already used")
+        }
+
+      case None => throw new AccessDeniedException("Not Authorized")
+    }
+  }
+}
+
+object InternalAuthVerifier {
+
+  /**
+    * Remembers accepted ts/rand pairs until their timestamp falls outside the allowed window.
+    *
+    * Nonces are grouped into buckets by timestamp, so expiring them is dropping whole buckets.
+    *
+    * @param windowMillis how long a timestamp is accepted for (either side of now)
+    */
+  private[security] class NonceCache(windowMillis: Long) {
+
+    private val bucketMillis = math.max(windowMillis / 5, 1L)
+
+    private val buckets = new ConcurrentHashMap[Long, java.util.Set[String]]()
+
+    @volatile private var lastSweep = 0L
+
+    /**
+      * Record the nonce
+      *
+      * @param ts    the request timestamp
+      * @param nonce the nonce
+      * @param now   the current time
+      * @return true if the nonce was not already present
+      */
+    def add(ts: Long, nonce: String, now: Long): Boolean = {
+      sweep(now)
+      buckets.computeIfAbsent(ts / bucketMillis, (_: Long) => ConcurrentHashMap.newKeySet[String]()).add(nonce)
+    }
+
+    /**
+      * Drop buckets whose timestamps are all too old to be accepted (at most once per bucket interval)
+      */
+    private def sweep(now: Long): Unit = {
+      if (now - lastSweep >= bucketMillis) {
+        lastSweep = now
+        val oldest = (now - windowMillis) / bucketMillis
+        buckets.keySet().removeIf(_ < oldest)
+      }
+    }
+
+    /**
+      * the number of remembered nonces
+      */
+    private[security] def size: Int = {
+      var total = 0
+      buckets.values().forEach(b => total += b.size())
+      total
+    }
+  }
+}
@@ -1,39 +1,56 @@
 package com.srivastavavivekggn.scala.util.web.security
 
+import com.google.common.cache.{Cache, CacheBuilder}
 import com.srivastavavivekggn.scala.util.TypeAlias.JLong
 import com.srivastavavivekggn.scala.util.collection.CollectionUtils
-import com.srivastavavivekggn.scala.util.crypto.EncodeUtils
+import com.srivastavavivekggn.scala.util.crypto.{EncodeUtils, HashUtils}
 import com.srivastavavivekggn.scala.util.lang.{DateUtils, StringUtils}
+import com.srivastavavivekggn.scala.util.system.SystemUtils
 import com.srivastavavivekggn.scala.util.web.security.JwtTokenFormat.{LEGACY, MANUAL, METHOD_AND_URL, forName}
 import com.typesafe.scalalogging.StrictLogging
 import io.jsonwebtoken.security.SignatureException
-import io.jsonwebtoken.{Claims, Jws, Jwts, MissingClaimException}
+import io.jsonwebtoken.{Claims, Jws, JwtParser, Jwts, MissingClaimException}
 
 import java.util.Date
+import java.util.concurrent.TimeUnit
 import javax.crypto.spec.SecretKeySpec
 
 /**
   * Utility for creating / authorizing JWT tokens
   *
+  * Verified tokens are cached (keyed by a digest of the token, up to JwtAuthorizer.CACHE_SIZE entries) until their
+  * expiration, so repeated calls for the same token only verify the signature once.
+  *
   * @param jwtSecretKey the Base64 encoded secret key
   * @param ttl          the lifetime of a token, in seconds
   */
 case class JwtAuthorizer(jwtSecretKey: String, ttl: JLong) extends StrictLogging {
 
+  import JwtAuthorizer.standardClaims
+
   private final val FORMAT_KEY = "format"
 
   /**
-    * Standard JWT claims
+    * The signing key (the decoded secret)
     */
-  private final val standardClaims = List(
-    Claims.ISSUER,
-    Claims.SUBJECT,
-    Claims.AUDIENCE,
-    Claims.EXPIRATION,
-    Claims.NOT_BEFORE,
-    Claims.ISSUED_AT,
-    Claims.ID
-  )
+  private val key: SecretKeySpec = getKey
+
+  /**
+    * The (immutable, thread-safe) token parser
+    */
+  private val parser: JwtParser = Jwts.parser.verifyWith(key).build()
+
+  /**
+    * Verified tokens, keyed by token digest
+    */
+  private val verified: Cache[String, JwtAuthorizer.VerifiedJwt] = {
+    val builder = CacheBuilder.newBuilder().maximumSize(JwtAuthorizer.CACHE_SIZE)
+
+    // tokens created by this authorizer never live longer than ttl
+    Option(ttl).filter(_ > 0).foreach(t => builder.expireAfterWrite(t, TimeUnit.SECONDS))
+
+    builder.build[String, JwtAuthorizer.VerifiedJwt]()
+  }
 
   /**
     * Convert the string secret into an actual secret key instance
@@ -129,7 +146,7 @@ case class JwtAuthorizer(jwtSecretKey: String, ttl: JLong) extends StrictLogging
     })
 
     // return signed JWT and expiration date
-    (b.signWith(getKey, Jwts.SIG.HS256).compact(), expirationDate)
+    (b.signWith(key, Jwts.SIG.HS256).compact(), expirationDate)
   }
 
   /**
@@ -204,7 +221,8 @@ case class JwtAuthorizer(jwtSecretKey: String, ttl: JLong) extends StrictLogging
   def validateJwt(token: String, expectedClaim: String, additionalExpectedClaims: String*): AuthResult = {
 
     try {
-      val result = parseJwt(token)
+      val verifiedJwt = verify(token)
+      val result = verifiedJwt.jws
 
       // determine which format this JWT is in based on the format claim (default to legacy)
       val tokenFormat: JwtTokenFormat = StringUtils.nonEmpty(
@@ -213,37 +231,45 @@ case class JwtAuthorizer(jwtSecretKey: String, ttl: JLong) extends StrictLogging
 
       val allExpected = (Seq(expectedClaim) ++ additionalExpectedClaims).distinct
 
-      // based on format, get the seq of claim validator functions
-      val claimMatchers: Seq[(String => Boolean, AnyRef => Boolean)] = tokenFormat match {
+      // based on format, get the (claim key prefix, required methods) to look for
+      val expectedScopes: Seq[(String, Seq[String])] = tokenFormat match {
 
         // legacy matching simply looks at claim key and uses a startsWith
-        case LEGACY =>
-          allExpected.map(expected => (claimKey => expected.startsWith(claimKey), _ => true))
+        case LEGACY => allExpected.map(expected => (expected, Seq.empty[String]))
 
         // updated methodAndUrl logic, checks that the URL matches (startsWith) and the method is accounted for
-        case METHOD_AND_URL =>
-          scopesToUrlAndMethodTuples(allExpected)
-            .view
-            .map(v => {
-              val expectedMethodList = v._2
-              val keyMatcher = (claimKey: String) => {
-                v._1.startsWith(claimKey)
-              }
-
-              // ensure ALL http verbs are accounted for in the claim list
-              val valueMatcher = (claimValue: AnyRef) => {
-                val claimMethodList = claimValue.toString.split(StringUtils.COMMA)
-                val intersect = claimMethodList.intersect(expectedMethodList)
-                intersect.lengthCompare(expectedMethodList.size) == 0
-              }
-
-              (keyMatcher, valueMatcher)
-            }).toSeq
+        case METHOD_AND_URL => scopesToUrlAndMethodTuples(allExpected).toSeq
 
         case MANUAL => throw new IllegalArgumentException("MANUAL format must use 'matchers' validation method")
       }
 
-      validateJwt(token, claimMatchers: _*)
+      verifiedJwt.scopeIndex match {
+
+        // look up each scope in the compiled claims (standard claims are not indexed, so check those directly)
+        case Some(index) =>
+          val payload = result.getPayload
+          val presentStandardClaims = standardClaims.filter(payload.containsKey)
+
+          val covered = expectedScopes.forall(scope => index.covers(scope._1, scope._2) ||
+            presentStandardClaims.exists(c => matchesScope(scope, c, payload.get(c, classOf[AnyRef]))))
+
+          if (covered) {
+            AuthSuccess(user = payload.getSubject, authMethod = AuthClient.JWT)
+          }
+          else {
+            logger.error(s"JWT Failure: user ${payload.getSubject} has ${
+              CollectionUtils.asScalaSetOrEmpty(payload.keySet()).mkString(", ")
+            }")
+            AuthFailure("Permission not granted")
+          }
+
+        // claims could not be indexed, scan them
+        case None =>
+          validateJwt(token, expectedScopes.map(scope => (
+            (claimKey: String) => scope._1.startsWith(claimKey),
+            (claimValue: AnyRef) => matchesMethods(scope._2, claimValue)
+          )): _*)
+      }
     }
     catch {
       case m: MissingClaimException => AuthException(m)
@@ -295,13 +321,77 @@ case class JwtAuthorizer(jwtSecretKey: String, ttl: JLong) extends StrictLogging
   }
 
   /**
-    * Simple parse method
+    * Simple parse method. Verified tokens are served from the cache until they expire; tokens that fail
+    * verification are never cached.
     *
     * @param token the token to parse
     * @return the claims
     */
-  def parseJwt(token: String): Jws[Claims] = {
-    Jwts.parser.verifyWith(getKey).build().parseSignedClaims(token)
+  def parseJwt(token: String): Jws[Claims] = verify(token).jws
+
+  /**
+    * Drop all cached verified tokens
+    */
+  def invalidateAll(): Unit = verified.invalidateAll()
+
+  /**
+    * Verify the token, using the cache
+    *
+    * @param token the token to verify
+    * @return the verified token
+    */
+  private def verify(token: String): JwtAuthorizer.VerifiedJwt = {
+
+    val cacheKey = Option(token).map(t => HashUtils.toBase64(HashUtils.digest(HashUtils.SHA256, t.getBytes)))
+    val now = System.currentTimeMillis()
+
+    cacheKey.flatMap(k => Option(verified.getIfPresent(k))) match {
+
+      case Some(hit) if hit.expiresAt > now => hit
+
+      // not cached, or expired (in which case the parser throws the usual ExpiredJwtException)
+      case existing =>
+        if (existing.isDefined) {
+          cacheKey.foreach(verified.invalidate)
+        }
+
+        val jws = parser.parseSignedClaims(token)
+
+        val entry = JwtAuthorizer.VerifiedJwt(
+          jws,
+          Option(jws.getPayload.getExpiration).map(_.getTime).getOrElse(Long.MaxValue)
+        )
+
+        cacheKey.foreach(k => verified.put(k, entry))
+        entry
+    }
+  }
+
+  /**
+    * Determine if the claim covers the (url, methods) scope
+    *
+    * @param scope      the url and required methods
+    * @param claimKey   the claim key
+    * @param claimValue the claim value
+    * @return true if the url starts with the key and the value contains all required methods
+    */
+  private def matchesScope(scope: (String, Seq[String]), claimKey: String, claimValue: AnyRef): Boolean = {
+    scope._1.startsWith(claimKey) && matchesMethods(scope._2, claimValue)
+  }
+
+  /**
+    * Ensure ALL http verbs are accounted for in the claim value
+    *
+    * @param expectedMethodList the required methods
+    * @param claimValue         the comma separated claim value
+    * @return true if all methods are present
+    */
+  private def matchesMethods(expectedMethodList: Seq[String], claimValue: AnyRef): Boolean = {
+    expectedMethodList.isEmpty || {
+      val claimMethodList = claimValue.toString.split(StringUtils.COMMA)
+      val intersect = claimMethodList.intersect(expectedMethodList)
+      intersect.lengthCompare(expectedMethodList.size) == 0
+    }
   }
 
   /**
@@ -320,3 +410,47 @@ case class JwtAuthorizer(jwtSecretKey: String, ttl: JLong) extends StrictLogging
       .toMap
   }
 }
+
+object JwtAuthorizer {
+
+  /**
+    * Standard JWT claims
+    */
+  private final val standardClaims = List(
+    Claims.ISSUER,
+    Claims.SUBJECT,
+    Claims.AUDIENCE,
+    Claims.EXPIRATION,
+    Claims.NOT_BEFORE,
+    Claims.ISSUED_AT,
+    Claims.ID
+  )
+
+  /**
+    * the maximum number of verified tokens to cache, per authorizer
+    */
+  final val CACHE_SIZE: Int = SystemUtils.getIntProperty("jwt.verified.cacheSize", 10000)
+
+  /**
+    * A verified token
+    *
+    * @param jws       the parsed token
+    * @param expiresAt the token expiration (epoch millis)
+    */
+  private[security] case class VerifiedJwt(jws: Jws[Claims], expiresAt: Long) {
+
+    /**
+      * the compiled (non-standard) claims, shared by all tokens with the same claims
+      */
+    lazy val scopeIndex: Option[JwtScopeIndex] = {
+      val payload = jws.getPayload
+
+      JwtScopeIndex.forClaims(
+        CollectionUtils.asScalaSetOrEmpty(payload.keySet())
+          .filterNot(standardClaims.contains)
+          .map(key => key -> Option(payload.get(key, classOf[AnyRef])).map(_.toString).orNull)
+          .toMap
+      )
+    }
+  }
+}
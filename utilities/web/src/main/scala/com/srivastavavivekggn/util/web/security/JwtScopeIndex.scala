@@ -0,0 +1,181 @@
+package com.srivastavavivekggn.scala.util.web.security
+
+import com.google.common.cache.{Cache, CacheBuilder}
+import com.srivastavavivekggn.scala.util.lang.StringUtils
+import com.srivastavavivekggn.scala.util.system.SystemUtils
+
+import scala.collection.mutable
+
+/**
+  * A compiled index of a token's claims, for authorizing {Method}:{Url} scopes with a single lookup.
+  *
+  * Claim keys are stored in a (compressed) character trie, so finding every claim key that is a prefix of a URL is a
+  * single walk down the URL. The comma separated claim value (the allowed methods) is stored as a bitmask on the node.
+  *
+  * Matching is identical to the linear claim scan: a scope is covered when there is a claim key that the URL
+  * starts with, and whose value contains all of the expected methods.
+  *
+  * compile caches indexes by claims, so the requests of a token share one index.
+  *
+  * @param root       the root of the trie
+  * @param methodBits the bit assigned to each method name
+  */
+final class JwtScopeIndex private(root: JwtScopeIndex.Node, methodBits: Map[String, Long]) {
+
+  /**
+    * Determine if there is a claim key that the URL starts with, which allows all of the given methods
+    *
+    * @param url     the url
+    * @param methods the methods (an empty seq only requires a matching key)
+    * @return true if the url and methods are covered
+    */
+  def covers(url: String, methods: Seq[String]): Boolean = {
+    requiredMask(methods).exists(required => {
+      var node = root
+      var pos = 0
+      var result = false
+      var done = false
+
+      while (!done) {
+        if (node.terminal && (node.mask & required) == required) {
+          result = true
+          done = true
+        }
+        else if (pos >= url.length) {
+          done = true
+        }
+        else {
+          node.child(url.charAt(pos)) match {
+            case Some(child) if url.startsWith(child.label, pos) =>
+              pos += child.label.length
+              node = child
+
+            case _ => done = true
+          }
+        }
+      }
+
+      result
+    })
+  }
+
+  /**
+    * Convert the methods to a bitmask
+    *
+    * @param methods the methods
+    * @return the mask, or None if a method is not allowed by any claim
+    */
+  private def requiredMask(methods: Seq[String]): Option[Long] = {
+    methods.foldLeft(Option(0L))((acc, m) => acc.flatMap(mask => methodBits.get(m).map(_ | mask)))
+  }
+}
+
+object JwtScopeIndex {
+
+  /**
+    * the maximum number of compiled scope sets to keep in the cache
+    */
+  final val CACHE_SIZE: Int = SystemUtils.getIntProperty("jwt.scopeIndex.cacheSize", 1024)
+
+  /**
+    * the number of distinct method names that fit in the mask
+    */
+  private final val MAX_METHODS = 64
+
+  /**
+    * compiled indexes, keyed by the claim key/value set
+    */
+  private val cache: Cache[Map[String, String], Option[JwtScopeIndex]] = CacheBuilder.newBuilder()
+    .maximumSize(CACHE_SIZE)
+    .build[Map[String, String], Option[JwtScopeIndex]]()
+
+  /**
+    * A compiled trie node
+    *
+    * @param label    the characters on the edge leading to this node
+    * @param terminal true if a claim key ends at this node
+    * @param mask     the allowed methods for the claim key ending at this node
+    * @param firsts   the first character of each child label (sorted)
+    * @param children the children, in the same order as firsts
+    */
+  private[security] final class Node(val label: String,
+                                     val terminal: Boolean,
+                                     val mask: Long,
+                                     firsts: Array[Char],
+                                     children: Array[Node]) {
+
+    def child(c: Char): Option[Node] = {
+      val idx = java.util.Arrays.binarySearch(firsts, c)
+      if (idx >= 0) Some(children(idx)) else None
+    }
+  }
+
+  /**
+    * Uncompressed, mutable trie node used while building
+    */
+  private class Builder {
+    val children: mutable.TreeMap[Char, Builder] = mutable.TreeMap.empty
+    var terminal: Boolean = false
+    var mask: Long = 0L
+  }
+
+  /**
+    * Get the index for the given claims, using the cache
+    *
+    * @param claims the claim keys and (string) values
+    * @return the index, or None if the claims cannot be indexed (too many distinct method names)
+    */
+  def forClaims(claims: Map[String, String]): Option[JwtScopeIndex] = {
+    Option(cache.getIfPresent(claims)).getOrElse({
+      val index = compile(claims)
+      cache.put(claims, index)
+      index
+    })
+  }
+
+  /**
+    * Compile the given claims, without using the cache
+    *
+    * @param claims the claim keys and (string) values
+    * @return the index, or None if the claims cannot be indexed (too many distinct method names)
+    */
+  def compile(claims: Map[String, String]): Option[JwtScopeIndex] = {
+
+    val methodsByKey = claims.map {
+      case (k, v) => k -> Option(v).map(_.split(StringUtils.COMMA).toSeq).getOrElse(Seq.empty)
+    }
+
+    val methodNames = methodsByKey.values.flatten.toSeq.distinct
+
+    if (methodNames.size > MAX_METHODS) {
+      None
+    }
+    else {
+      val methodBits = methodNames.zipWithIndex.map(m => m._1 -> (1L << m._2)).toMap
+      val root = new Builder
+
+      methodsByKey.foreach {
+        case (key, methods) =>
+          val node = key.foldLeft(root)((n, c) => n.children.getOrElseUpdate(c, new Builder))
+          node.terminal = true
+          node.mask = methods.foldLeft(0L)((mask, m) => mask | methodBits(m))
+      }
+
+      Some(new JwtScopeIndex(compress("", root), methodBits))
+    }
+  }
+
+  /**
+    * Collapse chains of single-child, non-terminal nodes into one labelled edge
+    */
+  private def compress(label: String, node: Builder): Node = {
+    if (!node.terminal && node.children.size == 1 && label.nonEmpty) {
+      val (c, child) = node.children.head
+      compress(label + c, child)
+    }
+    else {
+      val children = node.children.toArray.map(e => compress(e._1.toString, e._2))
+      new Node(label, node.terminal, node.mask, node.children.keys.toArray, children)
+    }
+  }
+}
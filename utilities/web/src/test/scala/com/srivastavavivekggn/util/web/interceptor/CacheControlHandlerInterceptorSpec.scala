@@ -0,0 +1,146 @@
+package com.srivastavavivekggn.scala.util.web.interceptor
+
+import com.srivastavavivekggn.scala.util.test.SimpleFlatSpec
+import com.srivastavavivekggn.scala.util.web.cachecontrol.{CacheControl, ETagResponseFilter}
+import com.srivastavavivekggn.scala.util.web.interceptor.CacheControlHandlerInterceptorSpec.Handlers
+import javax.servlet.{FilterChain, ServletRequest, ServletResponse}
+import org.springframework.mock.web.{MockHttpServletRequest, MockHttpServletResponse}
+import org.springframework.web.method.HandlerMethod
+
+class CacheControlHandlerInterceptorSpec extends SimpleFlatSpec {
+
+  val interceptor = new CacheControlHandlerInterceptor
+
+  val handlers = new Handlers
+
+  def handler(name: String): HandlerMethod = new HandlerMethod(handlers, classOf[Handlers].getMethod(name))
+
+  def get(ifNoneMatch: String = null): MockHttpServletRequest = {
+    val request = new MockHttpServletRequest("GET", "/test")
+    Option(ifNoneMatch).foreach(request.addHeader("If-None-Match", _))
+    request
+  }
+
+  /**
+    * Run the request through the filter and interceptor, writing the given body if the handler runs
+    */
+  def filtered(request: MockHttpServletRequest, handlerMethod: HandlerMethod, body: String): MockHttpServletResponse = {
+    val response = new MockHttpServletResponse
+
+    new ETagResponseFilter().doFilter(request, response, new FilterChain {
+      override def doFilter(req: ServletRequest, res: ServletResponse): Unit = {
+        if (interceptor.preHandle(request, res.asInstanceOf[javax.servlet.http.HttpServletResponse], handlerMethod)) {
+          res.getWriter.write(body)
+        }
+      }
+    })
+
+    response
+  }
+
+  "CacheControlHandlerInterceptor" should "set the annotated cache control header" in {
+    val response = new MockHttpServletResponse
+
+    assert(interceptor.preHandle(get(), response, handler("cached")))
+    assert(response.getHeader("Cache-Control") == "max-age=60, public")
+    assert(response.getDateHeader("Expires") > System.currentTimeMillis())
+  }
+
+  it should "set the default header when not annotated" in {
+    val response = new MockHttpServletResponse
+
+    interceptor.preHandle(get(), response, handler("plain"))
+    assert(response.getHeader("Cache-Control") == "no-cache, no-store, max-age=0, must-revalidate")
+    assert(response.getHeader("Expires") == null)
+  }
+
+  it should "not repeat the max-age of the default policy" in {
+    val response = new MockHttpServletResponse
+
+    interceptor.preHandle(get(), response, handler("defaults"))
+    assert(response.getHeader("Cache-Control") == "no-cache, no-store, max-age=0, must-revalidate")
+  }
+
+  it should "set the Expires header from the max-age that applies" in {
+    def expiresIn(name: String): Long = {
+      val response = new MockHttpServletResponse
+      val before = System.currentTimeMillis()
+
+      interceptor.preHandle(get(), response, handler(name))
+      (response.getDateHeader("Expires") - before) / 1000
+    }
+
+    // the default policy's max-age=0 applies, not the annotation's maxAge (Expires has second precision)
+    val response = new MockHttpServletResponse
+    interceptor.preHandle(get(), response, handler("ignoredMaxAge"))
+    assert(response.getHeader("Cache-Control") == "no-cache, no-store, max-age=0, must-revalidate")
+    assert(math.abs(expiresIn("ignoredMaxAge")) <= 1)
+
+    assert(math.abs(expiresIn("policyMaxAge") - 300) <= 1)
+    assert(math.abs(expiresIn("cached") - 60) <= 1)
+  }
+
+  it should "answer a matching If-None-Match with a 304 for a versioned handler" in {
+    val first = new MockHttpServletResponse
+    assert(interceptor.preHandle(get(), first, handler("versioned")))
+    assert(first.getHeader("ETag") == "\"v1\"")
+
+    val second = new MockHttpServletResponse
+    assert(!interceptor.preHandle(get("\"v1\""), second, handler("versioned")))
+    assert(second.getStatus == 304)
+    assert(second.getHeader("Cache-Control") == "max-age=60")
+
+    assert(interceptor.preHandle(get("\"v0\""), new MockHttpServletResponse, handler("versioned")))
+  }
+
+  it should "hash the body for etag handlers, and answer a matching If-None-Match with a 304" in {
+    val first = filtered(get(), handler("hashed"), "some content")
+    val etag = first.getHeader("ETag")
+
+    assert(etag != null && etag.startsWith("\""))
+    assert(first.getContentAsString == "some content")
+    assert(first.getContentLength == 12)
+
+    val second = filtered(get(etag), handler("hashed"), "some content")
+    assert(second.getStatus == 304)
+    assert(second.getContentAsByteArray.isEmpty)
+
+    val changed = filtered(get(etag), handler("hashed"), "other content")
+    assert(changed.getStatus == 200)
+    assert(changed.getHeader("ETag") != etag)
+    assert(changed.getContentAsString == "other content")
+  }
+
+  it should "pass other responses through the filter" in {
+    val response = filtered(get(), handler("cached"), "some content")
+
+    assert(response.getHeader("ETag") == null)
+    assert(response.getContentAsString == "some content")
+  }
+}
+
+object CacheControlHandlerInterceptorSpec {
+
+  class Handlers {
+
+    @CacheControl(maxAge = 60, policy = Array("public"))
+    def cached(): String = "cached"
+
+    def plain(): String = "plain"
+
+    @CacheControl
+    def defaults(): String = "defaults"
+
+    @CacheControl(maxAge = 3600)
+    def ignoredMaxAge(): String = "ignoredMaxAge"
+
+    @CacheControl(maxAge = 3600, policy = Array("public, max-age=300"))
+    def policyMaxAge(): String = "policyMaxAge"
+
+    @CacheControl(maxAge = 60, policy = Array(), version = "v1")
+    def versioned(): String = "versioned"
+
+    @CacheControl(maxAge = 60, policy = Array(), etag = true)
+    def hashed(): String = "hashed"
+  }
+}
@@ -0,0 +1,93 @@
+package com.srivastavavivekggn.scala.util.web.security
+
+import com.srivastavavivekggn.scala.util.test.SimpleFlatSpec
+import org.springframework.mock.web.MockHttpServletRequest
+
+class InternalAuthVerifierSpec extends SimpleFlatSpec {
+
+  val service = "scalaUtilities"
+  val oldSecret = "abc123"
+  val newSecret = "def456"
+
+  private def signedRequest(secret: String): MockHttpServletRequest = {
+    val request = new MockHttpServletRequest()
+    request.setScheme("https")
+    request.setServerName("api.xxxxx.com")
+    request.setServerPort(443)
+    request.setRequestURI("/program")
+    request.setMethod("GET")
+
+    val headers = InternalAuthUtils.generateHeaders(secret, service, request)
+    headers.forEach((k, v) => request.addHeader(k, v.get(0)))
+    request
+  }
+
+  behavior of "InternalAuthVerifier.authorize"
+
+  it should "authorize requests signed with any of the secrets" in {
+
+    val verifier = new InternalAuthVerifier(Seq(oldSecret, newSecret), service)
+
+    verifier.authorize(signedRequest(newSecret))
+    verifier.authorize(signedRequest(oldSecret))
+    verifier.authorize(signedRequest(newSecret))
+  }
+
+  it should "deny requests signed with an unknown secret" in {
+
+    val verifier = new InternalAuthVerifier(Seq(oldSecret, newSecret), service)
+
+    intercept[AccessDeniedException] {
+      verifier.authorize(signedRequest("other"))
+    }
+  }
+
+  it should "deny requests for a different url" in {
+
+    val verifier = new InternalAuthVerifier(Seq(oldSecret, newSecret), service)
+    val request = signedRequest(newSecret)
+
+    intercept[AccessDeniedException] {
+      verifier.authorize(h => request.getHeader(h), "GET", "https://api.xxxxx.com/other", InternalAuthUtils.defaultLogger)
+    }
+  }
+
+  it should "reject replayed headers" in {
+
+    val verifier = new InternalAuthVerifier(Seq(oldSecret, newSecret), service)
+    val request = signedRequest(oldSecret)
+
+    verifier.authorize(request)
+
+    val ex = intercept[AccessDeniedException] {
+      verifier.authorize(request)
+    }
+
+    assert(ex.getMessage == "Request already used")
+  }
+
+  it should "accept repeated headers when replays are allowed" in {
+
+    val verifier = new InternalAuthVerifier(Seq(oldSecret, newSecret), service, rejectReplays = false)
+    val request = signedRequest(oldSecret)
+
+    verifier.authorize(request)
+    verifier.authorize(request)
+  }
+
+  behavior of "InternalAuthVerifier.NonceCache"
+
+  it should "forget nonces once their timestamp is outside the window" in {
+
+    val cache = new InternalAuthVerifier.NonceCache(1000)
+
+    assert(cache.add(10000, "a", 10000))
+    assert(!cache.add(10000, "a", 10100))
+    assert(cache.add(10500, "b", 10500))
+    assert(cache.size == 2)
+
+    // both timestamps are now too old to be accepted
+    assert(cache.add(13000, "c", 13000))
+    assert(cache.size == 1)
+  }
+}
@@ -231,4 +231,48 @@ class JwtAuthorizerSpec extends SimpleFlatSpec {
     assertResult(claims)(authorizer.getClaims(refreshed._1))
     assertResult(manualClaims)(authorizer.getClaims(refreshedManual._1))
   }
+
+
+  // =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+  // =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+  behavior of "JwtAuthorizer.parseJwt"
+  // =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=
+
+  it should "only verify a token once" in {
+
+    val result = authorizer.createJwt(user, "GET:https://api.qa.xxxxx.com/program")
+
+    val first = authorizer.parseJwt(result._1)
+    assert(first eq authorizer.parseJwt(result._1))
+    assert(authorizer.getUser(result._1) == user)
+
+    authorizer.invalidateAll()
+    assert(!(first eq authorizer.parseJwt(result._1)))
+  }
+
+  it should "never cache a token that fails verification" in {
+
+    val result = authorizer.createJwt(user, "GET:https://api.qa.xxxxx.com/program")
+    val other = JwtAuthorizer("c2Vjb25kIHNlY3JldCBrZXkgZm9yIHRlc3Rpbmcgb25seSE=", 1209600)
+
+    for (_ <- 1 to 2) {
+      assertThrows[io.jsonwebtoken.security.SignatureException] {
+        other.parseJwt(result._1)
+      }
+    }
+  }
+
+  it should "not return a cached token once it has expired" in {
+
+    val shortLived = JwtAuthorizer("HMF6yBp+psF0jg/mVO4BDNwkG2tHuFc2U/FqLpBBl9Q=", 1)
+    val result = shortLived.createJwt(user, "GET:https://api.qa.xxxxx.com/program")
+
+    assert(shortLived.getUser(result._1) == user)
+
+    Thread.sleep(2000)
+
+    assertThrows[io.jsonwebtoken.ExpiredJwtException] {
+      shortLived.getUser(result._1)
+    }
+  }
 }
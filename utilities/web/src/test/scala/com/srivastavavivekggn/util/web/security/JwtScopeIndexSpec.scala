@@ -0,0 +1,72 @@
+package com.srivastavavivekggn.scala.util.web.security
+
+import com.srivastavavivekggn.scala.util.test.SimpleFlatSpec
+
+import scala.util.Random
+
+class JwtScopeIndexSpec extends SimpleFlatSpec {
+
+  val claims: Map[String, String] = Map(
+    "https://api.qa.xxxxx.com/program" -> "DELETE,GET,POST",
+    "https://api.qa.xxxxx.com/member/program" -> "GET",
+    "https://api.qa.xxxxx.com/member" -> "PUT",
+    "https://api.qa.xxxxx.com/pro" -> "PATCH",
+    "format" -> "methodAndUrl"
+  )
+
+  val index: JwtScopeIndex = JwtScopeIndex.compile(claims).get
+
+  /**
+    * the linear claim scan the index replaces
+    */
+  def scan(claims: Map[String, String], url: String, methods: Seq[String]): Boolean = claims.exists {
+    case (k, v) => url.startsWith(k) && (methods.isEmpty || v.split(",").intersect(methods).length == methods.size)
+  }
+
+  "JwtScopeIndex" should "match claim keys that the url starts with" in {
+
+    assert(index.covers("https://api.qa.xxxxx.com/program", Seq("GET")))
+    assert(index.covers("https://api.qa.xxxxx.com/program/123", Seq("DELETE", "POST")))
+    assert(index.covers("https://api.qa.xxxxx.com/programs", Seq("GET")))
+    assert(index.covers("https://api.qa.xxxxx.com/member/program/1", Seq("GET")))
+    assert(index.covers("https://api.qa.xxxxx.com/member/program/1", Seq("PUT")))
+    assert(index.covers("https://api.qa.xxxxx.com/pro", Seq.empty))
+
+    assert(!index.covers("https://api.qa.xxxxx.comdestination", Seq("GET")))
+    assert(!index.covers("https://api.qa.xxxxx.com/program", Seq("PUT")))
+    assert(!index.covers("https://api.qa.xxxxx.com/member/program", Seq("GET", "PUT")))
+    assert(!index.covers("https://api.qa.xxxxx.com/program", Seq("CONNECT")))
+    assert(!index.covers("https://api.qa", Seq.empty))
+  }
+
+  it should "match the same scopes as a linear scan" in {
+
+    val rnd = new Random(42)
+    val methods = Seq("GET", "POST", "PUT", "DELETE")
+    val paths = Seq("a", "ab", "b", "a/b", "a/bc", "")
+
+    def randomPath: String = (1 to rnd.nextInt(4)).map(_ => paths(rnd.nextInt(paths.size))).mkString("/")
+
+    for (_ <- 1 to 200) {
+      val randomClaims = (1 to rnd.nextInt(8)).map(_ =>
+        randomPath -> rnd.shuffle(methods).take(1 + rnd.nextInt(3)).mkString(",")
+      ).toMap
+
+      val randomIndex = JwtScopeIndex.compile(randomClaims).get
+
+      for (_ <- 1 to 20) {
+        val url = randomPath
+        val expected = rnd.shuffle(methods).take(rnd.nextInt(3))
+        assert(randomIndex.covers(url, expected) == scan(randomClaims, url, expected), s"$randomClaims $url $expected")
+      }
+    }
+  }
+
+  it should "share the compiled index for the same claims" in {
+    assert(JwtScopeIndex.forClaims(claims) eq JwtScopeIndex.forClaims(claims))
+  }
+
+  it should "not index claims with too many distinct method names" in {
+    assert(JwtScopeIndex.compile((1 to 65).map(i => s"url$i" -> s"M$i").toMap).isEmpty)
+  }
+}